@@ -0,0 +1,22 @@
+package org.drjekyll.sentry.spring;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Customizes the builder of the shared Apache HttpClient 4. All beans implementing this interface are applied in their
+ * order, before the client is built. The auto-configuration provides one, which adds the Sentry interceptors to the
+ * builder. Apply the beans to other builders to instrument them the same way.
+ */
+@FunctionalInterface
+public interface HttpClient4BuilderCustomizer {
+
+  /**
+   * Customizes the builder of an HTTP client.
+   *
+   * @param builder The builder of the HTTP client. Must not be null.
+   */
+  void customize(@Nonnull HttpClientBuilder builder);
+
+}
@@ -0,0 +1,22 @@
+package org.drjekyll.sentry.spring;
+
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Customizes the builder of the shared Apache HttpClient 5. All beans implementing this interface are applied in their
+ * order, before the client is built. The auto-configuration provides one, which instruments the builder with Sentry.
+ * Apply the beans to other builders to instrument them the same way.
+ */
+@FunctionalInterface
+public interface HttpClient5BuilderCustomizer {
+
+  /**
+   * Customizes the builder of an HTTP client.
+   *
+   * @param builder The builder of the HTTP client. Must not be null.
+   */
+  void customize(@Nonnull HttpClientBuilder builder);
+
+}
@@ -0,0 +1,49 @@
+package org.drjekyll.sentry.spring;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.drjekyll.sentry.apachehttpclient4.SentryFailedRequests;
+import org.drjekyll.sentry.apachehttpclient4.SentryHttpRequestInterceptor;
+import org.drjekyll.sentry.apachehttpclient4.SentryHttpResponseInterceptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.sentry.IHub;
+
+/**
+ * Provides the shared Apache HttpClient 4. Its execution chain can only be extended by subclassing the builder, so the
+ * customizer adds the pair of interceptors instead and the client is wrapped to finish the spans of failed requests.
+ * Spring 6 doesn't send requests with the Apache HttpClient 4, so it's only available for injection.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(HttpClientBuilder.class)
+class SentryHttpClient4Configuration {
+
+  @Bean
+  HttpClient4BuilderCustomizer sentryHttpClient4BuilderCustomizer(ObjectProvider<IHub> hub, SentryHttpOptions options) {
+    IHub sentryHub = SentryHttpClientAutoConfiguration.getHub(hub);
+    return builder -> builder
+      .addInterceptorFirst(new SentryHttpRequestInterceptor(sentryHub, options))
+      .addInterceptorLast(new SentryHttpResponseInterceptor(sentryHub, options));
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(CloseableHttpClient.class)
+  CloseableHttpClient sentryHttpClient4(
+    SentryHttpClientProperties properties,
+    ObjectProvider<HttpClient4BuilderCustomizer> customizers
+  ) {
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(properties.getMaxConnections());
+    connectionManager.setDefaultMaxPerRoute(properties.getMaxConnectionsPerRoute());
+    HttpClientBuilder builder = HttpClientBuilder.create().setConnectionManager(connectionManager);
+    customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+    return SentryFailedRequests.wrap(builder.build());
+  }
+
+}
@@ -0,0 +1,46 @@
+package org.drjekyll.sentry.spring;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.drjekyll.sentry.apachehttpclient5.SentryHttpClients;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.sentry.IHub;
+
+/**
+ * Provides the shared Apache HttpClient 5.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass(HttpClientBuilder.class)
+class SentryHttpClient5Configuration {
+
+  @Bean
+  HttpClient5BuilderCustomizer sentryHttpClient5BuilderCustomizer(ObjectProvider<IHub> hub, SentryHttpOptions options) {
+    IHub sentryHub = SentryHttpClientAutoConfiguration.getHub(hub);
+    return builder -> SentryHttpClients.instrument(builder, sentryHub, options);
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(CloseableHttpClient.class)
+  CloseableHttpClient sentryHttpClient5(
+    SentryHttpClientProperties properties,
+    ObjectProvider<HttpClient5BuilderCustomizer> customizers
+  ) {
+    PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+      .setMaxConnTotal(properties.getMaxConnections())
+      .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+      .build();
+    HttpClientBuilder builder = HttpClients.custom().setConnectionManager(connectionManager);
+    customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+    return builder.build();
+  }
+
+}
@@ -0,0 +1,50 @@
+package org.drjekyll.sentry.spring;
+
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+
+/**
+ * Provides a shared, pooled HTTP client, which is traced by Sentry, for each version of the Apache HttpClient on the
+ * class path, so the beans of an application don't need to create a connection pool each. The clients use the
+ * {@link IHub} bean, e.g. of the Sentry Spring Boot starter, or the current hub and a {@link SentryHttpOptions} bean,
+ * which is derived from the {@link SentryHttpClientProperties} unless the application defines its own.
+ * <p>
+ * The builders of the shared clients are customized by the {@link HttpClient5BuilderCustomizer} and
+ * {@link HttpClient4BuilderCustomizer} beans. An HTTP client bean of the application replaces the shared client of its
+ * version. {@link SentryRestClientAutoConfiguration} lets Spring's HTTP clients send their requests with the Apache
+ * HttpClient 5.
+ */
+@AutoConfiguration
+@ConditionalOnProperty(prefix = SentryHttpClientProperties.PREFIX, name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(SentryHttpClientProperties.class)
+@Import({SentryHttpClient5Configuration.class, SentryHttpClient4Configuration.class})
+public class SentryHttpClientAutoConfiguration {
+
+  /**
+   * Creates the options of the shared HTTP clients.
+   *
+   * @param properties The properties of the shared HTTP clients
+   * @return New options
+   */
+  @Bean
+  @ConditionalOnMissingBean
+  public SentryHttpOptions sentryHttpOptions(SentryHttpClientProperties properties) {
+    SentryHttpOptions options = new SentryHttpOptions();
+    options.setTracePropagationFormat(properties.getTracePropagationFormat());
+    return options;
+  }
+
+  static IHub getHub(ObjectProvider<IHub> hub) {
+    return hub.getIfAvailable(HubAdapter::getInstance);
+  }
+
+}
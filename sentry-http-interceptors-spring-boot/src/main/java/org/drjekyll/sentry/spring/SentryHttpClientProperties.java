@@ -0,0 +1,98 @@
+package org.drjekyll.sentry.spring;
+
+import org.drjekyll.sentry.http.TracePropagationFormat;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Properties of the shared HTTP clients, which are traced by Sentry.
+ */
+@ConfigurationProperties(prefix = SentryHttpClientProperties.PREFIX)
+public class SentryHttpClientProperties {
+
+  /**
+   * The prefix of the properties
+   */
+  public static final String PREFIX = "sentry.http-client";
+
+  /**
+   * Whether to provide the shared HTTP clients.
+   */
+  private boolean enabled = true;
+
+  /**
+   * The maximum number of pooled connections of each shared HTTP client.
+   */
+  private int maxConnections = 100;
+
+  /**
+   * The maximum number of pooled connections per route of each shared HTTP client.
+   */
+  private int maxConnectionsPerRoute = 20;
+
+  /**
+   * The headers propagating the trace to other services.
+   */
+  private TracePropagationFormat tracePropagationFormat = TracePropagationFormat.SENTRY;
+
+  /**
+   * @return true, if the shared HTTP clients are provided
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param enabled true, if the shared HTTP clients are provided
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * @return The maximum number of pooled connections of each shared HTTP client
+   */
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  /**
+   * @param maxConnections The maximum number of pooled connections of each shared HTTP client
+   */
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  /**
+   * @return The maximum number of pooled connections per route of each shared HTTP client
+   */
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  /**
+   * @param maxConnectionsPerRoute The maximum number of pooled connections per route of each shared HTTP client
+   */
+  public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+  }
+
+  /**
+   * @return The headers propagating the trace to other services. Never null.
+   */
+  @Nonnull
+  public TracePropagationFormat getTracePropagationFormat() {
+    return tracePropagationFormat;
+  }
+
+  /**
+   * @param tracePropagationFormat The headers propagating the trace to other services. Must not be null.
+   */
+  public void setTracePropagationFormat(@Nonnull TracePropagationFormat tracePropagationFormat) {
+    this.tracePropagationFormat = Objects.requireNonNull(tracePropagationFormat, "Trace propagation format");
+  }
+
+}
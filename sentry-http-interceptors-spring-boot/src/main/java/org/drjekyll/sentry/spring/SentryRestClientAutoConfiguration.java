@@ -0,0 +1,54 @@
+package org.drjekyll.sentry.spring;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Lets the {@code RestTemplate}s built by the {@code RestTemplateBuilder} and the {@code RestClient}s built by the
+ * {@code RestClient.Builder} of Spring Boot send their requests with the Apache HttpClient 5 bean, e.g. the shared
+ * client of {@link SentryHttpClientAutoConfiguration}. Otherwise Spring creates a new client with a connection pool of
+ * its own for each of them. The request factory replaces the one of the builder, so timeouts have to be configured at
+ * the HTTP client, e.g. with a {@link HttpClient5BuilderCustomizer}.
+ */
+@AutoConfiguration(after = SentryHttpClientAutoConfiguration.class)
+@ConditionalOnProperty(prefix = SentryHttpClientProperties.PREFIX, name = "enabled", matchIfMissing = true)
+@ConditionalOnClass({CloseableHttpClient.class, HttpComponentsClientHttpRequestFactory.class})
+@ConditionalOnSingleCandidate(CloseableHttpClient.class)
+public class SentryRestClientAutoConfiguration {
+
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnClass(RestTemplate.class)
+  static class RestTemplateConfiguration {
+
+    @Bean
+    RestTemplateCustomizer sentryRestTemplateCustomizer(CloseableHttpClient httpClient) {
+      ClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+      return restTemplate -> restTemplate.setRequestFactory(requestFactory);
+    }
+
+  }
+
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnClass(RestClient.class)
+  static class RestClientConfiguration {
+
+    @Bean
+    RestClientCustomizer sentryRestClientCustomizer(CloseableHttpClient httpClient) {
+      ClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+      return restClientBuilder -> restClientBuilder.requestFactory(requestFactory);
+    }
+
+  }
+
+}
@@ -0,0 +1,139 @@
+package org.drjekyll.sentry.spring;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.TracePropagationFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+import io.sentry.Sentry;
+import io.sentry.SentryOptions;
+import io.sentry.SentryTracer;
+import io.sentry.TransactionOptions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentryHttpClientAutoConfigurationTest {
+
+  private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+    .withConfiguration(AutoConfigurations.of(
+      SentryHttpClientAutoConfiguration.class,
+      SentryRestClientAutoConfiguration.class
+    ));
+
+  @Test
+  void providesSharedHttpClients() {
+
+    contextRunner.run(context -> {
+      assertThat(context).hasSingleBean(CloseableHttpClient.class);
+      assertThat(context).hasSingleBean(org.apache.http.impl.client.CloseableHttpClient.class);
+      assertThat(context).hasSingleBean(HttpClient5BuilderCustomizer.class);
+      assertThat(context).hasSingleBean(HttpClient4BuilderCustomizer.class);
+      assertThat(context).hasSingleBean(RestTemplateCustomizer.class);
+      assertThat(context).hasSingleBean(RestClientCustomizer.class);
+      assertThat(context.getBean(SentryHttpOptions.class).getTracePropagationFormat())
+        .isEqualTo(TracePropagationFormat.SENTRY);
+    });
+
+  }
+
+  @Test
+  void configuresOptionsByProperties() {
+
+    contextRunner.withPropertyValues("sentry.http-client.trace-propagation-format=SENTRY_AND_W3C").run(context ->
+      assertThat(context.getBean(SentryHttpOptions.class).getTracePropagationFormat())
+        .isEqualTo(TracePropagationFormat.SENTRY_AND_W3C));
+
+  }
+
+  @Test
+  void keepsHttpClientOfApplication() {
+
+    CloseableHttpClient httpClient = HttpClients.createMinimal();
+
+    contextRunner.withBean(CloseableHttpClient.class, () -> httpClient).run(context -> {
+      assertThat(context.getBean(CloseableHttpClient.class)).isSameAs(httpClient);
+      RestTemplate restTemplate = new RestTemplateBuilder(context.getBean(RestTemplateCustomizer.class)).build();
+      assertThat(((HttpComponentsClientHttpRequestFactory) restTemplate.getRequestFactory()).getHttpClient())
+        .isSameAs(httpClient);
+    });
+
+  }
+
+  @Test
+  void skipsMissingHttpClientVersion() {
+
+    contextRunner.withClassLoader(new FilteredClassLoader("org.apache.http.")).run(context -> {
+      assertThat(context).hasSingleBean(CloseableHttpClient.class);
+      assertThat(context).doesNotHaveBean(HttpClient4BuilderCustomizer.class);
+    });
+
+  }
+
+  @Test
+  void canBeDisabled() {
+
+    contextRunner.withPropertyValues("sentry.http-client.enabled=false").run(context -> {
+      assertThat(context).doesNotHaveBean(CloseableHttpClient.class);
+      assertThat(context).doesNotHaveBean(RestTemplateCustomizer.class);
+    });
+
+  }
+
+  @Test
+  void tracesRequestsOfRestTemplates() throws Exception {
+
+    AtomicReference<String> sentryTrace = new AtomicReference<>();
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/test", exchange -> {
+      sentryTrace.set(exchange.getRequestHeaders().getFirst("sentry-trace"));
+      exchange.sendResponseHeaders(204, -1L);
+      exchange.close();
+    });
+    server.start();
+    try {
+      SentryOptions options = new SentryOptions();
+      options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + server.getAddress().getPort() + "/42");
+      options.setTracesSampleRate(1.0);
+      Sentry.init(options);
+      TransactionOptions transactionOptions = new TransactionOptions();
+      transactionOptions.setBindToScope(true);
+      SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+        "TRANSACTION_NAME",
+        "TRANSACTION_OPERATION",
+        transactionOptions
+      );
+
+      contextRunner.withBean(IHub.class, Sentry::getCurrentHub).run(context -> {
+        RestTemplate restTemplate = new RestTemplateBuilder(context.getBean(RestTemplateCustomizer.class)).build();
+        restTemplate.getForEntity("http://localhost:" + server.getAddress().getPort() + "/test", Void.class);
+      });
+      transaction.finish();
+
+      ISpan span = transaction.getChildren().get(0);
+      assertThat(span.getOperation()).isEqualTo("http.client");
+      assertThat(span.isFinished()).isTrue();
+      assertThat(sentryTrace.get()).isEqualTo(span.toSentryTrace().getValue());
+    } finally {
+      Sentry.close();
+      server.stop(0);
+    }
+
+  }
+
+}
@@ -0,0 +1,115 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.drjekyll.sentry.benchmark.BenchmarkHubs;
+import org.drjekyll.sentry.benchmark.Scenario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.BaggageHeader;
+import io.sentry.IHub;
+import io.sentry.ITransaction;
+
+/**
+ * Measures the costs of the Apache HttpClient 4 interceptors per request. Each invocation processes a batch of
+ * requests within a new transaction, so the transaction doesn't run into the span limit. Compare the results with
+ * {@link #baseline(Blackhole)}, which only creates the requests.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SentryInterceptorBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  private static final HttpResponse RESPONSE = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+
+  @Param
+  public Scenario scenario;
+
+  private IHub hub;
+
+  private SentryHttpRequestInterceptor requestInterceptor;
+
+  private SentryHttpResponseInterceptor responseInterceptor;
+
+  @Setup
+  public void setUp() {
+    hub = BenchmarkHubs.create(scenario);
+    requestInterceptor = new SentryHttpRequestInterceptor(hub);
+    responseInterceptor = new SentryHttpResponseInterceptor(hub);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void baseline(Blackhole blackhole) {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      blackhole.consume(createRequest());
+      blackhole.consume(new BasicHttpContext());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void request(Blackhole blackhole) {
+    ITransaction transaction = startTransaction();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      HttpRequestWrapper request = createRequest();
+      HttpContext context = new BasicHttpContext();
+      requestInterceptor.process(request, context);
+      blackhole.consume(request);
+    }
+    blackhole.consume(transaction);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void requestAndResponse(Blackhole blackhole) {
+    ITransaction transaction = startTransaction();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      HttpRequestWrapper request = createRequest();
+      HttpContext context = new BasicHttpContext();
+      requestInterceptor.process(request, context);
+      context.setAttribute(HttpCoreContext.HTTP_REQUEST, request);
+      responseInterceptor.process(RESPONSE, context);
+      blackhole.consume(request);
+    }
+    blackhole.consume(transaction);
+  }
+
+  private ITransaction startTransaction() {
+    return scenario.hasActiveSpan() ? BenchmarkHubs.bindTransaction(hub) : null;
+  }
+
+  private HttpRequestWrapper createRequest() {
+    HttpGet original = new HttpGet(Scenario.URL);
+    if (scenario.hasBaggage()) {
+      original.addHeader(BaggageHeader.BAGGAGE_HEADER, Scenario.BAGGAGE);
+    }
+    return HttpRequestWrapper.wrap(original);
+  }
+
+}
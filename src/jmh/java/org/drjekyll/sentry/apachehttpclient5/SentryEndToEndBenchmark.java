@@ -0,0 +1,88 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.drjekyll.sentry.benchmark.BenchmarkHubs;
+import org.drjekyll.sentry.benchmark.LocalServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.IHub;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Measures the latency distribution of complete requests to an in-process server with and without the Apache
+ * HttpClient 5 interceptors. The sample time mode reports the p50 and p99 percentiles.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SentryEndToEndBenchmark {
+
+  private static final int SPANS_PER_TRANSACTION = 500;
+
+  @Param({"false", "true"})
+  public boolean instrumented;
+
+  private LocalServer server;
+
+  private IHub hub;
+
+  private CloseableHttpClient client;
+
+  private String url;
+
+  private int requestCount;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = LocalServer.start();
+    url = server.getBaseUrl() + "/page/42?query=string";
+    hub = BenchmarkHubs.create(singletonList("localhost"));
+    HttpClientBuilder builder = HttpClientBuilder.create();
+    if (instrumented) {
+      builder
+        .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(hub))
+        .addResponseInterceptorLast(new SentryHttpResponseInterceptor(hub));
+    }
+    client = builder.build();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    client.close();
+    server.close();
+  }
+
+  @Benchmark
+  public int execute() throws IOException {
+    if (requestCount++ % SPANS_PER_TRANSACTION == 0) {
+      BenchmarkHubs.bindTransaction(hub);
+    }
+    return client.execute(new HttpGet(url), (ClassicHttpResponse response) -> {
+      EntityUtils.consume(response.getEntity());
+      return response.getCode();
+    });
+  }
+
+}
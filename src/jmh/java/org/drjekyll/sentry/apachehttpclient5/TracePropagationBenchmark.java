@@ -0,0 +1,95 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.drjekyll.sentry.benchmark.BenchmarkHubs;
+import org.drjekyll.sentry.benchmark.Scenario;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.TraceHeaderEncoder;
+import org.drjekyll.sentry.http.TracePropagationFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.IHub;
+import io.sentry.ITransaction;
+import io.sentry.SentryTraceHeader;
+
+/**
+ * Compares the costs of the trace propagation formats per request. {@link #request(Blackhole)} runs the request
+ * interceptor for a trace propagation target and {@link #encode(Blackhole)} just encodes the header values in each
+ * format. {@link #sentryTraceHeaderOfSpan(Blackhole)} renders the {@code sentry-trace} header with Sentry itself, like
+ * the interceptors did before the header encoder, for reference. It doesn't depend on the format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TracePropagationBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  @Param
+  public TracePropagationFormat format;
+
+  private final TraceHeaderEncoder traceHeaderEncoder = new TraceHeaderEncoder();
+
+  private IHub hub;
+
+  private SentryHttpRequestInterceptor requestInterceptor;
+
+  @Setup
+  public void setUp() {
+    hub = BenchmarkHubs.create(Scenario.MATCHING_TARGET);
+    SentryHttpOptions options = new SentryHttpOptions();
+    options.setTracePropagationFormat(format);
+    requestInterceptor = new SentryHttpRequestInterceptor(hub, options);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void request(Blackhole blackhole) throws IOException {
+    ITransaction transaction = BenchmarkHubs.bindTransaction(hub);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      HttpGet request = new HttpGet(Scenario.URL);
+      requestInterceptor.process(request, null, HttpCoreContext.create());
+      blackhole.consume(request);
+    }
+    blackhole.consume(transaction);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void encode(Blackhole blackhole) {
+    ITransaction transaction = BenchmarkHubs.bindTransaction(hub);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      blackhole.consume(traceHeaderEncoder.encode(transaction, format));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void sentryTraceHeaderOfSpan(Blackhole blackhole) {
+    ITransaction transaction = BenchmarkHubs.bindTransaction(hub);
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      SentryTraceHeader sentryTraceHeader = transaction.toSentryTrace();
+      blackhole.consume(sentryTraceHeader.getValue());
+    }
+  }
+
+}
@@ -0,0 +1,48 @@
+package org.drjekyll.sentry.benchmark;
+
+import java.util.List;
+
+import io.sentry.Hub;
+import io.sentry.IHub;
+import io.sentry.ITransaction;
+import io.sentry.NoOpTransportFactory;
+import io.sentry.SentryOptions;
+import io.sentry.TransactionOptions;
+
+/**
+ * Creates Sentry hubs that trace everything or the configuration of a scenario, but never send anything.
+ */
+public final class BenchmarkHubs {
+
+  private BenchmarkHubs() {
+    // utility
+  }
+
+  public static IHub create(List<String> tracePropagationTargets) {
+    return new Hub(createOptions(tracePropagationTargets, 1.0));
+  }
+
+  public static IHub create(Scenario scenario) {
+    IHub hub = new Hub(createOptions(scenario.getTracePropagationTargets(), scenario.getTracesSampleRate()));
+    if (!scenario.isHubEnabled()) {
+      hub.close();
+    }
+    return hub;
+  }
+
+  private static SentryOptions createOptions(List<String> tracePropagationTargets, Double tracesSampleRate) {
+    SentryOptions options = new SentryOptions();
+    options.setDsn("https://7caad69b389e41d98a74b1504b3c388f@localhost/42");
+    options.setTracesSampleRate(tracesSampleRate);
+    options.setTransportFactory(NoOpTransportFactory.getInstance());
+    options.setTracePropagationTargets(tracePropagationTargets);
+    return options;
+  }
+
+  public static ITransaction bindTransaction(IHub hub) {
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    return hub.startTransaction("benchmark", "benchmark", transactionOptions);
+  }
+
+}
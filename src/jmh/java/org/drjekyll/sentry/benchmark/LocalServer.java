@@ -0,0 +1,44 @@
+package org.drjekyll.sentry.benchmark;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.impl.bootstrap.HttpServer;
+import org.apache.hc.core5.http.impl.bootstrap.ServerBootstrap;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.io.CloseMode;
+
+import java.io.IOException;
+
+/**
+ * An in-process HTTP server on an ephemeral port that answers every request with a short text.
+ */
+public final class LocalServer implements AutoCloseable {
+
+  private final HttpServer server;
+
+  private LocalServer(HttpServer server) {
+    this.server = server;
+  }
+
+  public static LocalServer start() throws IOException {
+    HttpServer server = ServerBootstrap.bootstrap()
+      .setListenerPort(0)
+      .register("*", (request, response, context) -> {
+        response.setCode(HttpStatus.SC_OK);
+        response.setEntity(new StringEntity("ok", ContentType.TEXT_PLAIN));
+      })
+      .create();
+    server.start();
+    return new LocalServer(server);
+  }
+
+  public String getBaseUrl() {
+    return "http://localhost:" + server.getLocalPort();
+  }
+
+  @Override
+  public void close() {
+    server.close(CloseMode.IMMEDIATE);
+  }
+
+}
@@ -0,0 +1,72 @@
+package org.drjekyll.sentry.benchmark;
+
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * The situations the interceptors are benchmarked in.
+ */
+public enum Scenario {
+
+  NO_ACTIVE_SPAN(false, "daniel-heid.de", false),
+  MATCHING_TARGET(true, "daniel-heid.de", false),
+  NON_MATCHING_TARGET(true, "example.org", false),
+  EXISTING_BAGGAGE(true, "daniel-heid.de", true),
+  SAMPLED_OUT(true, "daniel-heid.de", false, 0.0, true),
+  TRACING_DISABLED(true, "daniel-heid.de", false, null, true),
+  HUB_DISABLED(true, "daniel-heid.de", false, 1.0, false);
+
+  public static final String URL = "https://www.daniel-heid.de/page/42?query=string";
+
+  public static final String BAGGAGE = "othervendor=someValue,sentry-environment=test,sentry-sample_rate=1,sentry-trace_id=984e8992456b4cb6b63c4bbb6be31d2b";
+
+  private final boolean activeSpan;
+
+  private final String tracePropagationTarget;
+
+  private final boolean baggage;
+
+  private final Double tracesSampleRate;
+
+  private final boolean hubEnabled;
+
+  Scenario(boolean activeSpan, String tracePropagationTarget, boolean baggage) {
+    this(activeSpan, tracePropagationTarget, baggage, 1.0, true);
+  }
+
+  Scenario(
+    boolean activeSpan,
+    String tracePropagationTarget,
+    boolean baggage,
+    Double tracesSampleRate,
+    boolean hubEnabled
+  ) {
+    this.activeSpan = activeSpan;
+    this.tracePropagationTarget = tracePropagationTarget;
+    this.baggage = baggage;
+    this.tracesSampleRate = tracesSampleRate;
+    this.hubEnabled = hubEnabled;
+  }
+
+  public boolean hasActiveSpan() {
+    return activeSpan;
+  }
+
+  public List<String> getTracePropagationTargets() {
+    return singletonList(tracePropagationTarget);
+  }
+
+  public boolean hasBaggage() {
+    return baggage;
+  }
+
+  public Double getTracesSampleRate() {
+    return tracesSampleRate;
+  }
+
+  public boolean isHubEnabled() {
+    return hubEnabled;
+  }
+
+}
@@ -0,0 +1,51 @@
+package org.drjekyll.sentry.http;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the costs of recording a latency per request with several threads recording for the same host concurrently.
+ * Run it with the GC profiler to see that recording doesn't allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LatencyRecorderBenchmark {
+
+  private static final String HOST = "www.daniel-heid.de";
+
+  private LatencyRecorder latencyRecorder;
+
+  @Setup
+  public void setUp() {
+    latencyRecorder = new LatencyRecorder((host, snapshot) -> { }, Duration.ofSeconds(1L));
+  }
+
+  @TearDown
+  public void tearDown() {
+    latencyRecorder.close();
+  }
+
+  @Benchmark
+  public void record() {
+    latencyRecorder.record(HOST, 42_000_000L, false);
+  }
+
+}
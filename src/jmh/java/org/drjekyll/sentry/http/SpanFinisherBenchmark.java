@@ -0,0 +1,86 @@
+package org.drjekyll.sentry.http;
+
+import org.drjekyll.sentry.benchmark.BenchmarkHubs;
+import org.drjekyll.sentry.benchmark.Scenario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+import io.sentry.ITransaction;
+import io.sentry.SentryNanotimeDate;
+import io.sentry.SpanStatus;
+import io.sentry.TransactionOptions;
+
+/**
+ * Measures the time the thread receiving a response spends finishing its span, if the span is the last child of a
+ * transaction waiting for its children, so finishing the span finishes the transaction. Both variants include starting
+ * the transaction and the span. The background finisher is flushed after each invocation outside of the measured time,
+ * so the queue never overflows, and reports the number of dropped spans, which must be zero for a fair comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpanFinisherBenchmark {
+
+  private static final RequestDescriptor REQUEST = new RequestDescriptor("GET", Scenario.URL);
+
+  @Param({"SYNCHRONOUS", "BACKGROUND"})
+  public String finisher;
+
+  private final TransactionOptions transactionOptions = new TransactionOptions();
+
+  private IHub hub;
+
+  private SpanFinisher spanFinisher;
+
+  @Setup
+  public void setUp() {
+    hub = BenchmarkHubs.create(Scenario.MATCHING_TARGET);
+    transactionOptions.setWaitForChildren(true);
+    spanFinisher = "BACKGROUND".equals(finisher) ? new BackgroundSpanFinisher() : SpanFinisher.SYNCHRONOUS;
+  }
+
+  @TearDown(Level.Invocation)
+  public void flush() {
+    if (spanFinisher instanceof BackgroundSpanFinisher) {
+      ((BackgroundSpanFinisher) spanFinisher).flush(Duration.ofSeconds(10L));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (spanFinisher instanceof BackgroundSpanFinisher) {
+      BackgroundSpanFinisher backgroundSpanFinisher = (BackgroundSpanFinisher) spanFinisher;
+      backgroundSpanFinisher.close();
+      System.out.println("dropped spans: " + backgroundSpanFinisher.getDroppedCount());
+    }
+  }
+
+  @Benchmark
+  public ISpan finishLastChild() {
+    ITransaction transaction = hub.startTransaction("benchmark", "benchmark", transactionOptions);
+    ISpan span = transaction.startChild("http.client", REQUEST.getDescription());
+    transaction.finish();
+    spanFinisher.finish(hub, span, SpanStatus.OK, new SentryNanotimeDate(), BreadcrumbPolicy.ALWAYS, REQUEST, 200);
+    return span;
+  }
+
+}
@@ -0,0 +1,57 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.CountingInputStream;
+import org.drjekyll.sentry.http.CountingOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import io.sentry.ISpan;
+
+/**
+ * Counts the bytes of an entity with unknown length while it is streamed and adds the count as data to a span. The
+ * count of a response is only added once its content was read to the end, which must happen before the transaction of
+ * the span is finished to be sent along.
+ */
+final class CountingHttpEntity extends HttpEntityWrapper {
+
+  private final ISpan span;
+
+  private final String dataKey;
+
+  private InputStream content;
+
+  private CountingInputStream countingContent;
+
+  CountingHttpEntity(HttpEntity wrappedEntity, ISpan span, String dataKey) {
+    super(wrappedEntity);
+    this.span = Args.notNull(span, "Span");
+    this.dataKey = Args.notNull(dataKey, "Data key");
+  }
+
+  @Override
+  public InputStream getContent() throws IOException {
+    InputStream wrappedContent = super.getContent();
+    if (wrappedContent == null) {
+      return null;
+    }
+    // streaming entities return the same stream on each call, which must be counted only once
+    if (wrappedContent != content) {
+      content = wrappedContent;
+      countingContent = new CountingInputStream(wrappedContent, count -> span.setData(dataKey, count));
+    }
+    return countingContent;
+  }
+
+  @Override
+  public void writeTo(OutputStream outStream) throws IOException {
+    CountingOutputStream countingOutputStream = new CountingOutputStream(outStream);
+    super.writeTo(countingOutputStream);
+    span.setData(dataKey, countingOutputStream.getCount());
+  }
+
+}
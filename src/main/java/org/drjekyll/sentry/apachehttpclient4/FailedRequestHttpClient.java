@@ -0,0 +1,90 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.execchain.RequestAbortedException;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.SpanAggregator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import io.sentry.ISpan;
+import io.sentry.SentryNanotimeDate;
+import io.sentry.SpanStatus;
+
+/**
+ * Finishes the span of a request, which failed without a response, after the exception left the execution chain of
+ * another client. The execution chain of the Apache HttpClient 4 can't be extended, so the client itself is wrapped.
+ */
+final class FailedRequestHttpClient extends CloseableHttpClient {
+
+  private final CloseableHttpClient delegate;
+
+  FailedRequestHttpClient(CloseableHttpClient delegate) {
+    this.delegate = Args.notNull(delegate, "HTTP client");
+  }
+
+  @Override
+  protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+    throws IOException {
+    HttpContext exchangeContext = context != null ? context : HttpClientContext.create();
+    try {
+      return delegate.execute(target, request, exchangeContext);
+    } catch (IOException | RuntimeException e) {
+      finishFailedRequest(exchangeContext, e);
+      throw e;
+    }
+  }
+
+  static void finishFailedRequest(HttpContext context, Exception cause) {
+    LatencyTimers.stop(context, true);
+    Object span = context.removeAttribute(ContextAttributes.SPAN);
+    Object aggregatedExchange = context.removeAttribute(ContextAttributes.AGGREGATED_EXCHANGE);
+    context.removeAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+    context.removeAttribute(ContextAttributes.CONNECTION_TIMINGS);
+    SpanStatus status = toStatus(cause);
+    if (span instanceof ISpan) {
+      ISpan failedSpan = (ISpan) span;
+      failedSpan.setThrowable(cause);
+      failedSpan.finish(status, new SentryNanotimeDate());
+    }
+    if (aggregatedExchange instanceof SpanAggregator.Exchange) {
+      ((SpanAggregator.Exchange) aggregatedExchange).finish(status);
+    }
+  }
+
+  static SpanStatus toStatus(Exception cause) {
+    if (cause instanceof RequestAbortedException) {
+      return SpanStatus.CANCELLED;
+    }
+    if (cause instanceof InterruptedIOException) {
+      return SpanStatus.DEADLINE_EXCEEDED;
+    }
+    return SpanStatus.INTERNAL_ERROR;
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  @Override
+  @Deprecated
+  public HttpParams getParams() {
+    return delegate.getParams();
+  }
+
+  @Override
+  @Deprecated
+  public ClientConnectionManager getConnectionManager() {
+    return delegate.getConnectionManager();
+  }
+
+}
@@ -0,0 +1,49 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.HttpContext;
+import org.drjekyll.sentry.http.LatencyRecorder;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+
+final class LatencyTimers {
+
+  private LatencyTimers() {
+    // utility
+  }
+
+  static void start(
+    SentryHttpOptions options,
+    HttpRequestWrapper requestWrapper,
+    HttpUriRequest originalRequest,
+    HttpContext context
+  ) {
+    LatencyRecorder latencyRecorder = options.getLatencyRecorder();
+    if (latencyRecorder == null || context == null) {
+      return;
+    }
+    // a timer left by a previous attempt belongs to an attempt, which failed without a response
+    stop(context, true);
+    context.setAttribute(ContextAttributes.LATENCY_TIMER, latencyRecorder.start(getHost(requestWrapper, originalRequest)));
+  }
+
+  private static String getHost(HttpRequestWrapper requestWrapper, HttpUriRequest originalRequest) {
+    HttpHost target = requestWrapper.getTarget();
+    return target != null ? target.getHostName() : originalRequest.getURI().getHost();
+  }
+
+  static void stop(SentryHttpOptions options, HttpContext context) {
+    if (options.getLatencyRecorder() != null) {
+      stop(context, false);
+    }
+  }
+
+  static void stop(HttpContext context, boolean failed) {
+    Object timer = context.removeAttribute(ContextAttributes.LATENCY_TIMER);
+    if (timer instanceof LatencyRecorder.Timer) {
+      ((LatencyRecorder.Timer) timer).stop(failed);
+    }
+  }
+
+}
@@ -0,0 +1,66 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.LogicalExchange;
+
+import java.io.IOException;
+
+import io.sentry.SpanStatus;
+
+/**
+ * Wraps each execution of another client including its redirects and retries in a {@link LogicalExchange}, so
+ * {@link SentryHttpRequestInterceptor} traces each attempt as child of one logical span. The execution chain of the
+ * Apache HttpClient 4 can't be extended above the redirect handling, so the client itself is wrapped.
+ */
+final class LogicalExchangeHttpClient extends CloseableHttpClient {
+
+  private final CloseableHttpClient delegate;
+
+  LogicalExchangeHttpClient(CloseableHttpClient delegate) {
+    this.delegate = Args.notNull(delegate, "HTTP client");
+  }
+
+  @Override
+  protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context)
+    throws IOException {
+    HttpContext exchangeContext = context != null ? context : HttpClientContext.create();
+    LogicalExchange logicalExchange = new LogicalExchange();
+    exchangeContext.setAttribute(ContextAttributes.LOGICAL_EXCHANGE, logicalExchange);
+    try {
+      CloseableHttpResponse response = delegate.execute(target, request, exchangeContext);
+      logicalExchange.finish(SpanStatus.fromHttpStatusCode(response.getStatusLine().getStatusCode()), null);
+      return response;
+    } catch (IOException | RuntimeException e) {
+      logicalExchange.finish(FailedRequestHttpClient.toStatus(e), e);
+      throw e;
+    } finally {
+      exchangeContext.removeAttribute(ContextAttributes.LOGICAL_EXCHANGE);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  @Override
+  @Deprecated
+  public HttpParams getParams() {
+    return delegate.getParams();
+  }
+
+  @Override
+  @Deprecated
+  public ClientConnectionManager getConnectionManager() {
+    return delegate.getConnectionManager();
+  }
+
+}
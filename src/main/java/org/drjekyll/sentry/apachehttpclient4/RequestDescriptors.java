@@ -0,0 +1,29 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.UrlNormalizer;
+
+final class RequestDescriptors {
+
+  private RequestDescriptors() {
+    // utility
+  }
+
+  static RequestDescriptor create(HttpUriRequest httpUriRequest) {
+    return create(httpUriRequest, UrlNormalizer.NONE);
+  }
+
+  static RequestDescriptor create(HttpUriRequest httpUriRequest, UrlNormalizer urlNormalizer) {
+    Args.notNull(httpUriRequest, "HTTP request");
+    return new RequestDescriptor(httpUriRequest.getMethod(), httpUriRequest.getURI().toString(), urlNormalizer);
+  }
+
+  static RequestDescriptor get(HttpContext context) {
+    Object descriptor = context.getAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+    return descriptor instanceof RequestDescriptor ? (RequestDescriptor) descriptor : null;
+  }
+
+}
@@ -0,0 +1,56 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.HttpException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.execchain.ClientExecChain;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+
+import java.io.IOException;
+
+import io.sentry.IHub;
+
+/**
+ * Traces each exchange of the wrapped execution chain element with a Sentry span. Both halves of the exchange are
+ * handled by the interceptors of one instance, so they share the hub and the options, and the span of an exchange
+ * failing without a response is finished with an error status. The span starts when the element is entered and ends
+ * when the wrapped element returned the response, both captured with {@link System#nanoTime()}.
+ */
+final class SentryClientExecChain implements ClientExecChain {
+
+  private final ClientExecChain delegate;
+
+  private final SentryHttpRequestInterceptor requestInterceptor;
+
+  private final SentryHttpResponseInterceptor responseInterceptor;
+
+  SentryClientExecChain(ClientExecChain delegate, IHub hub, SentryHttpOptions options) {
+    this.delegate = Args.notNull(delegate, "Execution chain");
+    requestInterceptor = new SentryHttpRequestInterceptor(hub, options);
+    responseInterceptor = new SentryHttpResponseInterceptor(hub, options);
+  }
+
+  @Override
+  public CloseableHttpResponse execute(
+    HttpRoute route,
+    HttpRequestWrapper request,
+    HttpClientContext clientContext,
+    HttpExecutionAware execAware
+  ) throws IOException, HttpException {
+    requestInterceptor.process(request, clientContext, System.nanoTime());
+    CloseableHttpResponse response;
+    try {
+      response = delegate.execute(route, request, clientContext, execAware);
+    } catch (IOException | HttpException | RuntimeException e) {
+      FailedRequestHttpClient.finishFailedRequest(clientContext, e);
+      throw e;
+    }
+    responseInterceptor.process(response, clientContext, System.nanoTime());
+    return response;
+  }
+
+}
@@ -0,0 +1,153 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.ConnectionPoolSnapshot;
+import org.drjekyll.sentry.http.ConnectionPoolStatistics;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+import io.sentry.SentryLevel;
+
+/**
+ * Samples the statistics of a connection pool periodically, e.g. of a {@link PoolingHttpClientConnectionManager}. The
+ * statistics are emitted as Sentry metrics, if metrics are enabled in the Sentry options. The statistics per route are
+ * only available for a {@link PoolingHttpClientConnectionManager}. Pass the monitor to
+ * {@link SentryHttpOptions#setConnectionPoolStatistics(ConnectionPoolStatistics)} to add the latest statistics as
+ * measurements to each span:
+ * <pre>
+ * PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+ * SentryHttpOptions options = new SentryHttpOptions();
+ * SentryConnectionPoolMonitor monitor = new SentryConnectionPoolMonitor(HubAdapter.getInstance(), connectionManager, options);
+ * options.setConnectionPoolStatistics(monitor);
+ * </pre>
+ * Sampling runs on a daemon thread until the monitor is closed. The pool is only queried once per sampling interval,
+ * so requests just read the latest snapshot.
+ */
+public final class SentryConnectionPoolMonitor implements ConnectionPoolStatistics, Closeable {
+
+  private final IHub hub;
+
+  private final ConnPoolControl<HttpRoute> pool;
+
+  private final boolean perRoute;
+
+  private final ScheduledExecutorService ownedScheduler;
+
+  private final ScheduledFuture<?> samplingTask;
+
+  private volatile ConnectionPoolSnapshot snapshot;
+
+  /**
+   * Starts sampling the given connection pool on a new daemon thread.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param pool The connection pool. Must not be null.
+   * @param options Options of the sampling interval. Must not be null.
+   */
+  public SentryConnectionPoolMonitor(
+    @Nonnull IHub hub,
+    @Nonnull ConnPoolControl<HttpRoute> pool,
+    @Nonnull SentryHttpOptions options
+  ) {
+    this(hub, pool, options, Executors.newSingleThreadScheduledExecutor(SentryConnectionPoolMonitor::newThread), true);
+  }
+
+  /**
+   * Starts sampling the given connection pool with the given scheduler, which is not shut down by this monitor.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param pool The connection pool. Must not be null.
+   * @param options Options of the sampling interval. Must not be null.
+   * @param scheduler A scheduler running the sampling. Must not be null.
+   */
+  public SentryConnectionPoolMonitor(
+    @Nonnull IHub hub,
+    @Nonnull ConnPoolControl<HttpRoute> pool,
+    @Nonnull SentryHttpOptions options,
+    @Nonnull ScheduledExecutorService scheduler
+  ) {
+    this(hub, pool, options, scheduler, false);
+  }
+
+  private SentryConnectionPoolMonitor(
+    IHub hub,
+    ConnPoolControl<HttpRoute> pool,
+    SentryHttpOptions options,
+    ScheduledExecutorService scheduler,
+    boolean ownsScheduler
+  ) {
+    this.hub = Args.notNull(hub, "Hub");
+    this.pool = Args.notNull(pool, "Connection pool");
+    Args.notNull(options, "Options");
+    Args.notNull(scheduler, "Scheduler");
+    perRoute = options.isConnectionPoolStatisticsPerRoute();
+    ownedScheduler = ownsScheduler ? scheduler : null;
+    long intervalNanos = options.getConnectionPoolSamplingInterval().toNanos();
+    samplingTask = scheduler.scheduleAtFixedRate(this::sample, 0L, intervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Nullable
+  @Override
+  public ConnectionPoolSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Samples the statistics of the pool immediately.
+   */
+  public void sample() {
+    try {
+      ConnectionPoolSnapshot totalSnapshot = toSnapshot(pool.getTotalStats());
+      snapshot = totalSnapshot;
+      if (hub.getOptions().isEnableMetrics()) {
+        totalSnapshot.emitTo(hub.metrics(), Collections.emptyMap());
+        if (perRoute && pool instanceof PoolingHttpClientConnectionManager) {
+          for (HttpRoute route : ((PoolingHttpClientConnectionManager) pool).getRoutes()) {
+            toSnapshot(pool.getStats(route)).emitTo(hub.metrics(),
+              Collections.singletonMap("route", route.getTargetHost().toHostString())
+            );
+          }
+        }
+      }
+    } catch (RuntimeException e) {
+      hub.getOptions().getLogger().log(SentryLevel.WARNING, "Could not sample connection pool statistics", e);
+    }
+  }
+
+  /**
+   * Stops sampling. A scheduler passed to this monitor is not shut down.
+   */
+  @Override
+  public void close() {
+    samplingTask.cancel(false);
+    if (ownedScheduler != null) {
+      ownedScheduler.shutdown();
+    }
+  }
+
+  private static ConnectionPoolSnapshot toSnapshot(PoolStats stats) {
+    return new ConnectionPoolSnapshot(stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+  }
+
+  private static Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, "sentry-connection-pool-monitor");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+}
@@ -0,0 +1,67 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.ConnectionTimings;
+
+/**
+ * Optional instrumentation of the Apache HttpClient, which adds the durations of the connection phases as data to the
+ * spans created by {@link SentryHttpRequestInterceptor}. See {@link ConnectionTimings} for the recorded keys.
+ * <p>
+ * The time to first byte is measured by {@link #instrument(HttpClientBuilder)}. Wrap the connection manager with
+ * {@link #wrap(HttpClientConnectionManager)} to measure the pool lease and connect times, and the TLS socket factory
+ * of the connection manager with {@link #wrap(LayeredConnectionSocketFactory)} to measure the TLS handshake:
+ * <pre>
+ * PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+ *   RegistryBuilder.&lt;ConnectionSocketFactory&gt;create()
+ *     .register("http", PlainConnectionSocketFactory.getSocketFactory())
+ *     .register("https", SentryConnectionTimings.wrap(SSLConnectionSocketFactory.getSocketFactory()))
+ *     .build());
+ * SentryConnectionTimings.instrument(HttpClientBuilder.create())
+ *   .setConnectionManager(SentryConnectionTimings.wrap(connectionManager))
+ *   .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+ *   .addInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+ *   .build();
+ * </pre>
+ * Nothing is measured for clients without this instrumentation. Exchanges without a span aren't measured.
+ */
+public final class SentryConnectionTimings {
+
+  private SentryConnectionTimings() {
+    // utility
+  }
+
+  /**
+   * Sets a request executor, which measures the time to first byte. It replaces any request executor set before.
+   *
+   * @param builder The builder of the HTTP client. Must not be null.
+   * @return The given builder
+   */
+  public static HttpClientBuilder instrument(HttpClientBuilder builder) {
+    Args.notNull(builder, "HTTP client builder");
+    return builder.setRequestExecutor(new TimingHttpRequestExecutor());
+  }
+
+  /**
+   * Wraps a connection manager to measure the pool lease time and the time connecting new connections.
+   *
+   * @param connectionManager The connection manager to delegate to. Must not be null.
+   * @return A connection manager recording the lease and connect times
+   */
+  public static HttpClientConnectionManager wrap(HttpClientConnectionManager connectionManager) {
+    return new TimingHttpClientConnectionManager(connectionManager);
+  }
+
+  /**
+   * Wraps a TLS socket factory to measure the duration of TLS handshakes.
+   *
+   * @param socketFactory The socket factory to delegate to. Must not be null.
+   * @return A socket factory recording the handshake duration
+   */
+  public static LayeredConnectionSocketFactory wrap(LayeredConnectionSocketFactory socketFactory) {
+    return new TimingLayeredConnectionSocketFactory(socketFactory);
+  }
+
+}
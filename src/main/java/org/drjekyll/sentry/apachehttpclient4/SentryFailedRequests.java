@@ -0,0 +1,36 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+
+/**
+ * Optional instrumentation of the Apache HttpClient, which finishes the span of each request failing without a
+ * response, e.g. due to an I/O error, a timeout or an aborted request. The response interceptor isn't called in this
+ * case, so the span would otherwise stay unfinished and become the parent of all later spans of the transaction:
+ * <pre>
+ * CloseableHttpClient client = SentryFailedRequests.wrap(HttpClientBuilder.create()
+ *   .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+ *   .addInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+ *   .build());
+ * </pre>
+ * Aborted requests are finished with {@link io.sentry.SpanStatus#CANCELLED}, timeouts with
+ * {@link io.sentry.SpanStatus#DEADLINE_EXCEEDED} and other failures with {@link io.sentry.SpanStatus#INTERNAL_ERROR}.
+ * Spans of attempts failing before a retry are finished by {@link SentryHttpRequestInterceptor} when the retry starts.
+ * {@link SentryRetryTracing} wraps the client this way as well.
+ */
+public final class SentryFailedRequests {
+
+  private SentryFailedRequests() {
+    // utility
+  }
+
+  /**
+   * Wraps an HTTP client to finish the spans of its failed requests.
+   *
+   * @param client The HTTP client to delegate to. Must not be null.
+   * @return An HTTP client finishing the spans of failed requests
+   */
+  public static CloseableHttpClient wrap(CloseableHttpClient client) {
+    return new FailedRequestHttpClient(client);
+  }
+
+}
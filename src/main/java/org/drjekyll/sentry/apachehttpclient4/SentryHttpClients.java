@@ -0,0 +1,70 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.execchain.ClientExecChain;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+
+/**
+ * Creates Apache HttpClient builders, which trace each exchange with a single element of the execution chain. This is
+ * an alternative to adding {@link SentryHttpRequestInterceptor} and {@link SentryHttpResponseInterceptor}, which need
+ * to be registered first and last with the same hub and options:
+ * <pre>
+ * CloseableHttpClient client = SentryHttpClients.custom().build();
+ * </pre>
+ * The execution chain of the Apache HttpClient 4 can only be extended by subclassing its builder, so existing builders
+ * can't be instrumented. The element wraps the main execution of each attempt, i.e. it runs after the protocol
+ * interceptors and covers acquiring the connection and the exchange up to the response head. Spans of failed requests
+ * are finished, so the client doesn't need {@link SentryFailedRequests}. Don't add the interceptors to the returned
+ * builder, otherwise each request is traced twice.
+ */
+public final class SentryHttpClients {
+
+  private SentryHttpClients() {
+    // utility
+  }
+
+  /**
+   * Creates a builder of an HTTP client, which traces its exchanges with the current hub and default options.
+   *
+   * @return A new HTTP client builder
+   */
+  public static HttpClientBuilder custom() {
+    return custom(HubAdapter.getInstance(), new SentryHttpOptions());
+  }
+
+  /**
+   * Creates a builder of an HTTP client, which traces its exchanges with the given hub and options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the tracing. Must not be null.
+   * @return A new HTTP client builder
+   */
+  public static HttpClientBuilder custom(@Nonnull IHub hub, @Nonnull SentryHttpOptions options) {
+    return new SentryHttpClientBuilder(Args.notNull(hub, "Hub"), Args.notNull(options, "Options"));
+  }
+
+  private static final class SentryHttpClientBuilder extends HttpClientBuilder {
+
+    private final IHub hub;
+
+    private final SentryHttpOptions options;
+
+    private SentryHttpClientBuilder(IHub hub, SentryHttpOptions options) {
+      this.hub = hub;
+      this.options = options;
+    }
+
+    @Override
+    protected ClientExecChain decorateMainExec(ClientExecChain mainExec) {
+      return new SentryClientExecChain(super.decorateMainExec(mainExec), hub, options);
+    }
+
+  }
+
+}
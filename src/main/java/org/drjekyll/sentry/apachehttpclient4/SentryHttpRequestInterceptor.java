@@ -1,25 +1,35 @@
 package org.drjekyll.sentry.apachehttpclient4;
 
-import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.client.methods.HttpRequestWrapper;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.Args;
-
-import java.util.Arrays;
-import java.util.stream.Collectors;
+import org.drjekyll.sentry.http.ConnectionPoolSnapshot;
+import org.drjekyll.sentry.http.ConnectionPoolStatistics;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.drjekyll.sentry.http.EnabledFeatures;
+import org.drjekyll.sentry.http.ExchangeTimestamps;
+import org.drjekyll.sentry.http.ForkedContext;
+import org.drjekyll.sentry.http.LogicalExchange;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.SpanAggregator;
+import org.drjekyll.sentry.http.SpanReaper;
+import org.drjekyll.sentry.http.TracePropagationTargetMatcher;
 
 import javax.annotation.Nonnull;
 
-import io.sentry.BaggageHeader;
-import io.sentry.Breadcrumb;
 import io.sentry.HubAdapter;
 import io.sentry.IHub;
 import io.sentry.ISpan;
-import io.sentry.SentryTraceHeader;
-import io.sentry.util.PropagationTargetsUtils;
+import io.sentry.Instrumenter;
+import io.sentry.SentryNanotimeDate;
+import io.sentry.SentryOptions;
+import io.sentry.SpanStatus;
 
 /**
  * An Apache HttpClient request interceptor that creates a Sentry span and adds Sentry tracing information to the HTTP
@@ -35,23 +45,49 @@ import io.sentry.util.PropagationTargetsUtils;
  *   .build();
  * </pre>
  * This interceptor alone won't finish the span and won't add a breadcrumb, so you need
- * {@link SentryHttpResponseInterceptor} as well.  The hub needs to be the same hub in both interceptors.
+ * {@link SentryHttpResponseInterceptor} as well.  The hub needs to be the same hub in both interceptors. The created
+ * span is stored in the {@link HttpContext} of the request, so the response interceptor finishes exactly this span.
+ * The time spent in both interceptors is recorded as {@value ExchangeTimestamps#INTERCEPTOR_OVERHEAD_DATA_KEY} of the
+ * span.
  */
 public class SentryHttpRequestInterceptor implements HttpRequestInterceptor {
 
   private final IHub hub;
 
+  private final SentryHttpOptions options;
+
+  private final TracePropagationTargetMatcher tracePropagationTargetMatcher = new TracePropagationTargetMatcher();
+
+  private final TraceHeaders traceHeaders = new TraceHeaders();
+
+  private final EnabledFeatures enabledFeatures = new EnabledFeatures();
+
   /**
-   * Initializes this HTTP request interceptor with the given Sentry hub.
+   * Initializes this HTTP request interceptor with the given Sentry hub and default options.
    *
    * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
    */
   public SentryHttpRequestInterceptor(@Nonnull IHub hub) {
+    this(hub, new SentryHttpOptions());
+  }
+
+  /**
+   * Initializes this HTTP request interceptor with the given Sentry hub and options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the interceptors. Must not be null.
+   */
+  public SentryHttpRequestInterceptor(@Nonnull IHub hub, @Nonnull SentryHttpOptions options) {
     this.hub = Args.notNull(hub, "Hub");
+    this.options = Args.notNull(options, "Options");
   }
 
   @Override
   public void process(HttpRequest request, HttpContext context) {
+    process(request, context, System.nanoTime());
+  }
+
+  void process(HttpRequest request, HttpContext context, long startNanoTime) {
     Args.notNull(request, "HTTP request");
     if (!(request instanceof HttpRequestWrapper)) {
       return;
@@ -61,31 +97,141 @@ public class SentryHttpRequestInterceptor implements HttpRequestInterceptor {
       return;
     }
     HttpUriRequest originalRequest = (HttpUriRequest) requestWrapper.getOriginal();
-    ISpan activeSpan = hub.getSpan();
-    String method = originalRequest.getMethod();
-    String url = originalRequest.getURI().toString();
-    if (activeSpan == null) {
-      hub.addBreadcrumb(Breadcrumb.http(url, method));
+    LatencyTimers.start(options, requestWrapper, originalRequest, context);
+    ForkedContext forkedContext = SentryHttpContexts.getForkedContext(context);
+    IHub currentHub = forkedContext != null ? forkedContext.getHub() : hub;
+    if (!currentHub.isEnabled()) {
       return;
     }
-    ISpan childSpan = activeSpan.startChild("http.client");
-    childSpan.setData(RequestHash.SPAN_DATA_KEY, RequestHash.create(requestWrapper));
-    childSpan.setDescription(String.format("%s %s", method, url));
-    final SentryTraceHeader sentryTraceHeader = childSpan.toSentryTrace();
-    if (PropagationTargetsUtils.contain(hub.getOptions().getTracePropagationTargets(), url)) {
-      request.addHeader(sentryTraceHeader.getName(), sentryTraceHeader.getValue());
-      Header[] headers = request.getHeaders(BaggageHeader.BAGGAGE_HEADER);
-      if (headers != null) {
-        BaggageHeader baggageHeader = childSpan.toBaggageHeader(Arrays.stream(headers)
-          .sequential()
-          .map(Header::getValue)
-          .collect(Collectors.toList()));
-        if (baggageHeader != null) {
-          request.addHeader(baggageHeader.getName(), baggageHeader.getValue());
+    SentryOptions sentryOptions = currentHub.getOptions();
+    boolean breadcrumbsEnabled = enabledFeatures.isBreadcrumbsEnabled(sentryOptions);
+    ISpan activeSpan = enabledFeatures.isTracingEnabled(sentryOptions)
+      ? ForkedContext.getActiveSpan(currentHub, forkedContext)
+      : null;
+    if (activeSpan == null || activeSpan.isNoOp()) {
+      if (breadcrumbsEnabled) {
+        RequestDescriptor descriptor = RequestDescriptors.create(originalRequest, options.getUrlNormalizer());
+        options.getBreadcrumbPolicy().addBreadcrumb(currentHub, descriptor, null);
+      }
+      return;
+    }
+    RequestDescriptor descriptor = RequestDescriptors.create(originalRequest, options.getUrlNormalizer());
+    LogicalExchange logicalExchange = SentryRetryTracing.getLogicalExchange(context);
+    if (!isSampled(currentHub, activeSpan, descriptor, logicalExchange)) {
+      if (breadcrumbsEnabled) {
+        options.getBreadcrumbPolicy().addBreadcrumb(currentHub, descriptor, null);
+      }
+      if (tracePropagationTargetMatcher.matches(sentryOptions, descriptor.getUrl())) {
+        traceHeaders.add(activeSpan, request, options.getTracePropagationFormat());
+      }
+      return;
+    }
+    ISpan childSpan;
+    if (logicalExchange != null) {
+      childSpan = logicalExchange.startAttempt(activeSpan, descriptor, startNanoTime);
+    } else {
+      SpanAggregator.Exchange aggregatedExchange = startAggregatedExchange(
+        currentHub,
+        activeSpan,
+        descriptor,
+        context,
+        startNanoTime
+      );
+      if (aggregatedExchange != null) {
+        context.setAttribute(ContextAttributes.AGGREGATED_EXCHANGE, aggregatedExchange);
+        context.setAttribute(ContextAttributes.REQUEST_DESCRIPTOR, descriptor);
+        if (tracePropagationTargetMatcher.matches(sentryOptions, descriptor.getUrl())) {
+          traceHeaders.add(activeSpan, request, options.getTracePropagationFormat());
         }
+        return;
       }
+      childSpan = activeSpan.startChild(
+        "http.client",
+        descriptor.getDescription(),
+        ExchangeTimestamps.toDate(startNanoTime),
+        Instrumenter.SENTRY
+      );
+    }
+    SpanReaper spanReaper = options.getSpanReaper();
+    if (spanReaper != null) {
+      spanReaper.register(childSpan);
     }
+    if (context != null) {
+      finishAbandonedSpan(context);
+      context.setAttribute(ContextAttributes.SPAN, childSpan);
+      context.setAttribute(ContextAttributes.REQUEST_DESCRIPTOR, descriptor);
+    }
+    childSpan.setData(RequestHash.SPAN_DATA_KEY, RequestHash.create(requestWrapper));
+    ConnectionPoolStatistics connectionPoolStatistics = options.getConnectionPoolStatistics();
+    ConnectionPoolSnapshot poolSnapshot = connectionPoolStatistics != null ? connectionPoolStatistics.getSnapshot() : null;
+    if (poolSnapshot != null) {
+      poolSnapshot.applyTo(childSpan);
+    }
+    recordContentLength(childSpan, requestWrapper);
+    if (tracePropagationTargetMatcher.matches(sentryOptions, descriptor.getUrl())) {
+      traceHeaders.add(childSpan, request, options.getTracePropagationFormat());
+    }
+    ExchangeTimestamps.addInterceptorOverhead(childSpan, startNanoTime);
+
+  }
+
+  private boolean isSampled(
+    IHub currentHub,
+    ISpan activeSpan,
+    RequestDescriptor descriptor,
+    LogicalExchange logicalExchange
+  ) {
+    if (logicalExchange != null && logicalExchange.isStarted()) {
+      return true;
+    }
+    if (logicalExchange != null && logicalExchange.isDeclined()) {
+      return false;
+    }
+    boolean sampled = !Boolean.FALSE.equals(activeSpan.getSpanContext().getSampled())
+      && options.getSpanSamplingPolicy().isSampled(descriptor, activeSpan, currentHub.getTransaction());
+    if (!sampled && logicalExchange != null) {
+      logicalExchange.decline();
+    }
+    return sampled;
+  }
 
+  private SpanAggregator.Exchange startAggregatedExchange(
+    IHub currentHub,
+    ISpan activeSpan,
+    RequestDescriptor descriptor,
+    HttpContext context,
+    long startNanoTime
+  ) {
+    SpanAggregator spanAggregator = options.getSpanAggregator();
+    if (spanAggregator == null || context == null) {
+      return null;
+    }
+    return spanAggregator.start(currentHub.getTransaction(), activeSpan, descriptor, startNanoTime);
+  }
+
+  // the previous attempt of a retried request failed without a response, so the response interceptor wasn't called
+  private static void finishAbandonedSpan(HttpContext context) {
+    Object abandonedSpan = context.getAttribute(ContextAttributes.SPAN);
+    if (abandonedSpan instanceof ISpan && !((ISpan) abandonedSpan).isFinished()) {
+      ((ISpan) abandonedSpan).finish(SpanStatus.UNKNOWN_ERROR, new SentryNanotimeDate());
+    }
+  }
+
+  private static void recordContentLength(ISpan span, HttpRequest request) {
+    if (!(request instanceof HttpEntityEnclosingRequest)) {
+      return;
+    }
+    HttpEntityEnclosingRequest entityEnclosingRequest = (HttpEntityEnclosingRequest) request;
+    HttpEntity entity = entityEnclosingRequest.getEntity();
+    if (entity == null) {
+      return;
+    }
+    long contentLength = entity.getContentLength();
+    if (contentLength >= 0L) {
+      span.setData(ContentLengths.REQUEST_DATA_KEY, contentLength);
+    } else {
+      entityEnclosingRequest.setEntity(new CountingHttpEntity(entity, span, ContentLengths.REQUEST_DATA_KEY));
+    }
   }
 
 }
@@ -1,5 +1,6 @@
 package org.drjekyll.sentry.apachehttpclient4;
 
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.StatusLine;
@@ -8,11 +9,19 @@ import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpCoreContext;
 import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.ConnectionTimings;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.drjekyll.sentry.http.EnabledFeatures;
+import org.drjekyll.sentry.http.ExchangeTimestamps;
+import org.drjekyll.sentry.http.ForkedContext;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.SpanAggregator;
 
-import io.sentry.Breadcrumb;
 import io.sentry.HubAdapter;
 import io.sentry.IHub;
 import io.sentry.ISpan;
+import io.sentry.SentryDate;
 import io.sentry.SpanStatus;
 
 /**
@@ -20,8 +29,8 @@ import io.sentry.SpanStatus;
  * {@link SentryHttpRequestInterceptor}.
  * <p>
  * Add this interceptor as last response interceptor with
- * {@link org.apache.http.impl.client.HttpClientBuilder#addInterceptorLast(HttpResponseInterceptor)} to measure the span
- * duration precisely as possible:
+ * {@link org.apache.http.impl.client.HttpClientBuilder#addInterceptorLast(HttpResponseInterceptor)}, so the span
+ * includes as few of the other interceptors as possible:
  * <pre>
  * HttpClientBuilder.create()
  *   .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
@@ -29,49 +38,150 @@ import io.sentry.SpanStatus;
  *   .build();
  * </pre>
  * This interceptor alone won't find the span, so you need
- * {@link SentryHttpRequestInterceptor} as well. The hub needs to be the same hub in both interceptors.
+ * {@link SentryHttpRequestInterceptor} as well. The hub needs to be the same hub in both interceptors. The span is
+ * taken from the {@link HttpContext} of the request. Only if it is missing there, the current span of the hub is
+ * finished, given that it was created for the same request.
  */
 public class SentryHttpResponseInterceptor implements HttpResponseInterceptor {
 
   private final IHub hub;
 
+  private final SentryHttpOptions options;
+
+  private final EnabledFeatures enabledFeatures = new EnabledFeatures();
+
   /**
-   * Initializes this HTTP response interceptor with the given Sentry hub.
+   * Initializes this HTTP response interceptor with the given Sentry hub and default options.
    *
    * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
    */
   public SentryHttpResponseInterceptor(IHub hub) {
+    this(hub, new SentryHttpOptions());
+  }
+
+  /**
+   * Initializes this HTTP response interceptor with the given Sentry hub and options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the interceptors. Must not be null.
+   */
+  public SentryHttpResponseInterceptor(IHub hub, SentryHttpOptions options) {
     this.hub = Args.notNull(hub, "Hub");
+    this.options = Args.notNull(options, "Options");
   }
 
   @Override
   public void process(HttpResponse response, HttpContext context) {
+    process(response, context, System.nanoTime());
+  }
+
+  void process(HttpResponse response, HttpContext context, long receivedNanoTime) {
     Args.notNull(response, "HTTP response");
     Args.notNull(context, "HTTP context");
-    ISpan span = hub.getSpan();
-    if (span == null) {
+    LatencyTimers.stop(options, context);
+    ForkedContext forkedContext = SentryHttpContexts.getForkedContext(context);
+    IHub currentHub = forkedContext != null ? forkedContext.getHub() : hub;
+    if (!currentHub.isEnabled()) {
+      return;
+    }
+    Object aggregatedExchange = context.removeAttribute(ContextAttributes.AGGREGATED_EXCHANGE);
+    if (aggregatedExchange instanceof SpanAggregator.Exchange) {
+      RequestDescriptor descriptor = RequestDescriptors.get(context);
+      context.removeAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+      StatusLine statusLine = response.getStatusLine();
+      if (statusLine == null) {
+        ((SpanAggregator.Exchange) aggregatedExchange).finish(null);
+        return;
+      }
+      int statusCode = statusLine.getStatusCode();
+      ((SpanAggregator.Exchange) aggregatedExchange).finish(SpanStatus.fromHttpStatusCode(statusCode));
+      if (descriptor != null) {
+        options.getBreadcrumbPolicy().addBreadcrumb(currentHub, descriptor, statusCode);
+      }
+      return;
+    }
+    Object spanAttribute = context.getAttribute(ContextAttributes.SPAN);
+    if (spanAttribute instanceof ISpan) {
+      context.removeAttribute(ContextAttributes.SPAN);
+      RequestDescriptor descriptor = RequestDescriptors.get(context);
+      if (descriptor != null) {
+        context.removeAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+      } else {
+        descriptor = createDescriptor(context.getAttribute(HttpCoreContext.HTTP_REQUEST));
+      }
+      Object timings = context.removeAttribute(ContextAttributes.CONNECTION_TIMINGS);
+      if (timings instanceof ConnectionTimings) {
+        ((ConnectionTimings) timings).applyTo((ISpan) spanAttribute);
+      }
+      finish(currentHub, (ISpan) spanAttribute, response, descriptor, receivedNanoTime);
+      return;
+    }
+    if (!enabledFeatures.isTracingEnabled(currentHub.getOptions())) {
+      return;
+    }
+    ISpan span = currentHub.getSpan();
+    if (span == null || !"http.client".equals(span.getOperation())) {
       return;
     }
     Object requestAttribute = context.getAttribute(HttpCoreContext.HTTP_REQUEST);
     if (requestAttribute instanceof HttpRequestWrapper) {
       HttpRequestWrapper request = (HttpRequestWrapper) requestAttribute;
       if (request.getOriginal() instanceof HttpUriRequest && isCorrespondingSpan(span, request)) {
-        StatusLine statusLine = response.getStatusLine();
-        if (statusLine != null) {
-          int statusCode = statusLine.getStatusCode();
-          span.setStatus(SpanStatus.fromHttpStatusCode(statusCode));
-          HttpUriRequest original = (HttpUriRequest) request.getOriginal();
-          hub.addBreadcrumb(Breadcrumb.http(
-            original.getURI().toString(),
-            original.getMethod(),
-            statusCode
-          ));
-        }
-        span.finish();
+        RequestDescriptor descriptor = RequestDescriptors.create((HttpUriRequest) request.getOriginal());
+        finish(currentHub, span, response, descriptor, receivedNanoTime);
       }
     }
   }
 
+  private void finish(
+    IHub currentHub,
+    ISpan span,
+    HttpResponse response,
+    RequestDescriptor descriptor,
+    long receivedNanoTime
+  ) {
+    SentryDate end = ExchangeTimestamps.toDate(receivedNanoTime);
+    recordContentLength(span, response);
+    StatusLine statusLine = response.getStatusLine();
+    ExchangeTimestamps.addInterceptorOverhead(span, receivedNanoTime);
+    if (statusLine == null) {
+      options.getSpanFinisher().finish(currentHub, span, null, end, options.getBreadcrumbPolicy(), null, null);
+      return;
+    }
+    int statusCode = statusLine.getStatusCode();
+    span.setStatus(SpanStatus.fromHttpStatusCode(statusCode));
+    options.getSpanFinisher().finish(
+      currentHub,
+      span,
+      null,
+      end,
+      options.getBreadcrumbPolicy(),
+      descriptor,
+      statusCode
+    );
+  }
+
+  private static void recordContentLength(ISpan span, HttpResponse response) {
+    HttpEntity entity = response.getEntity();
+    if (entity == null) {
+      return;
+    }
+    long contentLength = entity.getContentLength();
+    if (contentLength >= 0L) {
+      span.setData(ContentLengths.RESPONSE_DATA_KEY, contentLength);
+    } else {
+      response.setEntity(new CountingHttpEntity(entity, span, ContentLengths.RESPONSE_DATA_KEY));
+    }
+  }
+
+  private static RequestDescriptor createDescriptor(Object requestAttribute) {
+    if (requestAttribute instanceof HttpRequestWrapper
+      && ((HttpRequestWrapper) requestAttribute).getOriginal() instanceof HttpUriRequest) {
+      return RequestDescriptors.create((HttpUriRequest) ((HttpRequestWrapper) requestAttribute).getOriginal());
+    }
+    return null;
+  }
+
   private static boolean isCorrespondingSpan(ISpan span, HttpUriRequest request) {
     Args.notNull(span, "Span");
     Args.notNull(request, "HTTP Request");
@@ -0,0 +1,46 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.HttpContext;
+import org.drjekyll.sentry.http.LogicalExchange;
+
+/**
+ * Optional instrumentation of the Apache HttpClient, which traces one logical call including its retries and redirects
+ * as one {@code http.client} span. {@link SentryHttpRequestInterceptor} adds a child span for each attempt, so the time
+ * waiting for retries can be told apart from the time spent in the exchanges. See {@link LogicalExchange} for the
+ * recorded data:
+ * <pre>
+ * CloseableHttpClient client = SentryRetryTracing.wrap(HttpClientBuilder.create()
+ *   .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+ *   .addInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+ *   .build());
+ * </pre>
+ * Spans of attempts failing without a response are finished when the next attempt starts or the call fails, see
+ * {@link SentryFailedRequests}. Requests traced as logical calls aren't aggregated by a
+ * {@link org.drjekyll.sentry.http.SpanAggregator}.
+ */
+public final class SentryRetryTracing {
+
+  private SentryRetryTracing() {
+    // utility
+  }
+
+  /**
+   * Wraps an HTTP client to trace each of its executions as logical call.
+   *
+   * @param client The HTTP client to delegate to. Must not be null.
+   * @return An HTTP client tracing logical calls
+   */
+  public static CloseableHttpClient wrap(CloseableHttpClient client) {
+    return new LogicalExchangeHttpClient(SentryFailedRequests.wrap(client));
+  }
+
+  static LogicalExchange getLogicalExchange(HttpContext context) {
+    if (context == null) {
+      return null;
+    }
+    Object logicalExchange = context.getAttribute(ContextAttributes.LOGICAL_EXCHANGE);
+    return logicalExchange instanceof LogicalExchange ? (LogicalExchange) logicalExchange : null;
+  }
+
+}
@@ -0,0 +1,105 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.ConnectionTimings;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delegates to another connection manager and records the time leasing and connecting connections. Leasing a
+ * connection has no {@link HttpContext}, so the lease time is kept per thread until {@link TimingHttpRequestExecutor}
+ * takes it for the exchange.
+ */
+final class TimingHttpClientConnectionManager implements HttpClientConnectionManager {
+
+  private static final ThreadLocal<long[]> LEASE_NANOS = ThreadLocal.withInitial(() -> new long[] {-1L});
+
+  private final HttpClientConnectionManager delegate;
+
+  TimingHttpClientConnectionManager(HttpClientConnectionManager delegate) {
+    this.delegate = Args.notNull(delegate, "Connection manager");
+  }
+
+  /**
+   * @return The lease time of the last connection leased by the current thread in nanoseconds or -1, if there is none.
+   * The lease time is reset.
+   */
+  static long takeLeaseNanos() {
+    long[] leaseNanos = LEASE_NANOS.get();
+    long nanos = leaseNanos[0];
+    leaseNanos[0] = -1L;
+    return nanos;
+  }
+
+  @Override
+  public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+    ConnectionRequest connectionRequest = delegate.requestConnection(route, state);
+    return new ConnectionRequest() {
+
+      @Override
+      public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+        throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+        long start = System.nanoTime();
+        HttpClientConnection connection = connectionRequest.get(timeout, timeUnit);
+        LEASE_NANOS.get()[0] = System.nanoTime() - start;
+        return connection;
+      }
+
+      @Override
+      public boolean cancel() {
+        return connectionRequest.cancel();
+      }
+
+    };
+  }
+
+  @Override
+  public void releaseConnection(HttpClientConnection conn, Object newState, long validDuration, TimeUnit timeUnit) {
+    delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+  }
+
+  @Override
+  public void connect(HttpClientConnection conn, HttpRoute route, int connectTimeout, HttpContext context)
+    throws IOException {
+    long start = System.nanoTime();
+    delegate.connect(conn, route, connectTimeout, context);
+    ConnectionTimings timings = TimingHttpRequestExecutor.getOrCreate(context);
+    if (timings != null) {
+      timings.connected(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void upgrade(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+    delegate.upgrade(conn, route, context);
+  }
+
+  @Override
+  public void routeComplete(HttpClientConnection conn, HttpRoute route, HttpContext context) throws IOException {
+    delegate.routeComplete(conn, route, context);
+  }
+
+  @Override
+  public void closeIdleConnections(long idletime, TimeUnit timeUnit) {
+    delegate.closeIdleConnections(idletime, timeUnit);
+  }
+
+  @Override
+  public void closeExpiredConnections() {
+    delegate.closeExpiredConnections();
+  }
+
+  @Override
+  public void shutdown() {
+    delegate.shutdown();
+  }
+
+}
@@ -0,0 +1,51 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.drjekyll.sentry.http.ConnectionTimings;
+
+import java.io.IOException;
+
+import io.sentry.ISpan;
+
+/**
+ * A request executor, which marks the start of the request and takes the pool lease time recorded by
+ * {@link TimingHttpClientConnectionManager} into the {@link ConnectionTimings} of the exchange.
+ */
+final class TimingHttpRequestExecutor extends HttpRequestExecutor {
+
+  @Override
+  public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context)
+    throws IOException, HttpException {
+    long leaseNanos = TimingHttpClientConnectionManager.takeLeaseNanos();
+    ConnectionTimings timings = getOrCreate(context);
+    if (timings != null) {
+      if (leaseNanos >= 0L) {
+        timings.poolLeased(leaseNanos);
+      }
+      timings.requestStarted();
+    }
+    return super.execute(request, conn, context);
+  }
+
+  /**
+   * @return The timings of the exchange or null, if the exchange has no span
+   */
+  static ConnectionTimings getOrCreate(HttpContext context) {
+    if (context == null || !(context.getAttribute(ContextAttributes.SPAN) instanceof ISpan)) {
+      return null;
+    }
+    Object timings = context.getAttribute(ContextAttributes.CONNECTION_TIMINGS);
+    if (timings instanceof ConnectionTimings) {
+      return (ConnectionTimings) timings;
+    }
+    ConnectionTimings newTimings = new ConnectionTimings();
+    context.setAttribute(ContextAttributes.CONNECTION_TIMINGS, newTimings);
+    return newTimings;
+  }
+
+}
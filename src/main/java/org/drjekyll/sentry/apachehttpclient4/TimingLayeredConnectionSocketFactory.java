@@ -0,0 +1,77 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.ConnectionTimings;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Delegates to another layered socket factory and records the duration of the TLS handshake. The plain socket is
+ * connected by this factory, so the handshake can be measured separately.
+ */
+final class TimingLayeredConnectionSocketFactory implements LayeredConnectionSocketFactory {
+
+  private final LayeredConnectionSocketFactory delegate;
+
+  TimingLayeredConnectionSocketFactory(LayeredConnectionSocketFactory delegate) {
+    this.delegate = Args.notNull(delegate, "Socket factory");
+  }
+
+  @Override
+  public Socket createSocket(HttpContext context) throws IOException {
+    return delegate.createSocket(context);
+  }
+
+  @Override
+  public Socket connectSocket(
+    int connectTimeout,
+    Socket socket,
+    HttpHost host,
+    InetSocketAddress remoteAddress,
+    InetSocketAddress localAddress,
+    HttpContext context
+  ) throws IOException {
+    Args.notNull(host, "HTTP host");
+    Args.notNull(remoteAddress, "Remote address");
+    Socket sock = socket != null ? socket : createSocket(context);
+    if (sock instanceof SSLSocket) {
+      return delegate.connectSocket(connectTimeout, sock, host, remoteAddress, localAddress, context);
+    }
+    if (localAddress != null) {
+      sock.bind(localAddress);
+    }
+    try {
+      if (connectTimeout > 0 && sock.getSoTimeout() == 0) {
+        sock.setSoTimeout(connectTimeout);
+      }
+      sock.connect(remoteAddress, connectTimeout);
+    } catch (IOException e) {
+      try {
+        sock.close();
+      } catch (IOException ignore) {
+        // already failing
+      }
+      throw e;
+    }
+    return createLayeredSocket(sock, host.getHostName(), remoteAddress.getPort(), context);
+  }
+
+  @Override
+  public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+    long start = System.nanoTime();
+    Socket layeredSocket = delegate.createLayeredSocket(socket, target, port, context);
+    ConnectionTimings timings = TimingHttpRequestExecutor.getOrCreate(context);
+    if (timings != null) {
+      timings.tlsHandshakeCompleted(System.nanoTime() - start);
+    }
+    return layeredSocket;
+  }
+
+}
@@ -0,0 +1,65 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.util.Args;
+import org.drjekyll.sentry.http.BaggageMerger;
+import org.drjekyll.sentry.http.TraceHeaderEncoder;
+import org.drjekyll.sentry.http.TracePropagationFormat;
+
+import io.sentry.BaggageHeader;
+import io.sentry.ISpan;
+import io.sentry.SentryTraceHeader;
+
+/**
+ * Writes the {@code sentry-trace} and/or the {@code traceparent} header and merges the Sentry baggage into a single
+ * {@code baggage} header of a request. Existing headers are replaced, so retried requests don't accumulate headers. An
+ * existing {@code tracestate} header is left as it is, since it belongs to the other vendors of the trace.
+ */
+final class TraceHeaders {
+
+  private final TraceHeaderEncoder traceHeaderEncoder = new TraceHeaderEncoder();
+
+  private final BaggageMerger baggageMerger = new BaggageMerger();
+
+  void add(ISpan span, HttpRequest request, TracePropagationFormat format) {
+    Args.notNull(span, "Span");
+    Args.notNull(request, "HTTP request");
+    TraceHeaderEncoder.EncodedTraceHeaders traceHeaders = traceHeaderEncoder.encode(span, format);
+    if (traceHeaders.getSentryTrace() != null) {
+      request.setHeader(SentryTraceHeader.SENTRY_TRACE_HEADER, traceHeaders.getSentryTrace());
+    }
+    if (traceHeaders.getTraceparent() != null) {
+      request.setHeader(TraceHeaderEncoder.TRACEPARENT_HEADER, traceHeaders.getTraceparent());
+    }
+    Header firstBaggageHeader = request.getFirstHeader(BaggageHeader.BAGGAGE_HEADER);
+    boolean multipleBaggageHeaders = firstBaggageHeader != null
+      && request.getLastHeader(BaggageHeader.BAGGAGE_HEADER) != firstBaggageHeader;
+    String incomingBaggage;
+    if (multipleBaggageHeaders) {
+      incomingBaggage = join(request.getHeaders(BaggageHeader.BAGGAGE_HEADER));
+    } else {
+      incomingBaggage = firstBaggageHeader != null ? firstBaggageHeader.getValue() : null;
+    }
+    String baggage = baggageMerger.merge(span, incomingBaggage);
+    if (baggage == null) {
+      return;
+    }
+    if (multipleBaggageHeaders) {
+      request.removeHeaders(BaggageHeader.BAGGAGE_HEADER);
+    }
+    request.setHeader(BaggageHeader.BAGGAGE_HEADER, baggage);
+  }
+
+  private static String join(Header[] headers) {
+    StringBuilder baggage = new StringBuilder();
+    for (Header header : headers) {
+      if (baggage.length() > 0) {
+        baggage.append(',');
+      }
+      baggage.append(header.getValue());
+    }
+    return baggage.toString();
+  }
+
+}
@@ -0,0 +1,52 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.SpanAggregator;
+
+import java.io.IOException;
+
+import io.sentry.SpanStatus;
+
+final class AggregatingAsyncExecCallback implements AsyncExecCallback {
+
+  private final SpanAggregator.Exchange exchange;
+
+  private final AsyncExecCallback delegate;
+
+  private volatile SpanStatus status;
+
+  AggregatingAsyncExecCallback(SpanAggregator.Exchange exchange, AsyncExecCallback delegate) {
+    this.exchange = Args.notNull(exchange, "Exchange");
+    this.delegate = Args.notNull(delegate, "Callback");
+  }
+
+  @Override
+  public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails)
+    throws HttpException, IOException {
+    status = SpanStatus.fromHttpStatusCode(response.getCode());
+    return delegate.handleResponse(response, entityDetails);
+  }
+
+  @Override
+  public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+    delegate.handleInformationResponse(response);
+  }
+
+  @Override
+  public void completed() {
+    exchange.finish(status);
+    delegate.completed();
+  }
+
+  @Override
+  public void failed(Exception cause) {
+    exchange.finish(SentryAsyncExecCallback.toStatus(cause));
+    delegate.failed(cause);
+  }
+
+}
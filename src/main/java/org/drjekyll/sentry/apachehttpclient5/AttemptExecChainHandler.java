@@ -0,0 +1,56 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.drjekyll.sentry.http.SpanAggregator;
+
+import java.io.IOException;
+
+import io.sentry.ISpan;
+import io.sentry.SentryNanotimeDate;
+import io.sentry.SpanStatus;
+
+/**
+ * Finishes the span of an attempt, which failed without a response, before the retry handler waits for the next
+ * attempt. Otherwise the span would be left unfinished, because the response interceptor isn't called. Aborted
+ * requests are finished with {@link SpanStatus#CANCELLED}, timeouts with {@link SpanStatus#DEADLINE_EXCEEDED} and
+ * other failures with {@link SpanStatus#INTERNAL_ERROR}. The latency of the attempt is recorded as failed.
+ */
+final class AttemptExecChainHandler implements ExecChainHandler {
+
+  @Override
+  public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain)
+    throws IOException, HttpException {
+    try {
+      return chain.proceed(request, scope);
+    } catch (IOException | HttpException | RuntimeException e) {
+      finishFailedAttempt(scope, e);
+      throw e;
+    }
+  }
+
+  static void finishFailedAttempt(ExecChain.Scope scope, Exception cause) {
+    HttpContext context = scope.clientContext;
+    LatencyTimers.stop(context, true);
+    Object span = context.removeAttribute(ContextAttributes.SPAN);
+    Object aggregatedExchange = context.removeAttribute(ContextAttributes.AGGREGATED_EXCHANGE);
+    context.removeAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+    context.removeAttribute(ContextAttributes.CONNECTION_TIMINGS);
+    SpanStatus status = scope.execRuntime.isExecutionAborted()
+      ? SpanStatus.CANCELLED
+      : SentryAsyncExecCallback.toStatus(cause);
+    if (span instanceof ISpan) {
+      ISpan failedSpan = (ISpan) span;
+      failedSpan.setThrowable(cause);
+      failedSpan.finish(status, new SentryNanotimeDate());
+    }
+    if (aggregatedExchange instanceof SpanAggregator.Exchange) {
+      ((SpanAggregator.Exchange) aggregatedExchange).finish(status);
+    }
+  }
+
+}
@@ -0,0 +1,64 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.BreadcrumbPolicy;
+import org.drjekyll.sentry.http.RequestDescriptor;
+
+import java.io.IOException;
+
+import io.sentry.IHub;
+
+final class BreadcrumbAsyncExecCallback implements AsyncExecCallback {
+
+  private final IHub hub;
+
+  private final BreadcrumbPolicy breadcrumbPolicy;
+
+  private final RequestDescriptor descriptor;
+
+  private final AsyncExecCallback delegate;
+
+  private volatile Integer statusCode;
+
+  BreadcrumbAsyncExecCallback(
+    IHub hub,
+    BreadcrumbPolicy breadcrumbPolicy,
+    RequestDescriptor descriptor,
+    AsyncExecCallback delegate
+  ) {
+    this.hub = Args.notNull(hub, "Hub");
+    this.breadcrumbPolicy = Args.notNull(breadcrumbPolicy, "Breadcrumb policy");
+    this.descriptor = Args.notNull(descriptor, "Request descriptor");
+    this.delegate = Args.notNull(delegate, "Callback");
+  }
+
+  @Override
+  public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails)
+    throws HttpException, IOException {
+    statusCode = response.getCode();
+    return delegate.handleResponse(response, entityDetails);
+  }
+
+  @Override
+  public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+    delegate.handleInformationResponse(response);
+  }
+
+  @Override
+  public void completed() {
+    breadcrumbPolicy.addBreadcrumb(hub, descriptor, statusCode);
+    delegate.completed();
+  }
+
+  @Override
+  public void failed(Exception cause) {
+    breadcrumbPolicy.addBreadcrumb(hub, descriptor, statusCode);
+    delegate.failed(cause);
+  }
+
+}
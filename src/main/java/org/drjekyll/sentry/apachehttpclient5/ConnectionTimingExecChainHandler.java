@@ -0,0 +1,62 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ConnectionTimings;
+
+import java.io.IOException;
+
+import io.sentry.IHub;
+
+/**
+ * Marks the phases of the execution chain in the {@link ConnectionTimings} of the exchange. One instance is placed
+ * before the connect element to mark the start of the connection acquisition, another one before the main transport
+ * element to mark the start of the request.
+ */
+final class ConnectionTimingExecChainHandler implements ExecChainHandler {
+
+  enum Phase {
+    ACQUISITION, REQUEST
+  }
+
+  private final IHub hub;
+
+  private final Phase phase;
+
+  ConnectionTimingExecChainHandler(IHub hub, Phase phase) {
+    this.hub = Args.notNull(hub, "Hub");
+    this.phase = Args.notNull(phase, "Phase");
+  }
+
+  @Override
+  public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain)
+    throws IOException, HttpException {
+    HttpContext context = scope.clientContext;
+    if (phase == Phase.ACQUISITION) {
+      if (hub.getSpan() == null) {
+        context.removeAttribute(ContextAttributes.CONNECTION_TIMINGS);
+      } else {
+        ConnectionTimings timings = new ConnectionTimings();
+        timings.acquisitionStarted();
+        context.setAttribute(ContextAttributes.CONNECTION_TIMINGS, timings);
+      }
+    } else {
+      ConnectionTimings timings = get(context);
+      if (timings != null) {
+        timings.requestStarted();
+      }
+    }
+    return chain.proceed(request, scope);
+  }
+
+  static ConnectionTimings get(HttpContext context) {
+    Object timings = context.getAttribute(ContextAttributes.CONNECTION_TIMINGS);
+    return timings instanceof ConnectionTimings ? (ConnectionTimings) timings : null;
+  }
+
+}
@@ -0,0 +1,25 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+final class ContextAttributes {
+
+  static final String SPAN = "sentry.span";
+
+  static final String REQUEST_DESCRIPTOR = "sentry.request-descriptor";
+
+  static final String CONNECTION_TIMINGS = "sentry.connection-timings";
+
+  static final String AGGREGATED_EXCHANGE = "sentry.aggregated-exchange";
+
+  static final String FORKED_CONTEXT = "sentry.forked-context";
+
+  static final String LOGICAL_EXCHANGE = "sentry.logical-exchange";
+
+  static final String LATENCY_TIMER = "sentry.latency-timer";
+
+  static final String STREAM_TIMINGS = "sentry.stream-timings";
+
+  private ContextAttributes() {
+    // utility
+  }
+
+}
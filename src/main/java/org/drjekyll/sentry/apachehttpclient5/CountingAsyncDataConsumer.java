@@ -0,0 +1,55 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ContentLengths;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import io.sentry.ISpan;
+
+/**
+ * Counts the bytes of a response body with unknown length while it is consumed and adds the count as data to a span,
+ * when the stream ends.
+ */
+final class CountingAsyncDataConsumer implements AsyncDataConsumer {
+
+  private final AsyncDataConsumer delegate;
+
+  private final ISpan span;
+
+  private long count;
+
+  CountingAsyncDataConsumer(AsyncDataConsumer delegate, ISpan span) {
+    this.delegate = Args.notNull(delegate, "Data consumer");
+    this.span = Args.notNull(span, "Span");
+  }
+
+  @Override
+  public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+    delegate.updateCapacity(capacityChannel);
+  }
+
+  @Override
+  public void consume(ByteBuffer src) throws IOException {
+    count += src.remaining();
+    delegate.consume(src);
+  }
+
+  @Override
+  public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+    span.setData(ContentLengths.RESPONSE_DATA_KEY, count);
+    delegate.streamEnd(trailers);
+  }
+
+  @Override
+  public void releaseResources() {
+    delegate.releaseResources();
+  }
+
+}
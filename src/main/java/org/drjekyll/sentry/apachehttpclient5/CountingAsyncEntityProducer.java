@@ -0,0 +1,124 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ContentLengths;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+import io.sentry.ISpan;
+
+/**
+ * Counts the bytes of a request entity with unknown length while it is produced and adds the count as data to a span,
+ * when the stream ends.
+ */
+final class CountingAsyncEntityProducer implements AsyncEntityProducer {
+
+  private final AsyncEntityProducer delegate;
+
+  private final ISpan span;
+
+  private volatile CountingDataStreamChannel countingChannel;
+
+  CountingAsyncEntityProducer(AsyncEntityProducer delegate, ISpan span) {
+    this.delegate = Args.notNull(delegate, "Entity producer");
+    this.span = Args.notNull(span, "Span");
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return delegate.isRepeatable();
+  }
+
+  @Override
+  public void failed(Exception cause) {
+    delegate.failed(cause);
+  }
+
+  @Override
+  public int available() {
+    return delegate.available();
+  }
+
+  @Override
+  public void produce(DataStreamChannel channel) throws IOException {
+    CountingDataStreamChannel current = countingChannel;
+    if (current == null || current.channel != channel) {
+      current = new CountingDataStreamChannel(channel);
+      countingChannel = current;
+    }
+    delegate.produce(current);
+  }
+
+  @Override
+  public long getContentLength() {
+    return delegate.getContentLength();
+  }
+
+  @Override
+  public String getContentType() {
+    return delegate.getContentType();
+  }
+
+  @Override
+  public String getContentEncoding() {
+    return delegate.getContentEncoding();
+  }
+
+  @Override
+  public boolean isChunked() {
+    return delegate.isChunked();
+  }
+
+  @Override
+  public Set<String> getTrailerNames() {
+    return delegate.getTrailerNames();
+  }
+
+  @Override
+  public void releaseResources() {
+    delegate.releaseResources();
+  }
+
+  private final class CountingDataStreamChannel implements DataStreamChannel {
+
+    private final DataStreamChannel channel;
+
+    private long count;
+
+    private CountingDataStreamChannel(DataStreamChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void requestOutput() {
+      channel.requestOutput();
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      int written = channel.write(src);
+      count += written;
+      return written;
+    }
+
+    @Override
+    public void endStream(List<? extends Header> trailers) throws IOException {
+      span.setData(ContentLengths.REQUEST_DATA_KEY, count);
+      channel.endStream(trailers);
+    }
+
+    @Override
+    public void endStream() throws IOException {
+      span.setData(ContentLengths.REQUEST_DATA_KEY, count);
+      channel.endStream();
+    }
+
+  }
+
+}
@@ -0,0 +1,124 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.StreamTimings;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Measures the time a request entity is blocked by flow control while it is produced. A write, which doesn't accept
+ * all bytes, blocks the entity until the connection asks for more output. An HTTP/2 connection only asks for output,
+ * while the flow control windows of the stream and the connection are open.
+ */
+final class FlowControlTimingAsyncEntityProducer implements AsyncEntityProducer {
+
+  private final AsyncEntityProducer delegate;
+
+  private final StreamTimings timings;
+
+  private volatile TimingDataStreamChannel timingChannel;
+
+  FlowControlTimingAsyncEntityProducer(AsyncEntityProducer delegate, StreamTimings timings) {
+    this.delegate = Args.notNull(delegate, "Entity producer");
+    this.timings = Args.notNull(timings, "Stream timings");
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return delegate.isRepeatable();
+  }
+
+  @Override
+  public void failed(Exception cause) {
+    delegate.failed(cause);
+  }
+
+  @Override
+  public int available() {
+    return delegate.available();
+  }
+
+  @Override
+  public void produce(DataStreamChannel channel) throws IOException {
+    timings.outputResumed();
+    TimingDataStreamChannel current = timingChannel;
+    if (current == null || current.channel != channel) {
+      current = new TimingDataStreamChannel(channel);
+      timingChannel = current;
+    }
+    delegate.produce(current);
+  }
+
+  @Override
+  public long getContentLength() {
+    return delegate.getContentLength();
+  }
+
+  @Override
+  public String getContentType() {
+    return delegate.getContentType();
+  }
+
+  @Override
+  public String getContentEncoding() {
+    return delegate.getContentEncoding();
+  }
+
+  @Override
+  public boolean isChunked() {
+    return delegate.isChunked();
+  }
+
+  @Override
+  public Set<String> getTrailerNames() {
+    return delegate.getTrailerNames();
+  }
+
+  @Override
+  public void releaseResources() {
+    delegate.releaseResources();
+  }
+
+  private final class TimingDataStreamChannel implements DataStreamChannel {
+
+    private final DataStreamChannel channel;
+
+    private TimingDataStreamChannel(DataStreamChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public void requestOutput() {
+      channel.requestOutput();
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+      int written = channel.write(src);
+      if (src.hasRemaining()) {
+        timings.outputBlocked();
+      }
+      return written;
+    }
+
+    @Override
+    public void endStream(List<? extends Header> trailers) throws IOException {
+      timings.outputResumed();
+      channel.endStream(trailers);
+    }
+
+    @Override
+    public void endStream() throws IOException {
+      timings.outputResumed();
+      channel.endStream();
+    }
+
+  }
+
+}
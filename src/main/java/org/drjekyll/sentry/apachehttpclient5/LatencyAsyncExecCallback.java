@@ -0,0 +1,64 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.LatencyRecorder;
+
+import java.io.IOException;
+
+// carries the start of the exchange itself, so measuring its latency doesn't allocate a timer
+final class LatencyAsyncExecCallback implements AsyncExecCallback {
+
+  private final LatencyRecorder latencyRecorder;
+
+  private final String host;
+
+  private final long startNanos;
+
+  private final AsyncExecCallback delegate;
+
+  private boolean stopped;
+
+  LatencyAsyncExecCallback(LatencyRecorder latencyRecorder, String host, long startNanos, AsyncExecCallback delegate) {
+    this.latencyRecorder = Args.notNull(latencyRecorder, "Latency recorder");
+    this.host = host;
+    this.startNanos = startNanos;
+    this.delegate = Args.notNull(delegate, "Callback");
+  }
+
+  @Override
+  public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails)
+    throws HttpException, IOException {
+    stop(false);
+    return delegate.handleResponse(response, entityDetails);
+  }
+
+  @Override
+  public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+    delegate.handleInformationResponse(response);
+  }
+
+  @Override
+  public void completed() {
+    delegate.completed();
+  }
+
+  @Override
+  public void failed(Exception cause) {
+    stop(true);
+    delegate.failed(cause);
+  }
+
+  void stop(boolean failed) {
+    if (stopped) {
+      return;
+    }
+    stopped = true;
+    latencyRecorder.record(host, System.nanoTime() - startNanos, failed);
+  }
+
+}
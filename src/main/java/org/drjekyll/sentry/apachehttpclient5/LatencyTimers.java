@@ -0,0 +1,43 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.net.URIAuthority;
+import org.drjekyll.sentry.http.LatencyRecorder;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+
+final class LatencyTimers {
+
+  private LatencyTimers() {
+    // utility
+  }
+
+  static void start(SentryHttpOptions options, HttpRequest request, HttpContext context) {
+    LatencyRecorder latencyRecorder = options.getLatencyRecorder();
+    if (latencyRecorder == null || context == null) {
+      return;
+    }
+    // a timer left by a previous attempt belongs to an attempt, which failed without a response
+    stop(context, true);
+    context.setAttribute(ContextAttributes.LATENCY_TIMER, latencyRecorder.start(getHost(request)));
+  }
+
+  static String getHost(HttpRequest request) {
+    URIAuthority authority = request.getAuthority();
+    return authority != null ? authority.getHostName() : null;
+  }
+
+  static void stop(SentryHttpOptions options, HttpContext context) {
+    if (options.getLatencyRecorder() != null) {
+      stop(context, false);
+    }
+  }
+
+  static void stop(HttpContext context, boolean failed) {
+    Object timer = context.removeAttribute(ContextAttributes.LATENCY_TIMER);
+    if (timer instanceof LatencyRecorder.Timer) {
+      ((LatencyRecorder.Timer) timer).stop(failed);
+    }
+  }
+
+}
@@ -0,0 +1,39 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.drjekyll.sentry.http.LogicalExchange;
+
+import java.io.IOException;
+
+import io.sentry.SpanStatus;
+
+/**
+ * Wraps the whole execution chain including redirects and retries in a {@link LogicalExchange}, so
+ * {@link SentryHttpRequestInterceptor} traces each attempt as child of one logical span.
+ */
+final class LogicalExchangeExecChainHandler implements ExecChainHandler {
+
+  @Override
+  public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain)
+    throws IOException, HttpException {
+    HttpContext context = scope.clientContext;
+    LogicalExchange logicalExchange = new LogicalExchange();
+    context.setAttribute(ContextAttributes.LOGICAL_EXCHANGE, logicalExchange);
+    try {
+      ClassicHttpResponse response = chain.proceed(request, scope);
+      logicalExchange.finish(SpanStatus.fromHttpStatusCode(response.getCode()), null);
+      return response;
+    } catch (IOException | HttpException | RuntimeException e) {
+      logicalExchange.finish(SentryAsyncExecCallback.toStatus(e), e);
+      throw e;
+    } finally {
+      context.removeAttribute(ContextAttributes.LOGICAL_EXCHANGE);
+    }
+  }
+
+}
@@ -0,0 +1,56 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.net.URIAuthority;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.UrlNormalizer;
+
+final class RequestDescriptors {
+
+  private RequestDescriptors() {
+    // utility
+  }
+
+  static RequestDescriptor create(HttpRequest httpRequest) {
+    return create(httpRequest, UrlNormalizer.NONE);
+  }
+
+  static RequestDescriptor create(HttpRequest httpRequest, UrlNormalizer urlNormalizer) {
+    Args.notNull(httpRequest, "HTTP request");
+    return new RequestDescriptor(httpRequest.getMethod(), renderUrl(httpRequest), urlNormalizer);
+  }
+
+  static RequestDescriptor get(HttpContext context) {
+    Object descriptor = context.getAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+    return descriptor instanceof RequestDescriptor ? (RequestDescriptor) descriptor : null;
+  }
+
+  /**
+   * Renders the URL like {@link HttpRequest#getUri()} does, but without parsing it into a {@link java.net.URI}.
+   */
+  private static String renderUrl(HttpRequest httpRequest) {
+    URIAuthority authority = httpRequest.getAuthority();
+    String path = httpRequest.getPath();
+    StringBuilder url = new StringBuilder(64);
+    if (authority != null) {
+      String scheme = httpRequest.getScheme();
+      url.append(scheme != null ? scheme : URIScheme.HTTP.id).append("://").append(authority.getHostName());
+      if (authority.getPort() >= 0) {
+        url.append(':').append(authority.getPort());
+      }
+    }
+    if (path == null) {
+      url.append('/');
+    } else {
+      if (url.length() > 0 && !path.startsWith("/")) {
+        url.append('/');
+      }
+      url.append(path);
+    }
+    return url.toString();
+  }
+
+}
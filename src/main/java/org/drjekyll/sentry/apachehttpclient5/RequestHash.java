@@ -2,8 +2,7 @@ package org.drjekyll.sentry.apachehttpclient5;
 
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.util.Args;
-
-import java.net.URISyntaxException;
+import org.drjekyll.sentry.http.RequestDescriptor;
 
 final class RequestHash {
 
@@ -13,10 +12,14 @@ final class RequestHash {
     // utility
   }
 
-  static int create(HttpRequest httpRequest) throws URISyntaxException {
+  static int create(HttpRequest httpRequest) {
     Args.notNull(httpRequest, "HTTP request");
-    int uriHash = httpRequest.getUri() != null ? httpRequest.getUri().hashCode() : 0;
-    return 31 * uriHash + (httpRequest.getMethod() != null ? httpRequest.getMethod().hashCode() : 0);
+    return create(RequestDescriptors.create(httpRequest));
+  }
+
+  static int create(RequestDescriptor descriptor) {
+    Args.notNull(descriptor, "Request descriptor");
+    return 31 * descriptor.getUrl().hashCode() + descriptor.getMethod().hashCode();
   }
 
 }
@@ -0,0 +1,127 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.StreamTimings;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeoutException;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+import io.sentry.SentryDate;
+import io.sentry.SentryNanotimeDate;
+import io.sentry.SpanStatus;
+
+final class SentryAsyncExecCallback implements AsyncExecCallback {
+
+  private final IHub hub;
+
+  private final SentryHttpOptions options;
+
+  private final ISpan span;
+
+  private final HttpContext context;
+
+  private final RequestDescriptor descriptor;
+
+  private final AsyncExecCallback delegate;
+
+  private volatile Integer statusCode;
+
+  SentryAsyncExecCallback(
+    IHub hub,
+    SentryHttpOptions options,
+    ISpan span,
+    HttpContext context,
+    RequestDescriptor descriptor,
+    AsyncExecCallback delegate
+  ) {
+    this.hub = Args.notNull(hub, "Hub");
+    this.options = Args.notNull(options, "Options");
+    this.span = Args.notNull(span, "Span");
+    this.context = context;
+    this.descriptor = descriptor;
+    this.delegate = Args.notNull(delegate, "Callback");
+  }
+
+  @Override
+  public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails)
+    throws HttpException, IOException {
+    statusCode = response.getCode();
+    span.setStatus(SpanStatus.fromHttpStatusCode(statusCode));
+    AsyncDataConsumer dataConsumer = delegate.handleResponse(response, entityDetails);
+    if (entityDetails == null) {
+      return dataConsumer;
+    }
+    long contentLength = entityDetails.getContentLength();
+    if (contentLength >= 0L) {
+      span.setData(ContentLengths.RESPONSE_DATA_KEY, contentLength);
+      return dataConsumer;
+    }
+    return dataConsumer != null ? new CountingAsyncDataConsumer(dataConsumer, span) : null;
+  }
+
+  @Override
+  public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+    delegate.handleInformationResponse(response);
+  }
+
+  @Override
+  public void completed() {
+    SentryDate end = new SentryNanotimeDate();
+    applyStreamTimings();
+    options.getSpanFinisher().finish(hub, span, null, end, options.getBreadcrumbPolicy(), descriptor, statusCode);
+    delegate.completed();
+  }
+
+  @Override
+  public void failed(Exception cause) {
+    SentryDate end = new SentryNanotimeDate();
+    applyStreamTimings();
+    span.setThrowable(cause);
+    options.getSpanFinisher().finish(
+      hub,
+      span,
+      toStatus(cause),
+      end,
+      options.getBreadcrumbPolicy(),
+      descriptor,
+      statusCode
+    );
+    delegate.failed(cause);
+  }
+
+  private void applyStreamTimings() {
+    StreamTimings timings = StreamTimingAsyncExecChainHandler.get(context);
+    if (timings != null) {
+      timings.applyTo(span);
+    }
+  }
+
+  static void finish(ISpan span, Exception cause) {
+    span.setThrowable(cause);
+    span.finish(toStatus(cause), new SentryNanotimeDate());
+  }
+
+  static SpanStatus toStatus(Exception cause) {
+    if (cause instanceof CancellationException) {
+      return SpanStatus.CANCELLED;
+    }
+    if (cause instanceof TimeoutException || cause instanceof InterruptedIOException) {
+      return SpanStatus.DEADLINE_EXCEEDED;
+    }
+    return SpanStatus.INTERNAL_ERROR;
+  }
+
+}
@@ -0,0 +1,242 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ConnectionPoolSnapshot;
+import org.drjekyll.sentry.http.ConnectionPoolStatistics;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.drjekyll.sentry.http.EnabledFeatures;
+import org.drjekyll.sentry.http.ExchangeTimestamps;
+import org.drjekyll.sentry.http.ForkedContext;
+import org.drjekyll.sentry.http.LatencyRecorder;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.SpanAggregator;
+import org.drjekyll.sentry.http.SpanReaper;
+import org.drjekyll.sentry.http.TracePropagationTargetMatcher;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+import io.sentry.ISpan;
+import io.sentry.Instrumenter;
+import io.sentry.Sentry;
+import io.sentry.SentryOptions;
+import io.sentry.SpanStatus;
+
+/**
+ * An Apache HttpAsyncClient execution chain handler that creates a Sentry span for each asynchronous exchange and adds
+ * Sentry tracing information to the HTTP request headers.
+ * <p>
+ * The parent span is looked up when the request is submitted, i.e. on the calling thread and not on an I/O reactor
+ * thread. The created span is carried along with the exchange and finished as soon as the exchange completes or fails.
+ * Add this handler as first execution interceptor, so one span covers redirects and retries of the same request:
+ * <pre>
+ * HttpAsyncClients.custom()
+ *   .addExecInterceptorFirst(SentryAsyncExecChainHandler.NAME, new SentryAsyncExecChainHandler(HubAdapter.getInstance()))
+ *   .build();
+ * </pre>
+ * A breadcrumb with the status code of the response is added as soon as the exchange completes or fails. It ends up in
+ * the scope that submitted the request, because its hub is looked up on the calling thread as well. The same works for
+ * HTTP/2 clients created by {@link org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder}.
+ * Don't combine this handler with {@link SentryHttpRequestInterceptor} and {@link SentryHttpResponseInterceptor} on
+ * the same client, otherwise each request is traced twice.
+ */
+public class SentryAsyncExecChainHandler implements AsyncExecChainHandler {
+
+  /**
+   * The name to register this handler with in the execution chain.
+   */
+  public static final String NAME = "SENTRY";
+
+  private final IHub hub;
+
+  private final SentryHttpOptions options;
+
+  private final TracePropagationTargetMatcher tracePropagationTargetMatcher = new TracePropagationTargetMatcher();
+
+  private final TraceHeaders traceHeaders = new TraceHeaders();
+
+  private final EnabledFeatures enabledFeatures = new EnabledFeatures();
+
+  /**
+   * Initializes this execution chain handler with the given Sentry hub and default options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   */
+  public SentryAsyncExecChainHandler(@Nonnull IHub hub) {
+    this(hub, new SentryHttpOptions());
+  }
+
+  /**
+   * Initializes this execution chain handler with the given Sentry hub and options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the interceptors. Must not be null.
+   */
+  public SentryAsyncExecChainHandler(@Nonnull IHub hub, @Nonnull SentryHttpOptions options) {
+    this.hub = Args.notNull(hub, "Hub");
+    this.options = Args.notNull(options, "Options");
+  }
+
+  @Override
+  public void execute(
+    @Nonnull HttpRequest request,
+    @Nullable AsyncEntityProducer entityProducer,
+    @Nonnull AsyncExecChain.Scope scope,
+    @Nonnull AsyncExecChain chain,
+    @Nonnull AsyncExecCallback asyncExecCallback
+  ) throws HttpException, IOException {
+    Args.notNull(request, "HTTP request");
+    Args.notNull(chain, "Execution chain");
+    LatencyRecorder latencyRecorder = options.getLatencyRecorder();
+    if (latencyRecorder == null) {
+      trace(request, entityProducer, scope, chain, asyncExecCallback);
+      return;
+    }
+    LatencyAsyncExecCallback latencyCallback = new LatencyAsyncExecCallback(
+      latencyRecorder,
+      LatencyTimers.getHost(request),
+      System.nanoTime(),
+      asyncExecCallback
+    );
+    try {
+      trace(request, entityProducer, scope, chain, latencyCallback);
+    } catch (HttpException | IOException | RuntimeException e) {
+      latencyCallback.stop(true);
+      throw e;
+    }
+  }
+
+  private void trace(
+    HttpRequest request,
+    AsyncEntityProducer entityProducer,
+    AsyncExecChain.Scope scope,
+    AsyncExecChain chain,
+    AsyncExecCallback asyncExecCallback
+  ) throws HttpException, IOException {
+    long startNanoTime = System.nanoTime();
+    ForkedContext forkedContext = SentryHttpContexts.getForkedContext(scope != null ? scope.clientContext : null);
+    IHub currentHub = forkedContext != null ? forkedContext.getHub() : hub;
+    if (!currentHub.isEnabled()) {
+      chain.proceed(request, entityProducer, scope, asyncExecCallback);
+      return;
+    }
+    SentryOptions sentryOptions = currentHub.getOptions();
+    boolean breadcrumbsEnabled = enabledFeatures.isBreadcrumbsEnabled(sentryOptions);
+    ISpan activeSpan = enabledFeatures.isTracingEnabled(sentryOptions)
+      ? ForkedContext.getActiveSpan(currentHub, forkedContext)
+      : null;
+    if ((activeSpan == null || activeSpan.isNoOp()) && !breadcrumbsEnabled) {
+      chain.proceed(request, entityProducer, scope, asyncExecCallback);
+      return;
+    }
+    RequestDescriptor descriptor = RequestDescriptors.create(request, options.getUrlNormalizer());
+    // the adapter would add the breadcrumb to the hub of the I/O reactor thread completing the exchange
+    IHub breadcrumbHub = currentHub instanceof HubAdapter ? Sentry.getCurrentHub() : currentHub;
+    if (activeSpan == null || activeSpan.isNoOp()) {
+      chain.proceed(request, entityProducer, scope, withBreadcrumb(breadcrumbHub, descriptor, asyncExecCallback));
+      return;
+    }
+    if (Boolean.FALSE.equals(activeSpan.getSpanContext().getSampled())
+      || !options.getSpanSamplingPolicy().isSampled(descriptor, activeSpan, currentHub.getTransaction())) {
+      if (tracePropagationTargetMatcher.matches(sentryOptions, descriptor.getUrl())) {
+        traceHeaders.add(activeSpan, request, options.getTracePropagationFormat());
+      }
+      AsyncExecCallback breadcrumbCallback = breadcrumbsEnabled
+        ? withBreadcrumb(breadcrumbHub, descriptor, asyncExecCallback)
+        : asyncExecCallback;
+      chain.proceed(request, entityProducer, scope, breadcrumbCallback);
+      return;
+    }
+    SpanAggregator spanAggregator = options.getSpanAggregator();
+    SpanAggregator.Exchange aggregatedExchange = spanAggregator != null
+      ? spanAggregator.start(currentHub.getTransaction(), activeSpan, descriptor, startNanoTime)
+      : null;
+    if (aggregatedExchange != null) {
+      if (tracePropagationTargetMatcher.matches(sentryOptions, descriptor.getUrl())) {
+        traceHeaders.add(activeSpan, request, options.getTracePropagationFormat());
+      }
+      try {
+        AsyncExecCallback breadcrumbCallback = breadcrumbsEnabled
+          ? withBreadcrumb(breadcrumbHub, descriptor, asyncExecCallback)
+          : asyncExecCallback;
+        chain.proceed(
+          request,
+          entityProducer,
+          scope,
+          new AggregatingAsyncExecCallback(aggregatedExchange, breadcrumbCallback)
+        );
+      } catch (HttpException | IOException | RuntimeException e) {
+        aggregatedExchange.finish(SpanStatus.INTERNAL_ERROR);
+        throw e;
+      }
+      return;
+    }
+    ISpan childSpan = activeSpan.startChild(
+      "http.client",
+      descriptor.getDescription(),
+      ExchangeTimestamps.toDate(startNanoTime),
+      Instrumenter.SENTRY
+    );
+    SpanReaper spanReaper = options.getSpanReaper();
+    if (spanReaper != null) {
+      spanReaper.register(childSpan);
+    }
+    ConnectionPoolStatistics connectionPoolStatistics = options.getConnectionPoolStatistics();
+    ConnectionPoolSnapshot poolSnapshot = connectionPoolStatistics != null ? connectionPoolStatistics.getSnapshot() : null;
+    if (poolSnapshot != null) {
+      poolSnapshot.applyTo(childSpan);
+    }
+    if (tracePropagationTargetMatcher.matches(sentryOptions, descriptor.getUrl())) {
+      traceHeaders.add(childSpan, request, options.getTracePropagationFormat());
+    }
+    AsyncEntityProducer countingEntityProducer = entityProducer;
+    if (entityProducer != null) {
+      long contentLength = entityProducer.getContentLength();
+      if (contentLength >= 0L) {
+        childSpan.setData(ContentLengths.REQUEST_DATA_KEY, contentLength);
+      } else {
+        countingEntityProducer = new CountingAsyncEntityProducer(entityProducer, childSpan);
+      }
+    }
+    HttpContext context = scope != null ? scope.clientContext : null;
+    if (context != null) {
+      context.removeAttribute(ContextAttributes.STREAM_TIMINGS);
+    }
+    SentryAsyncExecCallback callback = new SentryAsyncExecCallback(
+      breadcrumbHub,
+      options,
+      childSpan,
+      context,
+      breadcrumbsEnabled ? descriptor : null,
+      asyncExecCallback
+    );
+    ExchangeTimestamps.addInterceptorOverhead(childSpan, startNanoTime);
+    try {
+      chain.proceed(request, countingEntityProducer, scope, callback);
+    } catch (HttpException | IOException | RuntimeException e) {
+      SentryAsyncExecCallback.finish(childSpan, e);
+      throw e;
+    }
+  }
+
+  private AsyncExecCallback withBreadcrumb(
+    IHub breadcrumbHub,
+    RequestDescriptor descriptor,
+    AsyncExecCallback asyncExecCallback
+  ) {
+    return new BreadcrumbAsyncExecCallback(breadcrumbHub, options.getBreadcrumbPolicy(), descriptor, asyncExecCallback);
+  }
+
+}
@@ -0,0 +1,91 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ConnectionTimings;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+
+/**
+ * Optional instrumentation of the classic Apache HttpClient, which adds the durations of the connection phases as data
+ * to the spans created by {@link SentryHttpRequestInterceptor}. See {@link ConnectionTimings} for the recorded keys.
+ * <p>
+ * The time from acquiring a connection until sending the request and the time to first byte are measured by
+ * {@link #instrument(HttpClientBuilder, IHub)}. Wrap the connection manager with
+ * {@link #wrap(HttpClientConnectionManager)} to tell the pool lease time apart from connecting, and the TLS socket
+ * strategy with {@link #wrap(TlsSocketStrategy)} to measure the TLS handshake:
+ * <pre>
+ * HttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+ *   .setTlsSocketStrategy(SentryConnectionTimings.wrap(DefaultClientTlsStrategy.createDefault()))
+ *   .build();
+ * SentryConnectionTimings.instrument(HttpClientBuilder.create(), HubAdapter.getInstance())
+ *   .setConnectionManager(SentryConnectionTimings.wrap(connectionManager))
+ *   .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+ *   .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+ *   .build();
+ * </pre>
+ * Nothing is measured for clients without this instrumentation, and requests without an active span only pay for a
+ * lookup of the current span.
+ */
+public final class SentryConnectionTimings {
+
+  /**
+   * The name of the execution chain handler, which marks the start of the connection acquisition
+   */
+  public static final String ACQUISITION_HANDLER_NAME = "SENTRY_CONNECTION_ACQUISITION";
+
+  /**
+   * The name of the execution chain handler, which marks the start of the request
+   */
+  public static final String REQUEST_HANDLER_NAME = "SENTRY_REQUEST_START";
+
+  private SentryConnectionTimings() {
+    // utility
+  }
+
+  /**
+   * Adds the execution chain handlers, which measure the connection acquisition and the time to first byte.
+   *
+   * @param builder The builder of the HTTP client. Must not be null.
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @return The given builder
+   */
+  public static HttpClientBuilder instrument(HttpClientBuilder builder, IHub hub) {
+    Args.notNull(builder, "HTTP client builder");
+    Args.notNull(hub, "Hub");
+    return builder
+      .addExecInterceptorBefore(ChainElement.CONNECT.name(),
+        ACQUISITION_HANDLER_NAME,
+        new ConnectionTimingExecChainHandler(hub, ConnectionTimingExecChainHandler.Phase.ACQUISITION))
+      .addExecInterceptorBefore(ChainElement.MAIN_TRANSPORT.name(),
+        REQUEST_HANDLER_NAME,
+        new ConnectionTimingExecChainHandler(hub, ConnectionTimingExecChainHandler.Phase.REQUEST));
+  }
+
+  /**
+   * Wraps a connection manager to measure the time connecting new connections. If the connection manager controls a
+   * connection pool, e.g. a {@code PoolingHttpClientConnectionManager}, so does the returned connection manager, which
+   * keeps evicting idle and expired connections working and can be passed to a {@link SentryConnectionPoolMonitor}.
+   *
+   * @param connectionManager The connection manager to delegate to. Must not be null.
+   * @return A connection manager recording the connect time
+   */
+  public static HttpClientConnectionManager wrap(HttpClientConnectionManager connectionManager) {
+    return TimingHttpClientConnectionManager.wrap(connectionManager);
+  }
+
+  /**
+   * Wraps a TLS socket strategy to measure the duration of TLS handshakes.
+   *
+   * @param tlsSocketStrategy The TLS socket strategy to delegate to. Must not be null.
+   * @return A TLS socket strategy recording the handshake duration
+   */
+  public static TlsSocketStrategy wrap(TlsSocketStrategy tlsSocketStrategy) {
+    return new TimingTlsSocketStrategy(tlsSocketStrategy);
+  }
+
+}
@@ -0,0 +1,85 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+
+/**
+ * An Apache HttpClient execution chain handler that traces each exchange with a Sentry span, replacing the pair of
+ * {@link SentryHttpRequestInterceptor} and {@link SentryHttpResponseInterceptor}. Both halves of the exchange are
+ * handled by one handler, so they always share the hub and the options, and the span is finished in any case, i.e.
+ * with an error status if the exchange fails without a response. Install it with {@link SentryHttpClients}:
+ * <pre>
+ * SentryHttpClients.instrument(HttpClientBuilder.create()).build();
+ * </pre>
+ * The handler runs below the retry and protocol handlers, so each attempt gets its own span, unless the client is
+ * instrumented with {@link SentryRetryTracing} as well. The span covers acquiring the connection and the exchange up
+ * to the response head. It starts when the handler is entered and ends when the response head was received, both
+ * captured with {@link System#nanoTime()}, so it doesn't include the work of other handlers and interceptors. Don't
+ * combine this handler with the interceptors on the same client, otherwise each request is traced twice.
+ */
+public class SentryExecChainHandler implements ExecChainHandler {
+
+  /**
+   * The name to register this handler with in the execution chain.
+   */
+  public static final String NAME = "SENTRY";
+
+  private final SentryHttpRequestInterceptor requestInterceptor;
+
+  private final SentryHttpResponseInterceptor responseInterceptor;
+
+  /**
+   * Initializes this execution chain handler with the given Sentry hub and default options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   */
+  public SentryExecChainHandler(@Nonnull IHub hub) {
+    this(hub, new SentryHttpOptions());
+  }
+
+  /**
+   * Initializes this execution chain handler with the given Sentry hub and options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the handler. Must not be null.
+   */
+  public SentryExecChainHandler(@Nonnull IHub hub, @Nonnull SentryHttpOptions options) {
+    Args.notNull(hub, "Hub");
+    Args.notNull(options, "Options");
+    requestInterceptor = new SentryHttpRequestInterceptor(hub, options);
+    responseInterceptor = new SentryHttpResponseInterceptor(hub, options);
+  }
+
+  @Override
+  public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain)
+    throws IOException, HttpException {
+    Args.notNull(request, "HTTP request");
+    Args.notNull(scope, "Scope");
+    long startNanoTime = System.nanoTime();
+    HttpClientContext context = scope.clientContext;
+    requestInterceptor.process(request, request.getEntity(), context, startNanoTime);
+    ClassicHttpResponse response;
+    try {
+      response = chain.proceed(request, scope);
+    } catch (IOException | HttpException | RuntimeException e) {
+      AttemptExecChainHandler.finishFailedAttempt(scope, e);
+      throw e;
+    }
+    responseInterceptor.process(response, response.getEntity(), context, System.nanoTime());
+    return response;
+  }
+
+}
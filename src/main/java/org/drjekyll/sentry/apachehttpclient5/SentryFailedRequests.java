@@ -0,0 +1,45 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.core5.util.Args;
+
+/**
+ * Optional instrumentation of the classic Apache HttpClient, which finishes the span of each request failing without a
+ * response, e.g. due to an I/O error, a timeout or an aborted request. The response interceptor isn't called in this
+ * case, so the span would otherwise stay unfinished and become the parent of all later spans of the transaction:
+ * <pre>
+ * SentryFailedRequests.instrument(HttpClientBuilder.create())
+ *   .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+ *   .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+ *   .build();
+ * </pre>
+ * Aborted requests are finished with {@link io.sentry.SpanStatus#CANCELLED}, timeouts with
+ * {@link io.sentry.SpanStatus#DEADLINE_EXCEEDED} and other failures with {@link io.sentry.SpanStatus#INTERNAL_ERROR}.
+ * The handler runs below the retry handler, so failed attempts are finished before waiting for their retry.
+ * {@link SentryRetryTracing} installs this handler as well. The asynchronous client doesn't need this instrumentation,
+ * because {@link SentryAsyncExecChainHandler} finishes failed requests already.
+ */
+public final class SentryFailedRequests {
+
+  /**
+   * The name of the execution chain handler, which finishes the spans of failed requests
+   */
+  public static final String HANDLER_NAME = "SENTRY_FAILED_REQUEST";
+
+  private SentryFailedRequests() {
+    // utility
+  }
+
+  /**
+   * Adds the execution chain handler, which finishes the spans of failed requests.
+   *
+   * @param builder The builder of the HTTP client. Must not be null.
+   * @return The given builder
+   */
+  public static HttpClientBuilder instrument(HttpClientBuilder builder) {
+    Args.notNull(builder, "HTTP client builder");
+    return builder.addExecInterceptorBefore(ChainElement.PROTOCOL.name(), HANDLER_NAME, new AttemptExecChainHandler());
+  }
+
+}
@@ -0,0 +1,125 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+
+/**
+ * Instruments Apache HttpClient builders with a single execution chain handler, which traces each exchange. This is an
+ * alternative to adding {@link SentryHttpRequestInterceptor} and {@link SentryHttpResponseInterceptor}, which need to
+ * be registered first and last with the same hub and options:
+ * <pre>
+ * CloseableHttpClient client = SentryHttpClients.instrument(HttpClientBuilder.create()).build();
+ * CloseableHttpAsyncClient asyncClient = SentryHttpClients.instrument(HttpAsyncClients.custom()).build();
+ * CloseableHttpAsyncClient h2Client = SentryHttpClients.instrument(H2AsyncClientBuilder.create()).build();
+ * </pre>
+ * The instrumentation of the classic client finishes the spans of failed requests, so it doesn't need
+ * {@link SentryFailedRequests}. Each request of an HTTP/2 client is a stream of a shared connection and gets a span of
+ * its own. {@link SentryStreamTimings} adds the timings of the streams to these spans.
+ */
+public final class SentryHttpClients {
+
+  private SentryHttpClients() {
+    // utility
+  }
+
+  /**
+   * Adds a {@link SentryExecChainHandler} with the current hub and default options.
+   *
+   * @param builder The builder of the HTTP client. Must not be null.
+   * @return The given builder
+   */
+  public static HttpClientBuilder instrument(@Nonnull HttpClientBuilder builder) {
+    return instrument(builder, HubAdapter.getInstance(), new SentryHttpOptions());
+  }
+
+  /**
+   * Adds a {@link SentryExecChainHandler} with the given hub and options.
+   *
+   * @param builder The builder of the HTTP client. Must not be null.
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the handler. Must not be null.
+   * @return The given builder
+   */
+  public static HttpClientBuilder instrument(
+    @Nonnull HttpClientBuilder builder,
+    @Nonnull IHub hub,
+    @Nonnull SentryHttpOptions options
+  ) {
+    Args.notNull(builder, "HTTP client builder");
+    return builder.addExecInterceptorBefore(
+      ChainElement.CONNECT.name(),
+      SentryExecChainHandler.NAME,
+      new SentryExecChainHandler(hub, options)
+    );
+  }
+
+  /**
+   * Adds a {@link SentryAsyncExecChainHandler} with the current hub and default options.
+   *
+   * @param builder The builder of the asynchronous HTTP client. Must not be null.
+   * @return The given builder
+   */
+  public static HttpAsyncClientBuilder instrument(@Nonnull HttpAsyncClientBuilder builder) {
+    return instrument(builder, HubAdapter.getInstance(), new SentryHttpOptions());
+  }
+
+  /**
+   * Adds a {@link SentryAsyncExecChainHandler} with the given hub and options.
+   *
+   * @param builder The builder of the asynchronous HTTP client. Must not be null.
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the handler. Must not be null.
+   * @return The given builder
+   */
+  public static HttpAsyncClientBuilder instrument(
+    @Nonnull HttpAsyncClientBuilder builder,
+    @Nonnull IHub hub,
+    @Nonnull SentryHttpOptions options
+  ) {
+    Args.notNull(builder, "HTTP async client builder");
+    return builder.addExecInterceptorFirst(
+      SentryAsyncExecChainHandler.NAME,
+      new SentryAsyncExecChainHandler(hub, options)
+    );
+  }
+
+  /**
+   * Adds a {@link SentryAsyncExecChainHandler} with the current hub and default options.
+   *
+   * @param builder The builder of the HTTP/2 client. Must not be null.
+   * @return The given builder
+   */
+  public static H2AsyncClientBuilder instrument(@Nonnull H2AsyncClientBuilder builder) {
+    return instrument(builder, HubAdapter.getInstance(), new SentryHttpOptions());
+  }
+
+  /**
+   * Adds a {@link SentryAsyncExecChainHandler} with the given hub and options.
+   *
+   * @param builder The builder of the HTTP/2 client. Must not be null.
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the handler. Must not be null.
+   * @return The given builder
+   */
+  public static H2AsyncClientBuilder instrument(
+    @Nonnull H2AsyncClientBuilder builder,
+    @Nonnull IHub hub,
+    @Nonnull SentryHttpOptions options
+  ) {
+    Args.notNull(builder, "HTTP/2 async client builder");
+    return builder.addExecInterceptorFirst(
+      SentryAsyncExecChainHandler.NAME,
+      new SentryAsyncExecChainHandler(hub, options)
+    );
+  }
+
+}
@@ -0,0 +1,86 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ForkedContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+
+/**
+ * Binds the Sentry state of the submitting thread to the {@link HttpContext} of a request, which is executed on another
+ * thread, e.g. a virtual thread or a subtask of a structured concurrency scope. The interceptors create the span of
+ * the request in the captured parent span and use the forked hub instead of the thread-local state of the executing
+ * thread:
+ * <pre>
+ * HttpClientContext context = SentryHttpContexts.fork(HubAdapter.getInstance());
+ * executor.submit(() -&gt; client.execute(request, context, response -&gt; ...));
+ * </pre>
+ * Use a new context for each task, the captured state is kept as long as the context is used.
+ */
+public final class SentryHttpContexts {
+
+  private SentryHttpContexts() {
+    // utility
+  }
+
+  /**
+   * Creates a new HTTP context bound to the current span and a fork of the given hub. Call this method on the thread
+   * submitting the task.
+   *
+   * @param hub The hub of the submitting thread, e.g. {@link io.sentry.HubAdapter#getInstance()}. Must not be null.
+   * @return The new HTTP context
+   */
+  @Nonnull
+  public static HttpClientContext fork(@Nonnull IHub hub) {
+    return bind(HttpClientContext.create(), hub);
+  }
+
+  /**
+   * Binds the current span and a fork of the given hub to the given HTTP context. Call this method on the thread
+   * submitting the task.
+   *
+   * @param context The HTTP context of the request. Must not be null.
+   * @param hub The hub of the submitting thread, e.g. {@link io.sentry.HubAdapter#getInstance()}. Must not be null.
+   * @param <T> The type of the HTTP context
+   * @return The given HTTP context
+   */
+  @Nonnull
+  public static <T extends HttpContext> T bind(@Nonnull T context, @Nonnull IHub hub) {
+    Args.notNull(context, "HTTP context");
+    Args.notNull(hub, "Hub");
+    context.setAttribute(ContextAttributes.FORKED_CONTEXT, ForkedContext.fork(hub));
+    return context;
+  }
+
+  /**
+   * Binds the given span and a fork of the given hub to the given HTTP context, e.g. the transaction of an incoming
+   * request, which isn't bound to the scope of the current thread.
+   *
+   * @param context The HTTP context of the request. Must not be null.
+   * @param hub The hub of the current thread, e.g. {@link io.sentry.HubAdapter#getInstance()}. Must not be null.
+   * @param parentSpan The span to create the span of the request in or null, if there is none
+   * @param <T> The type of the HTTP context
+   * @return The given HTTP context
+   */
+  @Nonnull
+  public static <T extends HttpContext> T bind(@Nonnull T context, @Nonnull IHub hub, @Nullable ISpan parentSpan) {
+    Args.notNull(context, "HTTP context");
+    Args.notNull(hub, "Hub");
+    context.setAttribute(ContextAttributes.FORKED_CONTEXT, ForkedContext.fork(hub, parentSpan));
+    return context;
+  }
+
+  static ForkedContext getForkedContext(@Nullable HttpContext context) {
+    if (context == null) {
+      return null;
+    }
+    Object forkedContext = context.getAttribute(ContextAttributes.FORKED_CONTEXT);
+    return forkedContext instanceof ForkedContext ? (ForkedContext) forkedContext : null;
+  }
+
+}
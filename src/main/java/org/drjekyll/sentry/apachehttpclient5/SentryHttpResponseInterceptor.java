@@ -1,20 +1,29 @@
 package org.drjekyll.sentry.apachehttpclient5;
 
+import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpEntity;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.HttpResponseInterceptor;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.http.protocol.HttpCoreContext;
 import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ConnectionTimings;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.drjekyll.sentry.http.EnabledFeatures;
+import org.drjekyll.sentry.http.ExchangeTimestamps;
+import org.drjekyll.sentry.http.ForkedContext;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.SpanAggregator;
 
 import java.io.IOException;
-import java.net.URISyntaxException;
 
-import io.sentry.Breadcrumb;
 import io.sentry.HubAdapter;
 import io.sentry.IHub;
 import io.sentry.ISpan;
+import io.sentry.SentryDate;
 import io.sentry.SpanStatus;
 
 /**
@@ -31,57 +40,152 @@ import io.sentry.SpanStatus;
  *   .build();
  * </pre>
  * This interceptor alone won't find the span, so you need {@link SentryHttpRequestInterceptor} as well. The hub needs
- * to be the same hub in both interceptors.
+ * to be the same hub in both interceptors. The span is taken from the {@link HttpContext} of the request. Only if it
+ * is missing there, the current span of the hub is finished, given that it was created for the same request.
  */
 public class SentryHttpResponseInterceptor implements HttpResponseInterceptor {
 
   private final IHub hub;
 
+  private final SentryHttpOptions options;
+
+  private final EnabledFeatures enabledFeatures = new EnabledFeatures();
+
   /**
-   * Initializes this HTTP response interceptor with the given Sentry hub.
+   * Initializes this HTTP response interceptor with the given Sentry hub and default options.
    *
    * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
    */
   public SentryHttpResponseInterceptor(IHub hub) {
+    this(hub, new SentryHttpOptions());
+  }
+
+  /**
+   * Initializes this HTTP response interceptor with the given Sentry hub and options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the interceptors. Must not be null.
+   */
+  public SentryHttpResponseInterceptor(IHub hub, SentryHttpOptions options) {
     this.hub = Args.notNull(hub, "Hub");
+    this.options = Args.notNull(options, "Options");
   }
 
   @Override
   public void process(HttpResponse response, EntityDetails entity, HttpContext context) throws IOException {
+    process(response, entity, context, System.nanoTime());
+  }
+
+  void process(HttpResponse response, EntityDetails entity, HttpContext context, long receivedNanoTime) {
     Args.notNull(response, "HTTP response");
     Args.notNull(context, "HTTP context");
-    ISpan span = hub.getSpan();
-    if (span == null) {
+    LatencyTimers.stop(options, context);
+    ForkedContext forkedContext = SentryHttpContexts.getForkedContext(context);
+    IHub currentHub = forkedContext != null ? forkedContext.getHub() : hub;
+    if (!currentHub.isEnabled()) {
       return;
     }
-    Object requestAttribute = context.getAttribute(HttpCoreContext.HTTP_REQUEST);
-    if (requestAttribute instanceof HttpRequest) {
-      HttpRequest request = (HttpRequest) requestAttribute;
-      try {
-        if (isCorrespondingSpan(span, request)) {
-          int statusCode = response.getCode();
-          span.setStatus(SpanStatus.fromHttpStatusCode(statusCode));
-          hub.addBreadcrumb(Breadcrumb.http(
-            request.getUri().toString(),
-            request.getMethod(),
-            statusCode
-          ));
-          span.finish();
-        }
-      } catch (URISyntaxException e) {
-        throw new IOException("Could not create request hash", e);
+    Object aggregatedExchange = context.removeAttribute(ContextAttributes.AGGREGATED_EXCHANGE);
+    if (aggregatedExchange instanceof SpanAggregator.Exchange) {
+      context.removeAttribute(ContextAttributes.CONNECTION_TIMINGS);
+      RequestDescriptor descriptor = RequestDescriptors.get(context);
+      context.removeAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+      int statusCode = response.getCode();
+      ((SpanAggregator.Exchange) aggregatedExchange).finish(SpanStatus.fromHttpStatusCode(statusCode));
+      if (descriptor != null) {
+        options.getBreadcrumbPolicy().addBreadcrumb(currentHub, descriptor, statusCode);
+      }
+      return;
+    }
+    Object spanAttribute = context.getAttribute(ContextAttributes.SPAN);
+    if (spanAttribute instanceof ISpan) {
+      context.removeAttribute(ContextAttributes.SPAN);
+      RequestDescriptor descriptor = RequestDescriptors.get(context);
+      if (descriptor != null) {
+        context.removeAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+      } else {
+        HttpRequest request = getRequest(context);
+        descriptor = request != null ? RequestDescriptors.create(request) : null;
+      }
+      Object timings = context.removeAttribute(ContextAttributes.CONNECTION_TIMINGS);
+      if (timings instanceof ConnectionTimings) {
+        ((ConnectionTimings) timings).applyTo((ISpan) spanAttribute);
+      }
+      finish(currentHub, (ISpan) spanAttribute, response, entity, descriptor, receivedNanoTime);
+      return;
+    }
+    if (!enabledFeatures.isTracingEnabled(currentHub.getOptions())) {
+      return;
+    }
+    ISpan span = currentHub.getSpan();
+    if (span == null || !"http.client".equals(span.getOperation())) {
+      return;
+    }
+    HttpRequest request = getRequest(context);
+    if (request != null) {
+      RequestDescriptor descriptor = RequestDescriptors.create(request);
+      if (isCorrespondingSpan(span, descriptor)) {
+        finish(currentHub, span, response, entity, descriptor, receivedNanoTime);
       }
     }
   }
 
-  private static boolean isCorrespondingSpan(ISpan span, HttpRequest request) throws URISyntaxException {
+  private void finish(
+    IHub currentHub,
+    ISpan span,
+    HttpResponse response,
+    EntityDetails entity,
+    RequestDescriptor descriptor,
+    long receivedNanoTime
+  ) {
+    SentryDate end = ExchangeTimestamps.toDate(receivedNanoTime);
+    recordContentLength(span, response, entity);
+    int statusCode = response.getCode();
+    span.setStatus(SpanStatus.fromHttpStatusCode(statusCode));
+    ExchangeTimestamps.addInterceptorOverhead(span, receivedNanoTime);
+    options.getSpanFinisher().finish(
+      currentHub,
+      span,
+      null,
+      end,
+      options.getBreadcrumbPolicy(),
+      descriptor,
+      statusCode
+    );
+  }
+
+  private static void recordContentLength(ISpan span, HttpResponse response, EntityDetails entity) {
+    if (entity == null) {
+      return;
+    }
+    long contentLength = entity.getContentLength();
+    if (contentLength >= 0L) {
+      span.setData(ContentLengths.RESPONSE_DATA_KEY, contentLength);
+    } else if (response instanceof ClassicHttpResponse) {
+      ClassicHttpResponse classicResponse = (ClassicHttpResponse) response;
+      HttpEntity responseEntity = classicResponse.getEntity();
+      if (responseEntity != null) {
+        classicResponse.setEntity(new CountingHttpEntity(responseEntity, span, ContentLengths.RESPONSE_DATA_KEY));
+      }
+    }
+  }
+
+  private static HttpRequest getRequest(HttpContext context) {
+    if (context instanceof HttpCoreContext) {
+      return ((HttpCoreContext) context).getRequest();
+    }
+    Object requestAttribute = context.getAttribute(HttpCoreContext.HTTP_REQUEST);
+    return requestAttribute instanceof HttpRequest ? (HttpRequest) requestAttribute : null;
+  }
+
+  private static boolean isCorrespondingSpan(ISpan span, RequestDescriptor descriptor) {
     Args.notNull(span, "Span");
-    Args.notNull(request, "HTTP Request");
+    Args.notNull(descriptor, "Request descriptor");
     if (!"http.client".equals(span.getOperation())) {
       return false;
     }
     Object requestHashData = span.getData(RequestHash.SPAN_DATA_KEY);
-    return requestHashData != null && requestHashData.equals(RequestHash.create(request));
+    return requestHashData != null && requestHashData.equals(RequestHash.create(descriptor));
   }
 
 }
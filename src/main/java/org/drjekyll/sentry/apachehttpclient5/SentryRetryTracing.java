@@ -0,0 +1,55 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.LogicalExchange;
+
+/**
+ * Optional instrumentation of the classic Apache HttpClient, which traces one logical call including its retries and
+ * redirects as one {@code http.client} span. {@link SentryHttpRequestInterceptor} adds a child span for each attempt,
+ * so the time waiting for retries can be told apart from the time spent in the exchanges. See {@link LogicalExchange}
+ * for the recorded data:
+ * <pre>
+ * SentryRetryTracing.instrument(HttpClientBuilder.create())
+ *   .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+ *   .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+ *   .build();
+ * </pre>
+ * Spans of attempts failing without a response are finished before waiting for the retry, see
+ * {@link SentryFailedRequests}. Requests traced as logical calls aren't aggregated by a
+ * {@link org.drjekyll.sentry.http.SpanAggregator}. The asynchronous client doesn't need this instrumentation, because
+ * {@link SentryAsyncExecChainHandler} already covers retries and redirects with one span.
+ */
+public final class SentryRetryTracing {
+
+  /**
+   * The name of the execution chain handler, which wraps the logical call
+   */
+  public static final String LOGICAL_HANDLER_NAME = "SENTRY_LOGICAL_REQUEST";
+
+  private SentryRetryTracing() {
+    // utility
+  }
+
+  /**
+   * Adds the execution chain handlers, which wrap the logical call and finish failed attempts.
+   *
+   * @param builder The builder of the HTTP client. Must not be null.
+   * @return The given builder
+   */
+  public static HttpClientBuilder instrument(HttpClientBuilder builder) {
+    Args.notNull(builder, "HTTP client builder");
+    return SentryFailedRequests.instrument(builder)
+      .addExecInterceptorFirst(LOGICAL_HANDLER_NAME, new LogicalExchangeExecChainHandler());
+  }
+
+  static LogicalExchange getLogicalExchange(HttpContext context) {
+    if (context == null) {
+      return null;
+    }
+    Object logicalExchange = context.getAttribute(ContextAttributes.LOGICAL_EXCHANGE);
+    return logicalExchange instanceof LogicalExchange ? (LogicalExchange) logicalExchange : null;
+  }
+
+}
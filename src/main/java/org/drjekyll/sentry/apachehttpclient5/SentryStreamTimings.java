@@ -0,0 +1,64 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.StreamTimings;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Optional instrumentation of the asynchronous Apache HttpClient, which adds the timings of each HTTP/2 stream as data
+ * to the spans created by {@link SentryAsyncExecChainHandler}. See {@link StreamTimings} for the recorded keys:
+ * <pre>
+ * CloseableHttpAsyncClient client = SentryStreamTimings.instrument(
+ *   SentryHttpClients.instrument(H2AsyncClientBuilder.create())
+ * ).build();
+ * </pre>
+ * Many requests share one HTTP/2 connection, so their latency depends on the time waiting for a connection and a free
+ * stream before the request headers are sent, and on the time the request body waits for the flow control window.
+ * Both are measured per attempt. An execution chain handler starts the timings before the connection is acquired, and
+ * a request interceptor marks the time the headers are sent. Add it after all other request interceptors, so it's
+ * the last one. Clients without this instrumentation don't pay for it, while instrumented clients allocate the timings
+ * for each attempt.
+ */
+public final class SentryStreamTimings {
+
+  /**
+   * The name of the execution chain handler, which starts the timings of an attempt
+   */
+  public static final String HANDLER_NAME = "SENTRY_STREAM_TIMINGS";
+
+  private SentryStreamTimings() {
+    // utility
+  }
+
+  /**
+   * Adds the execution chain handler and the request interceptor, which measure the stream timings.
+   *
+   * @param builder The builder of the HTTP/2 client. Must not be null.
+   * @return The given builder
+   */
+  public static H2AsyncClientBuilder instrument(@Nonnull H2AsyncClientBuilder builder) {
+    Args.notNull(builder, "HTTP/2 async client builder");
+    return builder
+      .addExecInterceptorBefore(ChainElement.CONNECT.name(), HANDLER_NAME, new StreamTimingAsyncExecChainHandler())
+      .addRequestInterceptorLast(new StreamTimingRequestInterceptor());
+  }
+
+  /**
+   * Adds the execution chain handler and the request interceptor, which measure the stream timings of connections
+   * negotiating HTTP/2.
+   *
+   * @param builder The builder of the asynchronous HTTP client. Must not be null.
+   * @return The given builder
+   */
+  public static HttpAsyncClientBuilder instrument(@Nonnull HttpAsyncClientBuilder builder) {
+    Args.notNull(builder, "HTTP async client builder");
+    return builder
+      .addExecInterceptorBefore(ChainElement.CONNECT.name(), HANDLER_NAME, new StreamTimingAsyncExecChainHandler())
+      .addRequestInterceptorLast(new StreamTimingRequestInterceptor());
+  }
+
+}
@@ -0,0 +1,41 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.drjekyll.sentry.http.StreamTimings;
+
+import java.io.IOException;
+
+/**
+ * Starts the {@link StreamTimings} of each attempt before a connection is acquired and measures the time its request
+ * body is blocked by flow control. The span of the exchange takes the timings from the context when it's finished.
+ */
+final class StreamTimingAsyncExecChainHandler implements AsyncExecChainHandler {
+
+  @Override
+  public void execute(
+    HttpRequest request,
+    AsyncEntityProducer entityProducer,
+    AsyncExecChain.Scope scope,
+    AsyncExecChain chain,
+    AsyncExecCallback asyncExecCallback
+  ) throws HttpException, IOException {
+    StreamTimings timings = new StreamTimings();
+    scope.clientContext.setAttribute(ContextAttributes.STREAM_TIMINGS, timings);
+    AsyncEntityProducer timingEntityProducer = entityProducer != null
+      ? new FlowControlTimingAsyncEntityProducer(entityProducer, timings)
+      : null;
+    chain.proceed(request, timingEntityProducer, scope, asyncExecCallback);
+  }
+
+  static StreamTimings get(HttpContext context) {
+    Object timings = context != null ? context.getAttribute(ContextAttributes.STREAM_TIMINGS) : null;
+    return timings instanceof StreamTimings ? (StreamTimings) timings : null;
+  }
+
+}
@@ -0,0 +1,62 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.core5.http.EndpointDetails;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpRequestInterceptor;
+import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.drjekyll.sentry.http.StreamTimings;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Marks the time the request headers are sent in the {@link StreamTimings} of the exchange. As the last request
+ * interceptor, it runs on the I/O thread right before the headers are submitted to the connection.
+ * <p>
+ * HttpCore doesn't expose the identifier of the stream, so it's a best-effort approximation: an HTTP/2 connection opens
+ * the streams of a client in the order their headers are submitted, with the odd identifiers 1, 3, 5 and so on, so
+ * the identifier follows from the number of requests the connection sent before. A stream opened for a request, which
+ * failed before it was sent, shifts the identifiers of the later streams. Once a connection shows such a request, i.e.
+ * its request count didn't advance since the previous request, its stream identifiers are omitted. The other timings
+ * belong to the exchange regardless of its stream identifier and are always recorded.
+ */
+final class StreamTimingRequestInterceptor implements HttpRequestInterceptor {
+
+  private static final long SHIFTED = -1L;
+
+  // the request counts the stream identifiers of a connection were inferred from, keyed by the connection's details
+  private final Map<EndpointDetails, Long> requestCounts = Collections.synchronizedMap(new WeakHashMap<>());
+
+  @Override
+  public void process(HttpRequest request, EntityDetails entity, HttpContext context) {
+    StreamTimings timings = StreamTimingAsyncExecChainHandler.get(context);
+    if (timings != null) {
+      timings.headersSent(getStreamId(context));
+    }
+  }
+
+  private int getStreamId(HttpContext context) {
+    if (!(context instanceof HttpCoreContext)) {
+      return 0;
+    }
+    ProtocolVersion protocolVersion = context.getProtocolVersion();
+    EndpointDetails endpointDetails = ((HttpCoreContext) context).getEndpointDetails();
+    if (protocolVersion == null || protocolVersion.getMajor() < 2 || endpointDetails == null) {
+      return 0;
+    }
+    long requestCount = endpointDetails.getRequestCount();
+    // the headers of a connection are submitted on its I/O thread one after another
+    Long previousRequestCount = requestCounts.get(endpointDetails);
+    if (previousRequestCount != null && (previousRequestCount == SHIFTED || requestCount <= previousRequestCount)) {
+      requestCounts.put(endpointDetails, SHIFTED);
+      return 0;
+    }
+    requestCounts.put(endpointDetails, requestCount);
+    return (int) (2L * requestCount + 1L);
+  }
+
+}
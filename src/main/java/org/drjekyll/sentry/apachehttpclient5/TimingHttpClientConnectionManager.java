@@ -0,0 +1,145 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.drjekyll.sentry.http.ConnectionTimings;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Delegates to another connection manager and records the time connecting new connections. A pooling connection
+ * manager is wrapped by {@link Pooling}, which controls the pool as well, so the HTTP client still evicts idle and
+ * expired connections and the pool can still be monitored.
+ */
+class TimingHttpClientConnectionManager implements HttpClientConnectionManager {
+
+  private final HttpClientConnectionManager delegate;
+
+  private TimingHttpClientConnectionManager(HttpClientConnectionManager delegate) {
+    this.delegate = Args.notNull(delegate, "Connection manager");
+  }
+
+  @SuppressWarnings("unchecked")
+  static TimingHttpClientConnectionManager wrap(HttpClientConnectionManager delegate) {
+    if (delegate instanceof ConnPoolControl) {
+      return new Pooling(delegate, (ConnPoolControl<HttpRoute>) delegate);
+    }
+    return new TimingHttpClientConnectionManager(delegate);
+  }
+
+  @Override
+  public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+    return delegate.lease(id, route, requestTimeout, state);
+  }
+
+  @Override
+  public void release(ConnectionEndpoint endpoint, Object newState, TimeValue validDuration) {
+    delegate.release(endpoint, newState, validDuration);
+  }
+
+  @Override
+  public void connect(ConnectionEndpoint endpoint, TimeValue connectTimeout, HttpContext context)
+    throws IOException {
+    long start = System.nanoTime();
+    delegate.connect(endpoint, connectTimeout, context);
+    ConnectionTimings timings = context != null ? ConnectionTimingExecChainHandler.get(context) : null;
+    if (timings != null) {
+      timings.connected(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void upgrade(ConnectionEndpoint endpoint, HttpContext context) throws IOException {
+    delegate.upgrade(endpoint, context);
+  }
+
+  @Override
+  public void close(CloseMode closeMode) {
+    delegate.close(closeMode);
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  /**
+   * Wraps a connection manager, which controls its connection pool
+   */
+  static final class Pooling extends TimingHttpClientConnectionManager implements ConnPoolControl<HttpRoute> {
+
+    private final ConnPoolControl<HttpRoute> pool;
+
+    private Pooling(HttpClientConnectionManager delegate, ConnPoolControl<HttpRoute> pool) {
+      super(delegate);
+      this.pool = pool;
+    }
+
+    @Override
+    public void setMaxTotal(int max) {
+      pool.setMaxTotal(max);
+    }
+
+    @Override
+    public int getMaxTotal() {
+      return pool.getMaxTotal();
+    }
+
+    @Override
+    public void setDefaultMaxPerRoute(int max) {
+      pool.setDefaultMaxPerRoute(max);
+    }
+
+    @Override
+    public int getDefaultMaxPerRoute() {
+      return pool.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public void setMaxPerRoute(HttpRoute route, int max) {
+      pool.setMaxPerRoute(route, max);
+    }
+
+    @Override
+    public int getMaxPerRoute(HttpRoute route) {
+      return pool.getMaxPerRoute(route);
+    }
+
+    @Override
+    public void closeIdle(TimeValue idleTime) {
+      pool.closeIdle(idleTime);
+    }
+
+    @Override
+    public void closeExpired() {
+      pool.closeExpired();
+    }
+
+    @Override
+    public Set<HttpRoute> getRoutes() {
+      return pool.getRoutes();
+    }
+
+    @Override
+    public PoolStats getTotalStats() {
+      return pool.getTotalStats();
+    }
+
+    @Override
+    public PoolStats getStats(HttpRoute route) {
+      return pool.getStats(route);
+    }
+
+  }
+
+}
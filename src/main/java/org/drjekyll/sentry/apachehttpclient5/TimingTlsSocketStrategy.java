@@ -0,0 +1,36 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ConnectionTimings;
+
+import java.io.IOException;
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Delegates to another TLS socket strategy and records the duration of the TLS handshake.
+ */
+final class TimingTlsSocketStrategy implements TlsSocketStrategy {
+
+  private final TlsSocketStrategy delegate;
+
+  TimingTlsSocketStrategy(TlsSocketStrategy delegate) {
+    this.delegate = Args.notNull(delegate, "TLS socket strategy");
+  }
+
+  @Override
+  public SSLSocket upgrade(Socket socket, String target, int port, Object attachment, HttpContext context)
+    throws IOException {
+    long start = System.nanoTime();
+    SSLSocket sslSocket = delegate.upgrade(socket, target, port, attachment, context);
+    ConnectionTimings timings = context != null ? ConnectionTimingExecChainHandler.get(context) : null;
+    if (timings != null) {
+      timings.tlsHandshakeCompleted(System.nanoTime() - start);
+    }
+    return sslSocket;
+  }
+
+}
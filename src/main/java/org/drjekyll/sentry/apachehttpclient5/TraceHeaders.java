@@ -0,0 +1,63 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.BaggageMerger;
+import org.drjekyll.sentry.http.TraceHeaderEncoder;
+import org.drjekyll.sentry.http.TracePropagationFormat;
+
+import io.sentry.BaggageHeader;
+import io.sentry.ISpan;
+import io.sentry.SentryTraceHeader;
+
+/**
+ * Writes the {@code sentry-trace} and/or the {@code traceparent} header and merges the Sentry baggage into a single
+ * {@code baggage} header of a request. Existing headers are replaced, so retried requests don't accumulate headers. An
+ * existing {@code tracestate} header is left as it is, since it belongs to the other vendors of the trace.
+ */
+final class TraceHeaders {
+
+  private final TraceHeaderEncoder traceHeaderEncoder = new TraceHeaderEncoder();
+
+  private final BaggageMerger baggageMerger = new BaggageMerger();
+
+  void add(ISpan span, HttpRequest request, TracePropagationFormat format) {
+    Args.notNull(span, "Span");
+    Args.notNull(request, "HTTP request");
+    TraceHeaderEncoder.EncodedTraceHeaders traceHeaders = traceHeaderEncoder.encode(span, format);
+    if (traceHeaders.getSentryTrace() != null) {
+      request.setHeader(SentryTraceHeader.SENTRY_TRACE_HEADER, traceHeaders.getSentryTrace());
+    }
+    if (traceHeaders.getTraceparent() != null) {
+      request.setHeader(TraceHeaderEncoder.TRACEPARENT_HEADER, traceHeaders.getTraceparent());
+    }
+    int baggageHeaderCount = request.countHeaders(BaggageHeader.BAGGAGE_HEADER);
+    String baggage = baggageMerger.merge(span, getBaggage(request, baggageHeaderCount));
+    if (baggage == null) {
+      return;
+    }
+    if (baggageHeaderCount > 1) {
+      request.removeHeaders(BaggageHeader.BAGGAGE_HEADER);
+    }
+    request.setHeader(BaggageHeader.BAGGAGE_HEADER, baggage);
+  }
+
+  private static String getBaggage(HttpRequest request, int baggageHeaderCount) {
+    if (baggageHeaderCount == 0) {
+      return null;
+    }
+    if (baggageHeaderCount == 1) {
+      return request.getFirstHeader(BaggageHeader.BAGGAGE_HEADER).getValue();
+    }
+    StringBuilder baggage = new StringBuilder();
+    for (Header header : request.getHeaders(BaggageHeader.BAGGAGE_HEADER)) {
+      if (baggage.length() > 0) {
+        baggage.append(',');
+      }
+      baggage.append(header.getValue());
+    }
+    return baggage.toString();
+  }
+
+}
@@ -0,0 +1,264 @@
+package org.drjekyll.sentry.http;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+import io.sentry.ISpan;
+import io.sentry.Sentry;
+import io.sentry.SentryDate;
+import io.sentry.SpanStatus;
+
+/**
+ * Finishes spans and adds breadcrumbs on a single background thread, so the thread executing a request doesn't wait for
+ * Sentry to finish and serialize a transaction, whose last child is the span of the request. Pass the finisher to
+ * {@link SentryHttpOptions#setSpanFinisher(SpanFinisher)}:
+ * <pre>
+ * SentryHttpOptions options = new SentryHttpOptions();
+ * options.setSpanFinisher(new BackgroundSpanFinisher());
+ * </pre>
+ * The end of the span is passed by the calling thread, so its duration doesn't include the time spent in the queue. The
+ * breadcrumb is added to the hub of the calling thread, but its timestamp is taken when it's added. Requests hand their
+ * spans over to a bounded queue without locks. If the queue is full, the span isn't finished and no breadcrumb is
+ * added, instead of blocking the request. The dropped spans are counted and finished by Sentry as
+ * {@link SpanStatus#DEADLINE_EXCEEDED} when their transaction finishes.
+ * <p>
+ * A transaction finished right after a request may finish before the span of the request, which then is marked as
+ * exceeding its deadline. Enable {@link io.sentry.TransactionOptions#setWaitForChildren(boolean)} to let transactions
+ * wait for their spans, or {@link #flush(Duration)} the finisher before finishing the transaction.
+ * <p>
+ * The background thread is a daemon thread, which runs until the finisher is closed.
+ */
+public final class BackgroundSpanFinisher implements SpanFinisher, Closeable {
+
+  /**
+   * The default maximum number of spans waiting to be finished
+   */
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  private static final long CLOSE_TIMEOUT_MILLIS = 1_000L;
+
+  private static final long FLUSH_RETRY_NANOS = 100_000L;
+
+  private final MpscArrayQueue<Runnable> queue;
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  private final Thread worker;
+
+  private volatile boolean sleeping;
+
+  private volatile boolean closed;
+
+  /**
+   * Starts finishing up to {@link #DEFAULT_CAPACITY} waiting spans on a new daemon thread.
+   */
+  public BackgroundSpanFinisher() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Starts finishing spans on a new daemon thread.
+   *
+   * @param capacity The maximum number of spans waiting to be finished. Must be positive. It's rounded up to the next
+   * power of two, but at least two.
+   */
+  public BackgroundSpanFinisher(int capacity) {
+    queue = new MpscArrayQueue<>(capacity);
+    worker = new Thread(this::run, "sentry-http-span-finisher");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  @Override
+  public void finish(
+    @Nonnull IHub hub,
+    @Nonnull ISpan span,
+    @Nullable SpanStatus status,
+    @Nonnull SentryDate timestamp,
+    @Nonnull BreadcrumbPolicy breadcrumbPolicy,
+    @Nullable RequestDescriptor request,
+    @Nullable Integer statusCode
+  ) {
+    Objects.requireNonNull(hub, "Hub");
+    Objects.requireNonNull(span, "Span");
+    Objects.requireNonNull(timestamp, "Timestamp");
+    Objects.requireNonNull(breadcrumbPolicy, "Breadcrumb policy");
+    if (closed) {
+      SYNCHRONOUS.finish(hub, span, status, timestamp, breadcrumbPolicy, request, statusCode);
+      return;
+    }
+    // the adapter would add the breadcrumb to the hub of the background thread
+    IHub breadcrumbHub = request != null && hub instanceof HubAdapter ? Sentry.getCurrentHub() : hub;
+    FinishTask task = new FinishTask(breadcrumbHub, span, status, timestamp, breadcrumbPolicy, request, statusCode);
+    if (!queue.offer(task)) {
+      droppedCount.incrementAndGet();
+      return;
+    }
+    if (closed) {
+      // the worker may have stopped before it saw the span, so it's finished on this thread, unless the worker was first
+      runTask(task);
+      return;
+    }
+    if (sleeping) {
+      LockSupport.unpark(worker);
+    }
+  }
+
+  /**
+   * @return The number of spans, which weren't finished, because the queue was full
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Waits until the spans handed over before were finished.
+   *
+   * @param timeout The maximum time to wait. Must not be null.
+   * @return true, if the spans were finished within the timeout
+   */
+  public boolean flush(@Nonnull Duration timeout) {
+    long timeoutNanos = Objects.requireNonNull(timeout, "Timeout").toNanos();
+    long deadline = System.nanoTime() + timeoutNanos;
+    try {
+      if (closed) {
+        worker.join(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(timeoutNanos)));
+        return !worker.isAlive();
+      }
+      CountDownLatch flushed = new CountDownLatch(1);
+      while (!queue.offer(flushed::countDown)) {
+        if (System.nanoTime() - deadline >= 0L) {
+          return false;
+        }
+        LockSupport.parkNanos(FLUSH_RETRY_NANOS);
+      }
+      LockSupport.unpark(worker);
+      return flushed.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Finishes the waiting spans and stops the background thread. Spans handed over afterwards are finished on the
+   * calling thread, as well as spans handed over while the background thread stopped.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark(worker);
+    try {
+      worker.join(CLOSE_TIMEOUT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    if (worker.isAlive()) {
+      // the worker is still busy with a span and drains the queue afterwards
+      return;
+    }
+    // the queue allows a single consumer only, which may be one of several closing threads
+    synchronized (queue) {
+      Runnable task;
+      while ((task = queue.poll()) != null) {
+        runTask(task);
+      }
+    }
+  }
+
+  private void run() {
+    while (true) {
+      Runnable task = queue.poll();
+      if (task != null) {
+        runTask(task);
+      } else if (closed) {
+        // spans handed over before the closing was visible to their threads are still finished here
+        while ((task = queue.poll()) != null) {
+          runTask(task);
+        }
+        return;
+      } else {
+        sleeping = true;
+        // the queue is checked again after announcing to sleep, so a span handed over meanwhile wakes the thread
+        if (queue.isEmpty() && !closed) {
+          LockSupport.park(this);
+        }
+        sleeping = false;
+      }
+    }
+  }
+
+  private static void runTask(Runnable task) {
+    try {
+      task.run();
+    } catch (RuntimeException ignored) {
+      // a failing span or breadcrumb policy must not stop finishing the other spans
+    }
+  }
+
+  private static final class FinishTask implements Runnable {
+
+    private static final AtomicIntegerFieldUpdater<FinishTask> CLAIMED =
+      AtomicIntegerFieldUpdater.newUpdater(FinishTask.class, "claimed");
+
+    private final IHub hub;
+
+    private final ISpan span;
+
+    private final SpanStatus status;
+
+    private final SentryDate timestamp;
+
+    private final BreadcrumbPolicy breadcrumbPolicy;
+
+    private final RequestDescriptor request;
+
+    private final Integer statusCode;
+
+    private volatile int claimed;
+
+    private FinishTask(
+      IHub hub,
+      ISpan span,
+      SpanStatus status,
+      SentryDate timestamp,
+      BreadcrumbPolicy breadcrumbPolicy,
+      RequestDescriptor request,
+      Integer statusCode
+    ) {
+      this.hub = hub;
+      this.span = span;
+      this.status = status;
+      this.timestamp = timestamp;
+      this.breadcrumbPolicy = breadcrumbPolicy;
+      this.request = request;
+      this.statusCode = statusCode;
+    }
+
+    @Override
+    public void run() {
+      // a span handed over while closing is run by both the worker and the calling thread, but finished only once
+      if (!CLAIMED.compareAndSet(this, 0, 1)) {
+        return;
+      }
+      if (request != null) {
+        breadcrumbPolicy.addBreadcrumb(hub, request, statusCode);
+      }
+      span.finish(status != null ? status : span.getStatus(), timestamp);
+    }
+
+  }
+
+}
@@ -0,0 +1,114 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Collections;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.Baggage;
+import io.sentry.BaggageHeader;
+import io.sentry.ISpan;
+import io.sentry.NoOpLogger;
+
+/**
+ * Merges the Sentry baggage of a span into the baggage of a request, so the request carries a single {@code baggage}
+ * header. Entries of other vendors are kept in front of the Sentry entries and Sentry entries of another trace are
+ * replaced, like {@link ISpan#toBaggageHeader(java.util.List)} does.
+ * <p>
+ * In contrast to it, the third-party part of the incoming baggage is parsed only once per distinct header value and
+ * cached in a bounded least recently used cache, since requests of a client usually carry the same baggage, e.g.
+ * forwarded by a proxy. The Sentry entries of the span are appended without parsing the third-party part again, as long
+ * as the result stays within the limits of the W3C baggage specification. Otherwise the span merges them itself and
+ * drops the entries exceeding the limits.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class BaggageMerger {
+
+  /**
+   * The default number of distinct incoming baggage header values the third-party part is cached for.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 256;
+
+  private static final int MAX_LENGTH = 8192;
+
+  private static final int MAX_MEMBERS = 64;
+
+  private final LruCache<String, ThirdPartyBaggage> thirdPartyBaggages;
+
+  /**
+   * Initializes this merger with a cache of {@link #DEFAULT_CACHE_SIZE} header values.
+   */
+  public BaggageMerger() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param cacheSize The number of distinct incoming header values the third-party part is cached for. Must be
+   * positive.
+   */
+  public BaggageMerger(int cacheSize) {
+    thirdPartyBaggages = new LruCache<>(cacheSize);
+  }
+
+  /**
+   * Merges the Sentry baggage of the given span into the given baggage of a request.
+   *
+   * @param span The span, whose trace is propagated. Must not be null.
+   * @param incomingBaggage The baggage of the request, i.e. the values of its baggage headers joined by commas, or null
+   * @return The value of the single baggage header of the request or null, if there is no baggage at all
+   */
+  @Nullable
+  public String merge(@Nonnull ISpan span, @Nullable String incomingBaggage) {
+    Objects.requireNonNull(span, "Span");
+    ThirdPartyBaggage thirdPartyBaggage = incomingBaggage == null || incomingBaggage.isEmpty()
+      ? ThirdPartyBaggage.NONE
+      : thirdPartyBaggages.computeIfAbsent(incomingBaggage, ThirdPartyBaggage::parse);
+    BaggageHeader sentryBaggage = span.toBaggageHeader(Collections.emptyList());
+    if (sentryBaggage == null) {
+      return thirdPartyBaggage.value;
+    }
+    String sentryValue = sentryBaggage.getValue();
+    if (thirdPartyBaggage.value == null) {
+      return sentryValue;
+    }
+    if (thirdPartyBaggage.value.length() + 1 + sentryValue.length() <= MAX_LENGTH
+      && thirdPartyBaggage.members + countMembers(sentryValue) <= MAX_MEMBERS) {
+      return thirdPartyBaggage.value + ',' + sentryValue;
+    }
+    BaggageHeader mergedBaggage = span.toBaggageHeader(Collections.singletonList(thirdPartyBaggage.value));
+    return mergedBaggage != null ? mergedBaggage.getValue() : null;
+  }
+
+  private static int countMembers(String value) {
+    int members = 1;
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) == ',') {
+        members++;
+      }
+    }
+    return members;
+  }
+
+  private static final class ThirdPartyBaggage {
+
+    private static final ThirdPartyBaggage NONE = new ThirdPartyBaggage(null);
+
+    private final String value;
+
+    private final int members;
+
+    private ThirdPartyBaggage(String value) {
+      this.value = value;
+      members = value != null ? countMembers(value) : 0;
+    }
+
+    private static ThirdPartyBaggage parse(String incomingBaggage) {
+      String value = Baggage.fromHeader(incomingBaggage, true, NoOpLogger.getInstance()).getThirdPartyHeader();
+      return value == null || value.isEmpty() ? NONE : new ThirdPartyBaggage(value);
+    }
+
+  }
+
+}
@@ -0,0 +1,36 @@
+package org.drjekyll.sentry.http;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.Breadcrumb;
+import io.sentry.IHub;
+
+/**
+ * Decides whether and how a breadcrumb is added for an outgoing request. The breadcrumb is only created, if it is
+ * kept, so policies dropping breadcrumbs don't pay for rendering their data.
+ * <p>
+ * Implementations are called for every request and every response and must be thread-safe.
+ */
+@FunctionalInterface
+public interface BreadcrumbPolicy {
+
+  /**
+   * Adds a breadcrumb for each request and each response
+   */
+  BreadcrumbPolicy ALWAYS = (hub, request, statusCode) -> hub.addBreadcrumb(Breadcrumb.http(
+    request.getUrl(),
+    request.getMethod(),
+    statusCode
+  ));
+
+  /**
+   * Adds a breadcrumb for the given request to the current scope of the hub, if this policy keeps it.
+   *
+   * @param hub The Sentry hub. Never null.
+   * @param request The request. Never null.
+   * @param statusCode The HTTP status code of the response or null, if the response isn't known
+   */
+  void addBreadcrumb(@Nonnull IHub hub, @Nonnull RequestDescriptor request, @Nullable Integer statusCode);
+
+}
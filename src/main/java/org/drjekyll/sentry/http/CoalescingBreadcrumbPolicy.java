@@ -0,0 +1,190 @@
+package org.drjekyll.sentry.http;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.Breadcrumb;
+import io.sentry.IHub;
+import io.sentry.IScope;
+
+/**
+ * Reduces the number of breadcrumbs of outgoing requests, so they don't evict the other breadcrumbs of a scope. Each
+ * call identical to the previous one of the same scope, i.e. with the same HTTP method, URL and status code,
+ * increments the count of the previous breadcrumb instead of adding a new one. Calls are only coalesced, if the
+ * breadcrumb of the previous call is still the newest breadcrumb of the scope, so calls interleaved with other
+ * breadcrumbs or with sampled out calls are kept apart. Breadcrumbs of successful requests are sampled, breadcrumbs of
+ * client and server errors are always kept.
+ * <p>
+ * The previous call is kept per scope without a shared lock. Whether its breadcrumb is still the newest one is told
+ * from the size and the oldest breadcrumb of the scope, which both change when another breadcrumb is added, so the
+ * breadcrumbs aren't copied.
+ */
+public final class CoalescingBreadcrumbPolicy implements BreadcrumbPolicy {
+
+  /**
+   * Breadcrumb data key of the number of coalesced calls
+   */
+  public static final String COUNT_DATA_KEY = "count";
+
+  private final double successSampleRate;
+
+  private final ConcurrentMap<ScopeReference, LastBreadcrumb> lastBreadcrumbs = new ConcurrentHashMap<>();
+
+  private final ReferenceQueue<IScope> discardedScopes = new ReferenceQueue<>();
+
+  /**
+   * @param successSampleRate The rate of breadcrumbs of requests without an error status to keep, from 0 to 1
+   */
+  public CoalescingBreadcrumbPolicy(double successSampleRate) {
+    if (successSampleRate < 0.0 || successSampleRate > 1.0) {
+      throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+    }
+    this.successSampleRate = successSampleRate;
+  }
+
+  @Override
+  public void addBreadcrumb(@Nonnull IHub hub, @Nonnull RequestDescriptor request, @Nullable Integer statusCode) {
+    Objects.requireNonNull(request, "Request");
+    hub.configureScope(scope -> addBreadcrumb(scope, request, statusCode));
+  }
+
+  private void addBreadcrumb(IScope scope, RequestDescriptor request, Integer statusCode) {
+    ScopeReference lookup = new ScopeReference(scope, null);
+    LastBreadcrumb lastBreadcrumb = lastBreadcrumbs.get(lookup);
+    if (lastBreadcrumb != null) {
+      if (lastBreadcrumb.matches(request, statusCode) && lastBreadcrumb.increment(scope)) {
+        return;
+      }
+      // a sampled out call separates the previous call from the next one as well
+      lastBreadcrumbs.remove(lookup, lastBreadcrumb);
+    }
+    if (!isError(statusCode) && ThreadLocalRandom.current().nextDouble() >= successSampleRate) {
+      return;
+    }
+    Queue<Breadcrumb> breadcrumbs = scope.getBreadcrumbs();
+    int previousSize = breadcrumbs.size();
+    Breadcrumb previousOldest = breadcrumbs.peek();
+    Breadcrumb breadcrumb = Breadcrumb.http(request.getUrl(), request.getMethod(), statusCode);
+    scope.addBreadcrumb(breadcrumb);
+    int size = breadcrumbs.size();
+    Breadcrumb oldest = breadcrumbs.peek();
+    if (isAdded(scope, breadcrumb, previousSize, previousOldest, size, oldest)) {
+      removeDiscardedScopes();
+      lastBreadcrumbs.put(
+        new ScopeReference(scope, discardedScopes),
+        new LastBreadcrumb(request, statusCode, breadcrumb, size, oldest)
+      );
+    }
+  }
+
+  private static boolean isAdded(
+    IScope scope,
+    Breadcrumb breadcrumb,
+    int previousSize,
+    Breadcrumb previousOldest,
+    int size,
+    Breadcrumb oldest
+  ) {
+    if (scope.getOptions().getBeforeBreadcrumb() != null) {
+      // the callback may have dropped the breadcrumb or replaced it by another one
+      Object[] breadcrumbs = scope.getBreadcrumbs().toArray();
+      return breadcrumbs.length > 0 && breadcrumbs[breadcrumbs.length - 1] == breadcrumb;
+    }
+    // a full scope evicts its oldest breadcrumb instead of growing
+    return size > previousSize || size > 0 && oldest != previousOldest;
+  }
+
+  private void removeDiscardedScopes() {
+    Reference<? extends IScope> discardedScope;
+    while ((discardedScope = discardedScopes.poll()) != null) {
+      lastBreadcrumbs.remove(discardedScope);
+    }
+  }
+
+  private static boolean isError(Integer statusCode) {
+    return statusCode != null && statusCode >= 400;
+  }
+
+  // scopes are compared by identity and aren't referenced after they were discarded
+  private static final class ScopeReference extends WeakReference<IScope> {
+
+    private final int hashCode;
+
+    ScopeReference(IScope scope, ReferenceQueue<IScope> queue) {
+      super(scope, queue);
+      hashCode = System.identityHashCode(scope);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ScopeReference)) {
+        return false;
+      }
+      IScope scope = get();
+      return scope != null && scope == ((ScopeReference) o).get();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+  }
+
+  private static final class LastBreadcrumb {
+
+    private final String method;
+
+    private final String url;
+
+    private final Integer statusCode;
+
+    private final Breadcrumb breadcrumb;
+
+    private final int size;
+
+    private final Breadcrumb oldest;
+
+    private long count = 1L;
+
+    LastBreadcrumb(RequestDescriptor request, Integer statusCode, Breadcrumb breadcrumb, int size, Breadcrumb oldest) {
+      method = request.getMethod();
+      url = request.getUrl();
+      this.statusCode = statusCode;
+      this.breadcrumb = breadcrumb;
+      this.size = size;
+      this.oldest = oldest;
+    }
+
+    boolean matches(RequestDescriptor request, Integer otherStatusCode) {
+      return url.equals(request.getUrl())
+        && method.equals(request.getMethod())
+        && Objects.equals(statusCode, otherStatusCode);
+    }
+
+    synchronized boolean increment(IScope scope) {
+      // any other breadcrumb added since grows the scope or evicts its oldest breadcrumb
+      Queue<Breadcrumb> breadcrumbs = scope.getBreadcrumbs();
+      if (breadcrumbs.size() != size || breadcrumbs.peek() != oldest) {
+        return false;
+      }
+      count++;
+      breadcrumb.setData(COUNT_DATA_KEY, count);
+      return true;
+    }
+
+  }
+
+}
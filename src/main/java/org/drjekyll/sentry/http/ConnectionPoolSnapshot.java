@@ -0,0 +1,137 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.ISpan;
+import io.sentry.metrics.MetricsApi;
+
+/**
+ * The statistics of a connection pool at the time it was sampled. Instances are immutable.
+ */
+public final class ConnectionPoolSnapshot {
+
+  /**
+   * Name of the measurement and the metric of the number of leased connections
+   */
+  public static final String LEASED_KEY = "http.client.pool.leased";
+
+  /**
+   * Name of the measurement and the metric of the number of requests waiting for a connection
+   */
+  public static final String PENDING_KEY = "http.client.pool.pending";
+
+  /**
+   * Name of the measurement and the metric of the number of idle connections
+   */
+  public static final String AVAILABLE_KEY = "http.client.pool.available";
+
+  /**
+   * Name of the measurement and the metric of the maximum number of connections
+   */
+  public static final String MAX_KEY = "http.client.pool.max";
+
+  private final int leased;
+
+  private final int pending;
+
+  private final int available;
+
+  private final int max;
+
+  /**
+   * Creates a snapshot of the given pool statistics.
+   *
+   * @param leased The number of leased connections
+   * @param pending The number of requests waiting for a connection
+   * @param available The number of idle connections
+   * @param max The maximum number of connections
+   */
+  public ConnectionPoolSnapshot(int leased, int pending, int available, int max) {
+    this.leased = leased;
+    this.pending = pending;
+    this.available = available;
+    this.max = max;
+  }
+
+  /**
+   * @return The number of leased connections
+   */
+  public int getLeased() {
+    return leased;
+  }
+
+  /**
+   * @return The number of requests waiting for a connection
+   */
+  public int getPending() {
+    return pending;
+  }
+
+  /**
+   * @return The number of idle connections
+   */
+  public int getAvailable() {
+    return available;
+  }
+
+  /**
+   * @return The maximum number of connections
+   */
+  public int getMax() {
+    return max;
+  }
+
+  /**
+   * Sets the statistics as measurements of the given span.
+   *
+   * @param span A span. Must not be null.
+   */
+  public void applyTo(@Nonnull ISpan span) {
+    Objects.requireNonNull(span, "Span");
+    span.setMeasurement(LEASED_KEY, leased);
+    span.setMeasurement(PENDING_KEY, pending);
+    span.setMeasurement(AVAILABLE_KEY, available);
+    span.setMeasurement(MAX_KEY, max);
+  }
+
+  /**
+   * Emits the statistics as gauges.
+   *
+   * @param metrics The Sentry metrics API. Must not be null.
+   * @param tags The tags of the gauges, e.g. the route. Must not be null.
+   */
+  public void emitTo(@Nonnull MetricsApi metrics, @Nonnull Map<String, String> tags) {
+    Objects.requireNonNull(metrics, "Metrics");
+    Objects.requireNonNull(tags, "Tags");
+    metrics.gauge(LEASED_KEY, leased, null, tags);
+    metrics.gauge(PENDING_KEY, pending, null, tags);
+    metrics.gauge(AVAILABLE_KEY, available, null, tags);
+    metrics.gauge(MAX_KEY, max, null, tags);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ConnectionPoolSnapshot that = (ConnectionPoolSnapshot) o;
+    return leased == that.leased && pending == that.pending && available == that.available && max == that.max;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(leased, pending, available, max);
+  }
+
+  @Override
+  public String toString() {
+    return "[leased: " + leased + "; pending: " + pending + "; available: " + available + "; max: " + max + ']';
+  }
+
+}
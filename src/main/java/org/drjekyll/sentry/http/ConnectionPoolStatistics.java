@@ -0,0 +1,18 @@
+package org.drjekyll.sentry.http;
+
+import javax.annotation.Nullable;
+
+/**
+ * Provides the latest sampled statistics of a connection pool, e.g. a connection pool monitor of one of the HttpClient
+ * integrations. Implementations must be thread-safe and must not block, because they are queried for each request.
+ */
+@FunctionalInterface
+public interface ConnectionPoolStatistics {
+
+  /**
+   * @return The latest sampled statistics or null, if none were sampled yet
+   */
+  @Nullable
+  ConnectionPoolSnapshot getSnapshot();
+
+}
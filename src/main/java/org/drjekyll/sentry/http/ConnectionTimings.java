@@ -0,0 +1,120 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.ISpan;
+
+/**
+ * Collects the durations of the connection phases of a single exchange: leasing a connection from the pool, connecting
+ * the socket, the TLS handshake and the time to the first byte of the response. The durations are recorded by the
+ * optional timing components of the HttpClient integrations and written as data to the {@code http.client} span when
+ * it is finished. Phases which weren't recorded, e.g. connecting a pooled connection, are omitted.
+ * <p>
+ * An instance belongs to one exchange and is not thread-safe.
+ */
+public final class ConnectionTimings {
+
+  /**
+   * Span data key of the time waiting for a connection from the pool in milliseconds
+   */
+  public static final String POOL_LEASE_DATA_KEY = "http.client.pool_lease_ms";
+
+  /**
+   * Span data key of the time establishing the TCP connection in milliseconds, excluding the TLS handshake
+   */
+  public static final String CONNECT_DATA_KEY = "http.client.connect_ms";
+
+  /**
+   * Span data key of the duration of the TLS handshake in milliseconds
+   */
+  public static final String TLS_HANDSHAKE_DATA_KEY = "http.client.tls_handshake_ms";
+
+  /**
+   * Span data key of the time from sending the request until the response head was received in milliseconds
+   */
+  public static final String TIME_TO_FIRST_BYTE_DATA_KEY = "http.client.time_to_first_byte_ms";
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private static final long NOT_RECORDED = -1L;
+
+  private long acquisitionStart = NOT_RECORDED;
+
+  private long requestStart = NOT_RECORDED;
+
+  private long poolLeaseNanos = NOT_RECORDED;
+
+  private long connectNanos = NOT_RECORDED;
+
+  private long tlsHandshakeNanos = NOT_RECORDED;
+
+  /**
+   * Marks the start of the connection acquisition, i.e. before leasing a connection from the pool.
+   */
+  public void acquisitionStarted() {
+    acquisitionStart = System.nanoTime();
+  }
+
+  /**
+   * Marks the start of sending the request. If the acquisition start was marked, the pool lease time is derived from
+   * it, unless it was recorded explicitly.
+   */
+  public void requestStarted() {
+    requestStart = System.nanoTime();
+    if (acquisitionStart != NOT_RECORDED && poolLeaseNanos == NOT_RECORDED) {
+      long acquisitionNanos = requestStart - acquisitionStart;
+      poolLeaseNanos = Math.max(0L, connectNanos == NOT_RECORDED ? acquisitionNanos : acquisitionNanos - connectNanos);
+    }
+  }
+
+  /**
+   * @param nanos The time waiting for a connection from the pool in nanoseconds
+   */
+  public void poolLeased(long nanos) {
+    poolLeaseNanos = nanos;
+  }
+
+  /**
+   * @param nanos The time connecting the connection including a TLS handshake in nanoseconds
+   */
+  public void connected(long nanos) {
+    connectNanos = nanos;
+  }
+
+  /**
+   * @param nanos The duration of the TLS handshake in nanoseconds
+   */
+  public void tlsHandshakeCompleted(long nanos) {
+    tlsHandshakeNanos = nanos;
+  }
+
+  /**
+   * Writes the recorded durations as data to the given span. The time to first byte is measured up to now, so call
+   * this method as soon as the response head was received.
+   *
+   * @param span The span of the exchange. Must not be null.
+   */
+  public void applyTo(@Nonnull ISpan span) {
+    Objects.requireNonNull(span, "Span");
+    if (requestStart != NOT_RECORDED) {
+      span.setData(TIME_TO_FIRST_BYTE_DATA_KEY, toMillis(System.nanoTime() - requestStart));
+    }
+    if (poolLeaseNanos != NOT_RECORDED) {
+      span.setData(POOL_LEASE_DATA_KEY, toMillis(poolLeaseNanos));
+    }
+    if (connectNanos != NOT_RECORDED) {
+      long tcpNanos = tlsHandshakeNanos == NOT_RECORDED ? connectNanos : connectNanos - tlsHandshakeNanos;
+      span.setData(CONNECT_DATA_KEY, toMillis(Math.max(0L, tcpNanos)));
+    }
+    if (tlsHandshakeNanos != NOT_RECORDED) {
+      span.setData(TLS_HANDSHAKE_DATA_KEY, toMillis(tlsHandshakeNanos));
+    }
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / NANOS_PER_MILLI;
+  }
+
+}
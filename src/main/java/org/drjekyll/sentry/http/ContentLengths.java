@@ -0,0 +1,25 @@
+package org.drjekyll.sentry.http;
+
+import io.sentry.SpanDataConvention;
+
+/**
+ * Span data keys of the body sizes of an exchange. The sizes are taken from the entity, if its length is known in
+ * advance. Otherwise, the bytes are counted while the body is streamed, without buffering it.
+ */
+public final class ContentLengths {
+
+  /**
+   * Span data key of the request body size in bytes
+   */
+  public static final String REQUEST_DATA_KEY = "http.request_content_length";
+
+  /**
+   * Span data key of the response body size in bytes
+   */
+  public static final String RESPONSE_DATA_KEY = SpanDataConvention.HTTP_RESPONSE_CONTENT_LENGTH_KEY;
+
+  private ContentLengths() {
+    // utility
+  }
+
+}
@@ -0,0 +1,85 @@
+package org.drjekyll.sentry.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An input stream, which counts the bytes read from the underlying stream and reports the count once the end of the
+ * stream was reached. Streams closed before their end aren't reported, because the count would be incomplete.
+ */
+public final class CountingInputStream extends FilterInputStream {
+
+  private final LongConsumer endOfStreamListener;
+
+  private long count;
+
+  private boolean reported;
+
+  private boolean closed;
+
+  /**
+   * @param in The underlying stream. Must not be null.
+   * @param endOfStreamListener Receives the number of bytes read, when the end of the stream was reached. Must not be
+   * null.
+   */
+  public CountingInputStream(@Nonnull InputStream in, @Nonnull LongConsumer endOfStreamListener) {
+    super(in);
+    this.endOfStreamListener = Objects.requireNonNull(endOfStreamListener, "End of stream listener");
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = in.read();
+    if (b < 0) {
+      report();
+    } else {
+      count++;
+    }
+    return b;
+  }
+
+  @Override
+  public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+    int read = in.read(b, off, len);
+    if (read < 0) {
+      report();
+    } else {
+      count += read;
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = in.skip(n);
+    count += skipped;
+    return skipped;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    in.close();
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void report() {
+    if (!reported) {
+      reported = true;
+      endOfStreamListener.accept(count);
+    }
+  }
+
+}
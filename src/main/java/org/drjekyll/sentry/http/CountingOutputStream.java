@@ -0,0 +1,42 @@
+package org.drjekyll.sentry.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An output stream, which counts the bytes written to the underlying stream.
+ */
+public final class CountingOutputStream extends FilterOutputStream {
+
+  private long count;
+
+  /**
+   * @param out The underlying stream. Must not be null.
+   */
+  public CountingOutputStream(@Nonnull OutputStream out) {
+    super(out);
+  }
+
+  /**
+   * @return The number of bytes written so far
+   */
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    count++;
+  }
+
+  @Override
+  public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+    out.write(b, off, len);
+    count += len;
+  }
+
+}
@@ -0,0 +1,252 @@
+package org.drjekyll.sentry.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Normalizes URLs to keep the cardinality of span descriptions low:
+ * <ul>
+ *   <li>The query and the fragment are removed.</li>
+ *   <li>If the path matches one of the given route templates, e.g. {@code /users/{userId}/orders}, the template is
+ *   used as path. Segments in curly braces match any segment.</li>
+ *   <li>Otherwise numeric path segments are replaced by {@value #ID_PLACEHOLDER}, UUIDs by
+ *   {@value #UUID_PLACEHOLDER} and hexadecimal segments with at least {@value #MIN_HEX_LENGTH} characters containing a
+ *   digit by {@value #HEX_PLACEHOLDER}.</li>
+ * </ul>
+ * For example, {@code https://host/users/42/avatar?size=big} becomes {@code https://host/users/{id}/avatar}. The
+ * normalized URLs are cached in a bounded concurrent map, so looking them up doesn't lock. URLs with a query string or
+ * a fragment aren't cached, since they rarely repeat, and a full cache is cleared instead of evicting single URLs.
+ */
+public final class DefaultUrlNormalizer implements UrlNormalizer {
+
+  /**
+   * The placeholder for numeric path segments.
+   */
+  public static final String ID_PLACEHOLDER = "{id}";
+
+  /**
+   * The placeholder for UUID path segments.
+   */
+  public static final String UUID_PLACEHOLDER = "{uuid}";
+
+  /**
+   * The placeholder for hexadecimal path segments.
+   */
+  public static final String HEX_PLACEHOLDER = "{hex}";
+
+  /**
+   * The default number of URLs the normalized URL is cached for.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 1024;
+
+  /**
+   * The minimum length of hexadecimal path segments to be replaced.
+   */
+  public static final int MIN_HEX_LENGTH = 8;
+
+  private static final int UUID_LENGTH = 36;
+
+  private final List<String[]> routeTemplates;
+
+  private final int cacheSize;
+
+  private final Map<String, String> cache = new ConcurrentHashMap<>();
+
+  /**
+   * Initializes this normalizer without route templates.
+   */
+  public DefaultUrlNormalizer() {
+    this(Collections.emptyList());
+  }
+
+  /**
+   * Initializes this normalizer with the given route templates.
+   *
+   * @param routeTemplates Paths like {@code /users/{userId}/orders}, which are checked in the given order. Must not be
+   *                       null.
+   */
+  public DefaultUrlNormalizer(@Nonnull List<String> routeTemplates) {
+    this(routeTemplates, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Initializes this normalizer with the given route templates and cache size.
+   *
+   * @param routeTemplates Paths like {@code /users/{userId}/orders}, which are checked in the given order. Must not be
+   *                       null.
+   * @param cacheSize The maximum number of URLs to cache. Must be positive.
+   */
+  public DefaultUrlNormalizer(@Nonnull List<String> routeTemplates, int cacheSize) {
+    List<String[]> templates = new ArrayList<>(routeTemplates.size());
+    for (String routeTemplate : routeTemplates) {
+      templates.add(split(routeTemplate));
+    }
+    this.routeTemplates = templates;
+    if (cacheSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive");
+    }
+    this.cacheSize = cacheSize;
+  }
+
+  @Nonnull
+  @Override
+  public String normalize(@Nonnull String url) {
+    int end = url.length();
+    int query = url.indexOf('?');
+    if (query >= 0) {
+      end = query;
+    }
+    int fragment = url.indexOf('#');
+    if (fragment >= 0 && fragment < end) {
+      end = fragment;
+    }
+    if (end < url.length()) {
+      return normalizePath(url.substring(0, end));
+    }
+    String normalized = cache.get(url);
+    if (normalized != null) {
+      return normalized;
+    }
+    normalized = normalizePath(url);
+    if (cache.size() >= cacheSize) {
+      cache.clear();
+    }
+    cache.put(url, normalized);
+    return normalized;
+  }
+
+  private String normalizePath(String url) {
+    int pathStart = findPathStart(url);
+    if (pathStart < 0) {
+      return url;
+    }
+    String[] segments = split(url.substring(pathStart));
+    String[] template = findRouteTemplate(segments);
+    StringBuilder normalized = new StringBuilder(url.length()).append(url, 0, pathStart);
+    for (int i = 0; i < segments.length; i++) {
+      normalized.append('/').append(template != null ? template[i] : normalizeSegment(segments[i]));
+    }
+    if (url.endsWith("/")) {
+      normalized.append('/');
+    }
+    return normalized.toString();
+  }
+
+  private String[] findRouteTemplate(String[] segments) {
+    for (String[] template : routeTemplates) {
+      if (matches(template, segments)) {
+        return template;
+      }
+    }
+    return null;
+  }
+
+  private static boolean matches(String[] template, String[] segments) {
+    if (template.length != segments.length) {
+      return false;
+    }
+    for (int i = 0; i < template.length; i++) {
+      if (!isVariable(template[i]) && !template[i].equals(segments[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isVariable(String segment) {
+    return segment.length() >= 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+  }
+
+  private static String normalizeSegment(String segment) {
+    if (segment.isEmpty()) {
+      return segment;
+    }
+    if (isNumeric(segment)) {
+      return ID_PLACEHOLDER;
+    }
+    if (isUuid(segment)) {
+      return UUID_PLACEHOLDER;
+    }
+    if (isHex(segment)) {
+      return HEX_PLACEHOLDER;
+    }
+    return segment;
+  }
+
+  private static boolean isNumeric(String segment) {
+    for (int i = 0; i < segment.length(); i++) {
+      if (!isDigit(segment.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isUuid(String segment) {
+    if (segment.length() != UUID_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < UUID_LENGTH; i++) {
+      char c = segment.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23) {
+        if (c != '-') {
+          return false;
+        }
+      } else if (!isHexDigit(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isHex(String segment) {
+    if (segment.length() < MIN_HEX_LENGTH) {
+      return false;
+    }
+    boolean digit = false;
+    for (int i = 0; i < segment.length(); i++) {
+      char c = segment.charAt(i);
+      if (!isHexDigit(c)) {
+        return false;
+      }
+      digit |= isDigit(c);
+    }
+    return digit;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isHexDigit(char c) {
+    return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+  }
+
+  private static int findPathStart(String url) {
+    int scheme = url.indexOf("://");
+    if (scheme < 0) {
+      return url.startsWith("/") ? 0 : -1;
+    }
+    return url.indexOf('/', scheme + 3);
+  }
+
+  private static String[] split(String path) {
+    List<String> segments = new ArrayList<>();
+    int start = path.startsWith("/") ? 1 : 0;
+    while (start < path.length()) {
+      int end = path.indexOf('/', start);
+      if (end < 0) {
+        end = path.length();
+      }
+      segments.add(path.substring(start, end));
+      start = end + 1;
+    }
+    return segments.toArray(new String[0]);
+  }
+
+}
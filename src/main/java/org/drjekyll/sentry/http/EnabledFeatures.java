@@ -0,0 +1,59 @@
+package org.drjekyll.sentry.http;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.SentryOptions;
+
+/**
+ * Tells whether tracing and breadcrumbs are enabled in the {@link SentryOptions}, so the interceptors can skip all
+ * work for features, which are disabled. The flags are read once and cached until different options are passed, e.g.
+ * after Sentry was initialized again. Changing the options in place isn't detected.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class EnabledFeatures {
+
+  private volatile Flags flags;
+
+  /**
+   * @param options The Sentry options of the hub. Must not be null.
+   * @return true, if transactions may be sampled
+   */
+  public boolean isTracingEnabled(@Nonnull SentryOptions options) {
+    return getFlags(options).tracing;
+  }
+
+  /**
+   * @param options The Sentry options of the hub. Must not be null.
+   * @return true, if the scope keeps breadcrumbs
+   */
+  public boolean isBreadcrumbsEnabled(@Nonnull SentryOptions options) {
+    return getFlags(options).breadcrumbs;
+  }
+
+  private Flags getFlags(SentryOptions options) {
+    Flags current = flags;
+    if (current == null || current.source != options) {
+      current = new Flags(options);
+      flags = current;
+    }
+    return current;
+  }
+
+  private static final class Flags {
+
+    private final SentryOptions source;
+
+    private final boolean tracing;
+
+    private final boolean breadcrumbs;
+
+    private Flags(SentryOptions source) {
+      this.source = source;
+      tracing = source.isTracingEnabled();
+      breadcrumbs = source.getMaxBreadcrumbs() > 0;
+    }
+
+  }
+
+}
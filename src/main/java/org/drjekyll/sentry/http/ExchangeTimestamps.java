@@ -0,0 +1,60 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.ISpan;
+import io.sentry.SentryDate;
+import io.sentry.SentryNanotimeDate;
+
+/**
+ * Converts monotonic {@link System#nanoTime()} timestamps captured at the boundaries of an exchange into the start and
+ * end of its span. Durations between two such dates are exact to the nanosecond, regardless of when the dates were
+ * created or which date provider the Sentry options use. The time the interceptors spend themselves is recorded as
+ * span data, so the client-side overhead can be told apart from the time spent on the network.
+ */
+public final class ExchangeTimestamps {
+
+  /**
+   * Span data key of the time in milliseconds the interceptors spent processing the request and the response, which is
+   * part of the span duration or follows its end
+   */
+  public static final String INTERCEPTOR_OVERHEAD_DATA_KEY = "http.client.interceptor_overhead_ms";
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private ExchangeTimestamps() {
+    // utility
+  }
+
+  /**
+   * Creates a date of a captured timestamp. Its wall clock time is derived from the current time, so only the wall
+   * clock time has millisecond precision, while differences between such dates have nanosecond precision.
+   *
+   * @param nanoTime A timestamp captured with {@link System#nanoTime()}
+   * @return The date of the timestamp. Never null.
+   */
+  @Nonnull
+  public static SentryDate toDate(long nanoTime) {
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanoTime);
+    return new SentryNanotimeDate(new Date(System.currentTimeMillis() - elapsedMillis), nanoTime);
+  }
+
+  /**
+   * Adds the time since the given timestamp to the interceptor overhead of the span.
+   *
+   * @param span The span of the exchange. Must not be null.
+   * @param sinceNanoTime The timestamp the interceptor started processing, captured with {@link System#nanoTime()}
+   */
+  public static void addInterceptorOverhead(@Nonnull ISpan span, long sinceNanoTime) {
+    double overheadMillis = (System.nanoTime() - sinceNanoTime) / NANOS_PER_MILLI;
+    Object recordedOverhead = span.getData(INTERCEPTOR_OVERHEAD_DATA_KEY);
+    if (recordedOverhead instanceof Double) {
+      overheadMillis += (Double) recordedOverhead;
+    }
+    span.setData(INTERCEPTOR_OVERHEAD_DATA_KEY, overheadMillis);
+  }
+
+}
@@ -0,0 +1,98 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+import io.sentry.SentryLevel;
+
+/**
+ * The Sentry state of a task, which was captured on the thread submitting the task: a fork of the hub and the span,
+ * which was active at submission. The interceptors use this state instead of the thread-local state of the thread
+ * executing the request, e.g. a virtual thread or a subtask of a structured concurrency scope, which doesn't know the
+ * span of the submitting thread. Breadcrumbs of the request are added to the scope of the forked hub.
+ * <p>
+ * Instances are immutable and hold no locks, so they don't pin virtual threads.
+ */
+public final class ForkedContext {
+
+  private final IHub hub;
+
+  private final ISpan parentSpan;
+
+  private ForkedContext(IHub hub, ISpan parentSpan) {
+    this.hub = hub;
+    this.parentSpan = parentSpan;
+  }
+
+  /**
+   * Captures the current span of the given hub and forks the hub. Call this method on the thread submitting the task.
+   *
+   * @param hub The hub of the submitting thread, e.g. {@link io.sentry.HubAdapter#getInstance()}. Must not be null.
+   * @return The captured state
+   */
+  @Nonnull
+  public static ForkedContext fork(@Nonnull IHub hub) {
+    Objects.requireNonNull(hub, "Hub");
+    return new ForkedContext(hub.clone(), hub.getSpan());
+  }
+
+  /**
+   * Captures the given span and forks the hub, e.g. to execute requests in a span, which isn't bound to the scope of
+   * the current thread.
+   *
+   * @param hub The hub of the current thread, e.g. {@link io.sentry.HubAdapter#getInstance()}. Must not be null.
+   * @param parentSpan The span to create the {@code http.client} spans in or null, if there is none
+   * @return The captured state
+   */
+  @Nonnull
+  public static ForkedContext fork(@Nonnull IHub hub, @Nullable ISpan parentSpan) {
+    Objects.requireNonNull(hub, "Hub");
+    return new ForkedContext(hub.clone(), parentSpan);
+  }
+
+  /**
+   * Returns the span to create the {@code http.client} span in: the captured parent span, if the request belongs to a
+   * forked task, otherwise the current span of the hub.
+   *
+   * @param hub The hub of the interceptor. Must not be null.
+   * @param forkedContext The state captured at task submission or null, if there is none
+   * @return The active span or null, if there is none
+   */
+  @Nullable
+  public static ISpan getActiveSpan(@Nonnull IHub hub, @Nullable ForkedContext forkedContext) {
+    Objects.requireNonNull(hub, "Hub");
+    if (forkedContext != null) {
+      return forkedContext.parentSpan;
+    }
+    ISpan span = hub.getSpan();
+    if (span == null && VirtualThreads.isVirtual(Thread.currentThread())) {
+      hub.getOptions().getLogger().log(
+        SentryLevel.DEBUG,
+        "No active span on virtual thread %s, bind the span to the HTTP context when submitting the task",
+        Thread.currentThread()
+      );
+    }
+    return span;
+  }
+
+  /**
+   * @return The forked hub
+   */
+  @Nonnull
+  public IHub getHub() {
+    return hub;
+  }
+
+  /**
+   * @return The span, which was active when the task was submitted, or null, if there was none
+   */
+  @Nullable
+  public ISpan getParentSpan() {
+    return parentSpan;
+  }
+
+}
@@ -0,0 +1,56 @@
+package org.drjekyll.sentry.http;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.ISpan;
+import io.sentry.ITransaction;
+
+/**
+ * Samples requests randomly with a rate per host, e.g. to keep only a fraction of the spans of calls to a cache, but
+ * all spans of calls to other services.
+ */
+public final class HostSamplingPolicy implements SpanSamplingPolicy {
+
+  private final double defaultSampleRate;
+
+  private final Map<String, Double> sampleRatesByHost;
+
+  /**
+   * @param defaultSampleRate The sample rate of hosts without an own rate between 0 and 1
+   * @param sampleRatesByHost The sample rates between 0 and 1 by host name. Must not be null.
+   */
+  public HostSamplingPolicy(double defaultSampleRate, @Nonnull Map<String, Double> sampleRatesByHost) {
+    this.defaultSampleRate = checkSampleRate(defaultSampleRate);
+    Objects.requireNonNull(sampleRatesByHost, "Sample rates by host");
+    this.sampleRatesByHost = new HashMap<>(sampleRatesByHost.size() * 2);
+    sampleRatesByHost.forEach((host, sampleRate) -> this.sampleRatesByHost.put(
+      Objects.requireNonNull(host, "Host").toLowerCase(Locale.ROOT),
+      checkSampleRate(Objects.requireNonNull(sampleRate, "Sample rate"))
+    ));
+  }
+
+  @Override
+  public boolean isSampled(
+    @Nonnull RequestDescriptor request,
+    @Nonnull ISpan parentSpan,
+    @Nullable ITransaction transaction
+  ) {
+    double sampleRate = sampleRatesByHost.getOrDefault(request.getHost(), defaultSampleRate);
+    return sampleRate >= 1.0 || sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  private static double checkSampleRate(double sampleRate) {
+    if (!(sampleRate >= 0.0 && sampleRate <= 1.0)) {
+      throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+    }
+    return sampleRate;
+  }
+
+}
@@ -0,0 +1,150 @@
+package org.drjekyll.sentry.http;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A histogram of request latencies with fixed, logarithmically sized buckets of microseconds. Each power of two is
+ * split into {@value #SUB_BUCKETS} buckets, so a recorded latency is known within 12.5 percent, up to about 71 minutes.
+ * Longer latencies are counted in the last bucket.
+ * <p>
+ * Recording is lock-free and doesn't allocate. Recording threads are spread over stripes of counters, so they don't
+ * contend for the same cache lines. {@link #snapshotAndReset()} sums up and resets the stripes, so each snapshot
+ * contains the latencies recorded since the previous one. Latencies recorded while a snapshot is taken may be counted
+ * in the next snapshot.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class LatencyHistogram {
+
+  /**
+   * The number of buckets each power of two of microseconds is split into
+   */
+  public static final int SUB_BUCKETS = 8;
+
+  private static final int SUB_BUCKET_BITS = 3;
+
+  private static final int MAX_EXPONENT = 31;
+
+  static final int BUCKET_COUNT = ((MAX_EXPONENT - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + SUB_BUCKETS;
+
+  private static final int FAILED_INDEX = BUCKET_COUNT;
+
+  private static final int SUM_INDEX = BUCKET_COUNT + 1;
+
+  // rounded up to whole cache lines of 8 counters, so neighbouring stripes hardly share a cache line
+  private static final int STRIPE_LENGTH = (SUM_INDEX + 8) & ~7;
+
+  private static final int MAX_STRIPES = 8;
+
+  private static final long NANOS_PER_MICRO = 1_000L;
+
+  private final AtomicLongArray counters;
+
+  private final int stripeMask;
+
+  private volatile boolean retired;
+
+  /**
+   * Initializes an empty histogram with a stripe per processor, but not more than {@value #MAX_STRIPES} stripes.
+   */
+  public LatencyHistogram() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  LatencyHistogram(int processors) {
+    int stripes = nextPowerOfTwo(Math.max(1, Math.min(MAX_STRIPES, processors)));
+    stripeMask = stripes - 1;
+    counters = new AtomicLongArray(stripes * STRIPE_LENGTH);
+  }
+
+  /**
+   * Records the latency of a request.
+   *
+   * @param nanos The latency in nanoseconds. Negative latencies are recorded as zero.
+   * @param failed true, if the request failed without a response
+   */
+  public void record(long nanos, boolean failed) {
+    long latencyNanos = Math.max(0L, nanos);
+    int stripeOffset = ((int) Thread.currentThread().getId() & stripeMask) * STRIPE_LENGTH;
+    counters.getAndIncrement(stripeOffset + bucketIndex(latencyNanos / NANOS_PER_MICRO));
+    counters.getAndAdd(stripeOffset + SUM_INDEX, latencyNanos);
+    if (failed) {
+      counters.getAndIncrement(stripeOffset + FAILED_INDEX);
+    }
+  }
+
+  /**
+   * Takes a snapshot of the latencies recorded since the previous snapshot and resets the histogram.
+   *
+   * @return The recorded latencies. Never null.
+   */
+  @Nonnull
+  public LatencySnapshot snapshotAndReset() {
+    long[] bucketCounts = new long[BUCKET_COUNT];
+    long failedCount = 0L;
+    long sumNanos = 0L;
+    for (int stripeOffset = 0; stripeOffset < counters.length(); stripeOffset += STRIPE_LENGTH) {
+      for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+        if (counters.get(stripeOffset + bucket) != 0L) {
+          bucketCounts[bucket] += counters.getAndSet(stripeOffset + bucket, 0L);
+        }
+      }
+      failedCount += counters.getAndSet(stripeOffset + FAILED_INDEX, 0L);
+      sumNanos += counters.getAndSet(stripeOffset + SUM_INDEX, 0L);
+    }
+    return new LatencySnapshot(bucketCounts, failedCount, sumNanos);
+  }
+
+  /**
+   * Marks this histogram as evicted from its recorder, so latencies recorded afterwards are taken care of by the
+   * recording thread.
+   */
+  void retire() {
+    retired = true;
+  }
+
+  boolean isRetired() {
+    return retired;
+  }
+
+  static int bucketIndex(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+  }
+
+  /**
+   * @return The smallest latency in microseconds, which is counted in the given bucket
+   */
+  static long lowerBoundMicros(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+    return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * @return The smallest latency in microseconds, which is counted in the next bucket
+   */
+  static long upperBoundMicros(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket + 1L;
+    }
+    int exponent = (bucket >>> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+    return lowerBoundMicros(bucket) + (1L << (exponent - SUB_BUCKET_BITS));
+  }
+
+  private static int nextPowerOfTwo(int value) {
+    return 1 << (32 - Integer.numberOfLeadingZeros(value - 1));
+  }
+
+}
@@ -0,0 +1,279 @@
+package org.drjekyll.sentry.http;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Records the latency of every request per host in a {@link LatencyHistogram}, independent of sampling and of whether
+ * a span is created, and exports a summary per host to a {@link LatencySink} periodically. The latency lasts from the
+ * request interceptor to the response interceptor, i.e. until the response head was received, or until the request
+ * failed. Pass the recorder to {@link SentryHttpOptions#setLatencyRecorder(LatencyRecorder)}:
+ * <pre>
+ * SentryHttpOptions options = new SentryHttpOptions();
+ * options.setLatencyRecorder(new LatencyRecorder(
+ *   new SentryMetricsLatencySink(HubAdapter.getInstance()),
+ *   Duration.ofMinutes(1L)
+ * ));
+ * </pre>
+ * The number of hosts is bounded. Requests to further hosts are recorded as {@link #OTHER_HOST} and hosts without
+ * requests during an export interval are evicted, making room for new hosts. A latency recorded while its host is
+ * evicted is exported by the recording thread, so it isn't lost. Recording a latency looks up the histogram of the
+ * host in a concurrent map and increments striped counters without locks. The asynchronous client keeps the start of
+ * a request in the callback it wraps anyway and records with {@link #record(String, long, boolean)}, so measuring
+ * doesn't allocate. The classic clients carry the start from one interceptor to the other in a {@link Timer}, because
+ * the HTTP context only holds objects. Exporting runs on a daemon thread until the recorder is closed.
+ */
+public final class LatencyRecorder implements Closeable {
+
+  /**
+   * The default maximum number of hosts with a histogram of their own
+   */
+  public static final int DEFAULT_MAX_HOSTS = 64;
+
+  /**
+   * The host the requests are recorded for, once the maximum number of hosts is reached
+   */
+  public static final String OTHER_HOST = "other";
+
+  private final LatencySink sink;
+
+  private final int maxHosts;
+
+  private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+  private final AtomicInteger hostCount = new AtomicInteger();
+
+  private final LatencyHistogram otherHistogram = new LatencyHistogram();
+
+  private final ScheduledExecutorService ownedScheduler;
+
+  private final ScheduledFuture<?> exportTask;
+
+  /**
+   * Starts exporting the latencies of up to {@link #DEFAULT_MAX_HOSTS} hosts on a new daemon thread.
+   *
+   * @param sink The sink receiving the latencies. Must not be null.
+   * @param exportInterval The interval of exporting the latencies. Must be positive.
+   */
+  public LatencyRecorder(@Nonnull LatencySink sink, @Nonnull Duration exportInterval) {
+    this(sink, exportInterval, DEFAULT_MAX_HOSTS);
+  }
+
+  /**
+   * Starts exporting the latencies on a new daemon thread.
+   *
+   * @param sink The sink receiving the latencies. Must not be null.
+   * @param exportInterval The interval of exporting the latencies. Must be positive.
+   * @param maxHosts The maximum number of hosts with a histogram of their own. Must be positive.
+   */
+  public LatencyRecorder(@Nonnull LatencySink sink, @Nonnull Duration exportInterval, int maxHosts) {
+    this(sink, exportInterval, maxHosts, Executors.newSingleThreadScheduledExecutor(LatencyRecorder::newThread), true);
+  }
+
+  /**
+   * Starts exporting the latencies with the given scheduler, which is not shut down by this recorder.
+   *
+   * @param sink The sink receiving the latencies. Must not be null.
+   * @param exportInterval The interval of exporting the latencies. Must be positive.
+   * @param maxHosts The maximum number of hosts with a histogram of their own. Must be positive.
+   * @param scheduler A scheduler running the exports. Must not be null.
+   */
+  public LatencyRecorder(
+    @Nonnull LatencySink sink,
+    @Nonnull Duration exportInterval,
+    int maxHosts,
+    @Nonnull ScheduledExecutorService scheduler
+  ) {
+    this(sink, exportInterval, maxHosts, scheduler, false);
+  }
+
+  private LatencyRecorder(
+    LatencySink sink,
+    Duration exportInterval,
+    int maxHosts,
+    ScheduledExecutorService scheduler,
+    boolean ownsScheduler
+  ) {
+    this.sink = Objects.requireNonNull(sink, "Latency sink");
+    Objects.requireNonNull(exportInterval, "Export interval");
+    Objects.requireNonNull(scheduler, "Scheduler");
+    if (exportInterval.isNegative() || exportInterval.isZero()) {
+      throw new IllegalArgumentException("Export interval must be positive");
+    }
+    if (maxHosts <= 0) {
+      throw new IllegalArgumentException("Maximum number of hosts must be positive");
+    }
+    this.maxHosts = maxHosts;
+    ownedScheduler = ownsScheduler ? scheduler : null;
+    long intervalNanos = exportInterval.toNanos();
+    exportTask = scheduler.scheduleAtFixedRate(this::export, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Starts measuring the latency of a request.
+   *
+   * @param host The host of the request or null, if unknown
+   * @return A timer, which records the latency when it's stopped. Never null.
+   */
+  @Nonnull
+  public Timer start(@Nullable String host) {
+    return new Timer(this, host, System.nanoTime());
+  }
+
+  /**
+   * Records the latency of a request.
+   *
+   * @param host The host of the request or null, if unknown
+   * @param nanos The latency in nanoseconds
+   * @param failed true, if the request failed without a response
+   */
+  public void record(@Nullable String host, long nanos, boolean failed) {
+    record(host, getHistogram(host), nanos, failed);
+  }
+
+  void record(String host, LatencyHistogram histogram, long nanos, boolean failed) {
+    histogram.record(nanos, failed);
+    if (histogram.isRetired()) {
+      // the host was evicted meanwhile, so the export may have taken its last snapshot before the latency was recorded
+      LatencySnapshot lateSnapshot = histogram.snapshotAndReset();
+      if (lateSnapshot.getCount() > 0L) {
+        exportTo(host, lateSnapshot);
+      }
+    }
+  }
+
+  /**
+   * @return The number of hosts with a histogram of their own
+   */
+  public int getHostCount() {
+    return histograms.size();
+  }
+
+  /**
+   * Exports the latencies recorded since the previous export immediately and evicts the hosts without requests.
+   */
+  public void export() {
+    for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+      LatencySnapshot snapshot = entry.getValue().snapshotAndReset();
+      if (snapshot.getCount() > 0L) {
+        exportTo(entry.getKey(), snapshot);
+      } else if (histograms.remove(entry.getKey(), entry.getValue())) {
+        hostCount.decrementAndGet();
+        entry.getValue().retire();
+        // a latency recorded between taking the snapshot and retiring the histogram is exported now, later ones are
+        // exported by the recording thread
+        LatencySnapshot lateSnapshot = entry.getValue().snapshotAndReset();
+        if (lateSnapshot.getCount() > 0L) {
+          exportTo(entry.getKey(), lateSnapshot);
+        }
+      }
+    }
+    LatencySnapshot otherSnapshot = otherHistogram.snapshotAndReset();
+    if (otherSnapshot.getCount() > 0L) {
+      exportTo(OTHER_HOST, otherSnapshot);
+    }
+  }
+
+  /**
+   * Stops exporting. Latencies recorded since the last export aren't exported. A scheduler passed to this recorder is
+   * not shut down.
+   */
+  @Override
+  public void close() {
+    exportTask.cancel(false);
+    if (ownedScheduler != null) {
+      ownedScheduler.shutdown();
+    }
+  }
+
+  LatencyHistogram getHistogram(String host) {
+    if (host == null) {
+      return otherHistogram;
+    }
+    while (true) {
+      LatencyHistogram histogram = histograms.get(host);
+      if (histogram == null) {
+        histogram = histograms.computeIfAbsent(host, key -> reserveHost() ? new LatencyHistogram() : null);
+        if (histogram == null) {
+          return otherHistogram;
+        }
+      }
+      // a retired histogram was removed from the map already, so looking it up again finds or adds its successor
+      if (!histogram.isRetired()) {
+        return histogram;
+      }
+    }
+  }
+
+  private boolean reserveHost() {
+    int count;
+    do {
+      count = hostCount.get();
+      if (count >= maxHosts) {
+        return false;
+      }
+    } while (!hostCount.compareAndSet(count, count + 1));
+    return true;
+  }
+
+  private void exportTo(String host, LatencySnapshot snapshot) {
+    try {
+      sink.export(host, snapshot);
+    } catch (RuntimeException ignored) {
+      // a failing sink must not stop the exports of the other hosts
+    }
+  }
+
+  private static Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, "sentry-http-latency-recorder");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  /**
+   * Measures the latency of one request. Only the first call of {@link #stop(boolean)} records the latency. Instances
+   * belong to one request and are not thread-safe.
+   */
+  public static final class Timer {
+
+    private final LatencyRecorder recorder;
+
+    private final String host;
+
+    private final long startNanos;
+
+    private boolean stopped;
+
+    private Timer(LatencyRecorder recorder, String host, long startNanos) {
+      this.recorder = recorder;
+      this.host = host;
+      this.startNanos = startNanos;
+    }
+
+    /**
+     * Records the latency since this timer was started, unless it was recorded already.
+     *
+     * @param failed true, if the request failed without a response
+     */
+    public void stop(boolean failed) {
+      if (stopped) {
+        return;
+      }
+      stopped = true;
+      recorder.record(host, System.nanoTime() - startNanos, failed);
+    }
+
+  }
+
+}
@@ -0,0 +1,22 @@
+package org.drjekyll.sentry.http;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives the latency summaries a {@link LatencyRecorder} exports periodically, e.g. to emit them as Sentry metrics
+ * with {@link SentryMetricsLatencySink} or to hand them to another monitoring system.
+ * <p>
+ * Implementations are called on the export thread of the recorder, once per host and interval.
+ */
+@FunctionalInterface
+public interface LatencySink {
+
+  /**
+   * Exports the latencies of the requests to the given host during the last interval.
+   *
+   * @param host The host name or {@link LatencyRecorder#OTHER_HOST}. Never null.
+   * @param snapshot The latencies of the interval. Contains at least one request. Never null.
+   */
+  void export(@Nonnull String host, @Nonnull LatencySnapshot snapshot);
+
+}
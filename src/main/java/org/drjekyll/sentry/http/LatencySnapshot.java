@@ -0,0 +1,163 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.MeasurementUnit;
+import io.sentry.metrics.MetricsApi;
+
+/**
+ * The latencies of the requests to one host recorded by a {@link LatencyHistogram} during an interval. Percentiles
+ * are the upper bounds of the buckets they fall into, so they overestimate the latency by at most 12.5 percent.
+ * Instances are immutable.
+ */
+public final class LatencySnapshot {
+
+  /**
+   * Name of the metric of the number of requests
+   */
+  public static final String REQUESTS_KEY = "http.client.requests";
+
+  /**
+   * Name of the metric of the number of requests failed without a response
+   */
+  public static final String FAILURES_KEY = "http.client.failures";
+
+  /**
+   * Name of the metric of the median latency in milliseconds
+   */
+  public static final String P50_KEY = "http.client.latency.p50";
+
+  /**
+   * Name of the metric of the 90th percentile of the latency in milliseconds
+   */
+  public static final String P90_KEY = "http.client.latency.p90";
+
+  /**
+   * Name of the metric of the 99th percentile of the latency in milliseconds
+   */
+  public static final String P99_KEY = "http.client.latency.p99";
+
+  /**
+   * Name of the metric of the maximum latency in milliseconds
+   */
+  public static final String MAX_KEY = "http.client.latency.max";
+
+  private static final long NANOS_PER_MICRO = 1_000L;
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final long[] bucketCounts;
+
+  private final long count;
+
+  private final long failedCount;
+
+  private final long sumNanos;
+
+  LatencySnapshot(long[] bucketCounts, long failedCount, long sumNanos) {
+    this.bucketCounts = bucketCounts;
+    this.failedCount = failedCount;
+    this.sumNanos = sumNanos;
+    long total = 0L;
+    for (long bucketCount : bucketCounts) {
+      total += bucketCount;
+    }
+    count = total;
+  }
+
+  /**
+   * @return The number of recorded requests
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return The number of recorded requests, which failed without a response
+   */
+  public long getFailedCount() {
+    return failedCount;
+  }
+
+  /**
+   * @return The sum of the recorded latencies in nanoseconds
+   */
+  public long getSumNanos() {
+    return sumNanos;
+  }
+
+  /**
+   * @return The mean latency in nanoseconds or zero, if no request was recorded
+   */
+  public double getMeanNanos() {
+    return count > 0L ? (double) sumNanos / count : 0.0;
+  }
+
+  /**
+   * @param percentile A percentile between 0 and 100, e.g. 99 for the 99th percentile
+   * @return The latency in nanoseconds, which the given percentage of the requests didn't exceed, or zero, if no
+   * request was recorded
+   */
+  public long getPercentileNanos(double percentile) {
+    if (percentile < 0.0 || percentile > 100.0) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    if (count == 0L) {
+      return 0L;
+    }
+    long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+    long cumulativeCount = 0L;
+    for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+      cumulativeCount += bucketCounts[bucket];
+      if (cumulativeCount >= rank) {
+        return LatencyHistogram.upperBoundMicros(bucket) * NANOS_PER_MICRO;
+      }
+    }
+    return getMaxNanos();
+  }
+
+  /**
+   * @return The upper bound of the highest recorded latency in nanoseconds or zero, if no request was recorded
+   */
+  public long getMaxNanos() {
+    for (int bucket = bucketCounts.length - 1; bucket >= 0; bucket--) {
+      if (bucketCounts[bucket] != 0L) {
+        return LatencyHistogram.upperBoundMicros(bucket) * NANOS_PER_MICRO;
+      }
+    }
+    return 0L;
+  }
+
+  /**
+   * Emits the number of requests and failures as counters and the percentiles as gauges.
+   *
+   * @param metrics The metrics API of a Sentry hub. Must not be null.
+   * @param tags The tags of the metrics, e.g. the host. Must not be null.
+   */
+  public void emitTo(@Nonnull MetricsApi metrics, @Nonnull Map<String, String> tags) {
+    Objects.requireNonNull(metrics, "Metrics");
+    Objects.requireNonNull(tags, "Tags");
+    metrics.increment(REQUESTS_KEY, count, null, tags);
+    if (failedCount > 0L) {
+      metrics.increment(FAILURES_KEY, failedCount, null, tags);
+    }
+    metrics.gauge(P50_KEY, toMillis(getPercentileNanos(50.0)), MeasurementUnit.Duration.MILLISECOND, tags);
+    metrics.gauge(P90_KEY, toMillis(getPercentileNanos(90.0)), MeasurementUnit.Duration.MILLISECOND, tags);
+    metrics.gauge(P99_KEY, toMillis(getPercentileNanos(99.0)), MeasurementUnit.Duration.MILLISECOND, tags);
+    metrics.gauge(MAX_KEY, toMillis(getMaxNanos()), MeasurementUnit.Duration.MILLISECOND, tags);
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public String toString() {
+    return "[count: " + count + "; failed: " + failedCount + "; p50: " + getPercentileNanos(50.0) + "ns; p99: "
+      + getPercentileNanos(99.0) + "ns; max: " + getMaxNanos() + "ns]";
+  }
+
+}
@@ -0,0 +1,201 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.ISpan;
+import io.sentry.Instrumenter;
+import io.sentry.SentryDate;
+import io.sentry.SentryNanotimeDate;
+import io.sentry.SpanStatus;
+
+/**
+ * One logical call of an HTTP client, which may consist of several attempts due to retries and redirects. The logical
+ * call is traced as one {@code http.client} span covering all attempts, and each attempt as a child span with the
+ * operation {@link #ATTEMPT_OPERATION}. An attempt to the same method and URL as the previous attempt is a retry,
+ * otherwise it follows a redirect. The time between the end of an attempt and the start of its retry is the backoff.
+ * <p>
+ * The logical span contains the number of attempts, retries and redirects, the total backoff and the total duration of
+ * the attempts as data, so the latency caused by retries can be told apart from the time spent in exchanges.
+ * <p>
+ * The logical span is started with the first attempt, which is sampled. If the first attempt isn't sampled, the whole
+ * call isn't. An instance belongs to one logical call and is not thread-safe.
+ */
+public final class LogicalExchange {
+
+  /**
+   * Operation of the spans of single attempts
+   */
+  public static final String ATTEMPT_OPERATION = "http.client.attempt";
+
+  /**
+   * Span data key of the number of an attempt, starting with 1
+   */
+  public static final String ATTEMPT_DATA_KEY = "http.client.attempt";
+
+  /**
+   * Span data key of the number of attempts of a logical call
+   */
+  public static final String ATTEMPTS_DATA_KEY = "http.client.attempts";
+
+  /**
+   * Span data key of the number of retries of a logical call
+   */
+  public static final String RETRIES_DATA_KEY = "http.client.retries";
+
+  /**
+   * Span data key of the number of followed redirects of a logical call
+   */
+  public static final String REDIRECTS_DATA_KEY = "http.client.redirects";
+
+  /**
+   * Span data key of the time waiting before a retry in milliseconds. The logical span contains the total.
+   */
+  public static final String BACKOFF_DATA_KEY = "http.client.backoff_ms";
+
+  /**
+   * Span data key of the total duration of all attempts of a logical call in milliseconds
+   */
+  public static final String ATTEMPTS_DURATION_DATA_KEY = "http.client.attempts_ms";
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private final SentryDate start = new SentryNanotimeDate();
+
+  private ISpan span;
+
+  private boolean declined;
+
+  private ISpan attempt;
+
+  private RequestDescriptor attemptDescriptor;
+
+  private int attempts;
+
+  private int retries;
+
+  private int redirects;
+
+  private long backoffNanos;
+
+  private long attemptsNanos;
+
+  /**
+   * @return true, if the logical span was started
+   */
+  public boolean isStarted() {
+    return span != null;
+  }
+
+  /**
+   * @return true, if the first attempt wasn't sampled, so no attempt of this call is
+   */
+  public boolean isDeclined() {
+    return declined;
+  }
+
+  /**
+   * Marks this call as not sampled, unless its logical span was started already.
+   */
+  public void decline() {
+    declined = span == null;
+  }
+
+  /**
+   * Starts the span of the next attempt. The logical span is started as well on the first attempt. An unfinished
+   * previous attempt failed without a response and is finished with {@link SpanStatus#UNKNOWN_ERROR}.
+   *
+   * @param parentSpan The parent span of the logical span. Must not be null.
+   * @param descriptor The request of the attempt. Must not be null.
+   * @return The span of the attempt
+   */
+  @Nonnull
+  public ISpan startAttempt(@Nonnull ISpan parentSpan, @Nonnull RequestDescriptor descriptor) {
+    return startAttempt(parentSpan, descriptor, System.nanoTime());
+  }
+
+  /**
+   * Starts the span of the next attempt at the given timestamp, e.g. when the attempt entered the execution chain.
+   *
+   * @param parentSpan The parent span of the logical span. Must not be null.
+   * @param descriptor The request of the attempt. Must not be null.
+   * @param startNanoTime The start of the attempt captured with {@link System#nanoTime()}
+   * @return The span of the attempt
+   * @see #startAttempt(ISpan, RequestDescriptor)
+   */
+  @Nonnull
+  public ISpan startAttempt(@Nonnull ISpan parentSpan, @Nonnull RequestDescriptor descriptor, long startNanoTime) {
+    Objects.requireNonNull(parentSpan, "Parent span");
+    Objects.requireNonNull(descriptor, "Request descriptor");
+    if (span == null) {
+      span = parentSpan.startChild("http.client", descriptor.getDescription(), start, Instrumenter.SENTRY);
+      declined = false;
+    }
+    SentryDate previousEnd = closeAttempt(SpanStatus.UNKNOWN_ERROR);
+    SentryDate attemptStart = ExchangeTimestamps.toDate(startNanoTime);
+    attempt = span.startChild(ATTEMPT_OPERATION, descriptor.getDescription(), attemptStart, Instrumenter.SENTRY);
+    attempts++;
+    attempt.setData(ATTEMPT_DATA_KEY, attempts);
+    if (attemptDescriptor != null) {
+      if (isSameRequest(attemptDescriptor, descriptor)) {
+        retries++;
+        long attemptBackoffNanos = previousEnd != null ? Math.max(0L, attemptStart.diff(previousEnd)) : 0L;
+        backoffNanos += attemptBackoffNanos;
+        attempt.setData(BACKOFF_DATA_KEY, toMillis(attemptBackoffNanos));
+      } else {
+        redirects++;
+      }
+    }
+    attemptDescriptor = descriptor;
+    return attempt;
+  }
+
+  /**
+   * Finishes the logical span, if it was started. An unfinished attempt is finished with the given status.
+   *
+   * @param status The status of the logical call or null, if unknown
+   * @param throwable The cause of a failed call or null
+   */
+  public void finish(@Nullable SpanStatus status, @Nullable Throwable throwable) {
+    if (span == null) {
+      return;
+    }
+    closeAttempt(throwable != null ? status : SpanStatus.UNKNOWN_ERROR);
+    span.setData(ATTEMPTS_DATA_KEY, attempts);
+    span.setData(RETRIES_DATA_KEY, retries);
+    span.setData(REDIRECTS_DATA_KEY, redirects);
+    span.setData(BACKOFF_DATA_KEY, toMillis(backoffNanos));
+    span.setData(ATTEMPTS_DURATION_DATA_KEY, toMillis(attemptsNanos));
+    if (throwable != null) {
+      span.setThrowable(throwable);
+    }
+    span.finish(status, new SentryNanotimeDate());
+  }
+
+  private SentryDate closeAttempt(SpanStatus abandonedStatus) {
+    if (attempt == null) {
+      return null;
+    }
+    if (!attempt.isFinished()) {
+      attempt.finish(abandonedStatus, new SentryNanotimeDate());
+    }
+    SentryDate attemptStart = attempt.getStartDate();
+    SentryDate attemptEnd = attempt.getFinishDate();
+    if (attemptStart != null && attemptEnd != null) {
+      attemptsNanos += Math.max(0L, attemptEnd.diff(attemptStart));
+    }
+    attempt = null;
+    return attemptEnd;
+  }
+
+  private static boolean isSameRequest(RequestDescriptor previous, RequestDescriptor current) {
+    return previous.getMethod().equals(current.getMethod()) && previous.getUrl().equals(current.getUrl());
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / NANOS_PER_MILLI;
+  }
+
+}
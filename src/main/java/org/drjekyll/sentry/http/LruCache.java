@@ -0,0 +1,58 @@
+package org.drjekyll.sentry.http;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+final class LruCache<K, V> {
+
+  private final Map<K, V> entries;
+
+  LruCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Maximum cache size must be positive");
+    }
+    entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > maxSize;
+      }
+
+    };
+  }
+
+  V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    synchronized (entries) {
+      V value = entries.get(key);
+      if (value != null) {
+        return value;
+      }
+    }
+    V value = mappingFunction.apply(key);
+    if (value != null) {
+      synchronized (entries) {
+        V existingValue = entries.putIfAbsent(key, value);
+        if (existingValue != null) {
+          return existingValue;
+        }
+      }
+    }
+    return value;
+  }
+
+  V remove(K key) {
+    synchronized (entries) {
+      return entries.remove(key);
+    }
+  }
+
+  int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+package org.drjekyll.sentry.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for multiple producers and a single consumer. Each slot carries a sequence number telling
+ * whether it is free for the producer of a position or filled for the consumer, so producers only compete for the
+ * tail and never wait for each other. Offering to a full queue fails instead of blocking.
+ */
+final class MpscArrayQueue<E> {
+
+  private final AtomicReferenceArray<E> elements;
+
+  private final AtomicLongArray sequences;
+
+  private final int mask;
+
+  private final AtomicLong tail = new AtomicLong();
+
+  // only accessed by the consumer
+  private long head;
+
+  MpscArrayQueue(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    // a single slot couldn't tell a filled slot from one free for the next position
+    int slots = Math.max(2, 1 << (32 - Integer.numberOfLeadingZeros(capacity - 1)));
+    mask = slots - 1;
+    elements = new AtomicReferenceArray<>(slots);
+    sequences = new AtomicLongArray(slots);
+    for (int slot = 0; slot < slots; slot++) {
+      sequences.set(slot, slot);
+    }
+  }
+
+  /**
+   * @return The number of elements the queue holds at most
+   */
+  int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Adds an element to the tail of the queue, if it isn't full. May be called by any thread.
+   *
+   * @return true, if the element was added
+   */
+  boolean offer(E element) {
+    long position = tail.get();
+    while (true) {
+      int slot = (int) position & mask;
+      long difference = sequences.get(slot) - position;
+      if (difference == 0L) {
+        if (tail.compareAndSet(position, position + 1L)) {
+          elements.lazySet(slot, element);
+          // a volatile write, so a consumer going to sleep afterwards sees the element
+          sequences.set(slot, position + 1L);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0L) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Removes the element at the head of the queue. Must only be called by the consumer thread.
+   *
+   * @return The element or null, if the queue is empty
+   */
+  E poll() {
+    int slot = (int) head & mask;
+    if (sequences.get(slot) != head + 1L) {
+      return null;
+    }
+    E element = elements.get(slot);
+    elements.lazySet(slot, null);
+    sequences.lazySet(slot, head + mask + 1L);
+    head++;
+    return element;
+  }
+
+  /**
+   * @return true, if the queue doesn't contain an element, which is completely added
+   */
+  boolean isEmpty() {
+    return sequences.get((int) head & mask) != head + 1L;
+  }
+
+}
@@ -0,0 +1,124 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Locale;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The HTTP method, the full URL and the span description of a request. It is computed once per exchange and shared
+ * between span and breadcrumb creation, so the URL isn't rendered repeatedly.
+ * <p>
+ * The description is rendered lazily on first access. Instances may be shared between threads.
+ */
+public final class RequestDescriptor {
+
+  private final String method;
+
+  private final String url;
+
+  private final UrlNormalizer urlNormalizer;
+
+  private volatile String description;
+
+  private volatile String host;
+
+  /**
+   * Creates a descriptor for the given request properties.
+   *
+   * @param method The HTTP method. Must not be null.
+   * @param url The full URL of the request. Must not be null.
+   */
+  public RequestDescriptor(@Nonnull String method, @Nonnull String url) {
+    this(method, url, UrlNormalizer.NONE);
+  }
+
+  /**
+   * Creates a descriptor for the given request properties, which normalizes the URL in the span description.
+   *
+   * @param method The HTTP method. Must not be null.
+   * @param url The full URL of the request. Must not be null.
+   * @param urlNormalizer The normalizer for the URL in the description. Must not be null.
+   */
+  public RequestDescriptor(@Nonnull String method, @Nonnull String url, @Nonnull UrlNormalizer urlNormalizer) {
+    this.method = Objects.requireNonNull(method, "HTTP method");
+    this.url = Objects.requireNonNull(url, "URL");
+    this.urlNormalizer = Objects.requireNonNull(urlNormalizer, "URL normalizer");
+  }
+
+  /**
+   * @return The HTTP method, e.g. GET
+   */
+  @Nonnull
+  public String getMethod() {
+    return method;
+  }
+
+  /**
+   * @return The full URL including the query string
+   */
+  @Nonnull
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * @return The lower case host name of the URL without user info and port or an empty string, if the URL is relative
+   */
+  @Nonnull
+  public String getHost() {
+    String result = host;
+    if (result == null) {
+      result = parseHost(url);
+      host = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return The span description, which is the HTTP method followed by the normalized URL, e.g.
+   * {@code GET https://host/path}
+   */
+  @Nonnull
+  public String getDescription() {
+    String result = description;
+    if (result == null) {
+      String normalizedUrl = urlNormalizer.normalize(url);
+      result = new StringBuilder(method.length() + 1 + normalizedUrl.length())
+        .append(method)
+        .append(' ')
+        .append(normalizedUrl)
+        .toString();
+      description = result;
+    }
+    return result;
+  }
+
+  private static String parseHost(String url) {
+    int schemeEnd = url.indexOf("://");
+    if (schemeEnd < 0) {
+      return "";
+    }
+    int start = schemeEnd + 3;
+    int end = start;
+    while (end < url.length() && "/?#".indexOf(url.charAt(end)) < 0) {
+      end++;
+    }
+    int userInfoEnd = url.lastIndexOf('@', end - 1);
+    if (userInfoEnd >= start) {
+      start = userInfoEnd + 1;
+    }
+    int portStart = url.lastIndexOf(':', end - 1);
+    // IPv6 addresses contain colons, but are enclosed in brackets
+    if (portStart >= start && url.lastIndexOf(']', end - 1) < portStart) {
+      end = portStart;
+    }
+    return url.substring(start, end).toLowerCase(Locale.ROOT);
+  }
+
+  @Override
+  public String toString() {
+    return getDescription();
+  }
+
+}
@@ -0,0 +1,84 @@
+package org.drjekyll.sentry.http;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.ISpan;
+import io.sentry.ITransaction;
+
+/**
+ * Samples requests randomly with a rate per HTTP method and route, e.g. to keep only a fraction of the spans of
+ * {@code GET /search/{id}}, but all spans of other calls. Routes are the normalized paths of the span descriptions, so
+ * configure a {@link UrlNormalizer}, which maps the paths to the routes, e.g. a {@link DefaultUrlNormalizer} with
+ * route templates. The host and the query aren't part of a route.
+ */
+public final class RouteSamplingPolicy implements SpanSamplingPolicy {
+
+  private final double defaultSampleRate;
+
+  private final Map<String, Double> sampleRatesByRoute;
+
+  /**
+   * @param defaultSampleRate The sample rate of routes without an own rate between 0 and 1
+   * @param sampleRatesByRoute The sample rates between 0 and 1 by HTTP method and route, e.g.
+   * {@code GET /users/{id}}. Must not be null.
+   */
+  public RouteSamplingPolicy(double defaultSampleRate, @Nonnull Map<String, Double> sampleRatesByRoute) {
+    this.defaultSampleRate = checkSampleRate(defaultSampleRate);
+    Objects.requireNonNull(sampleRatesByRoute, "Sample rates by route");
+    this.sampleRatesByRoute = new HashMap<>(sampleRatesByRoute.size() * 2);
+    sampleRatesByRoute.forEach((route, sampleRate) -> this.sampleRatesByRoute.put(
+      normalizeMethod(Objects.requireNonNull(route, "Route")),
+      checkSampleRate(Objects.requireNonNull(sampleRate, "Sample rate"))
+    ));
+  }
+
+  @Override
+  public boolean isSampled(
+    @Nonnull RequestDescriptor request,
+    @Nonnull ISpan parentSpan,
+    @Nullable ITransaction transaction
+  ) {
+    double sampleRate = sampleRatesByRoute.getOrDefault(getRoute(request), defaultSampleRate);
+    return sampleRate >= 1.0 || sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  private static String getRoute(RequestDescriptor request) {
+    // the description is the method followed by the normalized URL
+    String description = request.getDescription();
+    int urlStart = request.getMethod().length() + 1;
+    int scheme = description.indexOf("://", urlStart);
+    int pathStart = scheme < 0 ? urlStart : description.indexOf('/', scheme + 3);
+    int pathEnd = description.length();
+    for (int i = Math.max(pathStart, urlStart); i < pathEnd; i++) {
+      char c = description.charAt(i);
+      if (c == '?' || c == '#') {
+        pathEnd = i;
+      }
+    }
+    String path = pathStart < 0 || pathStart >= pathEnd ? "/" : description.substring(pathStart, pathEnd);
+    return request.getMethod().toUpperCase(Locale.ROOT) + ' ' + path;
+  }
+
+  private static String normalizeMethod(String route) {
+    int methodEnd = route.indexOf(' ');
+    if (methodEnd < 0) {
+      return route.toUpperCase(Locale.ROOT);
+    }
+    return route.substring(0, methodEnd).toUpperCase(Locale.ROOT) + route.substring(methodEnd);
+  }
+
+  private static double checkSampleRate(double sampleRate) {
+    if (!(sampleRate >= 0.0 && sampleRate <= 1.0)) {
+      throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+    }
+    return sampleRate;
+  }
+
+}
@@ -0,0 +1,246 @@
+package org.drjekyll.sentry.http;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Options for the Sentry HTTP interceptors, which aren't part of the {@link io.sentry.SentryOptions}. Configure them
+ * before passing them to the interceptors and use the same instance for the request and the response interceptor.
+ */
+public class SentryHttpOptions {
+
+  /**
+   * The default interval of sampling connection pool statistics
+   */
+  public static final Duration DEFAULT_CONNECTION_POOL_SAMPLING_INTERVAL = Duration.ofSeconds(10L);
+
+  private UrlNormalizer urlNormalizer = UrlNormalizer.NONE;
+
+  private ConnectionPoolStatistics connectionPoolStatistics;
+
+  private Duration connectionPoolSamplingInterval = DEFAULT_CONNECTION_POOL_SAMPLING_INTERVAL;
+
+  private boolean connectionPoolStatisticsPerRoute;
+
+  private SpanSamplingPolicy spanSamplingPolicy = SpanSamplingPolicy.ALWAYS;
+
+  private SpanAggregator spanAggregator;
+
+  private BreadcrumbPolicy breadcrumbPolicy = BreadcrumbPolicy.ALWAYS;
+
+  private SpanReaper spanReaper;
+
+  private TracePropagationFormat tracePropagationFormat = TracePropagationFormat.SENTRY;
+
+  private LatencyRecorder latencyRecorder;
+
+  private SpanFinisher spanFinisher = SpanFinisher.SYNCHRONOUS;
+
+  /**
+   * @return The normalizer for the URLs in span descriptions. Never null.
+   */
+  @Nonnull
+  public UrlNormalizer getUrlNormalizer() {
+    return urlNormalizer;
+  }
+
+  /**
+   * Sets the normalizer for the URLs in span descriptions. By default, the full URL is used. Use
+   * {@link DefaultUrlNormalizer} to remove query strings and identifiers.
+   *
+   * @param urlNormalizer A URL normalizer. Must not be null.
+   */
+  public void setUrlNormalizer(@Nonnull UrlNormalizer urlNormalizer) {
+    this.urlNormalizer = Objects.requireNonNull(urlNormalizer, "URL normalizer");
+  }
+
+  /**
+   * @return The statistics of the connection pool, which are added as measurements to each span, or null
+   */
+  @Nullable
+  public ConnectionPoolStatistics getConnectionPoolStatistics() {
+    return connectionPoolStatistics;
+  }
+
+  /**
+   * Sets the statistics of the connection pool, which are added as measurements to each span, usually the connection
+   * pool monitor of the client. By default, no pool statistics are added.
+   *
+   * @param connectionPoolStatistics The statistics of the connection pool or null
+   */
+  public void setConnectionPoolStatistics(@Nullable ConnectionPoolStatistics connectionPoolStatistics) {
+    this.connectionPoolStatistics = connectionPoolStatistics;
+  }
+
+  /**
+   * @return The interval of sampling connection pool statistics. Never null.
+   */
+  @Nonnull
+  public Duration getConnectionPoolSamplingInterval() {
+    return connectionPoolSamplingInterval;
+  }
+
+  /**
+   * Sets the interval of sampling connection pool statistics. Defaults to
+   * {@link #DEFAULT_CONNECTION_POOL_SAMPLING_INTERVAL}.
+   *
+   * @param connectionPoolSamplingInterval A positive duration. Must not be null.
+   */
+  public void setConnectionPoolSamplingInterval(@Nonnull Duration connectionPoolSamplingInterval) {
+    Objects.requireNonNull(connectionPoolSamplingInterval, "Connection pool sampling interval");
+    if (connectionPoolSamplingInterval.isNegative() || connectionPoolSamplingInterval.isZero()) {
+      throw new IllegalArgumentException("Connection pool sampling interval must be positive");
+    }
+    this.connectionPoolSamplingInterval = connectionPoolSamplingInterval;
+  }
+
+  /**
+   * @return true, if the statistics of each route are emitted as metrics in addition to the total statistics
+   */
+  public boolean isConnectionPoolStatisticsPerRoute() {
+    return connectionPoolStatisticsPerRoute;
+  }
+
+  /**
+   * Enables emitting the statistics of each route as metrics tagged with the route, which is disabled by default.
+   *
+   * @param connectionPoolStatisticsPerRoute true to sample the statistics of each route
+   */
+  public void setConnectionPoolStatisticsPerRoute(boolean connectionPoolStatisticsPerRoute) {
+    this.connectionPoolStatisticsPerRoute = connectionPoolStatisticsPerRoute;
+  }
+
+  /**
+   * @return The policy deciding, which requests get a span. Never null.
+   */
+  @Nonnull
+  public SpanSamplingPolicy getSpanSamplingPolicy() {
+    return spanSamplingPolicy;
+  }
+
+  /**
+   * Sets the policy deciding, which requests get a span, e.g. a {@link HostSamplingPolicy}, a
+   * {@link RouteSamplingPolicy}, a {@link SpanBudgetPolicy} or a {@link TokenBucketSamplingPolicy}. Requests without a
+   * span still propagate the trace. By default, each request gets a span.
+   *
+   * @param spanSamplingPolicy A span sampling policy. Must not be null.
+   */
+  public void setSpanSamplingPolicy(@Nonnull SpanSamplingPolicy spanSamplingPolicy) {
+    this.spanSamplingPolicy = Objects.requireNonNull(spanSamplingPolicy, "Span sampling policy");
+  }
+
+  /**
+   * @return The aggregator, which collapses identical requests of a transaction into one span, or null
+   */
+  @Nullable
+  public SpanAggregator getSpanAggregator() {
+    return spanAggregator;
+  }
+
+  /**
+   * Enables the aggregation of identical requests of a transaction into one summary span instead of a span per
+   * request. The aggregator needs to be registered as event processor as well. By default, each request gets its own
+   * span.
+   *
+   * @param spanAggregator The span aggregator or null
+   */
+  public void setSpanAggregator(@Nullable SpanAggregator spanAggregator) {
+    this.spanAggregator = spanAggregator;
+  }
+
+  /**
+   * @return The policy deciding, which breadcrumbs of requests and responses are added. Never null.
+   */
+  @Nonnull
+  public BreadcrumbPolicy getBreadcrumbPolicy() {
+    return breadcrumbPolicy;
+  }
+
+  /**
+   * Sets the policy deciding, which breadcrumbs of requests and responses are added, e.g. a
+   * {@link CoalescingBreadcrumbPolicy}. By default, a breadcrumb is added for each request without a span and for
+   * each response.
+   *
+   * @param breadcrumbPolicy A breadcrumb policy. Must not be null.
+   */
+  public void setBreadcrumbPolicy(@Nonnull BreadcrumbPolicy breadcrumbPolicy) {
+    this.breadcrumbPolicy = Objects.requireNonNull(breadcrumbPolicy, "Breadcrumb policy");
+  }
+
+  /**
+   * @return The reaper, which finishes orphaned spans after a deadline, or null
+   */
+  @Nullable
+  public SpanReaper getSpanReaper() {
+    return spanReaper;
+  }
+
+  /**
+   * Registers each {@code http.client} span with the given reaper, which finishes spans left unfinished after its
+   * deadline. By default, spans of requests failing without a response are only finished, if the client is
+   * instrumented to handle failed requests.
+   *
+   * @param spanReaper The span reaper or null
+   */
+  public void setSpanReaper(@Nullable SpanReaper spanReaper) {
+    this.spanReaper = spanReaper;
+  }
+
+  /**
+   * @return The formats the trace of a request is propagated in. Never null.
+   */
+  @Nonnull
+  public TracePropagationFormat getTracePropagationFormat() {
+    return tracePropagationFormat;
+  }
+
+  /**
+   * Sets the formats the trace of a request to a trace propagation target is propagated in. By default, only the
+   * {@code sentry-trace} header is written. The Sentry baggage is written in each format.
+   *
+   * @param tracePropagationFormat A trace propagation format. Must not be null.
+   */
+  public void setTracePropagationFormat(@Nonnull TracePropagationFormat tracePropagationFormat) {
+    this.tracePropagationFormat = Objects.requireNonNull(tracePropagationFormat, "Trace propagation format");
+  }
+
+  /**
+   * @return The recorder of the latencies per host or null
+   */
+  @Nullable
+  public LatencyRecorder getLatencyRecorder() {
+    return latencyRecorder;
+  }
+
+  /**
+   * Records the latency of each request, including requests without a span and failed requests, in the given recorder.
+   * By default, no latencies are recorded.
+   *
+   * @param latencyRecorder The latency recorder or null
+   */
+  public void setLatencyRecorder(@Nullable LatencyRecorder latencyRecorder) {
+    this.latencyRecorder = latencyRecorder;
+  }
+
+  /**
+   * @return The finisher of the spans of received responses. Never null.
+   */
+  @Nonnull
+  public SpanFinisher getSpanFinisher() {
+    return spanFinisher;
+  }
+
+  /**
+   * Sets the finisher of the spans of received responses, which also adds their breadcrumbs, e.g. a
+   * {@link BackgroundSpanFinisher}. By default, spans are finished on the thread receiving the response.
+   *
+   * @param spanFinisher A span finisher. Must not be null.
+   */
+  public void setSpanFinisher(@Nonnull SpanFinisher spanFinisher) {
+    this.spanFinisher = Objects.requireNonNull(spanFinisher, "Span finisher");
+  }
+
+}
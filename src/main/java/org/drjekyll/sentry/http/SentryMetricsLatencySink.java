@@ -0,0 +1,43 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Collections;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+import io.sentry.SentryLevel;
+
+/**
+ * Emits latency summaries as Sentry metrics tagged with the host, if metrics are enabled in the Sentry options. See
+ * {@link LatencySnapshot#emitTo(io.sentry.metrics.MetricsApi, java.util.Map)} for the emitted metrics.
+ */
+public final class SentryMetricsLatencySink implements LatencySink {
+
+  /**
+   * Name of the tag containing the host
+   */
+  public static final String HOST_TAG = "host";
+
+  private final IHub hub;
+
+  /**
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   */
+  public SentryMetricsLatencySink(@Nonnull IHub hub) {
+    this.hub = Objects.requireNonNull(hub, "Hub");
+  }
+
+  @Override
+  public void export(@Nonnull String host, @Nonnull LatencySnapshot snapshot) {
+    try {
+      if (hub.getOptions().isEnableMetrics()) {
+        snapshot.emitTo(hub.metrics(), Collections.singletonMap(HOST_TAG, host));
+      }
+    } catch (RuntimeException e) {
+      hub.getOptions().getLogger().log(SentryLevel.WARNING, "Could not emit latency metrics", e);
+    }
+  }
+
+}
@@ -0,0 +1,272 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.DateUtils;
+import io.sentry.EventProcessor;
+import io.sentry.Hint;
+import io.sentry.ISpan;
+import io.sentry.ITransaction;
+import io.sentry.SentryDate;
+import io.sentry.SentryNanotimeDate;
+import io.sentry.SpanContext;
+import io.sentry.SpanId;
+import io.sentry.SpanStatus;
+import io.sentry.protocol.SentryId;
+import io.sentry.protocol.SentrySpan;
+import io.sentry.protocol.SentryTransaction;
+
+/**
+ * Collapses repeated identical requests of a transaction into a single {@code http.client} span, e.g. the requests of
+ * an N+1 loop. Requests are identical, if their span descriptions, i.e. the HTTP method and the normalized URL, are
+ * equal. The summary span covers the first to the last request and contains their count and the total, minimum,
+ * maximum and 95th percentile duration as data.
+ * <p>
+ * The summary spans are added to the transaction when it is sent, so this aggregator needs to be registered as event
+ * processor, e.g. with {@link io.sentry.SentryOptions#addEventProcessor(EventProcessor)}. Requests completing after
+ * their transaction was sent are dropped. The accumulators of the most recent transactions are kept in a bounded
+ * cache, so transactions which are never sent don't leak memory.
+ */
+public final class SpanAggregator implements EventProcessor {
+
+  /**
+   * Span data key of the number of aggregated requests
+   */
+  public static final String COUNT_DATA_KEY = "http.client.aggregate.count";
+
+  /**
+   * Span data key of the total duration of the aggregated requests in milliseconds
+   */
+  public static final String TOTAL_DATA_KEY = "http.client.aggregate.total_ms";
+
+  /**
+   * Span data key of the minimum duration of the aggregated requests in milliseconds
+   */
+  public static final String MIN_DATA_KEY = "http.client.aggregate.min_ms";
+
+  /**
+   * Span data key of the maximum duration of the aggregated requests in milliseconds
+   */
+  public static final String MAX_DATA_KEY = "http.client.aggregate.max_ms";
+
+  /**
+   * Span data key of the 95th percentile duration of the aggregated requests in milliseconds
+   */
+  public static final String P95_DATA_KEY = "http.client.aggregate.p95_ms";
+
+  /**
+   * The default number of transactions, whose accumulators are kept
+   */
+  public static final int DEFAULT_CACHE_SIZE = 1024;
+
+  private final LruCache<SpanId, Map<String, Aggregate>> aggregatesByTransaction;
+
+  /**
+   * Initializes this aggregator with the default cache size.
+   */
+  public SpanAggregator() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * @param cacheSize The number of transactions, whose accumulators are kept. Must be positive.
+   */
+  public SpanAggregator(int cacheSize) {
+    aggregatesByTransaction = new LruCache<>(cacheSize);
+  }
+
+  /**
+   * Starts an aggregated exchange, which is finished with {@link Exchange#finish(SpanStatus)} as soon as the response
+   * was received.
+   *
+   * @param transaction The current transaction or null
+   * @param parentSpan The parent span of the summary span. Must not be null.
+   * @param request The request. Must not be null.
+   * @param startNanoTime The timestamp the interceptor started processing the request, captured with
+   * {@link System#nanoTime()}
+   * @return The exchange or null, if there is no sampled transaction to aggregate the request in
+   */
+  @Nullable
+  public Exchange start(
+    @Nullable ITransaction transaction,
+    @Nonnull ISpan parentSpan,
+    @Nonnull RequestDescriptor request,
+    long startNanoTime
+  ) {
+    Objects.requireNonNull(parentSpan, "Parent span");
+    Objects.requireNonNull(request, "Request");
+    if (transaction == null || !Boolean.TRUE.equals(transaction.isSampled())) {
+      return null;
+    }
+    Map<String, Aggregate> aggregates = aggregatesByTransaction.computeIfAbsent(
+      transaction.getSpanContext().getSpanId(),
+      id -> new ConcurrentHashMap<>()
+    );
+    Aggregate aggregate = aggregates.computeIfAbsent(
+      request.getDescription(),
+      description -> new Aggregate(parentSpan.getSpanContext(), description)
+    );
+    return new Exchange(aggregate, ExchangeTimestamps.toDate(startNanoTime));
+  }
+
+  @Nonnull
+  @Override
+  public SentryTransaction process(@Nonnull SentryTransaction transaction, @Nonnull Hint hint) {
+    SpanContext trace = transaction.getContexts().getTrace();
+    if (trace == null) {
+      return transaction;
+    }
+    Map<String, Aggregate> aggregates = aggregatesByTransaction.remove(trace.getSpanId());
+    if (aggregates != null) {
+      for (Aggregate aggregate : aggregates.values()) {
+        SentrySpan span = aggregate.toSpan();
+        if (span != null) {
+          transaction.getSpans().add(span);
+        }
+      }
+    }
+    return transaction;
+  }
+
+  /**
+   * A single request, which is aggregated into the summary span of its transaction.
+   */
+  public static final class Exchange {
+
+    private final Aggregate aggregate;
+
+    private final SentryDate start;
+
+    private Exchange(Aggregate aggregate, SentryDate start) {
+      this.aggregate = aggregate;
+      this.start = start;
+    }
+
+    /**
+     * Records the duration of this exchange up to now.
+     *
+     * @param status The status of the exchange or null, if unknown
+     */
+    public void finish(@Nullable SpanStatus status) {
+      aggregate.record(start, new SentryNanotimeDate(), status);
+    }
+
+  }
+
+  private static final class Aggregate {
+
+    private static final int MAX_SAMPLES = 1000;
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final SentryId traceId;
+
+    private final SpanId parentSpanId;
+
+    private final String description;
+
+    private long count;
+
+    private long totalNanos;
+
+    private long minNanos = Long.MAX_VALUE;
+
+    private long maxNanos;
+
+    private long[] samples = new long[16];
+
+    private SentryDate firstStart;
+
+    private SentryDate lastEnd;
+
+    private SpanStatus status;
+
+    Aggregate(SpanContext parentSpanContext, String description) {
+      traceId = parentSpanContext.getTraceId();
+      parentSpanId = parentSpanContext.getSpanId();
+      this.description = description;
+    }
+
+    synchronized void record(SentryDate start, SentryDate end, SpanStatus exchangeStatus) {
+      long nanos = Math.max(0L, end.diff(start));
+      count++;
+      totalNanos += nanos;
+      minNanos = Math.min(minNanos, nanos);
+      maxNanos = Math.max(maxNanos, nanos);
+      sample(nanos);
+      if (firstStart == null || start.isBefore(firstStart)) {
+        firstStart = start;
+      }
+      if (lastEnd == null || end.isAfter(lastEnd)) {
+        lastEnd = end;
+      }
+      if (exchangeStatus != null && (status == null || status == SpanStatus.OK)) {
+        status = exchangeStatus;
+      }
+    }
+
+    // reservoir sampling keeps the memory bounded for very long loops
+    private void sample(long nanos) {
+      if (count <= MAX_SAMPLES) {
+        int index = (int) count - 1;
+        if (index == samples.length) {
+          samples = Arrays.copyOf(samples, Math.min(samples.length * 2, MAX_SAMPLES));
+        }
+        samples[index] = nanos;
+        return;
+      }
+      long index = ThreadLocalRandom.current().nextLong(count);
+      if (index < MAX_SAMPLES) {
+        samples[(int) index] = nanos;
+      }
+    }
+
+    synchronized SentrySpan toSpan() {
+      if (count == 0L) {
+        return null;
+      }
+      Map<String, Object> data = new HashMap<>();
+      data.put(COUNT_DATA_KEY, count);
+      data.put(TOTAL_DATA_KEY, toMillis(totalNanos));
+      data.put(MIN_DATA_KEY, toMillis(minNanos));
+      data.put(MAX_DATA_KEY, toMillis(maxNanos));
+      data.put(P95_DATA_KEY, toMillis(percentile95()));
+      return new SentrySpan(
+        DateUtils.nanosToSeconds(firstStart.nanoTimestamp()),
+        DateUtils.nanosToSeconds(lastEnd.nanoTimestamp()),
+        traceId,
+        new SpanId(),
+        parentSpanId,
+        "http.client",
+        description,
+        status,
+        "manual",
+        new HashMap<>(),
+        new HashMap<>(),
+        new HashMap<>(),
+        data
+      );
+    }
+
+    private long percentile95() {
+      int size = (int) Math.min(count, MAX_SAMPLES);
+      long[] sorted = Arrays.copyOf(samples, size);
+      Arrays.sort(sorted);
+      return sorted[(int) Math.ceil(0.95 * size) - 1];
+    }
+
+    private static double toMillis(long nanos) {
+      return nanos / NANOS_PER_MILLI;
+    }
+
+  }
+
+}
@@ -0,0 +1,57 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.ISpan;
+import io.sentry.ITransaction;
+
+/**
+ * Limits the number of {@code http.client} spans per transaction, so a transaction with many outgoing calls doesn't
+ * exceed its span limit. Transactions continuing the same upstream trace get a budget each. The span counts are
+ * attached to the transactions with weak references, so they live as long as their transactions. Spans without a
+ * transaction of the scope count against the budget of their parent span.
+ */
+public final class SpanBudgetPolicy implements SpanSamplingPolicy {
+
+  private final int maxSpansPerTransaction;
+
+  private final Map<ISpan, AtomicInteger> spanCounts = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * @param maxSpansPerTransaction The maximum number of spans per transaction. Must not be negative.
+   */
+  public SpanBudgetPolicy(int maxSpansPerTransaction) {
+    if (maxSpansPerTransaction < 0) {
+      throw new IllegalArgumentException("Maximum spans per transaction must not be negative");
+    }
+    this.maxSpansPerTransaction = maxSpansPerTransaction;
+  }
+
+  @Override
+  public boolean isSampled(
+    @Nonnull RequestDescriptor request,
+    @Nonnull ISpan parentSpan,
+    @Nullable ITransaction transaction
+  ) {
+    // spans don't override equals, so the weak keys are compared by identity
+    AtomicInteger spanCount = spanCounts.computeIfAbsent(
+      transaction != null ? transaction : parentSpan,
+      span -> new AtomicInteger()
+    );
+    int count;
+    do {
+      count = spanCount.get();
+      if (count >= maxSpansPerTransaction) {
+        return false;
+      }
+    } while (!spanCount.compareAndSet(count, count + 1));
+    return true;
+  }
+
+}
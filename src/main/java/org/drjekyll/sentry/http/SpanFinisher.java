@@ -0,0 +1,52 @@
+package org.drjekyll.sentry.http;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+import io.sentry.SentryDate;
+import io.sentry.SpanStatus;
+
+/**
+ * Finishes the span of a request and adds the breadcrumb of its response, once the response was received. Finishing
+ * the last child of a transaction may finish and serialize the transaction, so a {@link BackgroundSpanFinisher} moves
+ * this work off the thread executing the request.
+ * <p>
+ * Implementations are called for every finished request and must be thread-safe.
+ */
+@FunctionalInterface
+public interface SpanFinisher {
+
+  /**
+   * Adds the breadcrumb and finishes the span on the calling thread
+   */
+  SpanFinisher SYNCHRONOUS = (hub, span, status, timestamp, breadcrumbPolicy, request, statusCode) -> {
+    if (request != null) {
+      breadcrumbPolicy.addBreadcrumb(hub, request, statusCode);
+    }
+    span.finish(status != null ? status : span.getStatus(), timestamp);
+  };
+
+  /**
+   * Adds a breadcrumb for the given request with the policy, unless the request is null, and finishes the span.
+   *
+   * @param hub The Sentry hub. Never null.
+   * @param span The span of the request. Never null.
+   * @param status The status to finish the span with or null to keep its current status
+   * @param timestamp The end of the span. Never null.
+   * @param breadcrumbPolicy The policy adding the breadcrumb. Never null.
+   * @param request The request or null, if no breadcrumb is added
+   * @param statusCode The HTTP status code of the response or null, if there is no response
+   */
+  void finish(
+    @Nonnull IHub hub,
+    @Nonnull ISpan span,
+    @Nullable SpanStatus status,
+    @Nonnull SentryDate timestamp,
+    @Nonnull BreadcrumbPolicy breadcrumbPolicy,
+    @Nullable RequestDescriptor request,
+    @Nullable Integer statusCode
+  );
+
+}
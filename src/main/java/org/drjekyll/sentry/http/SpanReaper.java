@@ -0,0 +1,168 @@
+package org.drjekyll.sentry.http;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.ISpan;
+import io.sentry.SpanStatus;
+
+/**
+ * Finishes {@code http.client} spans, which are still unfinished after a deadline, e.g. because their request failed
+ * in a way no interceptor noticed. An orphaned span would otherwise stay the latest active span of its transaction and
+ * become the parent of all later spans. Reaped spans are finished with {@link SpanStatus#DEADLINE_EXCEEDED} and marked
+ * with the data {@link #REAPED_DATA_KEY}. Pass the reaper to {@link SentryHttpOptions#setSpanReaper(SpanReaper)}, so
+ * the interceptors register their spans:
+ * <pre>
+ * SentryHttpOptions options = new SentryHttpOptions();
+ * options.setSpanReaper(new SpanReaper(Duration.ofMinutes(5L)));
+ * </pre>
+ * The spans are kept in a hashed timer wheel of {@value #WHEEL_SIZE} slots, which a daemon thread visits one per tick.
+ * The deadline spans all but two slots of the wheel, so a span is reaped at most one tick after its deadline.
+ * Registering a span is a single lock-free enqueue and finished spans are just dropped when their slot is visited, so
+ * they are referenced for up to the deadline. Choose a deadline well above the longest expected request including its
+ * retries.
+ */
+public final class SpanReaper implements Closeable {
+
+  /**
+   * Span data key, which is true for spans finished by a reaper
+   */
+  public static final String REAPED_DATA_KEY = "http.client.reaped";
+
+  /**
+   * The number of slots of the timer wheel
+   */
+  public static final int WHEEL_SIZE = 64;
+
+  private static final long MIN_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+  private final Queue<ISpan>[] wheel;
+
+  private final long ticksPerDeadline;
+
+  private final LongAdder reapedCount = new LongAdder();
+
+  private final ScheduledExecutorService ownedScheduler;
+
+  private final ScheduledFuture<?> tickTask;
+
+  private volatile long currentTick;
+
+  /**
+   * Starts reaping on a new daemon thread.
+   *
+   * @param deadline The time after which unfinished spans are reaped. Must be positive.
+   */
+  public SpanReaper(@Nonnull Duration deadline) {
+    this(deadline, Executors.newSingleThreadScheduledExecutor(SpanReaper::newThread), true);
+  }
+
+  /**
+   * Starts reaping with the given scheduler, which is not shut down by this reaper.
+   *
+   * @param deadline The time after which unfinished spans are reaped. Must be positive.
+   * @param scheduler A scheduler running the ticks of the timer wheel. Must not be null.
+   */
+  public SpanReaper(@Nonnull Duration deadline, @Nonnull ScheduledExecutorService scheduler) {
+    this(deadline, scheduler, false);
+  }
+
+  @SuppressWarnings("unchecked")
+  private SpanReaper(Duration deadline, ScheduledExecutorService scheduler, boolean ownsScheduler) {
+    Objects.requireNonNull(deadline, "Deadline");
+    Objects.requireNonNull(scheduler, "Scheduler");
+    if (deadline.isNegative() || deadline.isZero()) {
+      throw new IllegalArgumentException("Deadline must be positive");
+    }
+    long deadlineNanos = deadline.toNanos();
+    long tickNanos = Math.max(MIN_TICK_NANOS, ceilDiv(deadlineNanos, WHEEL_SIZE - 2L));
+    // one extra tick, as a span may be registered just before the next tick, and one slot to spare, so a span expires
+    // before its slot comes round again and the wheel never holds spans for later rounds
+    ticksPerDeadline = ceilDiv(deadlineNanos, tickNanos) + 1L;
+    wheel = new Queue[WHEEL_SIZE];
+    for (int i = 0; i < WHEEL_SIZE; i++) {
+      wheel[i] = new ConcurrentLinkedQueue<>();
+    }
+    ownedScheduler = ownsScheduler ? scheduler : null;
+    tickTask = scheduler.scheduleAtFixedRate(this::tick, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Registers a span to be finished, if it isn't finished before the deadline.
+   *
+   * @param span An unfinished span. Must not be null.
+   */
+  public void register(@Nonnull ISpan span) {
+    Objects.requireNonNull(span, "Span");
+    long expiryTick = currentTick + ticksPerDeadline;
+    wheel[slot(expiryTick)].add(span);
+  }
+
+  /**
+   * @return The number of spans finished by this reaper so far
+   */
+  public long getReapedCount() {
+    return reapedCount.sum();
+  }
+
+  /**
+   * Advances the timer wheel by one tick and reaps the expired spans of the next slot. Called by the scheduler only.
+   */
+  void tick() {
+    long tick = currentTick + 1L;
+    currentTick = tick;
+    Queue<ISpan> spans = wheel[slot(tick)];
+    for (ISpan span = spans.poll(); span != null; span = spans.poll()) {
+      reap(span);
+    }
+  }
+
+  private void reap(ISpan span) {
+    if (span.isFinished()) {
+      return;
+    }
+    try {
+      span.setData(REAPED_DATA_KEY, true);
+      span.finish(SpanStatus.DEADLINE_EXCEEDED);
+      reapedCount.increment();
+    } catch (RuntimeException ignored) {
+      // a failing span must not stop the ticks of the wheel
+    }
+  }
+
+  /**
+   * Stops reaping. Registered spans are left as they are. A scheduler passed to this reaper is not shut down.
+   */
+  @Override
+  public void close() {
+    tickTask.cancel(false);
+    if (ownedScheduler != null) {
+      ownedScheduler.shutdown();
+    }
+  }
+
+  private static long ceilDiv(long dividend, long divisor) {
+    return (dividend + divisor - 1L) / divisor;
+  }
+
+  private static int slot(long tick) {
+    return (int) (tick & (WHEEL_SIZE - 1));
+  }
+
+  private static Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, "sentry-http-span-reaper");
+    thread.setDaemon(true);
+    return thread;
+  }
+
+}
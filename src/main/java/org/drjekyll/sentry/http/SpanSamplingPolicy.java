@@ -0,0 +1,47 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.ISpan;
+import io.sentry.ITransaction;
+
+/**
+ * Decides whether an {@code http.client} span is created for an outgoing request. Requests without a span still
+ * propagate the trace headers of the active span and add a breadcrumb, so the trace stays connected.
+ * <p>
+ * Implementations are called for every request with an active span and must be thread-safe.
+ */
+@FunctionalInterface
+public interface SpanSamplingPolicy {
+
+  /**
+   * Creates a span for each request
+   */
+  SpanSamplingPolicy ALWAYS = (request, parentSpan, transaction) -> true;
+
+  /**
+   * @param request The request. Never null.
+   * @param parentSpan The active span, which would be the parent of the new span. Never null.
+   * @param transaction The current transaction or null, if the active span isn't part of a transaction of the scope
+   * @return true, if a span should be created for the request
+   */
+  boolean isSampled(@Nonnull RequestDescriptor request, @Nonnull ISpan parentSpan, @Nullable ITransaction transaction);
+
+  /**
+   * Combines this policy with another one. The other policy is only asked, if this policy samples the request, so
+   * policies consuming budgets or tokens should come last.
+   *
+   * @param other Another policy. Must not be null.
+   * @return A policy, which samples requests sampled by both policies
+   */
+  @Nonnull
+  default SpanSamplingPolicy and(@Nonnull SpanSamplingPolicy other) {
+    Objects.requireNonNull(other, "Span sampling policy");
+    return (request, parentSpan, transaction) -> isSampled(request, parentSpan, transaction)
+      && other.isSampled(request, parentSpan, transaction);
+  }
+
+}
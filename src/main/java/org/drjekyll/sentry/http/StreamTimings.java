@@ -0,0 +1,121 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.ISpan;
+
+/**
+ * Collects the timings of a single exchange on a multiplexed HTTP/2 connection: the identifier of its stream, the time
+ * it was queued before its request headers were sent, e.g. waiting for a connection or for a free stream, and the time
+ * the request body waited for the connection to accept further bytes. On HTTP/2, that's mostly the time the flow
+ * control window of the stream or the connection was exhausted, while the rest is the time waiting for other streams
+ * and the socket. The timings are recorded by the optional stream timing components of the HttpClient integrations and
+ * written as data to the {@code http.client} span when it is finished. On HTTP/1.1 connections, the stream identifier
+ * is omitted.
+ * <p>
+ * An instance belongs to one exchange. It is updated on the I/O thread of the connection, but may be written to the
+ * span by another thread.
+ */
+public final class StreamTimings {
+
+  /**
+   * Span data key of the identifier of the HTTP/2 stream
+   */
+  public static final String STREAM_ID_DATA_KEY = "http.client.stream_id";
+
+  /**
+   * Span data key of the time from starting the exchange until its request headers were sent in milliseconds
+   */
+  public static final String QUEUED_DATA_KEY = "http.client.stream_queued_ms";
+
+  /**
+   * Span data key of the time the request body waited for the connection to accept further bytes in milliseconds
+   */
+  public static final String FLOW_CONTROL_BLOCKED_DATA_KEY = "http.client.flow_control_blocked_ms";
+
+  private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+  private static final long NOT_RECORDED = -1L;
+
+  private final long queuedSince;
+
+  private volatile int streamId;
+
+  private volatile long queuedNanos = NOT_RECORDED;
+
+  private volatile long blockedSince = NOT_RECORDED;
+
+  private volatile long blockedNanos;
+
+  /**
+   * Marks the start of the exchange, i.e. the time it started waiting for a connection and a stream.
+   */
+  public StreamTimings() {
+    queuedSince = System.nanoTime();
+  }
+
+  /**
+   * Marks the time the request headers were sent.
+   *
+   * @param streamId The identifier of the HTTP/2 stream or zero, if the exchange doesn't use HTTP/2
+   */
+  public void headersSent(int streamId) {
+    queuedNanos = Math.max(0L, System.nanoTime() - queuedSince);
+    this.streamId = streamId;
+  }
+
+  /**
+   * Marks that the connection didn't accept further bytes of the request body. Repeated calls don't restart the blocked
+   * time.
+   */
+  public void outputBlocked() {
+    if (blockedSince == NOT_RECORDED) {
+      blockedSince = System.nanoTime();
+    }
+  }
+
+  /**
+   * Marks that the connection accepts bytes of the request body again and adds the time since it was blocked.
+   */
+  public void outputResumed() {
+    long since = blockedSince;
+    if (since != NOT_RECORDED) {
+      blockedNanos += System.nanoTime() - since;
+      blockedSince = NOT_RECORDED;
+    }
+  }
+
+  /**
+   * @return The identifier of the HTTP/2 stream or zero, if unknown
+   */
+  public int getStreamId() {
+    return streamId;
+  }
+
+  /**
+   * Writes the recorded timings as data to the given span. Nothing is written, if the request headers weren't sent. A
+   * request body still blocked counts as blocked up to now.
+   *
+   * @param span The span of the exchange. Must not be null.
+   */
+  public void applyTo(@Nonnull ISpan span) {
+    Objects.requireNonNull(span, "Span");
+    if (queuedNanos == NOT_RECORDED) {
+      return;
+    }
+    if (streamId > 0) {
+      span.setData(STREAM_ID_DATA_KEY, streamId);
+    }
+    span.setData(QUEUED_DATA_KEY, toMillis(queuedNanos));
+    long since = blockedSince;
+    long currentlyBlockedNanos = since != NOT_RECORDED ? System.nanoTime() - since : 0L;
+    span.setData(FLOW_CONTROL_BLOCKED_DATA_KEY, toMillis(blockedNanos + currentlyBlockedNanos));
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / NANOS_PER_MILLI;
+  }
+
+}
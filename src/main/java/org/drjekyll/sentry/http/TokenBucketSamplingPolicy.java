@@ -0,0 +1,58 @@
+package org.drjekyll.sentry.http;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.ISpan;
+import io.sentry.ITransaction;
+
+/**
+ * Limits the rate of {@code http.client} spans with a token bucket. Each span takes a token, tokens are refilled with a
+ * constant rate up to the capacity of the bucket, which allows bursts of spans.
+ */
+public final class TokenBucketSamplingPolicy implements SpanSamplingPolicy {
+
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  private final double tokensPerNano;
+
+  private final double capacity;
+
+  private double tokens;
+
+  private long lastRefill;
+
+  /**
+   * @param spansPerSecond The sustained rate of spans per second. Must be positive.
+   * @param burst The maximum number of spans in a burst. Must be positive.
+   */
+  public TokenBucketSamplingPolicy(double spansPerSecond, int burst) {
+    if (!(spansPerSecond > 0.0)) {
+      throw new IllegalArgumentException("Spans per second must be positive");
+    }
+    if (burst <= 0) {
+      throw new IllegalArgumentException("Burst must be positive");
+    }
+    tokensPerNano = spansPerSecond / NANOS_PER_SECOND;
+    capacity = burst;
+    tokens = burst;
+    lastRefill = System.nanoTime();
+  }
+
+  @Override
+  public synchronized boolean isSampled(
+    @Nonnull RequestDescriptor request,
+    @Nonnull ISpan parentSpan,
+    @Nullable ITransaction transaction
+  ) {
+    long now = System.nanoTime();
+    tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+    lastRefill = now;
+    if (tokens < 1.0) {
+      return false;
+    }
+    tokens -= 1.0;
+    return true;
+  }
+
+}
@@ -0,0 +1,163 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.SentryTraceHeader;
+import io.sentry.SpanId;
+import io.sentry.protocol.SentryId;
+
+/**
+ * Decodes the {@code sentry-trace} header and the W3C Trace Context {@code traceparent} header of an incoming request,
+ * the counterpart of {@link TraceHeaderEncoder}. The values are read in place from a range of a character sequence,
+ * e.g. the buffer the HTTP server parsed the header line into, so only the trace and span identifiers are copied into
+ * strings and malformed values are rejected without allocating anything.
+ * <p>
+ * Instances are stateless and thread-safe.
+ */
+public final class TraceHeaderDecoder {
+
+  private static final int TRACE_ID_LENGTH = 32;
+
+  private static final int SPAN_ID_LENGTH = 16;
+
+  private static final int SENTRY_TRACE_LENGTH = TRACE_ID_LENGTH + 1 + SPAN_ID_LENGTH;
+
+  private static final int TRACEPARENT_LENGTH = 2 + 1 + TRACE_ID_LENGTH + 1 + SPAN_ID_LENGTH + 1 + 2;
+
+  private static final int SAMPLED_FLAG = 0x01;
+
+  /**
+   * Decodes a {@code sentry-trace} header value of the form {@code <trace id>-<span id>[-<sampled>]}.
+   *
+   * @param value The characters containing the header value. Must not be null.
+   * @param start The index of the first character of the value
+   * @param end The index after the last character of the value
+   * @return The decoded header or null, if the value is malformed
+   */
+  @Nullable
+  public SentryTraceHeader decodeSentryTrace(@Nonnull CharSequence value, int start, int end) {
+    Objects.requireNonNull(value, "Header value");
+    int from = skipLeadingWhitespace(value, start, end);
+    int to = skipTrailingWhitespace(value, from, end);
+    int length = to - from;
+    if (length != SENTRY_TRACE_LENGTH && length != SENTRY_TRACE_LENGTH + 2) {
+      return null;
+    }
+    int spanIdStart = from + TRACE_ID_LENGTH + 1;
+    if (!isHex(value, from, TRACE_ID_LENGTH)
+      || value.charAt(spanIdStart - 1) != '-'
+      || !isHex(value, spanIdStart, SPAN_ID_LENGTH)) {
+      return null;
+    }
+    Boolean sampled = null;
+    if (length > SENTRY_TRACE_LENGTH) {
+      char sampledChar = value.charAt(to - 1);
+      if (value.charAt(to - 2) != '-' || sampledChar != '0' && sampledChar != '1') {
+        return null;
+      }
+      sampled = sampledChar == '1';
+    }
+    return toHeader(value, from, spanIdStart, sampled);
+  }
+
+  /**
+   * Decodes a W3C Trace Context {@code traceparent} header value of the form
+   * {@code <version>-<trace id>-<parent id>-<flags>}. Values of future versions may carry further fields after the
+   * flags, which are ignored. An unset sampled flag only tells that the caller may not have recorded its span, so it
+   * leaves the sampling decision to the receiver.
+   *
+   * @param value The characters containing the header value. Must not be null.
+   * @param start The index of the first character of the value
+   * @param end The index after the last character of the value
+   * @return The decoded header or null, if the value is malformed
+   */
+  @Nullable
+  public SentryTraceHeader decodeTraceparent(@Nonnull CharSequence value, int start, int end) {
+    Objects.requireNonNull(value, "Header value");
+    int from = skipLeadingWhitespace(value, start, end);
+    int to = skipTrailingWhitespace(value, from, end);
+    int length = to - from;
+    if (length < TRACEPARENT_LENGTH || !isHex(value, from, 2)) {
+      return null;
+    }
+    int version = hexValue(value.charAt(from)) << 4 | hexValue(value.charAt(from + 1));
+    if (version == 0xff
+      || version == 0 && length != TRACEPARENT_LENGTH
+      || length > TRACEPARENT_LENGTH && value.charAt(from + TRACEPARENT_LENGTH) != '-') {
+      return null;
+    }
+    int traceIdStart = from + 3;
+    int spanIdStart = traceIdStart + TRACE_ID_LENGTH + 1;
+    int flagsStart = spanIdStart + SPAN_ID_LENGTH + 1;
+    if (value.charAt(traceIdStart - 1) != '-'
+      || !isHex(value, traceIdStart, TRACE_ID_LENGTH)
+      || isZero(value, traceIdStart, TRACE_ID_LENGTH)
+      || value.charAt(spanIdStart - 1) != '-'
+      || !isHex(value, spanIdStart, SPAN_ID_LENGTH)
+      || isZero(value, spanIdStart, SPAN_ID_LENGTH)
+      || value.charAt(flagsStart - 1) != '-'
+      || !isHex(value, flagsStart, 2)) {
+      return null;
+    }
+    boolean sampled = (hexValue(value.charAt(flagsStart + 1)) & SAMPLED_FLAG) != 0;
+    return toHeader(value, traceIdStart, spanIdStart, sampled ? Boolean.TRUE : null);
+  }
+
+  private static SentryTraceHeader toHeader(CharSequence value, int traceIdStart, int spanIdStart, Boolean sampled) {
+    SentryId traceId = new SentryId(value.subSequence(traceIdStart, traceIdStart + TRACE_ID_LENGTH).toString());
+    SpanId spanId = new SpanId(value.subSequence(spanIdStart, spanIdStart + SPAN_ID_LENGTH).toString());
+    return new SentryTraceHeader(traceId, spanId, sampled);
+  }
+
+  private static int skipLeadingWhitespace(CharSequence value, int start, int end) {
+    int index = start;
+    while (index < end && isWhitespace(value.charAt(index))) {
+      index++;
+    }
+    return index;
+  }
+
+  private static int skipTrailingWhitespace(CharSequence value, int start, int end) {
+    int index = end;
+    while (index > start && isWhitespace(value.charAt(index - 1))) {
+      index--;
+    }
+    return index;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t';
+  }
+
+  private static boolean isHex(CharSequence value, int start, int length) {
+    for (int index = start; index < start + length; index++) {
+      if (hexValue(value.charAt(index)) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isZero(CharSequence value, int start, int length) {
+    for (int index = start; index < start + length; index++) {
+      if (value.charAt(index) != '0') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hexValue(char c) {
+    if (c >= '0' && c <= '9') {
+      return c - '0';
+    }
+    if (c >= 'a' && c <= 'f') {
+      return c - 'a' + 10;
+    }
+    return -1;
+  }
+
+}
@@ -0,0 +1,124 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.ISpan;
+import io.sentry.SpanContext;
+import io.sentry.protocol.SentryId;
+
+/**
+ * Encodes the trace headers of a span in the configured {@link TracePropagationFormat}. The values equal
+ * {@link ISpan#toSentryTrace()} and the W3C Trace Context {@code traceparent} header version {@code 00}.
+ * <p>
+ * The parts of the values, which only depend on the trace, are precomputed once per trace and reused for all spans of
+ * the trace, since rendering a trace id is much more expensive than concatenating strings. Both formats share the same
+ * lookup of the span context and the same precomputed trace, so writing both costs little more than writing one.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class TraceHeaderEncoder {
+
+  /**
+   * The name of the W3C Trace Context header identifying the parent of a request
+   */
+  public static final String TRACEPARENT_HEADER = "traceparent";
+
+  /**
+   * The name of the W3C Trace Context header carrying vendor specific trace state
+   */
+  public static final String TRACESTATE_HEADER = "tracestate";
+
+  private static final String TRACEPARENT_VERSION = "00-";
+
+  private volatile TracePrefixes tracePrefixes;
+
+  /**
+   * Encodes the trace headers of the given span.
+   *
+   * @param span The span, whose trace is propagated. Must not be null.
+   * @param format The formats to encode. Must not be null.
+   * @return The values of the headers in the given formats. Never null.
+   */
+  @Nonnull
+  public EncodedTraceHeaders encode(@Nonnull ISpan span, @Nonnull TracePropagationFormat format) {
+    Objects.requireNonNull(span, "Span");
+    Objects.requireNonNull(format, "Trace propagation format");
+    SpanContext spanContext = span.getSpanContext();
+    TracePrefixes prefixes = getTracePrefixes(spanContext.getTraceId());
+    String spanId = spanContext.getSpanId().toString();
+    Boolean sampled = spanContext.getSampled();
+    String sentryTrace = null;
+    if (format.isSentry()) {
+      sentryTrace = sampled == null
+        ? prefixes.sentryTrace + spanId
+        : prefixes.sentryTrace + spanId + (sampled ? "-1" : "-0");
+    }
+    String traceparent = null;
+    if (format.isW3c()) {
+      traceparent = prefixes.traceparent + spanId + (Boolean.TRUE.equals(sampled) ? "-01" : "-00");
+    }
+    return new EncodedTraceHeaders(sentryTrace, traceparent);
+  }
+
+  private TracePrefixes getTracePrefixes(SentryId traceId) {
+    TracePrefixes current = tracePrefixes;
+    if (current == null || current.traceId != traceId) {
+      current = new TracePrefixes(traceId);
+      tracePrefixes = current;
+    }
+    return current;
+  }
+
+  /**
+   * The values of the trace headers of a span. A value is null, if its format isn't propagated.
+   */
+  public static final class EncodedTraceHeaders {
+
+    private final String sentryTrace;
+
+    private final String traceparent;
+
+    private EncodedTraceHeaders(String sentryTrace, String traceparent) {
+      this.sentryTrace = sentryTrace;
+      this.traceparent = traceparent;
+    }
+
+    /**
+     * @return The value of the {@code sentry-trace} header or null
+     */
+    @Nullable
+    public String getSentryTrace() {
+      return sentryTrace;
+    }
+
+    /**
+     * @return The value of the {@code traceparent} header or null
+     */
+    @Nullable
+    public String getTraceparent() {
+      return traceparent;
+    }
+
+  }
+
+  private static final class TracePrefixes {
+
+    private final SentryId traceId;
+
+    private final String sentryTrace;
+
+    private final String traceparent;
+
+    private TracePrefixes(SentryId traceId) {
+      this.traceId = traceId;
+      String renderedTraceId = traceId.toString();
+      sentryTrace = renderedTraceId + '-';
+      traceparent = TRACEPARENT_VERSION + renderedTraceId + '-';
+    }
+
+  }
+
+}
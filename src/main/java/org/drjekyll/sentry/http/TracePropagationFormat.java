@@ -0,0 +1,48 @@
+package org.drjekyll.sentry.http;
+
+/**
+ * The formats the trace of a request is propagated in. The Sentry baggage is propagated in the W3C {@code baggage}
+ * header with each format, since it carries the dynamic sampling context of Sentry.
+ */
+public enum TracePropagationFormat {
+
+  /**
+   * Propagates the trace in the {@code sentry-trace} header only
+   */
+  SENTRY(true, false),
+
+  /**
+   * Propagates the trace in the W3C Trace Context {@code traceparent} header only, e.g. for meshes and collectors,
+   * which don't know Sentry
+   */
+  W3C(false, true),
+
+  /**
+   * Propagates the trace in both the {@code sentry-trace} and the {@code traceparent} header
+   */
+  SENTRY_AND_W3C(true, true);
+
+  private final boolean sentry;
+
+  private final boolean w3c;
+
+  TracePropagationFormat(boolean sentry, boolean w3c) {
+    this.sentry = sentry;
+    this.w3c = w3c;
+  }
+
+  /**
+   * @return true, if the {@code sentry-trace} header is written
+   */
+  public boolean isSentry() {
+    return sentry;
+  }
+
+  /**
+   * @return true, if the {@code traceparent} header is written
+   */
+  public boolean isW3c() {
+    return w3c;
+  }
+
+}
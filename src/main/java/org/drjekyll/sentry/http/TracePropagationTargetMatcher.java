@@ -0,0 +1,163 @@
+package org.drjekyll.sentry.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.SentryOptions;
+
+/**
+ * Decides whether Sentry tracing headers should be added to a request to the given URL, based on the trace
+ * propagation targets of the {@link SentryOptions}.
+ * <p>
+ * The decision is the same as the one of {@link io.sentry.util.PropagationTargetsUtils#contain(List, String)}: a URL
+ * matches, if it contains one of the targets or if it matches one of them as regular expression. In contrast to it,
+ * the regular expressions are compiled only once and the decisions are cached in a bounded concurrent map, so looking
+ * up a decision doesn't lock. URLs with a query string aren't cached, since they rarely repeat, and a full cache is
+ * cleared instead of evicting single URLs. Whenever new trace propagation targets are set in the options, the compiled
+ * targets and the cache are discarded. Changing the list returned by
+ * {@link SentryOptions#getTracePropagationTargets()} in place isn't detected.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class TracePropagationTargetMatcher {
+
+  /**
+   * The default number of URLs the decision is cached for.
+   */
+  public static final int DEFAULT_CACHE_SIZE = 1024;
+
+  private static final String MATCH_ALL = ".*";
+
+  private final int cacheSize;
+
+  private volatile CompiledTargets compiledTargets;
+
+  /**
+   * Initializes this matcher with a decision cache of {@link #DEFAULT_CACHE_SIZE} URLs.
+   */
+  public TracePropagationTargetMatcher() {
+    this(DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Initializes this matcher with a decision cache of the given size.
+   *
+   * @param cacheSize The maximum number of URLs to cache the decision for. Must be positive.
+   */
+  public TracePropagationTargetMatcher(int cacheSize) {
+    if (cacheSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be positive");
+    }
+    this.cacheSize = cacheSize;
+  }
+
+  /**
+   * Checks whether the given URL is a trace propagation target.
+   *
+   * @param options The Sentry options containing the trace propagation targets. Must not be null.
+   * @param url The full request URL. May be null.
+   * @return true, if tracing headers should be added to the request
+   */
+  public boolean matches(@Nonnull SentryOptions options, @Nullable String url) {
+    if (url == null) {
+      return false;
+    }
+    return getCompiledTargets(options.getTracePropagationTargets()).matches(url);
+  }
+
+  private CompiledTargets getCompiledTargets(List<String> targets) {
+    CompiledTargets current = compiledTargets;
+    if (current == null || current.source != targets) {
+      current = new CompiledTargets(targets, cacheSize);
+      compiledTargets = current;
+    }
+    return current;
+  }
+
+  private static final class CompiledTargets {
+
+    private final List<String> source;
+
+    private final boolean matchesAll;
+
+    private final String[] literals;
+
+    private final Pattern[] patterns;
+
+    private final int cacheSize;
+
+    private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+    private CompiledTargets(List<String> source, int cacheSize) {
+      this.source = source;
+      List<String> literalList = new ArrayList<>();
+      List<Pattern> patternList = new ArrayList<>();
+      boolean all = false;
+      if (source != null) {
+        for (String target : source) {
+          if (target == null) {
+            continue;
+          }
+          if (MATCH_ALL.equals(target)) {
+            all = true;
+          }
+          literalList.add(target);
+          try {
+            patternList.add(Pattern.compile(target));
+          } catch (PatternSyntaxException e) {
+            // only used as literal, like Sentry does
+          }
+        }
+      }
+      matchesAll = all;
+      literals = literalList.toArray(new String[0]);
+      patterns = patternList.toArray(new Pattern[0]);
+      this.cacheSize = cacheSize;
+    }
+
+    private boolean matches(String url) {
+      if (matchesAll) {
+        return true;
+      }
+      if (literals.length == 0) {
+        return false;
+      }
+      if (url.indexOf('?') >= 0) {
+        return evaluate(url);
+      }
+      Boolean decision = decisions.get(url);
+      if (decision != null) {
+        return decision;
+      }
+      boolean evaluated = evaluate(url);
+      if (decisions.size() >= cacheSize) {
+        decisions.clear();
+      }
+      decisions.put(url, evaluated);
+      return evaluated;
+    }
+
+    private boolean evaluate(String url) {
+      for (String literal : literals) {
+        if (url.contains(literal)) {
+          return true;
+        }
+      }
+      for (Pattern pattern : patterns) {
+        if (pattern.matcher(url).matches()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+  }
+
+}
@@ -0,0 +1,30 @@
+package org.drjekyll.sentry.http;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Turns the URL of a request into the URL used in the span description. Normalizing URLs, e.g. by replacing
+ * identifiers with placeholders, keeps the number of distinct span descriptions low.
+ * <p>
+ * Implementations are called for every traced request and must be thread-safe.
+ *
+ * @see DefaultUrlNormalizer
+ */
+@FunctionalInterface
+public interface UrlNormalizer {
+
+  /**
+   * Keeps the URL as it is.
+   */
+  UrlNormalizer NONE = url -> url;
+
+  /**
+   * Normalizes the given URL.
+   *
+   * @param url The full request URL. Never null.
+   * @return The URL to use in the span description. Must not be null.
+   */
+  @Nonnull
+  String normalize(@Nonnull String url);
+
+}
@@ -0,0 +1,26 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Detects virtual threads. This is the variant for Java 11 to 20, which have no virtual threads. The multi-release JAR
+ * contains a variant for Java 21 and later, which asks the thread itself.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+    // utility
+  }
+
+  /**
+   * @param thread A thread. Must not be null.
+   * @return true, if the thread is a virtual thread
+   */
+  public static boolean isVirtual(@Nonnull Thread thread) {
+    Objects.requireNonNull(thread, "Thread");
+    return false;
+  }
+
+}
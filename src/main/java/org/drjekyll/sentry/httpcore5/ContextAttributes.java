@@ -0,0 +1,11 @@
+package org.drjekyll.sentry.httpcore5;
+
+final class ContextAttributes {
+
+  static final String TRANSACTION = "sentry.server-transaction";
+
+  private ContextAttributes() {
+    // utility
+  }
+
+}
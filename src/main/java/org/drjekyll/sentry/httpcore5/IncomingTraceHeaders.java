@@ -0,0 +1,88 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.apache.hc.core5.http.FormattedHeader;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.util.Args;
+import org.apache.hc.core5.util.CharArrayBuffer;
+import org.drjekyll.sentry.http.TraceHeaderDecoder;
+import org.drjekyll.sentry.http.TraceHeaderEncoder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.sentry.Baggage;
+import io.sentry.BaggageHeader;
+import io.sentry.ILogger;
+import io.sentry.PropagationContext;
+import io.sentry.SentryTraceHeader;
+import io.sentry.TransactionContext;
+import io.sentry.protocol.TransactionNameSource;
+
+/**
+ * Continues the trace of an incoming request from its {@code sentry-trace} header or, if there is none, from its W3C
+ * Trace Context {@code traceparent} header, together with the Sentry baggage. Headers parsed by the server are read in
+ * place from the buffer of the header line, so the header values aren't copied into strings. Unlike
+ * {@link io.sentry.IHub#continueTrace(String, List)}, the scope of the current thread is left untouched, since it may
+ * be an I/O thread serving many requests.
+ */
+final class IncomingTraceHeaders {
+
+  private final TraceHeaderDecoder traceHeaderDecoder = new TraceHeaderDecoder();
+
+  TransactionContext createTransactionContext(HttpRequest request, String name, String operation, ILogger logger) {
+    Args.notNull(request, "HTTP request");
+    SentryTraceHeader traceHeader = decode(request.getFirstHeader(SentryTraceHeader.SENTRY_TRACE_HEADER), true);
+    if (traceHeader == null) {
+      traceHeader = decode(request.getFirstHeader(TraceHeaderEncoder.TRACEPARENT_HEADER), false);
+    }
+    if (traceHeader == null) {
+      return new TransactionContext(name, TransactionNameSource.URL, operation);
+    }
+    Baggage baggage = Baggage.fromHeader(getBaggage(request), logger);
+    TransactionContext transactionContext = TransactionContext.fromPropagationContext(
+      PropagationContext.fromHeaders(traceHeader, baggage, null)
+    );
+    transactionContext.setName(name);
+    transactionContext.setTransactionNameSource(TransactionNameSource.URL);
+    transactionContext.setOperation(operation);
+    return transactionContext;
+  }
+
+  private SentryTraceHeader decode(Header header, boolean sentryTrace) {
+    if (header == null) {
+      return null;
+    }
+    if (header instanceof FormattedHeader) {
+      FormattedHeader formattedHeader = (FormattedHeader) header;
+      CharArrayBuffer buffer = formattedHeader.getBuffer();
+      return sentryTrace
+        ? traceHeaderDecoder.decodeSentryTrace(buffer, formattedHeader.getValuePos(), buffer.length())
+        : traceHeaderDecoder.decodeTraceparent(buffer, formattedHeader.getValuePos(), buffer.length());
+    }
+    String value = header.getValue();
+    if (value == null) {
+      return null;
+    }
+    return sentryTrace
+      ? traceHeaderDecoder.decodeSentryTrace(value, 0, value.length())
+      : traceHeaderDecoder.decodeTraceparent(value, 0, value.length());
+  }
+
+  private static List<String> getBaggage(HttpRequest request) {
+    int baggageHeaderCount = request.countHeaders(BaggageHeader.BAGGAGE_HEADER);
+    if (baggageHeaderCount == 0) {
+      return Collections.emptyList();
+    }
+    if (baggageHeaderCount == 1) {
+      return Collections.singletonList(request.getFirstHeader(BaggageHeader.BAGGAGE_HEADER).getValue());
+    }
+    List<String> baggage = new ArrayList<>(baggageHeaderCount);
+    for (Header header : request.getHeaders(BaggageHeader.BAGGAGE_HEADER)) {
+      baggage.add(header.getValue());
+    }
+    return baggage;
+  }
+
+}
@@ -0,0 +1,54 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.apachehttpclient5.SentryHttpContexts;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import io.sentry.IHub;
+import io.sentry.ITransaction;
+
+/**
+ * Gives request handlers access to the transaction started by {@link SentryHttpServerRequestInterceptor}, e.g. to
+ * create spans in it or to execute outgoing requests in it, which propagate the trace to the next service:
+ * <pre>
+ * HttpClientContext clientContext = SentryHttpServerContexts.fork(serverContext, HubAdapter.getInstance());
+ * client.execute(request, clientContext, response -&gt; ...);
+ * </pre>
+ * The transaction is only available until the response is sent.
+ */
+public final class SentryHttpServerContexts {
+
+  private SentryHttpServerContexts() {
+    // utility
+  }
+
+  /**
+   * @param context The HTTP context of the incoming request. Must not be null.
+   * @return The transaction of the request or null, if it isn't traced or the response was sent already
+   */
+  @Nullable
+  public static ITransaction getTransaction(@Nonnull HttpContext context) {
+    Args.notNull(context, "HTTP context");
+    Object transaction = context.getAttribute(ContextAttributes.TRANSACTION);
+    return transaction instanceof ITransaction ? (ITransaction) transaction : null;
+  }
+
+  /**
+   * Creates a new HTTP client context bound to the transaction of the incoming request and a fork of the given hub, so
+   * the Sentry HttpClient 5 interceptors create the span of an outgoing request in that transaction. Requires Apache
+   * HttpClient 5.
+   *
+   * @param context The HTTP context of the incoming request. Must not be null.
+   * @param hub The hub of the current thread, e.g. {@link io.sentry.HubAdapter#getInstance()}. Must not be null.
+   * @return The new HTTP client context
+   */
+  @Nonnull
+  public static HttpClientContext fork(@Nonnull HttpContext context, @Nonnull IHub hub) {
+    return SentryHttpContexts.bind(HttpClientContext.create(), hub, getTransaction(context));
+  }
+
+}
@@ -0,0 +1,82 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.drjekyll.sentry.http.DefaultUrlNormalizer;
+import org.drjekyll.sentry.http.UrlNormalizer;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Options for the Sentry HTTP server interceptors, which aren't part of the {@link io.sentry.SentryOptions}. Configure
+ * them before passing them to the interceptors and use the same instance for the request and the response interceptor.
+ */
+public class SentryHttpServerOptions {
+
+  private UrlNormalizer urlNormalizer = new DefaultUrlNormalizer();
+
+  private TransactionSamplingPolicy transactionSamplingPolicy = TransactionSamplingPolicy.SENTRY_OPTIONS;
+
+  private Duration deadlineTimeout;
+
+  /**
+   * @return The normalizer for the request paths in transaction names. Never null.
+   */
+  @Nonnull
+  public UrlNormalizer getUrlNormalizer() {
+    return urlNormalizer;
+  }
+
+  /**
+   * Sets the normalizer for the request paths in transaction names. By default, a {@link DefaultUrlNormalizer} removes
+   * query strings and identifiers, so requests of the same route share one transaction name.
+   *
+   * @param urlNormalizer A URL normalizer. Must not be null.
+   */
+  public void setUrlNormalizer(@Nonnull UrlNormalizer urlNormalizer) {
+    this.urlNormalizer = Objects.requireNonNull(urlNormalizer, "URL normalizer");
+  }
+
+  /**
+   * @return The policy deciding the sample rate of requests without a sampling decision of their caller. Never null.
+   */
+  @Nonnull
+  public TransactionSamplingPolicy getTransactionSamplingPolicy() {
+    return transactionSamplingPolicy;
+  }
+
+  /**
+   * Sets the policy deciding the sample rate of requests without a sampling decision of their caller. By default, the
+   * traces sampler or the traces sample rate of the Sentry options decides.
+   *
+   * @param transactionSamplingPolicy A transaction sampling policy. Must not be null.
+   */
+  public void setTransactionSamplingPolicy(@Nonnull TransactionSamplingPolicy transactionSamplingPolicy) {
+    this.transactionSamplingPolicy = Objects.requireNonNull(transactionSamplingPolicy, "Transaction sampling policy");
+  }
+
+  /**
+   * @return The time after which a transaction without a response is finished, or null
+   */
+  @Nullable
+  public Duration getDeadlineTimeout() {
+    return deadlineTimeout;
+  }
+
+  /**
+   * Sets the time after which a transaction is finished with the status {@code DEADLINE_EXCEEDED}, if no response was
+   * sent, e.g. because the connection was closed while the request was handled. By default, such transactions are
+   * never finished.
+   *
+   * @param deadlineTimeout A positive duration or null
+   */
+  public void setDeadlineTimeout(@Nullable Duration deadlineTimeout) {
+    if (deadlineTimeout != null && (deadlineTimeout.isNegative() || deadlineTimeout.isZero())) {
+      throw new IllegalArgumentException("Deadline timeout must be positive");
+    }
+    this.deadlineTimeout = deadlineTimeout;
+  }
+
+}
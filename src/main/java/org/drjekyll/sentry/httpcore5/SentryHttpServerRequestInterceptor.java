@@ -0,0 +1,144 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpRequestInterceptor;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.drjekyll.sentry.http.EnabledFeatures;
+import org.drjekyll.sentry.http.ExchangeTimestamps;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.CustomSamplingContext;
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+import io.sentry.ITransaction;
+import io.sentry.SpanDataConvention;
+import io.sentry.TracesSamplingDecision;
+import io.sentry.TransactionContext;
+import io.sentry.TransactionOptions;
+
+/**
+ * An Apache HttpCore 5 server request interceptor that starts a Sentry transaction for each incoming request. The
+ * transaction continues the trace of the {@code sentry-trace} or the {@code traceparent} header and the
+ * {@code baggage} header of the request, so traces connect across HTTP hops.
+ * <p>
+ * Add this interceptor as first request interceptor of the protocol processor of the server and
+ * {@link SentryHttpServerResponseInterceptor} as last response interceptor, which finishes the transaction:
+ * <pre>
+ * ServerBootstrap.bootstrap()
+ *   .setHttpProcessor(HttpProcessors.customServer(null)
+ *     .addFirst(new SentryHttpServerRequestInterceptor(HubAdapter.getInstance()))
+ *     .addLast(new SentryHttpServerResponseInterceptor(HubAdapter.getInstance()))
+ *     .build())
+ *   .register("*", handler)
+ *   .create();
+ * </pre>
+ * {@link SentryHttpServers} does the same. It works with the {@code AsyncServerBootstrap} and the
+ * {@code H2ServerBootstrap} as well. The transaction is stored in the {@link HttpContext} of the request and isn't
+ * bound to the scope of the current thread, since an asynchronous server handles many requests on one I/O thread.
+ * Handlers get it with {@link SentryHttpServerContexts#getTransaction(HttpContext)}. The transaction is named after
+ * the request method and the normalized request path. If the caller didn't decide about sampling, the
+ * {@link SentryHttpServerOptions#getTransactionSamplingPolicy()} or the Sentry options decide, with the request passed
+ * to the traces sampler as {@value #SAMPLING_CONTEXT_REQUEST_KEY} of the custom sampling context.
+ */
+public class SentryHttpServerRequestInterceptor implements HttpRequestInterceptor {
+
+  /**
+   * The operation of the transactions
+   */
+  public static final String OPERATION = "http.server";
+
+  /**
+   * The key of the incoming {@link HttpRequest} in the custom sampling context
+   */
+  public static final String SAMPLING_CONTEXT_REQUEST_KEY = "request";
+
+  private final IHub hub;
+
+  private final SentryHttpServerOptions options;
+
+  private final IncomingTraceHeaders incomingTraceHeaders = new IncomingTraceHeaders();
+
+  private final EnabledFeatures enabledFeatures = new EnabledFeatures();
+
+  /**
+   * Initializes this HTTP server request interceptor with the given Sentry hub and default options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   */
+  public SentryHttpServerRequestInterceptor(@Nonnull IHub hub) {
+    this(hub, new SentryHttpServerOptions());
+  }
+
+  /**
+   * Initializes this HTTP server request interceptor with the given Sentry hub and options.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the interceptors. Must not be null.
+   */
+  public SentryHttpServerRequestInterceptor(@Nonnull IHub hub, @Nonnull SentryHttpServerOptions options) {
+    this.hub = Args.notNull(hub, "Hub");
+    this.options = Args.notNull(options, "Options");
+  }
+
+  @Override
+  public void process(HttpRequest request, EntityDetails entity, HttpContext context) throws IOException {
+    process(request, entity, context, System.nanoTime());
+  }
+
+  void process(HttpRequest request, EntityDetails entity, HttpContext context, long startNanoTime) {
+    Args.notNull(request, "HTTP request");
+    Args.notNull(context, "HTTP context");
+    if (!hub.isEnabled() || !enabledFeatures.isTracingEnabled(hub.getOptions())) {
+      return;
+    }
+    String name = getName(request);
+    TransactionContext transactionContext = incomingTraceHeaders.createTransactionContext(
+      request,
+      name,
+      OPERATION,
+      hub.getOptions().getLogger()
+    );
+    if (transactionContext.getParentSampled() == null) {
+      Double sampleRate = options.getTransactionSamplingPolicy().getSampleRate(request);
+      if (sampleRate != null) {
+        transactionContext.setSamplingDecision(new TracesSamplingDecision(isSampled(sampleRate), sampleRate));
+      }
+    }
+    CustomSamplingContext samplingContext = new CustomSamplingContext();
+    samplingContext.set(SAMPLING_CONTEXT_REQUEST_KEY, request);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setCustomSamplingContext(samplingContext);
+    transactionOptions.setStartTimestamp(ExchangeTimestamps.toDate(startNanoTime));
+    Duration deadlineTimeout = options.getDeadlineTimeout();
+    if (deadlineTimeout != null) {
+      transactionOptions.setDeadlineTimeout(deadlineTimeout.toMillis());
+    }
+    ITransaction transaction = hub.startTransaction(transactionContext, transactionOptions);
+    transaction.setData(SpanDataConvention.HTTP_METHOD_KEY, request.getMethod());
+    if (entity != null && entity.getContentLength() >= 0L) {
+      transaction.setData(ContentLengths.REQUEST_DATA_KEY, entity.getContentLength());
+    }
+    context.setAttribute(ContextAttributes.TRANSACTION, transaction);
+  }
+
+  private String getName(HttpRequest request) {
+    String path = request.getPath();
+    if (path == null) {
+      return request.getMethod();
+    }
+    return request.getMethod() + ' ' + options.getUrlNormalizer().normalize(path);
+  }
+
+  private static boolean isSampled(double sampleRate) {
+    return sampleRate >= 1.0 || sampleRate > 0.0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+}
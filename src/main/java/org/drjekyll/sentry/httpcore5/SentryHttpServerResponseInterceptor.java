@@ -0,0 +1,61 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpResponseInterceptor;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Args;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.drjekyll.sentry.http.ExchangeTimestamps;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+import io.sentry.ITransaction;
+import io.sentry.SpanDataConvention;
+import io.sentry.SpanStatus;
+
+/**
+ * An Apache HttpCore 5 server response interceptor that finishes the transaction started by
+ * {@link SentryHttpServerRequestInterceptor} with the status of the response. Add it as last response interceptor of
+ * the server, so the transaction covers the other interceptors as well. The transaction ends when the response head
+ * is sent, so streaming the response body isn't included.
+ */
+public class SentryHttpServerResponseInterceptor implements HttpResponseInterceptor {
+
+  private final IHub hub;
+
+  /**
+   * Initializes this HTTP server response interceptor with the given Sentry hub.
+   *
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   */
+  public SentryHttpServerResponseInterceptor(@Nonnull IHub hub) {
+    this.hub = Args.notNull(hub, "Hub");
+  }
+
+  @Override
+  public void process(HttpResponse response, EntityDetails entity, HttpContext context) throws IOException {
+    process(response, entity, context, System.nanoTime());
+  }
+
+  void process(HttpResponse response, EntityDetails entity, HttpContext context, long sentNanoTime) {
+    Args.notNull(response, "HTTP response");
+    Args.notNull(context, "HTTP context");
+    Object transactionAttribute = context.removeAttribute(ContextAttributes.TRANSACTION);
+    if (!(transactionAttribute instanceof ITransaction) || !hub.isEnabled()) {
+      return;
+    }
+    ITransaction transaction = (ITransaction) transactionAttribute;
+    int statusCode = response.getCode();
+    transaction.setData(SpanDataConvention.HTTP_STATUS_CODE_KEY, statusCode);
+    if (entity != null && entity.getContentLength() >= 0L) {
+      transaction.setData(ContentLengths.RESPONSE_DATA_KEY, entity.getContentLength());
+    }
+    transaction.finish(SpanStatus.fromHttpStatusCode(statusCode), ExchangeTimestamps.toDate(sentNanoTime));
+  }
+
+}
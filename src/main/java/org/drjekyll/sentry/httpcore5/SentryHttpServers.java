@@ -0,0 +1,61 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.apache.hc.core5.http.protocol.HttpProcessorBuilder;
+import org.apache.hc.core5.util.Args;
+
+import javax.annotation.Nonnull;
+
+import io.sentry.HubAdapter;
+import io.sentry.IHub;
+
+/**
+ * Instruments the protocol processor of an Apache HttpCore 5 server, so each incoming request gets a transaction. The
+ * server bootstraps only accept interceptors as part of a protocol processor, so start with the default processor of
+ * the server to keep its standard interceptors:
+ * <pre>
+ * HttpServer server = ServerBootstrap.bootstrap()
+ *   .setHttpProcessor(SentryHttpServers.instrument(HttpProcessors.customServer(null)).build())
+ *   .register("*", handler)
+ *   .create();
+ * </pre>
+ * The same works with the {@code AsyncServerBootstrap} and, with {@code H2Processors.customServer(null)}, with the
+ * {@code H2ServerBootstrap}.
+ */
+public final class SentryHttpServers {
+
+  private SentryHttpServers() {
+    // utility
+  }
+
+  /**
+   * Adds the Sentry server interceptors with the current hub and default options.
+   *
+   * @param builder The builder of the protocol processor. Must not be null.
+   * @return The given builder
+   */
+  @Nonnull
+  public static HttpProcessorBuilder instrument(@Nonnull HttpProcessorBuilder builder) {
+    return instrument(builder, HubAdapter.getInstance(), new SentryHttpServerOptions());
+  }
+
+  /**
+   * Adds a {@link SentryHttpServerRequestInterceptor} as first request interceptor and a
+   * {@link SentryHttpServerResponseInterceptor} as last response interceptor with the given hub and options.
+   *
+   * @param builder The builder of the protocol processor. Must not be null.
+   * @param hub A Sentry hub, e.g. {@link HubAdapter#getInstance()}. Must not be null.
+   * @param options Options of the interceptors. Must not be null.
+   * @return The given builder
+   */
+  @Nonnull
+  public static HttpProcessorBuilder instrument(
+    @Nonnull HttpProcessorBuilder builder,
+    @Nonnull IHub hub,
+    @Nonnull SentryHttpServerOptions options
+  ) {
+    Args.notNull(builder, "HTTP processor builder");
+    return builder.addFirst(new SentryHttpServerRequestInterceptor(hub, options))
+      .addLast(new SentryHttpServerResponseInterceptor(hub));
+  }
+
+}
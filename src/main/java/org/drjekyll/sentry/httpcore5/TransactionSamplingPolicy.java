@@ -0,0 +1,31 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.apache.hc.core5.http.HttpRequest;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Decides the sample rate of the transaction of an incoming request, which doesn't carry the sampling decision of its
+ * caller, e.g. to drop the transactions of health checks. The decision of a sampled or unsampled caller is always
+ * kept, so traces stay complete.
+ * <p>
+ * Implementations are called for every traced request and must be thread-safe.
+ */
+@FunctionalInterface
+public interface TransactionSamplingPolicy {
+
+  /**
+   * Leaves the decision to the {@link io.sentry.SentryOptions#getTracesSampler()} or the
+   * {@link io.sentry.SentryOptions#getTracesSampleRate()}
+   */
+  TransactionSamplingPolicy SENTRY_OPTIONS = request -> null;
+
+  /**
+   * @param request The incoming request. Never null.
+   * @return The sample rate between 0 and 1 or null to leave the decision to the Sentry options
+   */
+  @Nullable
+  Double getSampleRate(@Nonnull HttpRequest request);
+
+}
@@ -0,0 +1,25 @@
+package org.drjekyll.sentry.http;
+
+import java.util.Objects;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Detects virtual threads. This is the variant for Java 21 and later, which is packaged in the multi-release JAR.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+    // utility
+  }
+
+  /**
+   * @param thread A thread. Must not be null.
+   * @return true, if the thread is a virtual thread
+   */
+  public static boolean isVirtual(@Nonnull Thread thread) {
+    Objects.requireNonNull(thread, "Thread");
+    return thread.isVirtual();
+  }
+
+}
@@ -1,34 +1,62 @@
 package org.drjekyll.sentry.apachehttpclient4;
 
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultServiceUnavailableRetryStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.drjekyll.sentry.http.ConnectionTimings;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.drjekyll.sentry.http.ExchangeTimestamps;
+import org.drjekyll.sentry.http.LatencyRecorder;
+import org.drjekyll.sentry.http.LatencySnapshot;
+import org.drjekyll.sentry.http.LogicalExchange;
+import org.drjekyll.sentry.http.SentryHttpOptions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import io.sentry.HubAdapter;
 import io.sentry.ISpan;
 import io.sentry.Sentry;
+import io.sentry.SentryNanotimeDate;
 import io.sentry.SentryOptions;
 import io.sentry.SentryTraceHeader;
 import io.sentry.SentryTracer;
+import io.sentry.Span;
 import io.sentry.SpanStatus;
 import io.sentry.TransactionOptions;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.serviceUnavailable;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.temporaryRedirect;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @WireMockTest
 class SentryApacheHttpClientIT {
@@ -66,6 +94,9 @@ class SentryApacheHttpClientIT {
     assertThat(span.getOperation()).isEqualTo("http.client");
     assertThat(span.getStatus()).isEqualTo(SpanStatus.OK);
     assertThat(span.getData(RequestHash.SPAN_DATA_KEY)).isEqualTo(1455891989);
+    assertThat(span.getStartDate()).isInstanceOf(SentryNanotimeDate.class);
+    assertThat(span.getFinishDate()).isInstanceOf(SentryNanotimeDate.class);
+    assertThat((Double) span.getData(ExchangeTimestamps.INTERCEPTOR_OVERHEAD_DATA_KEY)).isPositive();
     SentryTraceHeader sentryTraceHeader = span.toSentryTrace();
     verify(getRequestedFor(urlEqualTo("/test")).withHeader("sentry-trace", equalTo(sentryTraceHeader.getValue()))
       .withHeader(
@@ -81,4 +112,281 @@ class SentryApacheHttpClientIT {
 
   }
 
+  @Test
+  void addsAttemptSpansForRedirectsAndRetries(WireMockRuntimeInfo wireMockRuntimeInfo) throws IOException {
+
+    stubFor(get("/moved").willReturn(temporaryRedirect("/flaky")));
+    stubFor(get("/flaky").inScenario("retry").whenScenarioStateIs(Scenario.STARTED)
+      .willReturn(serviceUnavailable()).willSetStateTo("recovered"));
+    stubFor(get("/flaky").inScenario("retry").whenScenarioStateIs("recovered").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    CloseableHttpClient client = SentryRetryTracing.wrap(HttpClientBuilder.create()
+      .setServiceUnavailableRetryStrategy(new DefaultServiceUnavailableRetryStrategy(1, 100))
+      .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build());
+
+    client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/moved")).close();
+    transaction.finish();
+
+    List<Span> spans = transaction.getChildren();
+    assertThat(spans).hasSize(4);
+    Span logicalSpan = spans.get(0);
+    assertThat(logicalSpan.getOperation()).isEqualTo("http.client");
+    assertThat(logicalSpan.getStatus()).isEqualTo(SpanStatus.OK);
+    assertThat(logicalSpan.getData(LogicalExchange.ATTEMPTS_DATA_KEY)).isEqualTo(3);
+    assertThat(logicalSpan.getData(LogicalExchange.REDIRECTS_DATA_KEY)).isEqualTo(1);
+    assertThat(logicalSpan.getData(LogicalExchange.RETRIES_DATA_KEY)).isEqualTo(1);
+    assertThat((Double) logicalSpan.getData(LogicalExchange.BACKOFF_DATA_KEY)).isGreaterThanOrEqualTo(100.0);
+    assertThat(spans.subList(1, 4)).allSatisfy(attempt -> {
+      assertThat(attempt.getOperation()).isEqualTo(LogicalExchange.ATTEMPT_OPERATION);
+      assertThat(attempt.getParentSpanId()).isEqualTo(logicalSpan.getSpanId());
+      assertThat(attempt.isFinished()).isTrue();
+    });
+    assertThat(spans.get(2).getStatus()).isEqualTo(SpanStatus.UNAVAILABLE);
+
+  }
+
+  @Test
+  void recordsLatenciesOfSucceededAndFailedRequests(WireMockRuntimeInfo wireMockRuntimeInfo) throws IOException {
+
+    stubFor(get("/latency").willReturn(ok()));
+    stubFor(get("/latency/reset").willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    Sentry.init(options);
+    Map<String, LatencySnapshot> snapshots = new ConcurrentHashMap<>();
+    SentryHttpOptions httpOptions = new SentryHttpOptions();
+    try (LatencyRecorder latencyRecorder = new LatencyRecorder(snapshots::put, Duration.ofHours(1L))) {
+      httpOptions.setLatencyRecorder(latencyRecorder);
+      CloseableHttpClient client = SentryFailedRequests.wrap(HttpClientBuilder.create()
+        .disableAutomaticRetries()
+        .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance(), httpOptions))
+        .addInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance(), httpOptions))
+        .build());
+
+      client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/latency")).close();
+      assertThatThrownBy(() -> client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/latency/reset"))).isInstanceOf(IOException.class);
+      latencyRecorder.export();
+    }
+
+    LatencySnapshot snapshot = snapshots.get("localhost");
+    assertThat(snapshot.getCount()).isEqualTo(2L);
+    assertThat(snapshot.getFailedCount()).isOne();
+    assertThat(snapshot.getMaxNanos()).isPositive();
+
+  }
+
+  @Test
+  void finishesSpanOfFailedRequest(WireMockRuntimeInfo wireMockRuntimeInfo) throws IOException {
+
+    stubFor(get("/reset").willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    CloseableHttpClient client = SentryFailedRequests.wrap(HttpClientBuilder.create()
+      .disableAutomaticRetries()
+      .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build());
+
+    assertThatThrownBy(() -> client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/reset"))).isInstanceOf(IOException.class);
+
+    assertThat(Sentry.getSpan()).isSameAs(transaction);
+    transaction.finish();
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.INTERNAL_ERROR);
+    assertThat(span.getThrowable()).isInstanceOf(IOException.class);
+
+  }
+
+  @Test
+  void addsSpanWithExecChainElement(WireMockRuntimeInfo wireMockRuntimeInfo) throws IOException {
+
+    stubFor(get("/handled").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    CloseableHttpClient client = SentryHttpClients.custom().build();
+
+    client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/handled")).close();
+    transaction.finish();
+
+    assertThat(transaction.getChildren()).hasSize(1);
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getDescription()).isEqualTo(String.format("GET %s/handled", wireMockRuntimeInfo.getHttpBaseUrl()));
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.OK);
+    verify(getRequestedFor(urlEqualTo("/handled")).withHeader("sentry-trace", equalTo(span.toSentryTrace().getValue())));
+
+  }
+
+  @Test
+  void finishesSpanOfFailedRequestWithExecChainElement(WireMockRuntimeInfo wireMockRuntimeInfo) {
+
+    stubFor(get("/reset").willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    CloseableHttpClient client = SentryHttpClients.custom().disableAutomaticRetries().build();
+
+    assertThatThrownBy(() -> client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/reset")))
+      .isInstanceOf(IOException.class);
+
+    assertThat(Sentry.getSpan()).isSameAs(transaction);
+    transaction.finish();
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.INTERNAL_ERROR);
+
+  }
+
+  @Test
+  void addsConnectionTimings(WireMockRuntimeInfo wireMockRuntimeInfo) throws IOException {
+
+    stubFor(get("/timed").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    try (CloseableHttpClient client = SentryConnectionTimings.instrument(HttpClientBuilder.create())
+      .setConnectionManager(SentryConnectionTimings.wrap(new PoolingHttpClientConnectionManager()))
+      .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build()) {
+      client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/timed")).close();
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getData(ConnectionTimings.POOL_LEASE_DATA_KEY)).isInstanceOf(Double.class);
+    assertThat(span.getData(ConnectionTimings.CONNECT_DATA_KEY)).isInstanceOf(Double.class);
+    assertThat(span.getData(ConnectionTimings.TIME_TO_FIRST_BYTE_DATA_KEY)).isInstanceOf(Double.class);
+    assertThat(span.getData(ConnectionTimings.TLS_HANDSHAKE_DATA_KEY)).isNull();
+
+  }
+
+  @Test
+  void addsContentLengths(WireMockRuntimeInfo wireMockRuntimeInfo) throws IOException {
+
+    stubFor(post("/upload").willReturn(ok("hello")));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    try (CloseableHttpClient client = HttpClientBuilder.create()
+      .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build()) {
+      HttpPost request = new HttpPost(wireMockRuntimeInfo.getHttpBaseUrl() + "/upload");
+      request.setEntity(new InputStreamEntity(new ByteArrayInputStream(new byte[42]), -1L));
+      try (CloseableHttpResponse response = client.execute(request)) {
+        assertThat(EntityUtils.toString(response.getEntity())).isEqualTo("hello");
+      }
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.getData(ContentLengths.REQUEST_DATA_KEY)).isEqualTo(42L);
+    assertThat(span.getData(ContentLengths.RESPONSE_DATA_KEY)).isEqualTo(5L);
+
+  }
+
+  @Test
+  void omitsSizeOfChunkedResponseClosedEarly(WireMockRuntimeInfo wireMockRuntimeInfo) throws IOException {
+
+    stubFor(get("/download").willReturn(aResponse().withBody(new byte[10_000]).withChunkedDribbleDelay(5, 50)));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    try (CloseableHttpClient client = HttpClientBuilder.create()
+      .disableContentCompression()
+      .addInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build()) {
+      HttpGet request = new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/download");
+      try (CloseableHttpResponse response = client.execute(request)) {
+        assertThat(response.getEntity().isChunked()).isTrue();
+        try (InputStream content = response.getEntity().getContent()) {
+          assertThat(content.read()).isZero();
+        }
+      }
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getData(ContentLengths.RESPONSE_DATA_KEY)).isNull();
+
+  }
+
 }
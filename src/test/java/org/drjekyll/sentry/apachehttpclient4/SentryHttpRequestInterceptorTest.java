@@ -1,16 +1,23 @@
 package org.drjekyll.sentry.apachehttpclient4;
 
+import org.apache.http.Header;
 import org.apache.http.ProtocolVersion;
 import org.apache.http.RequestLine;
 import org.apache.http.client.methods.HttpRequestWrapper;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.message.BasicRequestLine;
+import org.apache.http.protocol.HttpContext;
+import org.drjekyll.sentry.http.DefaultUrlNormalizer;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.SpanReaper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.net.URI;
@@ -19,14 +26,24 @@ import io.sentry.BaggageHeader;
 import io.sentry.Breadcrumb;
 import io.sentry.IHub;
 import io.sentry.ISpan;
+import io.sentry.Instrumenter;
+import io.sentry.SentryDate;
 import io.sentry.SentryOptions;
 import io.sentry.SentryTraceHeader;
+import io.sentry.SpanContext;
 import io.sentry.SpanId;
+import io.sentry.SpanStatus;
 import io.sentry.protocol.SentryId;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,16 +57,29 @@ class SentryHttpRequestInterceptorTest {
 
   private static final RequestLine REQUEST_LINE = new BasicRequestLine(METHOD, URL, new ProtocolVersion("HTTP", 1, 1));
 
+  private static final String THIRD_PARTY_BAGGAGE = "vendor=value";
+
   private static final BaggageHeader BAGGAGE_HEADER = new BaggageHeader(BAGGAGE);
 
   private static final SentryTraceHeader SENTRY_TRACE_HEADER = new SentryTraceHeader(new SentryId(), new SpanId(), null);
 
+  private static final SpanContext SPAN_CONTEXT = new SpanContext(
+    SENTRY_TRACE_HEADER.getTraceId(),
+    SENTRY_TRACE_HEADER.getSpanId(),
+    "http.client",
+    null,
+    null
+  );
+
   @InjectMocks
   private SentryHttpRequestInterceptor sentryHttpRequestInterceptor;
 
   @Mock
   private IHub hub;
 
+  @Spy
+  private SentryHttpOptions httpOptions = new SentryHttpOptions();
+
   @Mock
   private ISpan activeSpan;
 
@@ -64,6 +94,9 @@ class SentryHttpRequestInterceptorTest {
   @Mock
   private SentryOptions options;
 
+  @Mock
+  private HttpContext context;
+
   @Captor
   private ArgumentCaptor<Breadcrumb> breadcrumpCaptor;
 
@@ -71,6 +104,7 @@ class SentryHttpRequestInterceptorTest {
   void justAddsBreadcrumbIfNoSpanIsGiven() {
 
     givenRequest();
+    givenEnabledHub();
 
     sentryHttpRequestInterceptor.process(requestWrapper, null);
 
@@ -88,21 +122,121 @@ class SentryHttpRequestInterceptorTest {
   void createsChildSpanAndAddsHeaders() {
 
     givenRequest();
-    given(hub.getSpan()).willReturn(activeSpan);
-    given(hub.getOptions()).willReturn(options);
+    givenEnabledHub();
+    givenActiveSpan();
     given(options.getTracePropagationTargets()).willReturn(singletonList(URL));
-    given(activeSpan.startChild("http.client")).willReturn(childSpan);
-    given(childSpan.toSentryTrace()).willReturn(SENTRY_TRACE_HEADER);
-    requestWrapper.setHeader(BaggageHeader.BAGGAGE_HEADER, BAGGAGE);
-    given(childSpan.toBaggageHeader(singletonList(BAGGAGE))).willReturn(BAGGAGE_HEADER);
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+    given(childSpan.getSpanContext()).willReturn(SPAN_CONTEXT);
+    requestWrapper.addHeader(BaggageHeader.BAGGAGE_HEADER, THIRD_PARTY_BAGGAGE);
+    requestWrapper.addHeader(BaggageHeader.BAGGAGE_HEADER, "sentry-trace_id=2a1ec2d6c9b14e4e9d5b1ee2b4b1f0a1");
+    given(childSpan.toBaggageHeader(emptyList())).willReturn(BAGGAGE_HEADER);
 
     sentryHttpRequestInterceptor.process(requestWrapper, null);
 
     verify(childSpan).setData(RequestHash.SPAN_DATA_KEY, 1039494016);
-    verify(childSpan).setDescription("GET https://www.daniel-heid.de/page?query=string");
+    verify(activeSpan).startChild(eq("http.client"), eq("GET https://www.daniel-heid.de/page?query=string"), any(SentryDate.class), eq(Instrumenter.SENTRY));
     assertThat(requestWrapper.getFirstHeader(SentryTraceHeader.SENTRY_TRACE_HEADER).getValue()).isEqualTo(SENTRY_TRACE_HEADER.getValue());
-    assertThat(requestWrapper.getFirstHeader(BaggageHeader.BAGGAGE_HEADER).getValue()).isEqualTo(BAGGAGE);
+    assertThat(requestWrapper.getHeaders(SentryTraceHeader.SENTRY_TRACE_HEADER)).hasSize(1);
+    assertThat(requestWrapper.getHeaders(BaggageHeader.BAGGAGE_HEADER))
+      .extracting(Header::getValue)
+      .containsExactly(THIRD_PARTY_BAGGAGE + ',' + BAGGAGE);
+
+  }
+
+  @Test
+  void storesChildSpanInContext() {
+
+    givenRequest();
+    givenEnabledHub();
+    givenActiveSpan();
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+
+    sentryHttpRequestInterceptor.process(requestWrapper, context);
+
+    verify(context).setAttribute(ContextAttributes.SPAN, childSpan);
+    verify(context).setAttribute(eq(ContextAttributes.REQUEST_DESCRIPTOR), any(RequestDescriptor.class));
+
+  }
+
+  @Test
+  void finishesSpanOfAbandonedAttempt() {
+
+    givenRequest();
+    givenEnabledHub();
+    givenActiveSpan();
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+    ISpan abandonedSpan = mock(ISpan.class);
+    given(context.getAttribute(ContextAttributes.FORKED_CONTEXT)).willReturn(null);
+    given(context.getAttribute(ContextAttributes.LOGICAL_EXCHANGE)).willReturn(null);
+    given(context.getAttribute(ContextAttributes.SPAN)).willReturn(abandonedSpan);
+
+    sentryHttpRequestInterceptor.process(requestWrapper, context);
+
+    verify(abandonedSpan).finish(eq(SpanStatus.UNKNOWN_ERROR), any(SentryDate.class));
+    verify(context).setAttribute(ContextAttributes.SPAN, childSpan);
+
+  }
+
+  @Test
+  void registersChildSpanWithSpanReaper() {
+
+    givenRequest();
+    givenEnabledHub();
+    givenActiveSpan();
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+    SpanReaper spanReaper = mock(SpanReaper.class);
+    httpOptions.setSpanReaper(spanReaper);
 
+    sentryHttpRequestInterceptor.process(requestWrapper, null);
+
+    verify(spanReaper).register(childSpan);
+
+  }
+
+  @Test
+  void normalizesUrlInDescription() {
+
+    givenRequest();
+    givenEnabledHub();
+    httpOptions.setUrlNormalizer(new DefaultUrlNormalizer());
+    givenActiveSpan();
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+
+    sentryHttpRequestInterceptor.process(requestWrapper, null);
+
+    verify(activeSpan).startChild(eq("http.client"), eq("GET https://www.daniel-heid.de/page"), any(SentryDate.class), eq(Instrumenter.SENTRY));
+
+  }
+
+  @Test
+  void propagatesTraceOfActiveSpanIfSpanIsNotSampled() {
+
+    givenRequest();
+    givenEnabledHub();
+    httpOptions.setSpanSamplingPolicy((request, parentSpan, transaction) -> false);
+    givenActiveSpan();
+    given(options.getTracePropagationTargets()).willReturn(singletonList(URL));
+    given(activeSpan.getSpanContext()).willReturn(SPAN_CONTEXT);
+
+    sentryHttpRequestInterceptor.process(requestWrapper, context);
+
+    verify(activeSpan, never()).startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY));
+    verify(hub).addBreadcrumb(any(Breadcrumb.class));
+    verify(context, never()).setAttribute(anyString(), any());
+    assertThat(requestWrapper.getFirstHeader(SentryTraceHeader.SENTRY_TRACE_HEADER).getValue()).isEqualTo(SENTRY_TRACE_HEADER.getValue());
+
+  }
+
+  private void givenEnabledHub() {
+    given(hub.isEnabled()).willReturn(true);
+    given(hub.getOptions()).willReturn(options);
+    given(options.isTracingEnabled()).willReturn(true);
+    given(options.getMaxBreadcrumbs()).willReturn(100);
+  }
+
+  private void givenActiveSpan() {
+    given(hub.getSpan()).willReturn(activeSpan);
+    given(activeSpan.getSpanContext()).willReturn(new SpanContext("test"));
   }
 
   private void givenRequest() {
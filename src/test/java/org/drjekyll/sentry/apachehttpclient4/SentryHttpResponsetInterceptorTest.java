@@ -8,12 +8,15 @@ import org.apache.http.client.methods.HttpRequestWrapper;
 import org.apache.http.message.BasicRequestLine;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpCoreContext;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.net.URI;
@@ -21,10 +24,14 @@ import java.net.URI;
 import io.sentry.Breadcrumb;
 import io.sentry.IHub;
 import io.sentry.ISpan;
+import io.sentry.SentryDate;
+import io.sentry.SentryOptions;
 import io.sentry.SpanStatus;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 
@@ -45,6 +52,12 @@ class SentryHttpResponsetInterceptorTest {
   @Mock
   private IHub hub;
 
+  @Spy
+  private SentryHttpOptions httpOptions = new SentryHttpOptions();
+
+  @Mock
+  private SentryOptions options;
+
   @Mock
   private ISpan span;
 
@@ -70,18 +83,46 @@ class SentryHttpResponsetInterceptorTest {
 
     sentryHttpResponseInterceptor.process(response, context);
 
-    verifyNoInteractions(span, response, context, statusLine);
+    verifyNoInteractions(span, response, statusLine);
+
+  }
+
+  @Test
+  void finishesSpanStoredInContext() {
+
+    given(hub.isEnabled()).willReturn(true);
+    given(context.getAttribute(ContextAttributes.FORKED_CONTEXT)).willReturn(null);
+    given(context.getAttribute(ContextAttributes.REQUEST_DESCRIPTOR)).willReturn(new RequestDescriptor(METHOD, URL));
+    given(context.getAttribute(ContextAttributes.SPAN)).willReturn(span);
+    given(response.getStatusLine()).willReturn(statusLine);
+    given(statusLine.getStatusCode()).willReturn(STATUS_CODE);
+
+    sentryHttpResponseInterceptor.process(response, context);
+
+    verify(context).removeAttribute(ContextAttributes.SPAN);
+    verify(context).removeAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+    verify(span).setStatus(SpanStatus.OK);
+    verify(span).finish(any(), any(SentryDate.class));
+    verify(hub, never()).getSpan();
+    verify(hub).addBreadcrumb(breadcrumpCaptor.capture());
+    assertThat(breadcrumpCaptor.getValue().getData("url")).isEqualTo("https://www.daniel-heid.de/page");
+    assertThat(breadcrumpCaptor.getValue().getData("status_code")).isEqualTo(STATUS_CODE);
 
   }
 
   @Test
   void finishesSpan() {
 
+    given(hub.isEnabled()).willReturn(true);
+    given(hub.getOptions()).willReturn(options);
+    given(options.isTracingEnabled()).willReturn(true);
     given(originalRequest.getMethod()).willReturn(METHOD);
     given(originalRequest.getURI()).willReturn(URI.create(URL));
     given(originalRequest.getRequestLine()).willReturn(REQUEST_LINE);
     requestWrapper = HttpRequestWrapper.wrap(originalRequest);
+    given(context.getAttribute(ContextAttributes.FORKED_CONTEXT)).willReturn(null);
     given(context.getAttribute(HttpCoreContext.HTTP_REQUEST)).willReturn(requestWrapper);
+    given(context.getAttribute(ContextAttributes.SPAN)).willReturn(null);
     given(hub.getSpan()).willReturn(span);
     given(span.getOperation()).willReturn("http.client");
     given(span.getData(RequestHash.SPAN_DATA_KEY)).willReturn(1039494016);
@@ -91,7 +132,7 @@ class SentryHttpResponsetInterceptorTest {
     sentryHttpResponseInterceptor.process(response, context);
 
     verify(span).setStatus(SpanStatus.OK);
-    verify(span).finish();
+    verify(span).finish(any(), any(SentryDate.class));
     verify(hub).addBreadcrumb(breadcrumpCaptor.capture());
     Breadcrumb breadcrumb = breadcrumpCaptor.getValue();
     assertThat(breadcrumb.getType()).isEqualTo("http");
@@ -0,0 +1,69 @@
+package org.drjekyll.sentry.apachehttpclient4;
+
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.drjekyll.sentry.http.ConnectionTimings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocket;
+
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TimingLayeredConnectionSocketFactoryTest {
+
+  @Mock
+  private LayeredConnectionSocketFactory delegate;
+
+  @Mock
+  private Socket socket;
+
+  @Mock
+  private SSLSocket sslSocket;
+
+  @Mock
+  private ISpan span;
+
+  private final HttpContext context = new BasicHttpContext();
+
+  @Test
+  void recordsTlsHandshakeOfExchangeWithSpan() throws Exception {
+
+    context.setAttribute(ContextAttributes.SPAN, span);
+    given(delegate.createLayeredSocket(socket, "www.daniel-heid.de", 443, context)).willReturn(sslSocket);
+
+    Socket layered = new TimingLayeredConnectionSocketFactory(delegate)
+      .createLayeredSocket(socket, "www.daniel-heid.de", 443, context);
+
+    assertThat(layered).isSameAs(sslSocket);
+    ((ConnectionTimings) context.getAttribute(ContextAttributes.CONNECTION_TIMINGS)).applyTo(span);
+    verify(span).setData(eq(ConnectionTimings.TLS_HANDSHAKE_DATA_KEY), anyDouble());
+
+  }
+
+  @Test
+  void recordsNothingWithoutSpan() throws Exception {
+
+    given(delegate.createLayeredSocket(socket, "www.daniel-heid.de", 443, context)).willReturn(sslSocket);
+
+    Socket layered = new TimingLayeredConnectionSocketFactory(delegate)
+      .createLayeredSocket(socket, "www.daniel-heid.de", 443, context);
+
+    assertThat(layered).isSameAs(sslSocket);
+    assertThat(context.getAttribute(ContextAttributes.CONNECTION_TIMINGS)).isNull();
+
+  }
+
+}
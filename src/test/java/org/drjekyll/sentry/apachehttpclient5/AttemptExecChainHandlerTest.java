@@ -0,0 +1,112 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecRuntime;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.RequestFailedException;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.NoHttpResponseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.SocketTimeoutException;
+
+import io.sentry.ISpan;
+import io.sentry.SentryDate;
+import io.sentry.SpanStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class AttemptExecChainHandlerTest {
+
+  @Mock
+  private ISpan span;
+
+  @Mock
+  private ExecChain chain;
+
+  @Mock
+  private ExecRuntime execRuntime;
+
+  private final HttpGet request = new HttpGet("https://www.daniel-heid.de/");
+
+  private final HttpClientContext context = HttpClientContext.create();
+
+  private final AttemptExecChainHandler attemptExecChainHandler = new AttemptExecChainHandler();
+
+  @Test
+  void finishesSpanOfFailedAttempt() throws Exception {
+
+    NoHttpResponseException cause = new NoHttpResponseException("failed to respond");
+    ExecChain.Scope scope = createScope();
+    context.setAttribute(ContextAttributes.SPAN, span);
+    given(chain.proceed(request, scope)).willThrow(cause);
+
+    assertThatThrownBy(() -> attemptExecChainHandler.execute(request, scope, chain)).isSameAs(cause);
+
+    verify(span).setThrowable(cause);
+    verify(span).finish(eq(SpanStatus.INTERNAL_ERROR), any(SentryDate.class));
+    assertThat(context.getAttribute(ContextAttributes.SPAN)).isNull();
+
+  }
+
+  @Test
+  void finishesSpanOfAbortedAttemptAsCancelled() throws Exception {
+
+    RequestFailedException cause = new RequestFailedException("Request aborted");
+    ExecChain.Scope scope = createScope();
+    context.setAttribute(ContextAttributes.SPAN, span);
+    given(chain.proceed(request, scope)).willThrow(cause);
+    given(execRuntime.isExecutionAborted()).willReturn(true);
+
+    assertThatThrownBy(() -> attemptExecChainHandler.execute(request, scope, chain)).isSameAs(cause);
+
+    verify(span).setThrowable(cause);
+    verify(span).finish(eq(SpanStatus.CANCELLED), any(SentryDate.class));
+
+  }
+
+  @Test
+  void finishesSpanOfTimedOutAttempt() throws Exception {
+
+    SocketTimeoutException cause = new SocketTimeoutException("Read timed out");
+    ExecChain.Scope scope = createScope();
+    context.setAttribute(ContextAttributes.SPAN, span);
+    given(chain.proceed(request, scope)).willThrow(cause);
+
+    assertThatThrownBy(() -> attemptExecChainHandler.execute(request, scope, chain)).isSameAs(cause);
+
+    verify(span).finish(eq(SpanStatus.DEADLINE_EXCEEDED), any(SentryDate.class));
+
+  }
+
+  @Test
+  void keepsSpanOfSuccessfulAttempt() throws Exception {
+
+    ExecChain.Scope scope = createScope();
+    context.setAttribute(ContextAttributes.SPAN, span);
+
+    attemptExecChainHandler.execute(request, scope, chain);
+
+    verify(chain).proceed(request, scope);
+    verifyNoInteractions(span);
+    assertThat(context.getAttribute(ContextAttributes.SPAN)).isSameAs(span);
+
+  }
+
+  private ExecChain.Scope createScope() {
+    return new ExecChain.Scope("ex-1", new HttpRoute(new HttpHost("https", "www.daniel-heid.de", 443)), request, execRuntime, context);
+  }
+
+}
@@ -0,0 +1,86 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecRuntime;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.drjekyll.sentry.http.ConnectionTimings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionTimingExecChainHandlerTest {
+
+  @Mock
+  private IHub hub;
+
+  @Mock
+  private ISpan span;
+
+  @Mock
+  private ExecChain chain;
+
+  @Mock
+  private ExecRuntime execRuntime;
+
+  private final HttpGet request = new HttpGet("https://www.daniel-heid.de/");
+
+  private final HttpClientContext context = HttpClientContext.create();
+
+  @Test
+  void startsTimingsIfSpanIsActive() throws Exception {
+
+    given(hub.getSpan()).willReturn(span);
+    ExecChain.Scope scope = createScope();
+
+    new ConnectionTimingExecChainHandler(hub, ConnectionTimingExecChainHandler.Phase.ACQUISITION)
+      .execute(request, scope, chain);
+
+    assertThat(context.getAttribute(ContextAttributes.CONNECTION_TIMINGS)).isInstanceOf(ConnectionTimings.class);
+    verify(chain).proceed(request, scope);
+
+  }
+
+  @Test
+  void removesTimingsIfNoSpanIsActive() throws Exception {
+
+    context.setAttribute(ContextAttributes.CONNECTION_TIMINGS, new ConnectionTimings());
+    ExecChain.Scope scope = createScope();
+
+    new ConnectionTimingExecChainHandler(hub, ConnectionTimingExecChainHandler.Phase.ACQUISITION)
+      .execute(request, scope, chain);
+
+    assertThat(context.getAttribute(ContextAttributes.CONNECTION_TIMINGS)).isNull();
+    verify(chain).proceed(request, scope);
+
+  }
+
+  @Test
+  void justProceedsWithoutTimings() throws Exception {
+
+    ExecChain.Scope scope = createScope();
+
+    new ConnectionTimingExecChainHandler(hub, ConnectionTimingExecChainHandler.Phase.REQUEST)
+      .execute(request, scope, chain);
+
+    assertThat(context.getAttribute(ContextAttributes.CONNECTION_TIMINGS)).isNull();
+    verify(chain).proceed(request, scope);
+
+  }
+
+  private ExecChain.Scope createScope() {
+    return new ExecChain.Scope("ex-1", new HttpRoute(new HttpHost("https", "www.daniel-heid.de", 443)), request, execRuntime, context);
+  }
+
+}
@@ -0,0 +1,49 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+
+import io.sentry.ISpan;
+
+import static org.mockito.Mockito.inOrder;
+
+
+@ExtendWith(MockitoExtension.class)
+class CountingAsyncDataConsumerTest {
+
+  @InjectMocks
+  private CountingAsyncDataConsumer countingAsyncDataConsumer;
+
+  @Mock
+  private AsyncDataConsumer delegate;
+
+  @Mock
+  private ISpan span;
+
+  @Test
+  void addsCountAtStreamEnd() throws Exception {
+
+    ByteBuffer first = ByteBuffer.allocate(16);
+    ByteBuffer second = ByteBuffer.allocate(4);
+
+    countingAsyncDataConsumer.consume(first);
+    countingAsyncDataConsumer.consume(second);
+    countingAsyncDataConsumer.streamEnd(null);
+
+    InOrder inOrder = inOrder(delegate, span);
+    inOrder.verify(delegate).consume(first);
+    inOrder.verify(delegate).consume(second);
+    inOrder.verify(span).setData(ContentLengths.RESPONSE_DATA_KEY, 20L);
+    inOrder.verify(delegate).streamEnd(null);
+
+  }
+
+}
@@ -1,32 +1,83 @@
 package org.drjekyll.sentry.apachehttpclient5;
 
+import com.github.tomakehurst.wiremock.http.Fault;
 import com.github.tomakehurst.wiremock.junit5.WireMockRuntimeInfo;
 import com.github.tomakehurst.wiremock.junit5.WireMockTest;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
 
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.InputStreamEntity;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.util.TimeValue;
+import org.drjekyll.sentry.http.BackgroundSpanFinisher;
+import org.drjekyll.sentry.http.ConnectionTimings;
+import org.drjekyll.sentry.http.ContentLengths;
+import org.drjekyll.sentry.http.DefaultUrlNormalizer;
+import org.drjekyll.sentry.http.ExchangeTimestamps;
+import org.drjekyll.sentry.http.LatencyRecorder;
+import org.drjekyll.sentry.http.LatencySnapshot;
+import org.drjekyll.sentry.http.LogicalExchange;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.SpanAggregator;
+import org.drjekyll.sentry.http.TraceHeaderEncoder;
+import org.drjekyll.sentry.http.TracePropagationFormat;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.Breadcrumb;
 import io.sentry.HubAdapter;
+import io.sentry.IScope;
 import io.sentry.ISpan;
 import io.sentry.Sentry;
+import io.sentry.SentryNanotimeDate;
 import io.sentry.SentryOptions;
 import io.sentry.SentryTraceHeader;
 import io.sentry.SentryTracer;
+import io.sentry.Span;
 import io.sentry.SpanStatus;
 import io.sentry.TransactionOptions;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.serviceUnavailable;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.temporaryRedirect;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
 import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @WireMockTest
 class SentryApacheHttpClientIT {
@@ -64,6 +115,9 @@ class SentryApacheHttpClientIT {
     assertThat(span.getOperation()).isEqualTo("http.client");
     assertThat(span.getStatus()).isEqualTo(SpanStatus.OK);
     assertThat(span.getData(RequestHash.SPAN_DATA_KEY)).isEqualTo(RequestHash.create(request));
+    assertThat(span.getStartDate()).isInstanceOf(SentryNanotimeDate.class);
+    assertThat(span.getFinishDate()).isInstanceOf(SentryNanotimeDate.class);
+    assertThat((Double) span.getData(ExchangeTimestamps.INTERCEPTOR_OVERHEAD_DATA_KEY)).isPositive();
     SentryTraceHeader sentryTraceHeader = span.toSentryTrace();
     verify(getRequestedFor(urlEqualTo("/test")).withHeader("sentry-trace", equalTo(sentryTraceHeader.getValue()))
       .withHeader(
@@ -79,4 +133,536 @@ class SentryApacheHttpClientIT {
 
   }
 
+  @Test
+  void aggregatesIdenticalRequests(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get(urlPathMatching("/items/\\d+")).willReturn(ok()));
+
+    SpanAggregator spanAggregator = new SpanAggregator();
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    options.addEventProcessor(spanAggregator);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    SentryHttpOptions httpOptions = new SentryHttpOptions();
+    httpOptions.setUrlNormalizer(new DefaultUrlNormalizer());
+    httpOptions.setSpanAggregator(spanAggregator);
+    CloseableHttpClient client = HttpClientBuilder.create()
+      .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance(), httpOptions))
+      .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build();
+
+    for (int i = 1; i <= 3; i++) {
+      client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/items/" + i)).close();
+    }
+    transaction.finish();
+    Sentry.flush(1000L);
+
+    assertThat(transaction.getChildren()).isEmpty();
+    verify(postRequestedFor(urlEqualTo("/api/42/envelope/"))
+      .withRequestBody(containing(String.format("GET %s/items/{id}", wireMockRuntimeInfo.getHttpBaseUrl())))
+      .withRequestBody(containing("\"" + SpanAggregator.COUNT_DATA_KEY + "\":3"))
+    );
+
+  }
+
+  @Test
+  void addsSpanForAsyncClient(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/async").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    try (CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+      .addExecInterceptorFirst(SentryAsyncExecChainHandler.NAME, new SentryAsyncExecChainHandler(HubAdapter.getInstance()))
+      .build()) {
+      client.start();
+      client.execute(SimpleRequestBuilder.get(wireMockRuntimeInfo.getHttpBaseUrl() + "/async").build(), null).get();
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getDescription()).isEqualTo(String.format("GET %s/async", wireMockRuntimeInfo.getHttpBaseUrl()));
+    assertThat(span.getOperation()).isEqualTo("http.client");
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.OK);
+    verify(getRequestedFor(urlEqualTo("/async")).withHeader("sentry-trace", equalTo(span.toSentryTrace().getValue())));
+
+  }
+
+  @Test
+  void addsSpanWithExecChainHandler(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/handled").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    CloseableHttpClient client = SentryHttpClients.instrument(HttpClientBuilder.create()).build();
+
+    client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/handled"), response -> null);
+    transaction.finish();
+
+    assertThat(transaction.getChildren()).hasSize(1);
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getDescription()).isEqualTo(String.format("GET %s/handled", wireMockRuntimeInfo.getHttpBaseUrl()));
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.OK);
+    verify(getRequestedFor(urlEqualTo("/handled")).withHeader("sentry-trace", equalTo(span.toSentryTrace().getValue())));
+
+  }
+
+  @Test
+  void propagatesTraceInW3cTraceContext(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/w3c").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    SentryHttpOptions httpOptions = new SentryHttpOptions();
+    httpOptions.setTracePropagationFormat(TracePropagationFormat.W3C);
+    CloseableHttpClient client = SentryHttpClients.instrument(
+      HttpClientBuilder.create(),
+      HubAdapter.getInstance(),
+      httpOptions
+    ).build();
+
+    HttpGet request = new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/w3c");
+    request.addHeader(TraceHeaderEncoder.TRACESTATE_HEADER, "vendor=value");
+    client.execute(request, response -> null);
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    SentryTraceHeader sentryTraceHeader = span.toSentryTrace();
+    verify(getRequestedFor(urlEqualTo("/w3c"))
+      .withHeader(
+        TraceHeaderEncoder.TRACEPARENT_HEADER,
+        equalTo("00-" + sentryTraceHeader.getTraceId() + '-' + sentryTraceHeader.getSpanId() + "-01")
+      )
+      .withHeader(TraceHeaderEncoder.TRACESTATE_HEADER, equalTo("vendor=value"))
+      .withHeader("baggage", containing("sentry-trace_id=" + sentryTraceHeader.getTraceId()))
+      .withoutHeader("sentry-trace"));
+
+  }
+
+  @Test
+  void finishesSpansInBackground(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/background").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    transactionOptions.setWaitForChildren(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    SentryHttpOptions httpOptions = new SentryHttpOptions();
+    try (BackgroundSpanFinisher spanFinisher = new BackgroundSpanFinisher()) {
+      httpOptions.setSpanFinisher(spanFinisher);
+      CloseableHttpClient client = HttpClientBuilder.create()
+        .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance(), httpOptions))
+        .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance(), httpOptions))
+        .build();
+
+      client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/background"), response -> null);
+      transaction.finish();
+
+      assertThat(spanFinisher.flush(Duration.ofSeconds(1L))).isTrue();
+      assertThat(spanFinisher.getDroppedCount()).isZero();
+    }
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.OK);
+    assertThat(transaction.isFinished()).isTrue();
+    List<Breadcrumb> breadcrumbs = new ArrayList<>();
+    Sentry.configureScope(scope -> breadcrumbs.addAll(scope.getBreadcrumbs()));
+    assertThat(breadcrumbs).singleElement().satisfies(breadcrumb -> {
+      assertThat(breadcrumb.getType()).isEqualTo("http");
+      assertThat(breadcrumb.getData("status_code")).isEqualTo(200);
+    });
+
+  }
+
+  @Test
+  void finishesSpanOfFailedRequestWithExecChainHandler(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/reset").willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    CloseableHttpClient client = SentryHttpClients.instrument(HttpClientBuilder.create().disableAutomaticRetries()).build();
+
+    assertThatThrownBy(() -> client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/reset"), response -> null))
+      .isInstanceOf(IOException.class);
+
+    assertThat(Sentry.getSpan()).isSameAs(transaction);
+    transaction.finish();
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.INTERNAL_ERROR);
+
+  }
+
+  @Test
+  void addsSpanForAsyncClientWithSentryHttpClients(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/async").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    try (CloseableHttpAsyncClient client = SentryHttpClients.instrument(HttpAsyncClients.custom()).build()) {
+      client.start();
+      client.execute(SimpleRequestBuilder.get(wireMockRuntimeInfo.getHttpBaseUrl() + "/async").build(), null).get();
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.OK);
+
+  }
+
+  @Test
+  void addsSpanToParentSpanBoundToContext(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/forked").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    CloseableHttpClient client = HttpClientBuilder.create()
+      .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build();
+
+    HttpClientContext context = SentryHttpContexts.fork(HubAdapter.getInstance());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.submit(() -> {
+        // the executing thread has a scope of its own, which doesn't know the transaction
+        Sentry.configureScope(IScope::clearTransaction);
+        return client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/forked"), context, response -> null);
+      }).get();
+    } finally {
+      executor.shutdown();
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getDescription()).isEqualTo(String.format("GET %s/forked", wireMockRuntimeInfo.getHttpBaseUrl()));
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.OK);
+    verify(getRequestedFor(urlEqualTo("/forked")).withHeader("sentry-trace", equalTo(span.toSentryTrace().getValue())));
+
+  }
+
+  @Test
+  void addsAttemptSpansForRedirectsAndRetries(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/moved").willReturn(temporaryRedirect("/flaky")));
+    stubFor(get("/flaky").inScenario("retry").whenScenarioStateIs(Scenario.STARTED)
+      .willReturn(serviceUnavailable()).willSetStateTo("recovered"));
+    stubFor(get("/flaky").inScenario("retry").whenScenarioStateIs("recovered").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    CloseableHttpClient client = SentryRetryTracing.instrument(HttpClientBuilder.create())
+      .setRetryStrategy(new DefaultHttpRequestRetryStrategy(1, TimeValue.ofMilliseconds(100L)))
+      .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build();
+
+    client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/moved"), response -> null);
+    transaction.finish();
+
+    List<Span> spans = transaction.getChildren();
+    assertThat(spans).hasSize(4);
+    Span logicalSpan = spans.get(0);
+    assertThat(logicalSpan.getOperation()).isEqualTo("http.client");
+    assertThat(logicalSpan.getDescription()).isEqualTo(String.format("GET %s/moved", wireMockRuntimeInfo.getHttpBaseUrl()));
+    assertThat(logicalSpan.getStatus()).isEqualTo(SpanStatus.OK);
+    assertThat(logicalSpan.getData(LogicalExchange.ATTEMPTS_DATA_KEY)).isEqualTo(3);
+    assertThat(logicalSpan.getData(LogicalExchange.REDIRECTS_DATA_KEY)).isEqualTo(1);
+    assertThat(logicalSpan.getData(LogicalExchange.RETRIES_DATA_KEY)).isEqualTo(1);
+    assertThat((Double) logicalSpan.getData(LogicalExchange.BACKOFF_DATA_KEY)).isGreaterThanOrEqualTo(100.0);
+    assertThat(spans.subList(1, 4)).allSatisfy(attempt -> {
+      assertThat(attempt.getOperation()).isEqualTo(LogicalExchange.ATTEMPT_OPERATION);
+      assertThat(attempt.getParentSpanId()).isEqualTo(logicalSpan.getSpanId());
+      assertThat(attempt.isFinished()).isTrue();
+    });
+    assertThat(spans.get(2).getStatus()).isEqualTo(SpanStatus.UNAVAILABLE);
+    verify(getRequestedFor(urlEqualTo("/flaky")).withHeader("sentry-trace", equalTo(spans.get(3).toSentryTrace().getValue())));
+
+  }
+
+  @Test
+  void recordsLatenciesOfSucceededAndFailedRequests(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/latency").willReturn(ok()));
+    stubFor(get("/latency/reset").willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    Sentry.init(options);
+    Map<String, LatencySnapshot> snapshots = new ConcurrentHashMap<>();
+    SentryHttpOptions httpOptions = new SentryHttpOptions();
+    try (LatencyRecorder latencyRecorder = new LatencyRecorder(snapshots::put, Duration.ofHours(1L))) {
+      httpOptions.setLatencyRecorder(latencyRecorder);
+      CloseableHttpClient client = SentryHttpClients.instrument(
+        HttpClientBuilder.create().disableAutomaticRetries(),
+        HubAdapter.getInstance(),
+        httpOptions
+      ).build();
+
+      client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/latency"), response -> null);
+      assertThatThrownBy(() -> client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/latency/reset"), response -> null)).isInstanceOf(IOException.class);
+      latencyRecorder.export();
+    }
+
+    LatencySnapshot snapshot = snapshots.get("localhost");
+    assertThat(snapshot.getCount()).isEqualTo(2L);
+    assertThat(snapshot.getFailedCount()).isOne();
+    assertThat(snapshot.getMaxNanos()).isPositive();
+
+  }
+
+  @Test
+  void finishesSpanOfFailedRequest(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/reset").willReturn(aResponse().withFault(Fault.CONNECTION_RESET_BY_PEER)));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    CloseableHttpClient client = SentryFailedRequests.instrument(HttpClientBuilder.create())
+      .disableAutomaticRetries()
+      .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build();
+
+    assertThatThrownBy(() -> client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/reset"), response -> null)).isInstanceOf(IOException.class);
+
+    assertThat(Sentry.getSpan()).isSameAs(transaction);
+    transaction.finish();
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.INTERNAL_ERROR);
+    assertThat(span.getThrowable()).isInstanceOf(IOException.class);
+
+  }
+
+  @Test
+  void addsConnectionTimings(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/timed").willReturn(ok()));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    try (CloseableHttpClient client = SentryConnectionTimings.instrument(HttpClientBuilder.create(), HubAdapter.getInstance())
+      .setConnectionManager(SentryConnectionTimings.wrap(PoolingHttpClientConnectionManagerBuilder.create().build()))
+      .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build()) {
+      client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/timed"), response -> null);
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getData(ConnectionTimings.POOL_LEASE_DATA_KEY)).isInstanceOf(Double.class);
+    assertThat(span.getData(ConnectionTimings.CONNECT_DATA_KEY)).isInstanceOf(Double.class);
+    assertThat(span.getData(ConnectionTimings.TIME_TO_FIRST_BYTE_DATA_KEY)).isInstanceOf(Double.class);
+    assertThat(span.getData(ConnectionTimings.TLS_HANDSHAKE_DATA_KEY)).isNull();
+
+  }
+
+  @Test
+  void evictsIdleConnectionsOfWrappedPool(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/idle").willReturn(ok()));
+
+    PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create().build();
+    HttpClientConnectionManager connectionManager = SentryConnectionTimings.wrap(pool);
+    try (CloseableHttpClient client = SentryConnectionTimings.instrument(HttpClientBuilder.create(), HubAdapter.getInstance())
+      .setConnectionManager(connectionManager)
+      .evictIdleConnections(TimeValue.ofMilliseconds(100L))
+      .build()) {
+      client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/idle"), response -> null);
+      assertThat(pool.getTotalStats().getAvailable()).isEqualTo(1);
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+      while (pool.getTotalStats().getAvailable() > 0 && System.nanoTime() < deadline) {
+        Thread.sleep(50L);
+      }
+
+      assertThat(pool.getTotalStats().getAvailable()).isZero();
+    }
+    assertThat(connectionManager).isInstanceOf(ConnPoolControl.class);
+
+  }
+
+  @Test
+  void addsContentLengths(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(post("/upload").willReturn(ok("hello")));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    try (CloseableHttpClient client = HttpClientBuilder.create()
+      .disableContentCompression()
+      .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build()) {
+      HttpPost request = new HttpPost(wireMockRuntimeInfo.getHttpBaseUrl() + "/upload");
+      request.setEntity(new InputStreamEntity(new ByteArrayInputStream(new byte[42]), -1L, ContentType.APPLICATION_OCTET_STREAM));
+      String body = client.execute(request, response -> EntityUtils.toString(response.getEntity()));
+      assertThat(body).isEqualTo("hello");
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.getData(ContentLengths.REQUEST_DATA_KEY)).isEqualTo(42L);
+    assertThat(span.getData(ContentLengths.RESPONSE_DATA_KEY)).isEqualTo(5L);
+
+  }
+
+  @Test
+  void omitsSizeOfChunkedResponseClosedEarly(WireMockRuntimeInfo wireMockRuntimeInfo) throws Exception {
+
+    stubFor(get("/download").willReturn(aResponse().withBody(new byte[10_000]).withChunkedDribbleDelay(5, 50)));
+
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:" + wireMockRuntimeInfo.getHttpPort() + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    SentryTracer transaction = (SentryTracer) Sentry.startTransaction(
+      "TRANSACTION_NAME",
+      "TRANSACTION_OPERATION",
+      transactionOptions
+    );
+    try (CloseableHttpClient client = HttpClientBuilder.create()
+      .disableContentCompression()
+      .addRequestInterceptorFirst(new SentryHttpRequestInterceptor(HubAdapter.getInstance()))
+      .addResponseInterceptorLast(new SentryHttpResponseInterceptor(HubAdapter.getInstance()))
+      .build()) {
+      int firstByte = client.execute(new HttpGet(wireMockRuntimeInfo.getHttpBaseUrl() + "/download"), response -> {
+        HttpEntity entity = response.getEntity();
+        assertThat(entity.isChunked()).isTrue();
+        try (InputStream content = entity.getContent()) {
+          return content.read();
+        }
+      });
+      assertThat(firstByte).isZero();
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.isFinished()).isTrue();
+    assertThat(span.getData(ContentLengths.RESPONSE_DATA_KEY)).isNull();
+
+  }
+
 }
@@ -0,0 +1,216 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.drjekyll.sentry.http.LatencyRecorder;
+import org.drjekyll.sentry.http.LatencySink;
+import org.drjekyll.sentry.http.LatencySnapshot;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+import io.sentry.Breadcrumb;
+import io.sentry.IHub;
+import io.sentry.ISpan;
+import io.sentry.Instrumenter;
+import io.sentry.SentryDate;
+import io.sentry.SentryOptions;
+import io.sentry.SentryTraceHeader;
+import io.sentry.SpanContext;
+import io.sentry.SpanId;
+import io.sentry.SpanStatus;
+import io.sentry.protocol.SentryId;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SentryAsyncExecChainHandlerTest {
+
+  private static final String URL = "https://www.daniel-heid.de/page?query=string";
+
+  private static final SentryTraceHeader SENTRY_TRACE_HEADER = new SentryTraceHeader(new SentryId(), new SpanId(), null);
+
+  private static final SpanContext SPAN_CONTEXT = new SpanContext(
+    SENTRY_TRACE_HEADER.getTraceId(),
+    SENTRY_TRACE_HEADER.getSpanId(),
+    "http.client",
+    null,
+    null
+  );
+
+  @InjectMocks
+  private SentryAsyncExecChainHandler sentryAsyncExecChainHandler;
+
+  @Mock
+  private IHub hub;
+
+  @Spy
+  private SentryHttpOptions httpOptions = new SentryHttpOptions();
+
+  @Mock
+  private ISpan activeSpan;
+
+  @Mock
+  private ISpan childSpan;
+
+  @Mock
+  private SentryOptions options;
+
+  @Mock
+  private AsyncExecChain chain;
+
+  @Mock
+  private AsyncExecCallback callback;
+
+  @Captor
+  private ArgumentCaptor<AsyncExecCallback> callbackCaptor;
+
+  @Captor
+  private ArgumentCaptor<Breadcrumb> breadcrumpCaptor;
+
+  @Mock
+  private LatencySink latencySink;
+
+  @Mock
+  private ScheduledExecutorService scheduler;
+
+  @Captor
+  private ArgumentCaptor<LatencySnapshot> snapshotCaptor;
+
+  private final BasicHttpRequest request = new BasicHttpRequest("GET", URI.create(URL));
+
+  @Test
+  void justAddsBreadcrumbIfNoSpanIsGiven() throws Exception {
+
+    givenEnabledHub();
+    sentryAsyncExecChainHandler.execute(request, null, null, chain, callback);
+
+    verify(chain).proceed(eq(request), isNull(), isNull(), callbackCaptor.capture());
+    verify(hub, never()).addBreadcrumb(any(Breadcrumb.class));
+    BasicHttpResponse response = new BasicHttpResponse(404);
+    callbackCaptor.getValue().handleResponse(response, null);
+    callbackCaptor.getValue().completed();
+    verify(callback).handleResponse(response, null);
+    verify(callback).completed();
+    verify(hub).addBreadcrumb(breadcrumpCaptor.capture());
+    Breadcrumb breadcrumb = breadcrumpCaptor.getValue();
+    assertThat(breadcrumb.getData("url")).isEqualTo("https://www.daniel-heid.de/page");
+    assertThat(breadcrumb.getData("method")).isEqualTo("GET");
+    assertThat(breadcrumb.getData("status_code")).isEqualTo(404);
+
+  }
+
+  @Test
+  void addsBreadcrumbWithoutStatusCodeOnFailure() throws Exception {
+
+    givenEnabledHub();
+    SocketTimeoutException cause = new SocketTimeoutException();
+
+    sentryAsyncExecChainHandler.execute(request, null, null, chain, callback);
+
+    verify(chain).proceed(eq(request), isNull(), isNull(), callbackCaptor.capture());
+    callbackCaptor.getValue().failed(cause);
+    verify(callback).failed(cause);
+    verify(hub).addBreadcrumb(breadcrumpCaptor.capture());
+    assertThat(breadcrumpCaptor.getValue().getData("method")).isEqualTo("GET");
+    assertThat(breadcrumpCaptor.getValue().getData("status_code")).isNull();
+
+  }
+
+  @Test
+  void finishesChildSpanOnCompletion() throws Exception {
+
+    givenChildSpan();
+
+    sentryAsyncExecChainHandler.execute(request, null, null, chain, callback);
+
+    verify(chain).proceed(eq(request), isNull(), isNull(), callbackCaptor.capture());
+    BasicHttpResponse response = new BasicHttpResponse(200);
+    callbackCaptor.getValue().handleResponse(response, null);
+    callbackCaptor.getValue().completed();
+    verify(hub).addBreadcrumb(breadcrumpCaptor.capture());
+    assertThat(breadcrumpCaptor.getValue().getData("status_code")).isEqualTo(200);
+    verify(activeSpan).startChild(eq("http.client"), eq("GET " + URL), any(SentryDate.class), eq(Instrumenter.SENTRY));
+    verify(childSpan).setStatus(SpanStatus.OK);
+    verify(childSpan).finish(any(), any(SentryDate.class));
+    verify(callback).handleResponse(response, null);
+    verify(callback).completed();
+    assertThat(request.getFirstHeader(SentryTraceHeader.SENTRY_TRACE_HEADER).getValue())
+      .isEqualTo(SENTRY_TRACE_HEADER.getValue());
+
+  }
+
+  @Test
+  void finishesChildSpanOnFailure() throws Exception {
+
+    givenChildSpan();
+    SocketTimeoutException cause = new SocketTimeoutException();
+
+    sentryAsyncExecChainHandler.execute(request, null, null, chain, callback);
+
+    verify(chain).proceed(eq(request), isNull(), isNull(), callbackCaptor.capture());
+    callbackCaptor.getValue().failed(cause);
+    verify(childSpan).setThrowable(cause);
+    verify(childSpan).finish(eq(SpanStatus.DEADLINE_EXCEEDED), any(SentryDate.class));
+    verify(hub).addBreadcrumb(any(Breadcrumb.class));
+    verify(callback).failed(cause);
+
+  }
+
+  @Test
+  void recordsLatencyOnceUntilResponse() throws Exception {
+
+    LatencyRecorder latencyRecorder = new LatencyRecorder(latencySink, Duration.ofMinutes(1L), 2, scheduler);
+    httpOptions.setLatencyRecorder(latencyRecorder);
+
+    sentryAsyncExecChainHandler.execute(request, null, null, chain, callback);
+
+    verify(chain).proceed(eq(request), isNull(), isNull(), callbackCaptor.capture());
+    callbackCaptor.getValue().handleResponse(new BasicHttpResponse(200), null);
+    callbackCaptor.getValue().failed(new SocketTimeoutException());
+    latencyRecorder.export();
+    verify(latencySink).export(eq("www.daniel-heid.de"), snapshotCaptor.capture());
+    assertThat(snapshotCaptor.getValue().getCount()).isOne();
+    assertThat(snapshotCaptor.getValue().getFailedCount()).isZero();
+
+  }
+
+  private void givenEnabledHub() {
+    given(hub.isEnabled()).willReturn(true);
+    given(hub.getOptions()).willReturn(options);
+    given(options.isTracingEnabled()).willReturn(true);
+    given(options.getMaxBreadcrumbs()).willReturn(100);
+  }
+
+  private void givenChildSpan() {
+    givenEnabledHub();
+    given(hub.getSpan()).willReturn(activeSpan);
+    given(activeSpan.getSpanContext()).willReturn(new SpanContext("test"));
+    given(options.getTracePropagationTargets()).willReturn(singletonList(URL));
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+    given(childSpan.getSpanContext()).willReturn(SPAN_CONTEXT);
+    given(childSpan.toBaggageHeader(any())).willReturn(null);
+  }
+
+}
@@ -0,0 +1,109 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.drjekyll.sentry.http.ConnectionPoolSnapshot;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.IHub;
+import io.sentry.SentryOptions;
+import io.sentry.metrics.MetricsApi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SentryConnectionPoolMonitorTest {
+
+  private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("https", "www.daniel-heid.de", 443));
+
+  @Mock
+  private IHub hub;
+
+  @Mock
+  private ConnPoolControl<HttpRoute> pool;
+
+  @Mock
+  private ScheduledExecutorService scheduler;
+
+  @Mock
+  private ScheduledFuture<?> samplingTask;
+
+  @Mock
+  private MetricsApi metrics;
+
+  private final SentryOptions sentryOptions = new SentryOptions();
+
+  private final SentryHttpOptions httpOptions = new SentryHttpOptions();
+
+  @BeforeEach
+  void scheduleSampling() {
+    willReturn(samplingTask).given(scheduler).scheduleAtFixedRate(any(Runnable.class), eq(0L), eq(10_000_000_000L), eq(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  void samplesTotalStatistics() {
+
+    given(hub.getOptions()).willReturn(sentryOptions);
+    given(pool.getTotalStats()).willReturn(new PoolStats(3, 1, 2, 10));
+    SentryConnectionPoolMonitor monitor = new SentryConnectionPoolMonitor(hub, pool, httpOptions, scheduler);
+
+    monitor.sample();
+
+    assertThat(monitor.getSnapshot()).isEqualTo(new ConnectionPoolSnapshot(3, 1, 2, 10));
+    verify(hub, never()).metrics();
+
+  }
+
+  @Test
+  void emitsMetricsPerRoute() {
+
+    sentryOptions.setEnableMetrics(true);
+    httpOptions.setConnectionPoolStatisticsPerRoute(true);
+    given(hub.getOptions()).willReturn(sentryOptions);
+    given(hub.metrics()).willReturn(metrics);
+    given(pool.getTotalStats()).willReturn(new PoolStats(3, 1, 2, 10));
+    given(pool.getRoutes()).willReturn(Collections.singleton(ROUTE));
+    given(pool.getStats(ROUTE)).willReturn(new PoolStats(1, 0, 1, 5));
+    SentryConnectionPoolMonitor monitor = new SentryConnectionPoolMonitor(hub, pool, httpOptions, scheduler);
+
+    monitor.sample();
+
+    verify(metrics).gauge(ConnectionPoolSnapshot.LEASED_KEY, 3.0, null, Collections.emptyMap());
+    verify(metrics).gauge(ConnectionPoolSnapshot.MAX_KEY, 5.0, null,
+      Collections.singletonMap("route", "www.daniel-heid.de:443")
+    );
+
+  }
+
+  @Test
+  void keepsSchedulerOnClose() {
+
+    SentryConnectionPoolMonitor monitor = new SentryConnectionPoolMonitor(hub, pool, httpOptions, scheduler);
+
+    monitor.close();
+
+    verify(samplingTask).cancel(false);
+    verify(scheduler, never()).shutdown();
+
+  }
+
+}
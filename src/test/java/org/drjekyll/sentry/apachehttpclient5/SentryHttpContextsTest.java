@@ -0,0 +1,63 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.drjekyll.sentry.http.ForkedContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class SentryHttpContextsTest {
+
+  @Mock
+  private IHub hub;
+
+  @Mock
+  private IHub forkedHub;
+
+  @Mock
+  private ISpan span;
+
+  @Test
+  void createsContextBoundToForkedHub() {
+
+    given(hub.clone()).willReturn(forkedHub);
+    given(hub.getSpan()).willReturn(span);
+
+    HttpClientContext context = SentryHttpContexts.fork(hub);
+
+    ForkedContext forkedContext = SentryHttpContexts.getForkedContext(context);
+    assertThat(forkedContext).isNotNull();
+    assertThat(forkedContext.getHub()).isSameAs(forkedHub);
+    assertThat(forkedContext.getParentSpan()).isSameAs(span);
+
+  }
+
+  @Test
+  void bindsExistingContext() {
+
+    given(hub.clone()).willReturn(forkedHub);
+    BasicHttpContext context = new BasicHttpContext();
+
+    assertThat(SentryHttpContexts.bind(context, hub)).isSameAs(context);
+    assertThat(SentryHttpContexts.getForkedContext(context)).isNotNull();
+
+  }
+
+  @Test
+  void findsNothingInUnboundContext() {
+
+    assertThat(SentryHttpContexts.getForkedContext(new BasicHttpContext())).isNull();
+    assertThat(SentryHttpContexts.getForkedContext(null)).isNull();
+
+  }
+
+}
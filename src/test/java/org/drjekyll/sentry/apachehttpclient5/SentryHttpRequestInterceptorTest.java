@@ -1,33 +1,52 @@
 package org.drjekyll.sentry.apachehttpclient5;
 
-import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.message.BasicHeader;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.net.URIAuthority;
+import org.drjekyll.sentry.http.ConnectionPoolSnapshot;
+import org.drjekyll.sentry.http.ForkedContext;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.SpanAggregator;
+import org.drjekyll.sentry.http.TraceHeaderEncoder;
+import org.drjekyll.sentry.http.TracePropagationFormat;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
 
 import io.sentry.BaggageHeader;
 import io.sentry.Breadcrumb;
 import io.sentry.IHub;
 import io.sentry.ISpan;
+import io.sentry.ITransaction;
+import io.sentry.Instrumenter;
+import io.sentry.SentryDate;
 import io.sentry.SentryOptions;
 import io.sentry.SentryTraceHeader;
+import io.sentry.SpanContext;
 import io.sentry.SpanId;
+import io.sentry.TracesSamplingDecision;
 import io.sentry.protocol.SentryId;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class SentryHttpRequestInterceptorTest {
@@ -38,35 +57,55 @@ class SentryHttpRequestInterceptorTest {
 
   private static final String BAGGAGE = "sentry-environment=test,sentry-release=cc3bc71584bbf4765f90d6948749cc91b31c52ff,sentry-sample_rate=1,sentry-trace_id=984e8992456b4cb6b63c4bbb6be31d2b";
 
+  private static final String THIRD_PARTY_BAGGAGE = "vendor=value";
+
   private static final BaggageHeader BAGGAGE_HEADER = new BaggageHeader(BAGGAGE);
 
   private static final SentryTraceHeader SENTRY_TRACE_HEADER = new SentryTraceHeader(new SentryId(), new SpanId(), null);
 
+  private static final SpanContext SPAN_CONTEXT = new SpanContext(
+    SENTRY_TRACE_HEADER.getTraceId(),
+    SENTRY_TRACE_HEADER.getSpanId(),
+    "http.client",
+    null,
+    null
+  );
+
   @InjectMocks
   private SentryHttpRequestInterceptor sentryHttpRequestInterceptor;
 
   @Mock
   private IHub hub;
 
+  @Spy
+  private SentryHttpOptions httpOptions = new SentryHttpOptions();
+
   @Mock
   private ISpan activeSpan;
 
   @Mock
   private ISpan childSpan;
 
+  @Mock
+  private ITransaction transaction;
+
   @Mock
   private HttpRequest request;
 
   @Mock
   private SentryOptions options;
 
+  @Mock
+  private HttpContext context;
+
   @Captor
   private ArgumentCaptor<Breadcrumb> breadcrumpCaptor;
 
   @Test
-  void justAddsBreadcrumbIfNoSpanIsGiven() throws IOException, URISyntaxException {
+  void justAddsBreadcrumbIfNoSpanIsGiven() throws IOException {
 
     givenRequest();
+    givenEnabledHub();
 
     sentryHttpRequestInterceptor.process(request, null, null);
 
@@ -81,29 +120,214 @@ class SentryHttpRequestInterceptorTest {
   }
 
   @Test
-  void createsChildSpanAndAddsHeaders() throws IOException, URISyntaxException {
+  void createsChildSpanAndAddsHeaders() throws IOException {
 
     givenRequest();
-    given(hub.getSpan()).willReturn(activeSpan);
-    given(hub.getOptions()).willReturn(options);
+    givenEnabledHub();
+    givenActiveSpan();
+    given(options.getTracePropagationTargets()).willReturn(singletonList(URL));
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+    given(childSpan.getSpanContext()).willReturn(SPAN_CONTEXT);
+    given(childSpan.toBaggageHeader(emptyList())).willReturn(BAGGAGE_HEADER);
+    given(request.countHeaders(BaggageHeader.BAGGAGE_HEADER)).willReturn(1);
+    given(request.getFirstHeader(BaggageHeader.BAGGAGE_HEADER)).willReturn(new BasicHeader(BaggageHeader.BAGGAGE_HEADER, THIRD_PARTY_BAGGAGE));
+
+    sentryHttpRequestInterceptor.process(request, null, null);
+
+    verify(childSpan).setData(RequestHash.SPAN_DATA_KEY, 1941900352);
+    verify(activeSpan).startChild(eq("http.client"), eq("GET https://www.daniel-heid.de/page?query=string"), any(SentryDate.class), eq(Instrumenter.SENTRY));
+    verify(request).setHeader(SentryTraceHeader.SENTRY_TRACE_HEADER, SENTRY_TRACE_HEADER.getValue());
+    verify(request).setHeader(BaggageHeader.BAGGAGE_HEADER, THIRD_PARTY_BAGGAGE + ',' + BAGGAGE);
+    verify(request, never()).removeHeaders(BaggageHeader.BAGGAGE_HEADER);
+
+  }
+
+  @Test
+  void addsSentryAndW3cTraceHeaders() throws IOException {
+
+    givenRequest();
+    givenEnabledHub();
+    givenActiveSpan();
+    httpOptions.setTracePropagationFormat(TracePropagationFormat.SENTRY_AND_W3C);
     given(options.getTracePropagationTargets()).willReturn(singletonList(URL));
-    given(activeSpan.startChild("http.client")).willReturn(childSpan);
-    given(childSpan.toSentryTrace()).willReturn(SENTRY_TRACE_HEADER);
-    given(childSpan.toBaggageHeader(singletonList(BAGGAGE))).willReturn(BAGGAGE_HEADER);
-    given(request.getHeaders(BaggageHeader.BAGGAGE_HEADER)).willReturn(new Header[] { new BasicHeader(BaggageHeader.BAGGAGE_HEADER, BAGGAGE)});
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+    given(childSpan.getSpanContext()).willReturn(SPAN_CONTEXT);
 
     sentryHttpRequestInterceptor.process(request, null, null);
 
-    verify(childSpan).setData(RequestHash.SPAN_DATA_KEY, 1039494016);
-    verify(childSpan).setDescription("GET https://www.daniel-heid.de/page?query=string");
-    verify(request).addHeader(SentryTraceHeader.SENTRY_TRACE_HEADER, SENTRY_TRACE_HEADER.getValue());
-    verify(request).addHeader(BaggageHeader.BAGGAGE_HEADER, BAGGAGE);
+    verify(request).setHeader(SentryTraceHeader.SENTRY_TRACE_HEADER, SENTRY_TRACE_HEADER.getValue());
+    verify(request).setHeader(
+      TraceHeaderEncoder.TRACEPARENT_HEADER,
+      "00-" + SENTRY_TRACE_HEADER.getTraceId() + '-' + SENTRY_TRACE_HEADER.getSpanId() + "-00"
+    );
+
+  }
+
+  @Test
+  void storesChildSpanInContext() throws IOException {
+
+    givenRequest();
+    givenEnabledHub();
+    givenActiveSpan();
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+
+    sentryHttpRequestInterceptor.process(request, null, context);
+
+    verify(context).setAttribute(ContextAttributes.SPAN, childSpan);
+    verify(context).setAttribute(eq(ContextAttributes.REQUEST_DESCRIPTOR), any(RequestDescriptor.class));
+
+  }
+
+  @Test
+  void addsConnectionPoolMeasurements() throws IOException {
+
+    givenRequest();
+    givenEnabledHub();
+    httpOptions.setConnectionPoolStatistics(() -> new ConnectionPoolSnapshot(3, 1, 2, 10));
+    givenActiveSpan();
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+
+    sentryHttpRequestInterceptor.process(request, null, null);
+
+    verify(childSpan).setMeasurement(ConnectionPoolSnapshot.LEASED_KEY, 3);
+    verify(childSpan).setMeasurement(ConnectionPoolSnapshot.PENDING_KEY, 1);
+
+  }
+
+  @Test
+  void propagatesTraceOfActiveSpanIfSpanIsNotSampled() throws IOException {
+
+    givenRequest();
+    givenEnabledHub();
+    httpOptions.setSpanSamplingPolicy((descriptor, parentSpan, transaction) -> false);
+    givenActiveSpan();
+    given(options.getTracePropagationTargets()).willReturn(singletonList(URL));
+    given(activeSpan.getSpanContext()).willReturn(SPAN_CONTEXT);
+
+    sentryHttpRequestInterceptor.process(request, null, context);
+
+    verify(activeSpan, never()).startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY));
+    verify(hub).addBreadcrumb(any(Breadcrumb.class));
+    verify(context, never()).setAttribute(anyString(), any());
+    verify(request).setHeader(SentryTraceHeader.SENTRY_TRACE_HEADER, SENTRY_TRACE_HEADER.getValue());
+
+  }
 
+  @Test
+  void aggregatesRequestIfSpanAggregatorIsGiven() throws IOException {
+
+    givenRequest();
+    givenEnabledHub();
+    httpOptions.setSpanAggregator(new SpanAggregator());
+    givenActiveSpan();
+    given(hub.getTransaction()).willReturn(transaction);
+    given(options.getTracePropagationTargets()).willReturn(singletonList(URL));
+    given(transaction.isSampled()).willReturn(true);
+    given(transaction.getSpanContext()).willReturn(new SpanContext("transaction"));
+    given(activeSpan.getSpanContext()).willReturn(SPAN_CONTEXT);
+
+    sentryHttpRequestInterceptor.process(request, null, context);
+
+    verify(activeSpan, never()).startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY));
+    verify(context).setAttribute(eq(ContextAttributes.AGGREGATED_EXCHANGE), any(SpanAggregator.Exchange.class));
+    verify(context).setAttribute(eq(ContextAttributes.REQUEST_DESCRIPTOR), any(RequestDescriptor.class));
+    verify(request).setHeader(SentryTraceHeader.SENTRY_TRACE_HEADER, SENTRY_TRACE_HEADER.getValue());
+
+  }
+
+  @Test
+  void skipsEverythingIfHubIsDisabled() throws IOException {
+
+    sentryHttpRequestInterceptor.process(request, null, context);
+
+    verify(hub, never()).getSpan();
+    verify(hub, never()).addBreadcrumb(any(Breadcrumb.class));
+    verifyNoInteractions(request);
+    verify(context, never()).setAttribute(anyString(), any());
+
+  }
+
+  @Test
+  void skipsBreadcrumbIfTracingAndBreadcrumbsAreDisabled() throws IOException {
+
+    given(hub.isEnabled()).willReturn(true);
+    given(hub.getOptions()).willReturn(options);
+    given(options.isTracingEnabled()).willReturn(false);
+    given(options.getMaxBreadcrumbs()).willReturn(0);
+
+    sentryHttpRequestInterceptor.process(request, null, context);
+
+    verify(hub, never()).getSpan();
+    verify(hub, never()).addBreadcrumb(any(Breadcrumb.class));
+    verifyNoInteractions(request);
+    verify(context, never()).setAttribute(anyString(), any());
+
+  }
+
+  @Test
+  void propagatesTraceOfSampledOutSpan() throws IOException {
+
+    givenRequest();
+    givenEnabledHub();
+    given(hub.getSpan()).willReturn(activeSpan);
+    given(activeSpan.getSpanContext()).willReturn(new SpanContext(
+      SENTRY_TRACE_HEADER.getTraceId(),
+      SENTRY_TRACE_HEADER.getSpanId(),
+      "test",
+      null,
+      new TracesSamplingDecision(false)
+    ));
+    given(options.getTracePropagationTargets()).willReturn(singletonList(URL));
+
+    sentryHttpRequestInterceptor.process(request, null, context);
+
+    verify(activeSpan, never()).startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY));
+    verify(context, never()).setAttribute(anyString(), any());
+    verify(request).setHeader(SentryTraceHeader.SENTRY_TRACE_HEADER, SENTRY_TRACE_HEADER.getValue() + "-0");
+
+  }
+
+  @Test
+  void createsChildSpanInSpanBoundToContext() throws IOException {
+
+    givenRequest();
+    IHub forkedHub = mock(IHub.class);
+    given(hub.clone()).willReturn(forkedHub);
+    given(hub.getSpan()).willReturn(activeSpan);
+    ForkedContext forkedContext = ForkedContext.fork(hub);
+    given(context.getAttribute(ContextAttributes.FORKED_CONTEXT)).willReturn(forkedContext);
+    given(forkedHub.isEnabled()).willReturn(true);
+    given(forkedHub.getOptions()).willReturn(options);
+    given(options.isTracingEnabled()).willReturn(true);
+    given(options.getMaxBreadcrumbs()).willReturn(100);
+    given(activeSpan.getSpanContext()).willReturn(new SpanContext("test"));
+    given(activeSpan.startChild(eq("http.client"), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY))).willReturn(childSpan);
+
+    sentryHttpRequestInterceptor.process(request, null, context);
+
+    verify(context).setAttribute(ContextAttributes.SPAN, childSpan);
+    verify(forkedHub, never()).getSpan();
+    verify(hub, never()).isEnabled();
+
+  }
+
+  private void givenEnabledHub() {
+    given(hub.isEnabled()).willReturn(true);
+    given(hub.getOptions()).willReturn(options);
+    given(options.isTracingEnabled()).willReturn(true);
+    given(options.getMaxBreadcrumbs()).willReturn(100);
+  }
+
+  private void givenActiveSpan() {
+    given(hub.getSpan()).willReturn(activeSpan);
+    given(activeSpan.getSpanContext()).willReturn(new SpanContext("test"));
   }
 
-  private void givenRequest() throws URISyntaxException {
+  private void givenRequest() {
     given(request.getMethod()).willReturn(METHOD);
-    given(request.getUri()).willReturn(URI.create(URL));
+    given(request.getScheme()).willReturn("https");
+    given(request.getAuthority()).willReturn(new URIAuthority("www.daniel-heid.de"));
+    given(request.getPath()).willReturn("/page?query=string");
   }
 
 }
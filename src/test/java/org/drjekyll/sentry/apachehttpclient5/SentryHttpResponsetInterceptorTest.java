@@ -4,24 +4,32 @@ import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.net.URIAuthority;
+import org.drjekyll.sentry.http.RequestDescriptor;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.SpanAggregator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
-import java.net.URI;
 
 import io.sentry.Breadcrumb;
 import io.sentry.IHub;
 import io.sentry.ISpan;
+import io.sentry.SentryDate;
+import io.sentry.SentryOptions;
 import io.sentry.SpanStatus;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 
@@ -40,6 +48,12 @@ class SentryHttpResponsetInterceptorTest {
   @Mock
   private IHub hub;
 
+  @Spy
+  private SentryHttpOptions httpOptions = new SentryHttpOptions();
+
+  @Mock
+  private SentryOptions options;
+
   @Mock
   private ISpan span;
 
@@ -52,6 +66,9 @@ class SentryHttpResponsetInterceptorTest {
   @Mock
   private HttpContext context;
 
+  @Mock
+  private SpanAggregator.Exchange aggregatedExchange;
+
   @Captor
   private ArgumentCaptor<Breadcrumb> breadcrumpCaptor;
 
@@ -60,25 +77,73 @@ class SentryHttpResponsetInterceptorTest {
 
     sentryHttpResponseInterceptor.process(response, null, context);
 
-    verifyNoInteractions(span, response, context);
+    verifyNoInteractions(span, response);
+
+  }
+
+  @Test
+  void finishesSpanStoredInContext() throws Exception {
+
+    given(hub.isEnabled()).willReturn(true);
+    given(context.getAttribute(ContextAttributes.FORKED_CONTEXT)).willReturn(null);
+    given(context.getAttribute(ContextAttributes.REQUEST_DESCRIPTOR)).willReturn(new RequestDescriptor(METHOD, URL));
+    given(context.getAttribute(ContextAttributes.SPAN)).willReturn(span);
+    given(response.getCode()).willReturn(STATUS_CODE);
+
+    sentryHttpResponseInterceptor.process(response, null, context);
+
+    verify(context).removeAttribute(ContextAttributes.SPAN);
+    verify(context).removeAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+    verify(span).setStatus(SpanStatus.OK);
+    verify(span).finish(any(), any(SentryDate.class));
+    verify(hub, never()).getSpan();
+    verify(hub).addBreadcrumb(breadcrumpCaptor.capture());
+    assertThat(breadcrumpCaptor.getValue().getData("url")).isEqualTo("https://www.daniel-heid.de/page");
+    assertThat(breadcrumpCaptor.getValue().getData("status_code")).isEqualTo(STATUS_CODE);
+
+  }
+
+  @Test
+  void finishesAggregatedExchange() throws Exception {
+
+    given(hub.isEnabled()).willReturn(true);
+    given(context.removeAttribute(ContextAttributes.AGGREGATED_EXCHANGE)).willReturn(aggregatedExchange);
+    given(context.getAttribute(ContextAttributes.FORKED_CONTEXT)).willReturn(null);
+    given(context.getAttribute(ContextAttributes.REQUEST_DESCRIPTOR)).willReturn(new RequestDescriptor(METHOD, URL));
+    given(response.getCode()).willReturn(STATUS_CODE);
+
+    sentryHttpResponseInterceptor.process(response, null, context);
+
+    verify(aggregatedExchange).finish(SpanStatus.OK);
+    verify(context).removeAttribute(ContextAttributes.REQUEST_DESCRIPTOR);
+    verify(context, never()).getAttribute(ContextAttributes.SPAN);
+    verify(hub).addBreadcrumb(breadcrumpCaptor.capture());
+    assertThat(breadcrumpCaptor.getValue().getData("status_code")).isEqualTo(STATUS_CODE);
 
   }
 
   @Test
   void finishesSpan() throws Exception {
 
+    given(hub.isEnabled()).willReturn(true);
+    given(hub.getOptions()).willReturn(options);
+    given(options.isTracingEnabled()).willReturn(true);
     given(request.getMethod()).willReturn(METHOD);
-    given(request.getUri()).willReturn(URI.create(URL));
+    given(request.getScheme()).willReturn("https");
+    given(request.getAuthority()).willReturn(new URIAuthority("www.daniel-heid.de"));
+    given(request.getPath()).willReturn("/page?query=string");
+    given(context.getAttribute(ContextAttributes.FORKED_CONTEXT)).willReturn(null);
     given(context.getAttribute(HttpCoreContext.HTTP_REQUEST)).willReturn(request);
+    given(context.getAttribute(ContextAttributes.SPAN)).willReturn(null);
     given(hub.getSpan()).willReturn(span);
     given(span.getOperation()).willReturn("http.client");
-    given(span.getData(RequestHash.SPAN_DATA_KEY)).willReturn(1039494016);
+    given(span.getData(RequestHash.SPAN_DATA_KEY)).willReturn(1941900352);
     given(response.getCode()).willReturn(STATUS_CODE);
 
     sentryHttpResponseInterceptor.process(response, null, context);
 
     verify(span).setStatus(SpanStatus.OK);
-    verify(span).finish();
+    verify(span).finish(any(), any(SentryDate.class));
     verify(hub).addBreadcrumb(breadcrumpCaptor.capture());
     Breadcrumb breadcrumb = breadcrumpCaptor.getValue();
     assertThat(breadcrumb.getType()).isEqualTo("http");
@@ -0,0 +1,210 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.drjekyll.sentry.http.StreamTimings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import io.sentry.ISpan;
+import io.sentry.Sentry;
+import io.sentry.SentryOptions;
+import io.sentry.SentryTracer;
+import io.sentry.SpanStatus;
+import io.sentry.TransactionOptions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentryStreamTimingsIT {
+
+  private static final int BODY_SIZE = 256 * 1024;
+
+  private HttpAsyncServer server;
+
+  private String baseUrl;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = H2ServerBootstrap.bootstrap()
+      .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+      .setH2Config(H2Config.custom().setInitialWindowSize(16 * 1024).build())
+      .register("*", new SlowConsumingRequestHandler())
+      .create();
+    server.start();
+    ListenerEndpoint endpoint = server.listen(new InetSocketAddress("localhost", 0), URIScheme.HTTP).get();
+    baseUrl = "http://localhost:" + ((InetSocketAddress) endpoint.getAddress()).getPort();
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@" + baseUrl.substring("http://".length()) + "/42");
+    options.setTracesSampleRate(1.0);
+    Sentry.init(options);
+  }
+
+  @AfterEach
+  void tearDown() {
+    Sentry.close();
+    server.close(CloseMode.IMMEDIATE);
+  }
+
+  @Test
+  void addsStreamTimingsToSpansOfMultiplexedRequests() throws Exception {
+
+    SentryTracer transaction = startTransaction();
+    try (CloseableHttpAsyncClient client = instrumentedClient()) {
+      client.start();
+      List<Future<SimpleHttpResponse>> responses = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        responses.add(client.execute(SimpleRequestBuilder.get(baseUrl + "/stream").build(), null));
+      }
+      for (Future<SimpleHttpResponse> response : responses) {
+        assertThat(response.get().getCode()).isEqualTo(HttpStatus.SC_OK);
+      }
+    }
+    transaction.finish();
+
+    assertThat(transaction.getChildren()).hasSize(3);
+    List<Object> streamIds = new ArrayList<>();
+    for (ISpan span : transaction.getChildren()) {
+      assertThat(span.isFinished()).isTrue();
+      assertThat(span.getStatus()).isEqualTo(SpanStatus.OK);
+      assertThat((Double) span.getData(StreamTimings.QUEUED_DATA_KEY)).isNotNegative();
+      assertThat((Double) span.getData(StreamTimings.FLOW_CONTROL_BLOCKED_DATA_KEY)).isZero();
+      streamIds.add(span.getData(StreamTimings.STREAM_ID_DATA_KEY));
+    }
+    assertThat(streamIds).containsExactlyInAnyOrder(1, 3, 5);
+
+  }
+
+  @Test
+  void recordsTimeBlockedByFlowControl() throws Exception {
+
+    SentryTracer transaction = startTransaction();
+    byte[] body = new byte[BODY_SIZE];
+    Arrays.fill(body, (byte) 'x');
+    try (CloseableHttpAsyncClient client = instrumentedClient()) {
+      client.start();
+      SimpleHttpResponse response = client.execute(
+        SimpleRequestBuilder.post(baseUrl + "/upload").setBody(body, ContentType.TEXT_PLAIN).build(),
+        null
+      ).get();
+      assertThat(response.getCode()).isEqualTo(HttpStatus.SC_OK);
+    }
+    transaction.finish();
+
+    ISpan span = transaction.getChildren().get(0);
+    assertThat(span.getData(StreamTimings.STREAM_ID_DATA_KEY)).isEqualTo(1);
+    assertThat((Double) span.getData(StreamTimings.FLOW_CONTROL_BLOCKED_DATA_KEY)).isPositive();
+
+  }
+
+  private static CloseableHttpAsyncClient instrumentedClient() {
+    return SentryStreamTimings.instrument(SentryHttpClients.instrument(H2AsyncClientBuilder.create())).build();
+  }
+
+  private static SentryTracer startTransaction() {
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    return (SentryTracer) Sentry.startTransaction("TRANSACTION_NAME", "TRANSACTION_OPERATION", transactionOptions);
+  }
+
+  private static final class SlowConsumingRequestHandler implements AsyncServerRequestHandler<Message<HttpRequest, String>> {
+
+    @Override
+    public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(
+      HttpRequest request,
+      EntityDetails entityDetails,
+      HttpContext context
+    ) {
+      return new BasicRequestConsumer<>(entityDetails != null ? new SlowStringConsumer() : null);
+    }
+
+    @Override
+    public void handle(Message<HttpRequest, String> message, ResponseTrigger responseTrigger, HttpContext context)
+      throws HttpException, IOException {
+      responseTrigger.submitResponse(new BasicResponseProducer(HttpStatus.SC_OK, "ok", ContentType.TEXT_PLAIN), context);
+    }
+
+  }
+
+  private static final class SlowStringConsumer implements AsyncEntityConsumer<String> {
+
+    private final StringAsyncEntityConsumer delegate = new StringAsyncEntityConsumer();
+
+    @Override
+    public void streamStart(EntityDetails entityDetails, FutureCallback<String> resultCallback)
+      throws HttpException, IOException {
+      delegate.streamStart(entityDetails, resultCallback);
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+      delegate.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) throws IOException {
+      try {
+        // stalls the server, so the client exhausts the flow control window of the stream
+        Thread.sleep(10L);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      delegate.consume(src);
+    }
+
+    @Override
+    public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+      delegate.streamEnd(trailers);
+    }
+
+    @Override
+    public String getContent() {
+      return delegate.getContent();
+    }
+
+    @Override
+    public void failed(Exception cause) {
+      delegate.failed(cause);
+    }
+
+    @Override
+    public void releaseResources() {
+      delegate.releaseResources();
+    }
+
+  }
+
+}
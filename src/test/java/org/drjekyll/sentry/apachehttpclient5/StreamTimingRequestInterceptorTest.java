@@ -0,0 +1,65 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.core5.http.EndpointDetails;
+import org.apache.hc.core5.http.HttpVersion;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.drjekyll.sentry.http.StreamTimings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class StreamTimingRequestInterceptorTest {
+
+  private final StreamTimingRequestInterceptor interceptor = new StreamTimingRequestInterceptor();
+
+  private final BasicHttpRequest request = new BasicHttpRequest("GET", "/");
+
+  @Mock
+  private EndpointDetails endpointDetails;
+
+  @Test
+  void infersStreamIdsFromRequestCount() {
+
+    given(endpointDetails.getRequestCount()).willReturn(0L, 1L, 2L);
+
+    assertThat(sendHeaders(HttpVersion.HTTP_2)).isOne();
+    assertThat(sendHeaders(HttpVersion.HTTP_2)).isEqualTo(3);
+    assertThat(sendHeaders(HttpVersion.HTTP_2)).isEqualTo(5);
+
+  }
+
+  @Test
+  void omitsStreamIdsOnceRequestCountDidNotAdvance() {
+
+    given(endpointDetails.getRequestCount()).willReturn(0L, 0L, 1L);
+
+    assertThat(sendHeaders(HttpVersion.HTTP_2)).isOne();
+    assertThat(sendHeaders(HttpVersion.HTTP_2)).isZero();
+    assertThat(sendHeaders(HttpVersion.HTTP_2)).isZero();
+
+  }
+
+  @Test
+  void omitsStreamIdOnHttp1() {
+
+    assertThat(sendHeaders(HttpVersion.HTTP_1_1)).isZero();
+
+  }
+
+  private int sendHeaders(HttpVersion protocolVersion) {
+    HttpCoreContext context = HttpCoreContext.create();
+    context.setProtocolVersion(protocolVersion);
+    context.setEndpointDetails(endpointDetails);
+    StreamTimings timings = new StreamTimings();
+    context.setAttribute(ContextAttributes.STREAM_TIMINGS, timings);
+    interceptor.process(request, null, context);
+    return timings.getStreamId();
+  }
+
+}
@@ -0,0 +1,68 @@
+package org.drjekyll.sentry.apachehttpclient5;
+
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.drjekyll.sentry.http.ConnectionTimings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.Socket;
+
+import javax.net.ssl.SSLSocket;
+
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class TimingTlsSocketStrategyTest {
+
+  @Mock
+  private TlsSocketStrategy delegate;
+
+  @Mock
+  private Socket socket;
+
+  @Mock
+  private SSLSocket sslSocket;
+
+  @Mock
+  private ISpan span;
+
+  private final HttpContext context = new BasicHttpContext();
+
+  @Test
+  void recordsTlsHandshake() throws Exception {
+
+    ConnectionTimings timings = new ConnectionTimings();
+    context.setAttribute(ContextAttributes.CONNECTION_TIMINGS, timings);
+    given(delegate.upgrade(socket, "www.daniel-heid.de", 443, null, context)).willReturn(sslSocket);
+
+    SSLSocket upgraded = new TimingTlsSocketStrategy(delegate).upgrade(socket, "www.daniel-heid.de", 443, null, context);
+
+    assertThat(upgraded).isSameAs(sslSocket);
+    timings.applyTo(span);
+    verify(span).setData(eq(ConnectionTimings.TLS_HANDSHAKE_DATA_KEY), anyDouble());
+
+  }
+
+  @Test
+  void justUpgradesWithoutTimings() throws Exception {
+
+    given(delegate.upgrade(socket, "www.daniel-heid.de", 443, null, context)).willReturn(sslSocket);
+
+    SSLSocket upgraded = new TimingTlsSocketStrategy(delegate).upgrade(socket, "www.daniel-heid.de", 443, null, context);
+
+    assertThat(upgraded).isSameAs(sslSocket);
+    assertThat(context.getAttribute(ContextAttributes.CONNECTION_TIMINGS)).isNull();
+
+  }
+
+}
@@ -0,0 +1,181 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+import io.sentry.SentryDate;
+import io.sentry.SentryNanotimeDate;
+import io.sentry.SpanStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BackgroundSpanFinisherTest {
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(5L);
+
+  private static final RequestDescriptor REQUEST = new RequestDescriptor("GET", "https://daniel-heid.de/test");
+
+  private final SentryDate timestamp = new SentryNanotimeDate();
+
+  @Mock
+  private IHub hub;
+
+  @Mock
+  private ISpan span;
+
+  @Mock
+  private BreadcrumbPolicy breadcrumbPolicy;
+
+  private BackgroundSpanFinisher spanFinisher;
+
+  @BeforeEach
+  void setUp() {
+    spanFinisher = new BackgroundSpanFinisher(2);
+  }
+
+  @AfterEach
+  void tearDown() {
+    spanFinisher.close();
+  }
+
+  @Test
+  void finishesSpanOnBackgroundThreadAtGivenTimestamp() {
+
+    AtomicReference<String> threadName = new AtomicReference<>();
+    willAnswer(invocation -> {
+      threadName.set(Thread.currentThread().getName());
+      return null;
+    }).given(span).finish(SpanStatus.OK, timestamp);
+
+    spanFinisher.finish(hub, span, SpanStatus.OK, timestamp, breadcrumbPolicy, REQUEST, 200);
+
+    assertThat(spanFinisher.flush(TIMEOUT)).isTrue();
+    verify(breadcrumbPolicy).addBreadcrumb(hub, REQUEST, 200);
+    verify(span).finish(SpanStatus.OK, timestamp);
+    assertThat(threadName).hasValue("sentry-http-span-finisher");
+
+  }
+
+  @Test
+  void keepsStatusOfSpan() {
+
+    given(span.getStatus()).willReturn(SpanStatus.NOT_FOUND);
+
+    spanFinisher.finish(hub, span, null, timestamp, breadcrumbPolicy, null, null);
+
+    assertThat(spanFinisher.flush(TIMEOUT)).isTrue();
+    verify(span).finish(SpanStatus.NOT_FOUND, timestamp);
+    verify(breadcrumbPolicy, never()).addBreadcrumb(any(), any(), any());
+
+  }
+
+  @Test
+  void dropsSpansIfQueueIsFull() throws Exception {
+
+    CountDownLatch finishing = new CountDownLatch(1);
+    CountDownLatch blocked = new CountDownLatch(1);
+    willAnswer(invocation -> {
+      finishing.countDown();
+      blocked.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+      return null;
+    }).given(breadcrumbPolicy).addBreadcrumb(hub, REQUEST, 200);
+    ISpan queuedSpan = mock(ISpan.class);
+    ISpan droppedSpan = mock(ISpan.class);
+
+    spanFinisher.finish(hub, span, SpanStatus.OK, timestamp, breadcrumbPolicy, REQUEST, 200);
+    assertThat(finishing.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+    spanFinisher.finish(hub, queuedSpan, SpanStatus.OK, timestamp, breadcrumbPolicy, null, null);
+    spanFinisher.finish(hub, queuedSpan, SpanStatus.OK, timestamp, breadcrumbPolicy, null, null);
+    spanFinisher.finish(hub, droppedSpan, SpanStatus.OK, timestamp, breadcrumbPolicy, null, null);
+    blocked.countDown();
+
+    assertThat(spanFinisher.flush(TIMEOUT)).isTrue();
+    assertThat(spanFinisher.getDroppedCount()).isOne();
+    verify(span).finish(SpanStatus.OK, timestamp);
+    verify(queuedSpan, times(2)).finish(SpanStatus.OK, timestamp);
+    verify(droppedSpan, never()).finish(any(SpanStatus.class), any(SentryDate.class));
+
+  }
+
+  @Test
+  void continuesAfterFailingBreadcrumbPolicy() {
+
+    willThrow(new IllegalStateException("test")).given(breadcrumbPolicy).addBreadcrumb(hub, REQUEST, 500);
+    ISpan nextSpan = mock(ISpan.class);
+
+    spanFinisher.finish(hub, span, SpanStatus.INTERNAL_ERROR, timestamp, breadcrumbPolicy, REQUEST, 500);
+    assertThat(spanFinisher.flush(TIMEOUT)).isTrue();
+    spanFinisher.finish(hub, nextSpan, SpanStatus.OK, timestamp, breadcrumbPolicy, null, null);
+
+    assertThat(spanFinisher.flush(TIMEOUT)).isTrue();
+    verify(nextSpan).finish(SpanStatus.OK, timestamp);
+
+  }
+
+  @Test
+  void finishesSpansOnCallingThreadAfterClosing() {
+
+    spanFinisher.close();
+
+    spanFinisher.finish(hub, span, SpanStatus.OK, timestamp, breadcrumbPolicy, REQUEST, 200);
+
+    verify(breadcrumbPolicy).addBreadcrumb(hub, REQUEST, 200);
+    verify(span).finish(SpanStatus.OK, timestamp);
+
+  }
+
+  @RepeatedTest(20)
+  void finishesSpansHandedOverWhileClosing() throws Exception {
+
+    int producerCount = 4;
+    int spansPerProducer = 2_000;
+    AtomicInteger finishedCount = new AtomicInteger();
+    willAnswer(invocation -> finishedCount.incrementAndGet()).given(span).finish(SpanStatus.OK, timestamp);
+    CountDownLatch started = new CountDownLatch(producerCount);
+    ExecutorService producers = Executors.newFixedThreadPool(producerCount);
+    try {
+      for (int i = 0; i < producerCount; i++) {
+        producers.execute(() -> {
+          started.countDown();
+          for (int j = 0; j < spansPerProducer; j++) {
+            spanFinisher.finish(hub, span, SpanStatus.OK, timestamp, breadcrumbPolicy, null, null);
+          }
+        });
+      }
+      assertThat(started.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+      spanFinisher.close();
+    } finally {
+      producers.shutdown();
+    }
+
+    assertThat(producers.awaitTermination(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+    assertThat(finishedCount.get() + spanFinisher.getDroppedCount())
+      .isEqualTo((long) producerCount * spansPerProducer);
+
+  }
+
+}
@@ -0,0 +1,88 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import io.sentry.BaggageHeader;
+import io.sentry.ISpan;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class BaggageMergerTest {
+
+  private static final String SENTRY_BAGGAGE = "sentry-environment=test,sentry-trace_id=984e8992456b4cb6b63c4bbb6be31d2b";
+
+  private final BaggageMerger baggageMerger = new BaggageMerger();
+
+  @Mock
+  private ISpan span;
+
+  @Test
+  void returnsSentryBaggageWithoutIncomingBaggage() {
+
+    given(span.toBaggageHeader(emptyList())).willReturn(new BaggageHeader(SENTRY_BAGGAGE));
+
+    assertThat(baggageMerger.merge(span, null)).isEqualTo(SENTRY_BAGGAGE);
+
+  }
+
+  @Test
+  void keepsThirdPartyEntriesInFront() {
+
+    given(span.toBaggageHeader(emptyList())).willReturn(new BaggageHeader(SENTRY_BAGGAGE));
+
+    String baggage = baggageMerger.merge(span, "vendor=value,sentry-trace_id=2a1ec2d6c9b14e4e9d5b1ee2b4b1f0a1,other=1");
+
+    assertThat(baggage).isEqualTo("vendor=value,other=1," + SENTRY_BAGGAGE);
+
+  }
+
+  @Test
+  void returnsSameValueForCachedIncomingBaggage() {
+
+    given(span.toBaggageHeader(emptyList())).willReturn(new BaggageHeader(SENTRY_BAGGAGE));
+
+    String first = baggageMerger.merge(span, "vendor=value");
+    String second = baggageMerger.merge(span, "vendor=value");
+
+    assertThat(second).isEqualTo(first).isEqualTo("vendor=value," + SENTRY_BAGGAGE);
+
+  }
+
+  @Test
+  void returnsThirdPartyBaggageIfSpanHasNoBaggage() {
+
+    assertThat(baggageMerger.merge(span, "vendor=value,sentry-environment=other")).isEqualTo("vendor=value");
+
+  }
+
+  @Test
+  void returnsNullWithoutAnyBaggage() {
+
+    assertThat(baggageMerger.merge(span, "")).isNull();
+
+  }
+
+  @Test
+  void letsSpanMergeIfMemberLimitIsExceeded() {
+
+    String thirdPartyBaggage = IntStream.range(0, 63)
+      .mapToObj(i -> "vendor" + i + "=value")
+      .collect(Collectors.joining(","));
+    given(span.toBaggageHeader(emptyList())).willReturn(new BaggageHeader(SENTRY_BAGGAGE));
+    given(span.toBaggageHeader(singletonList(thirdPartyBaggage))).willReturn(new BaggageHeader("merged"));
+
+    assertThat(baggageMerger.merge(span, thirdPartyBaggage)).isEqualTo("merged");
+
+  }
+
+}
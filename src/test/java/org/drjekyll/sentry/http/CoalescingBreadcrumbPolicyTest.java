@@ -0,0 +1,188 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.sentry.Breadcrumb;
+import io.sentry.IHub;
+import io.sentry.Scope;
+import io.sentry.ScopeCallback;
+import io.sentry.SentryOptions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class CoalescingBreadcrumbPolicyTest {
+
+  private static final RequestDescriptor REQUEST = new RequestDescriptor("GET", "https://www.daniel-heid.de/");
+
+  private final SentryOptions options = new SentryOptions();
+
+  @Mock
+  private IHub hub;
+
+  @Test
+  void coalescesIdenticalCalls() {
+
+    Scope scope = givenScope();
+    CoalescingBreadcrumbPolicy policy = new CoalescingBreadcrumbPolicy(1.0);
+
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    policy.addBreadcrumb(hub, REQUEST, 200);
+
+    assertThat(scope.getBreadcrumbs())
+      .extracting(breadcrumb -> breadcrumb.getData(CoalescingBreadcrumbPolicy.COUNT_DATA_KEY))
+      .containsExactly(3L);
+
+  }
+
+  @Test
+  void addsBreadcrumbOfDifferentCall() {
+
+    Scope scope = givenScope();
+    CoalescingBreadcrumbPolicy policy = new CoalescingBreadcrumbPolicy(1.0);
+
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    policy.addBreadcrumb(hub, REQUEST, 404);
+    policy.addBreadcrumb(hub, REQUEST, 200);
+
+    assertThat(scope.getBreadcrumbs())
+      .extracting(breadcrumb -> breadcrumb.getData("status_code"))
+      .containsExactly(200, 404, 200);
+
+  }
+
+  @Test
+  void keepsCallsInterleavedWithOtherBreadcrumbsApart() {
+
+    Scope scope = givenScope();
+    CoalescingBreadcrumbPolicy policy = new CoalescingBreadcrumbPolicy(1.0);
+
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    scope.addBreadcrumb(new Breadcrumb("other"));
+    policy.addBreadcrumb(hub, REQUEST, 200);
+
+    assertThat(scope.getBreadcrumbs())
+      .extracting(Breadcrumb::getMessage, breadcrumb -> breadcrumb.getData(CoalescingBreadcrumbPolicy.COUNT_DATA_KEY))
+      .containsExactly(tuple(null, null), tuple("other", null), tuple(null, null));
+
+  }
+
+  @Test
+  void keepsCallsInterleavedWithSampledOutCallsApart() {
+
+    Scope scope = givenScope();
+    CoalescingBreadcrumbPolicy policy = new CoalescingBreadcrumbPolicy(0.0);
+
+    policy.addBreadcrumb(hub, REQUEST, 500);
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    policy.addBreadcrumb(hub, REQUEST, 500);
+
+    assertThat(scope.getBreadcrumbs())
+      .extracting(breadcrumb -> breadcrumb.getData(CoalescingBreadcrumbPolicy.COUNT_DATA_KEY))
+      .containsExactly(null, null);
+
+  }
+
+  @Test
+  void addsBreadcrumbAfterEviction() {
+
+    options.setMaxBreadcrumbs(1);
+    Scope scope = givenScope();
+    CoalescingBreadcrumbPolicy policy = new CoalescingBreadcrumbPolicy(1.0);
+
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    scope.addBreadcrumb(new Breadcrumb("other"));
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    policy.addBreadcrumb(hub, REQUEST, 200);
+
+    assertThat(scope.getBreadcrumbs())
+      .extracting(breadcrumb -> breadcrumb.getData(CoalescingBreadcrumbPolicy.COUNT_DATA_KEY))
+      .containsExactly(2L);
+
+  }
+
+  @Test
+  void addsBreadcrumbAfterClearing() {
+
+    Scope scope = givenScope();
+    CoalescingBreadcrumbPolicy policy = new CoalescingBreadcrumbPolicy(1.0);
+
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    scope.clearBreadcrumbs();
+    policy.addBreadcrumb(hub, REQUEST, 200);
+
+    assertThat(scope.getBreadcrumbs())
+      .extracting(breadcrumb -> breadcrumb.getData(CoalescingBreadcrumbPolicy.COUNT_DATA_KEY))
+      .containsExactly((Object) null);
+
+  }
+
+  @Test
+  void addsBreadcrumbAfterPreviousWasDropped() {
+
+    List<Breadcrumb> droppedBreadcrumbs = new ArrayList<>();
+    options.setBeforeBreadcrumb((breadcrumb, hint) -> {
+      if (droppedBreadcrumbs.isEmpty()) {
+        droppedBreadcrumbs.add(breadcrumb);
+        return null;
+      }
+      return breadcrumb;
+    });
+    Scope scope = givenScope();
+    CoalescingBreadcrumbPolicy policy = new CoalescingBreadcrumbPolicy(1.0);
+
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    policy.addBreadcrumb(hub, REQUEST, 200);
+
+    assertThat(scope.getBreadcrumbs()).hasSize(1);
+    assertThat(droppedBreadcrumbs.get(0).getData(CoalescingBreadcrumbPolicy.COUNT_DATA_KEY)).isNull();
+
+  }
+
+  @Test
+  void keepsErrorsOnly() {
+
+    Scope scope = givenScope();
+    CoalescingBreadcrumbPolicy policy = new CoalescingBreadcrumbPolicy(0.0);
+
+    policy.addBreadcrumb(hub, REQUEST, 200);
+    policy.addBreadcrumb(hub, REQUEST, null);
+    policy.addBreadcrumb(hub, REQUEST, 503);
+
+    assertThat(scope.getBreadcrumbs())
+      .extracting(breadcrumb -> breadcrumb.getData("status_code"))
+      .containsExactly(503);
+
+  }
+
+  @Test
+  void rejectsInvalidRate() {
+
+    assertThatThrownBy(() -> new CoalescingBreadcrumbPolicy(-0.1)).isInstanceOf(IllegalArgumentException.class);
+    verifyNoInteractions(hub);
+
+  }
+
+  private Scope givenScope() {
+    Scope scope = new Scope(options);
+    willAnswer(invocation -> {
+      invocation.<ScopeCallback>getArgument(0).run(scope);
+      return null;
+    }).given(hub).configureScope(any());
+    return scope;
+  }
+
+}
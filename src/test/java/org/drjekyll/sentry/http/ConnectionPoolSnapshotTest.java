@@ -0,0 +1,40 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionPoolSnapshotTest {
+
+  @Mock
+  private ISpan span;
+
+  private final ConnectionPoolSnapshot snapshot = new ConnectionPoolSnapshot(3, 1, 2, 10);
+
+  @Test
+  void setsMeasurements() {
+
+    snapshot.applyTo(span);
+
+    verify(span).setMeasurement(ConnectionPoolSnapshot.LEASED_KEY, 3);
+    verify(span).setMeasurement(ConnectionPoolSnapshot.PENDING_KEY, 1);
+    verify(span).setMeasurement(ConnectionPoolSnapshot.AVAILABLE_KEY, 2);
+    verify(span).setMeasurement(ConnectionPoolSnapshot.MAX_KEY, 10);
+
+  }
+
+  @Test
+  void rendersStatistics() {
+
+    assertThat(snapshot).hasToString("[leased: 3; pending: 1; available: 2; max: 10]");
+
+  }
+
+}
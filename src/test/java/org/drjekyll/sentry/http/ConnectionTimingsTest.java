@@ -0,0 +1,66 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.sentry.ISpan;
+
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionTimingsTest {
+
+  @Mock
+  private ISpan span;
+
+  private final ConnectionTimings connectionTimings = new ConnectionTimings();
+
+  @Test
+  void writesNothingIfNothingWasRecorded() {
+
+    connectionTimings.applyTo(span);
+
+    verify(span, never()).setData(anyString(), anyDouble());
+
+  }
+
+  @Test
+  void writesRecordedPhases() {
+
+    connectionTimings.poolLeased(2_000_000L);
+    connectionTimings.connected(5_000_000L);
+    connectionTimings.tlsHandshakeCompleted(3_000_000L);
+    connectionTimings.requestStarted();
+
+    connectionTimings.applyTo(span);
+
+    verify(span).setData(ConnectionTimings.POOL_LEASE_DATA_KEY, 2.0);
+    verify(span).setData(ConnectionTimings.CONNECT_DATA_KEY, 2.0);
+    verify(span).setData(ConnectionTimings.TLS_HANDSHAKE_DATA_KEY, 3.0);
+    verify(span).setData(eq(ConnectionTimings.TIME_TO_FIRST_BYTE_DATA_KEY), anyDouble());
+    verifyNoMoreInteractions(span);
+
+  }
+
+  @Test
+  void derivesPoolLeaseFromAcquisition() {
+
+    connectionTimings.acquisitionStarted();
+    connectionTimings.requestStarted();
+
+    connectionTimings.applyTo(span);
+
+    verify(span).setData(eq(ConnectionTimings.POOL_LEASE_DATA_KEY), anyDouble());
+    verify(span).setData(eq(ConnectionTimings.TIME_TO_FIRST_BYTE_DATA_KEY), anyDouble());
+    verifyNoMoreInteractions(span);
+
+  }
+
+}
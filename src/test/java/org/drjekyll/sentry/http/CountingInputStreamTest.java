@@ -0,0 +1,45 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountingInputStreamTest {
+
+  private final List<Long> reportedCounts = new ArrayList<>();
+
+  @Test
+  void reportsCountOnceAtEndOfStream() throws IOException {
+
+    InputStream in = new CountingInputStream(new ByteArrayInputStream(new byte[10]), reportedCounts::add);
+
+    assertThat(in.read()).isZero();
+    assertThat(in.read(new byte[4], 0, 4)).isEqualTo(4);
+    assertThat(in.skip(2L)).isEqualTo(2L);
+    assertThat(in.read(new byte[10], 0, 10)).isEqualTo(3);
+    assertThat(in.read()).isEqualTo(-1);
+    assertThat(in.read(new byte[10], 0, 10)).isEqualTo(-1);
+
+    assertThat(reportedCounts).containsExactly(10L);
+
+  }
+
+  @Test
+  void reportsNothingIfClosedEarly() throws IOException {
+
+    InputStream in = new CountingInputStream(new ByteArrayInputStream(new byte[10]), reportedCounts::add);
+
+    assertThat(in.read(new byte[4], 0, 4)).isEqualTo(4);
+    in.close();
+
+    assertThat(reportedCounts).isEmpty();
+
+  }
+
+}
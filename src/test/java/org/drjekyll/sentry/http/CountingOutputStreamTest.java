@@ -0,0 +1,26 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountingOutputStreamTest {
+
+  @Test
+  void countsWrittenBytes() throws IOException {
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    CountingOutputStream countingOutputStream = new CountingOutputStream(out);
+
+    countingOutputStream.write(1);
+    countingOutputStream.write(new byte[] {2, 3, 4, 5}, 1, 2);
+
+    assertThat(countingOutputStream.getCount()).isEqualTo(3L);
+    assertThat(out.toByteArray()).containsExactly(1, 3, 4);
+
+  }
+
+}
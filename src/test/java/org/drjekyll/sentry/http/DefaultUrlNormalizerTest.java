@@ -0,0 +1,95 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DefaultUrlNormalizerTest {
+
+  private final DefaultUrlNormalizer normalizer = new DefaultUrlNormalizer();
+
+  @Test
+  void removesQueryAndFragment() {
+
+    assertThat(normalizer.normalize("https://www.daniel-heid.de/page?query=string#top"))
+      .isEqualTo("https://www.daniel-heid.de/page");
+
+  }
+
+  @Test
+  void replacesNumericSegments() {
+
+    assertThat(normalizer.normalize("https://www.daniel-heid.de/users/42/orders/4711"))
+      .isEqualTo("https://www.daniel-heid.de/users/{id}/orders/{id}");
+
+  }
+
+  @Test
+  void replacesUuidSegments() {
+
+    assertThat(normalizer.normalize("https://www.daniel-heid.de/users/0f8fad5b-d9cb-469f-a165-70867728950e"))
+      .isEqualTo("https://www.daniel-heid.de/users/{uuid}");
+
+  }
+
+  @Test
+  void replacesHexSegments() {
+
+    assertThat(normalizer.normalize("https://www.daniel-heid.de/commits/5f1d7a3b9c2e4d6f/decade"))
+      .isEqualTo("https://www.daniel-heid.de/commits/{hex}/decade");
+
+  }
+
+  @Test
+  void keepsPortTrailingSlashAndRoot() {
+
+    assertThat(normalizer.normalize("http://localhost:8080/users/42/")).isEqualTo("http://localhost:8080/users/{id}/");
+    assertThat(normalizer.normalize("http://localhost:8080/")).isEqualTo("http://localhost:8080/");
+    assertThat(normalizer.normalize("http://localhost:8080")).isEqualTo("http://localhost:8080");
+
+  }
+
+  @Test
+  void appliesRouteTemplates() {
+
+    DefaultUrlNormalizer templateNormalizer = new DefaultUrlNormalizer(Arrays.asList(
+      "/users/{userId}/orders/{orderId}",
+      "/articles/{slug}"
+    ));
+
+    assertThat(templateNormalizer.normalize("https://www.daniel-heid.de/articles/sentry-interceptors?page=2"))
+      .isEqualTo("https://www.daniel-heid.de/articles/{slug}");
+    assertThat(templateNormalizer.normalize("https://www.daniel-heid.de/users/dheid/orders/42"))
+      .isEqualTo("https://www.daniel-heid.de/users/{userId}/orders/{orderId}");
+    assertThat(templateNormalizer.normalize("https://www.daniel-heid.de/users/42"))
+      .isEqualTo("https://www.daniel-heid.de/users/{id}");
+
+  }
+
+  @Test
+  void keepsNormalizingBeyondCacheSize() {
+
+    DefaultUrlNormalizer smallNormalizer = new DefaultUrlNormalizer(Collections.emptyList(), 2);
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(smallNormalizer.normalize("https://www.daniel-heid.de/users/" + i + "/orders"))
+        .isEqualTo("https://www.daniel-heid.de/users/{id}/orders");
+      assertThat(smallNormalizer.normalize("https://www.daniel-heid.de/articles/" + i + "?page=" + i))
+        .isEqualTo("https://www.daniel-heid.de/articles/{id}");
+    }
+
+  }
+
+  @Test
+  void rejectsInvalidCacheSize() {
+
+    assertThatThrownBy(() -> new DefaultUrlNormalizer(Collections.emptyList(), 0))
+      .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
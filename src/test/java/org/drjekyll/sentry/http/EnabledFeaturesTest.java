@@ -0,0 +1,38 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+
+import io.sentry.SentryOptions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EnabledFeaturesTest {
+
+  private final EnabledFeatures enabledFeatures = new EnabledFeatures();
+
+  @Test
+  void readsFlagsOfOptions() {
+
+    SentryOptions options = new SentryOptions();
+    options.setTracesSampleRate(1.0);
+    options.setMaxBreadcrumbs(0);
+
+    assertThat(enabledFeatures.isTracingEnabled(options)).isTrue();
+    assertThat(enabledFeatures.isBreadcrumbsEnabled(options)).isFalse();
+
+  }
+
+  @Test
+  void readsFlagsOfNewOptionsAgain() {
+
+    SentryOptions options = new SentryOptions();
+    enabledFeatures.isTracingEnabled(options);
+    SentryOptions newOptions = new SentryOptions();
+    newOptions.setTracesSampleRate(1.0);
+
+    assertThat(enabledFeatures.isTracingEnabled(newOptions)).isTrue();
+    assertThat(enabledFeatures.isBreadcrumbsEnabled(newOptions)).isTrue();
+
+  }
+
+}
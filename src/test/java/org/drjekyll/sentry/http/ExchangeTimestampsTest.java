@@ -0,0 +1,68 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.ISpan;
+import io.sentry.SentryDate;
+import io.sentry.SentryNanotimeDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeTimestampsTest {
+
+  @Mock
+  private ISpan span;
+
+  @Captor
+  private ArgumentCaptor<Object> overheadCaptor;
+
+  @Test
+  void differenceOfDatesIsExact() {
+
+    long startNanoTime = System.nanoTime();
+
+    SentryDate start = ExchangeTimestamps.toDate(startNanoTime);
+    SentryDate end = ExchangeTimestamps.toDate(startNanoTime + 1_234_567L);
+
+    assertThat(end.diff(start)).isEqualTo(1_234_567L);
+
+  }
+
+  @Test
+  void derivesWallClockTimeOfCapturedTimestamp() {
+
+    long capturedNanoTime = System.nanoTime() - TimeUnit.SECONDS.toNanos(2L);
+
+    SentryDate date = ExchangeTimestamps.toDate(capturedNanoTime);
+
+    long expectedNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - 2_000L);
+    assertThat(date.nanoTimestamp()).isCloseTo(expectedNanos, within(TimeUnit.MILLISECONDS.toNanos(100L)));
+    assertThat(date).isInstanceOf(SentryNanotimeDate.class);
+
+  }
+
+  @Test
+  void addsInterceptorOverheadToRecordedOverhead() {
+
+    given(span.getData(ExchangeTimestamps.INTERCEPTOR_OVERHEAD_DATA_KEY)).willReturn(1_000.0);
+
+    ExchangeTimestamps.addInterceptorOverhead(span, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5L));
+
+    verify(span).setData(eq(ExchangeTimestamps.INTERCEPTOR_OVERHEAD_DATA_KEY), overheadCaptor.capture());
+    assertThat((Double) overheadCaptor.getValue()).isBetween(1_005.0, 2_000.0);
+
+  }
+
+}
@@ -0,0 +1,61 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.sentry.IHub;
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class ForkedContextTest {
+
+  @Mock
+  private IHub hub;
+
+  @Mock
+  private IHub forkedHub;
+
+  @Mock
+  private ISpan span;
+
+  @Test
+  void capturesSpanAndForksHub() {
+
+    given(hub.clone()).willReturn(forkedHub);
+    given(hub.getSpan()).willReturn(span);
+
+    ForkedContext forkedContext = ForkedContext.fork(hub);
+
+    assertThat(forkedContext.getHub()).isSameAs(forkedHub);
+    assertThat(forkedContext.getParentSpan()).isSameAs(span);
+
+  }
+
+  @Test
+  void returnsCapturedSpanAsActiveSpan() {
+
+    given(hub.clone()).willReturn(forkedHub);
+    given(hub.getSpan()).willReturn(span);
+    ForkedContext forkedContext = ForkedContext.fork(hub);
+
+    assertThat(ForkedContext.getActiveSpan(forkedHub, forkedContext)).isSameAs(span);
+    verifyNoInteractions(forkedHub);
+
+  }
+
+  @Test
+  void returnsCurrentSpanOfHubIfNothingWasForked() {
+
+    given(hub.getSpan()).willReturn(span);
+
+    assertThat(ForkedContext.getActiveSpan(hub, null)).isSameAs(span);
+
+  }
+
+}
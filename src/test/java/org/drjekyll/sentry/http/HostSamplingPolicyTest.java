@@ -0,0 +1,45 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class HostSamplingPolicyTest {
+
+  private final HostSamplingPolicy policy = new HostSamplingPolicy(1.0, Collections.singletonMap("Cache.local", 0.0));
+
+  @Mock
+  private ISpan parentSpan;
+
+  @Test
+  void usesRateOfHost() {
+
+    assertThat(policy.isSampled(new RequestDescriptor("GET", "http://cache.local:6379/key"), parentSpan, null)).isFalse();
+
+  }
+
+  @Test
+  void usesDefaultRateOfOtherHosts() {
+
+    assertThat(policy.isSampled(new RequestDescriptor("GET", "https://www.daniel-heid.de/"), parentSpan, null)).isTrue();
+
+  }
+
+  @Test
+  void rejectsInvalidRate() {
+
+    assertThatThrownBy(() -> new HostSamplingPolicy(1.5, Collections.emptyMap()))
+      .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
@@ -0,0 +1,92 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LatencyHistogramTest {
+
+  private final LatencyHistogram histogram = new LatencyHistogram(4);
+
+  @Test
+  void bucketsContainTheirBounds() {
+
+    for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT; bucket++) {
+      assertThat(LatencyHistogram.bucketIndex(LatencyHistogram.lowerBoundMicros(bucket))).isEqualTo(bucket);
+      assertThat(LatencyHistogram.bucketIndex(LatencyHistogram.upperBoundMicros(bucket) - 1L)).isEqualTo(bucket);
+    }
+
+  }
+
+  @Test
+  void countsLongLatenciesInLastBucket() {
+
+    assertThat(LatencyHistogram.bucketIndex(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.BUCKET_COUNT - 1);
+
+  }
+
+  @Test
+  void summarizesRecordedLatencies() {
+
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(i), i > 98);
+    }
+
+    LatencySnapshot snapshot = histogram.snapshotAndReset();
+
+    assertThat(snapshot.getCount()).isEqualTo(100L);
+    assertThat(snapshot.getFailedCount()).isEqualTo(2L);
+    assertThat(snapshot.getSumNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(5050L));
+    assertThat(snapshot.getMeanNanos()).isEqualTo(50_500_000.0);
+    assertThat(snapshot.getPercentileNanos(50.0)).isBetween(
+      TimeUnit.MILLISECONDS.toNanos(50L),
+      TimeUnit.MILLISECONDS.toNanos(57L)
+    );
+    assertThat(snapshot.getPercentileNanos(99.0)).isBetween(
+      TimeUnit.MILLISECONDS.toNanos(99L),
+      TimeUnit.MILLISECONDS.toNanos(112L)
+    );
+    assertThat(snapshot.getMaxNanos()).isBetween(TimeUnit.MILLISECONDS.toNanos(100L), TimeUnit.MILLISECONDS.toNanos(113L));
+
+  }
+
+  @Test
+  void resetsAfterSnapshot() {
+
+    histogram.record(1_000L, false);
+    histogram.snapshotAndReset();
+
+    LatencySnapshot snapshot = histogram.snapshotAndReset();
+
+    assertThat(snapshot.getCount()).isZero();
+    assertThat(snapshot.getSumNanos()).isZero();
+    assertThat(snapshot.getPercentileNanos(99.0)).isZero();
+    assertThat(snapshot.getMaxNanos()).isZero();
+
+  }
+
+  @Test
+  void recordsNegativeLatencyAsZero() {
+
+    histogram.record(-1L, false);
+
+    LatencySnapshot snapshot = histogram.snapshotAndReset();
+
+    assertThat(snapshot.getCount()).isOne();
+    assertThat(snapshot.getSumNanos()).isZero();
+
+  }
+
+  @Test
+  void rejectsInvalidPercentile() {
+
+    LatencySnapshot snapshot = histogram.snapshotAndReset();
+
+    assertThatThrownBy(() -> snapshot.getPercentileNanos(100.1)).isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
@@ -0,0 +1,187 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class LatencyRecorderTest {
+
+  private static final Duration INTERVAL = Duration.ofMinutes(1L);
+
+  private static final String HOST = "daniel-heid.de";
+
+  @Mock
+  private LatencySink sink;
+
+  @Mock
+  private ScheduledExecutorService scheduler;
+
+  @Captor
+  private ArgumentCaptor<LatencySnapshot> snapshotCaptor;
+
+  @Test
+  void schedulesExports() {
+
+    new LatencyRecorder(sink, INTERVAL, 2, scheduler);
+
+    verify(scheduler).scheduleAtFixedRate(
+      any(Runnable.class),
+      eq(INTERVAL.toNanos()),
+      eq(INTERVAL.toNanos()),
+      eq(TimeUnit.NANOSECONDS)
+    );
+
+  }
+
+  @Test
+  void exportsLatenciesPerHost() {
+
+    LatencyRecorder latencyRecorder = new LatencyRecorder(sink, INTERVAL, 2, scheduler);
+    latencyRecorder.record(HOST, 1_000_000L, false);
+    latencyRecorder.record(HOST, 2_000_000L, true);
+
+    latencyRecorder.export();
+
+    verify(sink).export(eq(HOST), snapshotCaptor.capture());
+    assertThat(snapshotCaptor.getValue().getCount()).isEqualTo(2L);
+    assertThat(snapshotCaptor.getValue().getFailedCount()).isOne();
+
+  }
+
+  @Test
+  void recordsFurtherHostsAsOtherHost() {
+
+    LatencyRecorder latencyRecorder = new LatencyRecorder(sink, INTERVAL, 1, scheduler);
+    latencyRecorder.record(HOST, 1_000_000L, false);
+    latencyRecorder.record("example.org", 1_000_000L, false);
+    latencyRecorder.record(null, 1_000_000L, false);
+
+    latencyRecorder.export();
+
+    assertThat(latencyRecorder.getHostCount()).isOne();
+    verify(sink).export(eq(HOST), any(LatencySnapshot.class));
+    verify(sink).export(eq(LatencyRecorder.OTHER_HOST), snapshotCaptor.capture());
+    assertThat(snapshotCaptor.getValue().getCount()).isEqualTo(2L);
+
+  }
+
+  @Test
+  void evictsIdleHosts() {
+
+    LatencyRecorder latencyRecorder = new LatencyRecorder(sink, INTERVAL, 1, scheduler);
+    latencyRecorder.record(HOST, 1_000_000L, false);
+    latencyRecorder.export();
+
+    latencyRecorder.export();
+    latencyRecorder.record("example.org", 1_000_000L, false);
+
+    assertThat(latencyRecorder.getHostCount()).isOne();
+    latencyRecorder.export();
+    verify(sink).export(eq("example.org"), any(LatencySnapshot.class));
+    verify(sink, never()).export(eq(LatencyRecorder.OTHER_HOST), any(LatencySnapshot.class));
+
+  }
+
+  @Test
+  void exportsLatencyRecordedWhileHostIsEvicted() {
+
+    LatencyRecorder latencyRecorder = new LatencyRecorder(sink, INTERVAL, 1, scheduler);
+    LatencyHistogram evictedHistogram = latencyRecorder.getHistogram(HOST);
+
+    latencyRecorder.export();
+    latencyRecorder.record(HOST, evictedHistogram, 1_000_000L, false);
+
+    verify(sink).export(eq(HOST), snapshotCaptor.capture());
+    assertThat(snapshotCaptor.getValue().getCount()).isOne();
+    assertThat(latencyRecorder.getHistogram(HOST)).isNotSameAs(evictedHistogram);
+
+  }
+
+  @Test
+  void keepsMaximumNumberOfHostsWhileAddingHostsConcurrently() throws Exception {
+
+    LatencyRecorder latencyRecorder = new LatencyRecorder(sink, INTERVAL, 2, scheduler);
+    ExecutorService recorders = Executors.newFixedThreadPool(4);
+    try {
+      for (int i = 0; i < 1_000; i++) {
+        String host = "host" + i + ".local";
+        recorders.execute(() -> latencyRecorder.record(host, 1_000_000L, false));
+      }
+    } finally {
+      recorders.shutdown();
+    }
+
+    assertThat(recorders.awaitTermination(5L, TimeUnit.SECONDS)).isTrue();
+    assertThat(latencyRecorder.getHostCount()).isEqualTo(2);
+
+  }
+
+  @Test
+  void recordsTimerOnlyOnce() {
+
+    LatencyRecorder latencyRecorder = new LatencyRecorder(sink, INTERVAL, 1, scheduler);
+    LatencyRecorder.Timer timer = latencyRecorder.start(HOST);
+
+    timer.stop(false);
+    timer.stop(true);
+    latencyRecorder.export();
+
+    verify(sink).export(eq(HOST), snapshotCaptor.capture());
+    assertThat(snapshotCaptor.getValue().getCount()).isOne();
+    assertThat(snapshotCaptor.getValue().getFailedCount()).isZero();
+
+  }
+
+  @Test
+  void continuesExportAfterFailingSink() {
+
+    LatencyRecorder latencyRecorder = new LatencyRecorder(sink, INTERVAL, 1, scheduler);
+    latencyRecorder.record(HOST, 1_000_000L, false);
+    latencyRecorder.record("example.org", 1_000_000L, false);
+    willThrow(new IllegalStateException("test")).given(sink).export(eq(HOST), any(LatencySnapshot.class));
+
+    latencyRecorder.export();
+
+    verify(sink).export(eq(LatencyRecorder.OTHER_HOST), any(LatencySnapshot.class));
+
+  }
+
+  @Test
+  void skipsExportWithoutRequests() {
+
+    LatencyRecorder latencyRecorder = new LatencyRecorder(sink, INTERVAL, 1, scheduler);
+
+    latencyRecorder.export();
+
+    verify(sink, never()).export(anyString(), any(LatencySnapshot.class));
+
+  }
+
+  @Test
+  void rejectsNonPositiveMaximumNumberOfHosts() {
+
+    assertThatThrownBy(() -> new LatencyRecorder(sink, INTERVAL, 0, scheduler))
+      .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
@@ -0,0 +1,155 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.ISpan;
+import io.sentry.Instrumenter;
+import io.sentry.SentryDate;
+import io.sentry.SentryNanotimeDate;
+import io.sentry.SpanStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class LogicalExchangeTest {
+
+  private static final RequestDescriptor REQUEST = new RequestDescriptor("GET", "https://www.daniel-heid.de/old");
+
+  private static final RequestDescriptor REDIRECTED_REQUEST = new RequestDescriptor(
+    "GET",
+    "https://www.daniel-heid.de/new"
+  );
+
+  private final LogicalExchange logicalExchange = new LogicalExchange();
+
+  @Mock
+  private ISpan parentSpan;
+
+  @Mock
+  private ISpan logicalSpan;
+
+  @Mock
+  private ISpan firstAttempt;
+
+  @Mock
+  private ISpan secondAttempt;
+
+  @Captor
+  private ArgumentCaptor<Double> backoffCaptor;
+
+  @Test
+  void startsLogicalSpanWithFirstAttempt() {
+
+    givenLogicalSpan();
+    given(logicalSpan.startChild(
+      eq(LogicalExchange.ATTEMPT_OPERATION),
+      eq("GET https://www.daniel-heid.de/old"),
+      any(SentryDate.class),
+      eq(Instrumenter.SENTRY)
+    )).willReturn(firstAttempt);
+
+    assertThat(logicalExchange.startAttempt(parentSpan, REQUEST)).isSameAs(firstAttempt);
+
+    assertThat(logicalExchange.isStarted()).isTrue();
+    verify(firstAttempt).setData(LogicalExchange.ATTEMPT_DATA_KEY, 1);
+
+  }
+
+  @Test
+  void recordsBackoffOfRetry() {
+
+    givenLogicalSpan();
+    givenAttempts();
+    long nanos = System.nanoTime();
+    given(firstAttempt.isFinished()).willReturn(true);
+    given(firstAttempt.getStartDate()).willReturn(new SentryNanotimeDate(new Date(), nanos - TimeUnit.MILLISECONDS.toNanos(80L)));
+    given(firstAttempt.getFinishDate()).willReturn(new SentryNanotimeDate(new Date(), nanos - TimeUnit.MILLISECONDS.toNanos(50L)));
+
+    logicalExchange.startAttempt(parentSpan, REQUEST);
+    logicalExchange.startAttempt(parentSpan, REQUEST);
+    logicalExchange.finish(SpanStatus.OK, null);
+
+    verify(secondAttempt).setData(eq(LogicalExchange.BACKOFF_DATA_KEY), backoffCaptor.capture());
+    assertThat(backoffCaptor.getValue()).isGreaterThanOrEqualTo(50.0);
+    verify(logicalSpan).setData(LogicalExchange.ATTEMPTS_DATA_KEY, 2);
+    verify(logicalSpan).setData(LogicalExchange.RETRIES_DATA_KEY, 1);
+    verify(logicalSpan).setData(LogicalExchange.REDIRECTS_DATA_KEY, 0);
+    verify(logicalSpan).setData(LogicalExchange.ATTEMPTS_DURATION_DATA_KEY, 30.0);
+    verify(logicalSpan).finish(eq(SpanStatus.OK), any(SentryDate.class));
+
+  }
+
+  @Test
+  void countsRedirectAndFinishesAbandonedAttempt() {
+
+    givenLogicalSpan();
+    givenAttempts();
+
+    logicalExchange.startAttempt(parentSpan, REQUEST);
+    logicalExchange.startAttempt(parentSpan, REDIRECTED_REQUEST);
+    logicalExchange.finish(SpanStatus.OK, null);
+
+    verify(firstAttempt).finish(eq(SpanStatus.UNKNOWN_ERROR), any(SentryDate.class));
+    verify(secondAttempt, never()).setData(eq(LogicalExchange.BACKOFF_DATA_KEY), any());
+    verify(logicalSpan).setData(LogicalExchange.REDIRECTS_DATA_KEY, 1);
+    verify(logicalSpan).setData(LogicalExchange.RETRIES_DATA_KEY, 0);
+
+  }
+
+  @Test
+  void finishesLogicalSpanWithCause() {
+
+    givenLogicalSpan();
+    given(logicalSpan.startChild(anyString(), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY)))
+      .willReturn(firstAttempt);
+    IllegalStateException cause = new IllegalStateException("failed");
+
+    logicalExchange.startAttempt(parentSpan, REQUEST);
+    logicalExchange.finish(SpanStatus.INTERNAL_ERROR, cause);
+
+    verify(firstAttempt).finish(eq(SpanStatus.INTERNAL_ERROR), any(SentryDate.class));
+    verify(logicalSpan).setThrowable(cause);
+    verify(logicalSpan).finish(eq(SpanStatus.INTERNAL_ERROR), any(SentryDate.class));
+
+  }
+
+  @Test
+  void ignoresDeclinedCall() {
+
+    logicalExchange.decline();
+    logicalExchange.finish(SpanStatus.OK, null);
+
+    assertThat(logicalExchange.isDeclined()).isTrue();
+    assertThat(logicalExchange.isStarted()).isFalse();
+
+  }
+
+  private void givenLogicalSpan() {
+    given(parentSpan.startChild(
+      eq("http.client"),
+      eq("GET https://www.daniel-heid.de/old"),
+      any(SentryDate.class),
+      eq(Instrumenter.SENTRY)
+    )).willReturn(logicalSpan);
+  }
+
+  private void givenAttempts() {
+    given(logicalSpan.startChild(anyString(), anyString(), any(SentryDate.class), eq(Instrumenter.SENTRY)))
+      .willReturn(firstAttempt, secondAttempt);
+  }
+
+}
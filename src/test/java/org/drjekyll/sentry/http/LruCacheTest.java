@@ -0,0 +1,43 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LruCacheTest {
+
+  private final LruCache<String, Integer> cache = new LruCache<>(2);
+
+  @Test
+  void computesMissingValueOnce() {
+
+    assertThat(cache.computeIfAbsent("a", String::length)).isEqualTo(1);
+    assertThat(cache.computeIfAbsent("a", key -> 42)).isEqualTo(1);
+
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedEntry() {
+
+    cache.computeIfAbsent("a", key -> 1);
+    cache.computeIfAbsent("b", key -> 2);
+    cache.computeIfAbsent("a", key -> 3);
+    cache.computeIfAbsent("c", key -> 4);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.computeIfAbsent("a", key -> 5)).isEqualTo(1);
+    assertThat(cache.computeIfAbsent("b", key -> 6)).isEqualTo(6);
+
+  }
+
+  @Test
+  void removesEntry() {
+
+    cache.computeIfAbsent("a", key -> 1);
+
+    assertThat(cache.remove("a")).isEqualTo(1);
+    assertThat(cache.size()).isZero();
+
+  }
+
+}
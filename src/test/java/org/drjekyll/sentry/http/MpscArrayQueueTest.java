@@ -0,0 +1,91 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpscArrayQueueTest {
+
+  @Test
+  void pollsInOrderOfOffering() {
+
+    MpscArrayQueue<String> queue = new MpscArrayQueue<>(4);
+    queue.offer("first");
+    queue.offer("second");
+
+    assertThat(queue.poll()).isEqualTo("first");
+    assertThat(queue.poll()).isEqualTo("second");
+    assertThat(queue.poll()).isNull();
+    assertThat(queue.isEmpty()).isTrue();
+
+  }
+
+  @Test
+  void holdsAtLeastTwoElements() {
+
+    MpscArrayQueue<String> queue = new MpscArrayQueue<>(1);
+
+    assertThat(queue.offer("first")).isTrue();
+    assertThat(queue.offer("second")).isTrue();
+    assertThat(queue.offer("third")).isFalse();
+    assertThat(queue.poll()).isEqualTo("first");
+    assertThat(queue.poll()).isEqualTo("second");
+
+  }
+
+  @Test
+  void rejectsElementsIfFull() {
+
+    MpscArrayQueue<String> queue = new MpscArrayQueue<>(3);
+    for (int i = 0; i < queue.capacity(); i++) {
+      assertThat(queue.offer("element")).isTrue();
+    }
+
+    assertThat(queue.capacity()).isEqualTo(4);
+    assertThat(queue.offer("rejected")).isFalse();
+    assertThat(queue.poll()).isEqualTo("element");
+    assertThat(queue.offer("accepted")).isTrue();
+
+  }
+
+  @Test
+  void passesElementsOfConcurrentProducers() throws Exception {
+
+    int producers = 4;
+    int elementsPerProducer = 10_000;
+    MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(64);
+    ExecutorService executorService = Executors.newFixedThreadPool(producers);
+    for (int producer = 0; producer < producers; producer++) {
+      executorService.execute(() -> {
+        for (int i = 0; i < elementsPerProducer; i++) {
+          while (!queue.offer(i)) {
+            Thread.yield();
+          }
+        }
+      });
+    }
+
+    long sum = 0L;
+    int count = 0;
+    while (count < producers * elementsPerProducer) {
+      Integer element = queue.poll();
+      if (element == null) {
+        Thread.yield();
+      } else {
+        sum += element;
+        count++;
+      }
+    }
+    executorService.shutdown();
+
+    assertThat(executorService.awaitTermination(5L, TimeUnit.SECONDS)).isTrue();
+    assertThat(sum).isEqualTo((long) producers * elementsPerProducer * (elementsPerProducer - 1) / 2);
+    assertThat(queue.poll()).isNull();
+
+  }
+
+}
@@ -0,0 +1,44 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestDescriptorTest {
+
+  private final RequestDescriptor descriptor = new RequestDescriptor("GET", "https://www.daniel-heid.de/page?query=string");
+
+  @Test
+  void rendersDescription() {
+
+    assertThat(descriptor.getDescription()).isEqualTo("GET https://www.daniel-heid.de/page?query=string");
+
+  }
+
+  @Test
+  void rendersDescriptionOnce() {
+
+    assertThat(descriptor.getDescription()).isSameAs(descriptor.getDescription());
+
+  }
+
+  @Test
+  void requiresMethod() {
+
+    assertThatThrownBy(() -> new RequestDescriptor(null, "https://www.daniel-heid.de/"))
+      .isInstanceOf(NullPointerException.class);
+
+  }
+
+  @Test
+  void extractsHost() {
+
+    assertThat(new RequestDescriptor("GET", "https://user@WWW.Daniel-Heid.de:8443/page?query").getHost())
+      .isEqualTo("www.daniel-heid.de");
+    assertThat(new RequestDescriptor("GET", "http://[::1]:8080").getHost()).isEqualTo("[::1]");
+    assertThat(new RequestDescriptor("GET", "/page").getHost()).isEmpty();
+
+  }
+
+}
@@ -0,0 +1,77 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@ExtendWith(MockitoExtension.class)
+class RouteSamplingPolicyTest {
+
+  private final RouteSamplingPolicy policy = new RouteSamplingPolicy(
+    1.0,
+    Collections.singletonMap("get /search/{term}", 0.0)
+  );
+
+  private final UrlNormalizer urlNormalizer = new DefaultUrlNormalizer(List.of("/search/{term}"));
+
+  @Mock
+  private ISpan parentSpan;
+
+  @Test
+  void usesRateOfMethodAndRoute() {
+
+    RequestDescriptor request = new RequestDescriptor(
+      "GET",
+      "https://search.local:9200/search/java?page=2",
+      urlNormalizer
+    );
+
+    assertThat(policy.isSampled(request, parentSpan, null)).isFalse();
+
+  }
+
+  @Test
+  void usesRateOfRelativeUrl() {
+
+    RequestDescriptor request = new RequestDescriptor("GET", "/search/java", urlNormalizer);
+
+    assertThat(policy.isSampled(request, parentSpan, null)).isFalse();
+
+  }
+
+  @Test
+  void usesDefaultRateOfOtherMethods() {
+
+    RequestDescriptor request = new RequestDescriptor("POST", "https://search.local/search/java", urlNormalizer);
+
+    assertThat(policy.isSampled(request, parentSpan, null)).isTrue();
+
+  }
+
+  @Test
+  void usesDefaultRateOfOtherRoutes() {
+
+    RequestDescriptor request = new RequestDescriptor("GET", "https://search.local/", urlNormalizer);
+
+    assertThat(policy.isSampled(request, parentSpan, null)).isTrue();
+
+  }
+
+  @Test
+  void rejectsInvalidRate() {
+
+    assertThatThrownBy(() -> new RouteSamplingPolicy(-0.1, Collections.emptyMap()))
+      .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
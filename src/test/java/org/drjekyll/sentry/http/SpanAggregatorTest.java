@@ -0,0 +1,132 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import io.sentry.Hint;
+import io.sentry.ISpan;
+import io.sentry.ITransaction;
+import io.sentry.SpanContext;
+import io.sentry.SpanStatus;
+import io.sentry.protocol.SentrySpan;
+import io.sentry.protocol.SentryTransaction;
+import io.sentry.protocol.TransactionInfo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+class SpanAggregatorTest {
+
+  private final SpanAggregator spanAggregator = new SpanAggregator();
+
+  private final SpanContext transactionContext = new SpanContext("transaction");
+
+  private final SpanContext parentSpanContext = new SpanContext("parent");
+
+  @Mock
+  private ITransaction transaction;
+
+  @Mock
+  private ISpan parentSpan;
+
+  @Test
+  void addsSummarySpanToTransaction() {
+
+    given(transaction.isSampled()).willReturn(true);
+    given(transaction.getSpanContext()).willReturn(transactionContext);
+    given(parentSpan.getSpanContext()).willReturn(parentSpanContext);
+    UrlNormalizer urlNormalizer = new DefaultUrlNormalizer();
+
+    for (int i = 0; i < 100; i++) {
+      RequestDescriptor request = new RequestDescriptor("GET", "https://www.daniel-heid.de/users/" + i, urlNormalizer);
+      spanAggregator.start(transaction, parentSpan, request, System.nanoTime())
+        .finish(i == 42 ? SpanStatus.NOT_FOUND : SpanStatus.OK);
+    }
+    SentryTransaction sentryTransaction = process();
+
+    assertThat(sentryTransaction.getSpans()).hasSize(1);
+    SentrySpan span = sentryTransaction.getSpans().get(0);
+    assertThat(span.getOp()).isEqualTo("http.client");
+    assertThat(span.getDescription()).isEqualTo("GET https://www.daniel-heid.de/users/{id}");
+    assertThat(span.getStatus()).isEqualTo(SpanStatus.NOT_FOUND);
+    assertThat(span.getTraceId()).isEqualTo(parentSpanContext.getTraceId());
+    assertThat(span.getParentSpanId()).isEqualTo(parentSpanContext.getSpanId());
+    assertThat(span.getStartTimestamp()).isLessThanOrEqualTo(span.getTimestamp());
+    assertThat(span.getData())
+      .containsEntry(SpanAggregator.COUNT_DATA_KEY, 100L)
+      .containsKeys(
+        SpanAggregator.TOTAL_DATA_KEY,
+        SpanAggregator.MIN_DATA_KEY,
+        SpanAggregator.MAX_DATA_KEY,
+        SpanAggregator.P95_DATA_KEY
+      );
+    double min = (Double) span.getData().get(SpanAggregator.MIN_DATA_KEY);
+    double p95 = (Double) span.getData().get(SpanAggregator.P95_DATA_KEY);
+    double max = (Double) span.getData().get(SpanAggregator.MAX_DATA_KEY);
+    assertThat(min).isLessThanOrEqualTo(p95);
+    assertThat(p95).isLessThanOrEqualTo(max);
+
+  }
+
+  @Test
+  void flushesSummarySpansOnce() {
+
+    given(transaction.isSampled()).willReturn(true);
+    given(transaction.getSpanContext()).willReturn(transactionContext);
+    given(parentSpan.getSpanContext()).willReturn(parentSpanContext);
+
+    RequestDescriptor request = new RequestDescriptor("GET", "https://www.daniel-heid.de/");
+    spanAggregator.start(transaction, parentSpan, request, System.nanoTime()).finish(null);
+    process();
+
+    assertThat(process().getSpans()).isEmpty();
+
+  }
+
+  @Test
+  void ignoresUnsampledTransaction() {
+
+    given(transaction.isSampled()).willReturn(false);
+
+    RequestDescriptor request = new RequestDescriptor("GET", "https://www.daniel-heid.de/");
+
+    assertThat(spanAggregator.start(transaction, parentSpan, request, System.nanoTime())).isNull();
+
+  }
+
+  @Test
+  void measuresFromCapturedStart() {
+
+    given(transaction.isSampled()).willReturn(true);
+    given(transaction.getSpanContext()).willReturn(transactionContext);
+    given(parentSpan.getSpanContext()).willReturn(parentSpanContext);
+    RequestDescriptor request = new RequestDescriptor("GET", "https://www.daniel-heid.de/");
+
+    spanAggregator.start(transaction, parentSpan, request, System.nanoTime() - 50_000_000L).finish(SpanStatus.OK);
+
+    SentrySpan span = process().getSpans().get(0);
+    assertThat((Double) span.getData().get(SpanAggregator.MIN_DATA_KEY)).isGreaterThanOrEqualTo(50.0);
+
+  }
+
+  private SentryTransaction process() {
+    SentryTransaction sentryTransaction = new SentryTransaction(
+      "transaction",
+      0.0,
+      1.0,
+      new ArrayList<>(),
+      new HashMap<>(),
+      new HashMap<>(),
+      new TransactionInfo("custom")
+    );
+    sentryTransaction.getContexts().setTrace(transactionContext);
+    return spanAggregator.process(sentryTransaction, new Hint());
+  }
+
+}
@@ -0,0 +1,60 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.sentry.ISpan;
+import io.sentry.ITransaction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class SpanBudgetPolicyTest {
+
+  private static final RequestDescriptor REQUEST = new RequestDescriptor("GET", "https://www.daniel-heid.de/");
+
+  private final SpanBudgetPolicy policy = new SpanBudgetPolicy(2);
+
+  @Mock
+  private ISpan parentSpan;
+
+  @Mock
+  private ISpan otherParentSpan;
+
+  @Mock
+  private ITransaction transaction;
+
+  @Mock
+  private ITransaction otherTransaction;
+
+  @Test
+  void limitsSpansPerTransaction() {
+
+    assertThat(policy.isSampled(REQUEST, parentSpan, transaction)).isTrue();
+    assertThat(policy.isSampled(REQUEST, otherParentSpan, transaction)).isTrue();
+    assertThat(policy.isSampled(REQUEST, parentSpan, transaction)).isFalse();
+
+  }
+
+  @Test
+  void keepsBudgetsOfTransactionsOfSameTraceApart() {
+
+    assertThat(policy.isSampled(REQUEST, parentSpan, transaction)).isTrue();
+    assertThat(policy.isSampled(REQUEST, parentSpan, transaction)).isTrue();
+    assertThat(policy.isSampled(REQUEST, otherParentSpan, otherTransaction)).isTrue();
+
+  }
+
+  @Test
+  void limitsSpansPerParentSpanWithoutTransaction() {
+
+    assertThat(policy.isSampled(REQUEST, parentSpan, null)).isTrue();
+    assertThat(policy.isSampled(REQUEST, parentSpan, null)).isTrue();
+    assertThat(policy.isSampled(REQUEST, parentSpan, null)).isFalse();
+    assertThat(policy.isSampled(REQUEST, otherParentSpan, null)).isTrue();
+
+  }
+
+}
@@ -0,0 +1,127 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.sentry.ISpan;
+import io.sentry.SpanStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SpanReaperTest {
+
+  private static final Duration DEADLINE = Duration.ofSeconds(62L);
+
+  @Mock
+  private ScheduledExecutorService scheduler;
+
+  @Mock
+  private ISpan span;
+
+  @Test
+  void schedulesTicksAtFractionOfDeadline() {
+
+    new SpanReaper(DEADLINE, scheduler);
+
+    verify(scheduler).scheduleAtFixedRate(
+      any(Runnable.class),
+      eq(TimeUnit.SECONDS.toNanos(1L)),
+      eq(TimeUnit.SECONDS.toNanos(1L)),
+      eq(TimeUnit.NANOSECONDS)
+    );
+
+  }
+
+  @Test
+  void reapsUnfinishedSpanAfterDeadline() {
+
+    SpanReaper spanReaper = new SpanReaper(DEADLINE, scheduler);
+    spanReaper.register(span);
+
+    tick(spanReaper, SpanReaper.WHEEL_SIZE - 1);
+
+    verify(span).setData(SpanReaper.REAPED_DATA_KEY, true);
+    verify(span).finish(SpanStatus.DEADLINE_EXCEEDED);
+    assertThat(spanReaper.getReapedCount()).isEqualTo(1L);
+
+  }
+
+  @Test
+  void keepsSpanBeforeDeadline() {
+
+    SpanReaper spanReaper = new SpanReaper(DEADLINE, scheduler);
+    spanReaper.register(span);
+
+    tick(spanReaper, SpanReaper.WHEEL_SIZE - 2);
+
+    verify(span, never()).finish(any());
+    assertThat(spanReaper.getReapedCount()).isZero();
+
+  }
+
+  @Test
+  void skipsFinishedSpan() {
+
+    SpanReaper spanReaper = new SpanReaper(DEADLINE, scheduler);
+    spanReaper.register(span);
+    given(span.isFinished()).willReturn(true);
+
+    tick(spanReaper, SpanReaper.WHEEL_SIZE);
+
+    verify(span, never()).finish(any());
+    assertThat(spanReaper.getReapedCount()).isZero();
+
+  }
+
+  @Test
+  void reapsSpanOnlyOnce() {
+
+    SpanReaper spanReaper = new SpanReaper(DEADLINE, scheduler);
+    spanReaper.register(span);
+
+    tick(spanReaper, 2 * SpanReaper.WHEEL_SIZE);
+
+    verify(span).finish(SpanStatus.DEADLINE_EXCEEDED);
+    assertThat(spanReaper.getReapedCount()).isEqualTo(1L);
+
+  }
+
+  @Test
+  void reapsShortDeadlineAfterTwoTicks() {
+
+    SpanReaper spanReaper = new SpanReaper(Duration.ofNanos(1L), scheduler);
+    spanReaper.register(span);
+
+    tick(spanReaper, 2);
+
+    verify(span).finish(SpanStatus.DEADLINE_EXCEEDED);
+
+  }
+
+  @Test
+  void rejectsNonPositiveDeadline() {
+
+    assertThatThrownBy(() -> new SpanReaper(Duration.ZERO, scheduler)).isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  private static void tick(SpanReaper spanReaper, int ticks) {
+    for (int i = 0; i < ticks; i++) {
+      spanReaper.tick();
+    }
+  }
+
+}
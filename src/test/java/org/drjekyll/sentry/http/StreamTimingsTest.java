@@ -0,0 +1,97 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class StreamTimingsTest {
+
+  @Mock
+  private ISpan span;
+
+  @Captor
+  private ArgumentCaptor<Object> blockedCaptor;
+
+  private final StreamTimings streamTimings = new StreamTimings();
+
+  @Test
+  void writesNothingIfHeadersWereNotSent() {
+
+    streamTimings.applyTo(span);
+
+    verify(span, never()).setData(anyString(), any());
+
+  }
+
+  @Test
+  void writesStreamIdAndTimings() {
+
+    streamTimings.headersSent(3);
+
+    streamTimings.applyTo(span);
+
+    verify(span).setData(StreamTimings.STREAM_ID_DATA_KEY, 3);
+    verify(span).setData(eq(StreamTimings.QUEUED_DATA_KEY), any(Double.class));
+    verify(span).setData(StreamTimings.FLOW_CONTROL_BLOCKED_DATA_KEY, 0.0);
+    verifyNoMoreInteractions(span);
+    assertThat(streamTimings.getStreamId()).isEqualTo(3);
+
+  }
+
+  @Test
+  void omitsUnknownStreamId() {
+
+    streamTimings.headersSent(0);
+
+    streamTimings.applyTo(span);
+
+    verify(span, never()).setData(eq(StreamTimings.STREAM_ID_DATA_KEY), any());
+
+  }
+
+  @Test
+  void addsTimeBlockedUntilResumed() throws InterruptedException {
+
+    streamTimings.headersSent(1);
+    streamTimings.outputBlocked();
+    Thread.sleep(5L);
+    streamTimings.outputBlocked();
+    streamTimings.outputResumed();
+    streamTimings.outputResumed();
+
+    streamTimings.applyTo(span);
+
+    verify(span).setData(eq(StreamTimings.FLOW_CONTROL_BLOCKED_DATA_KEY), blockedCaptor.capture());
+    assertThat((Double) blockedCaptor.getValue()).isGreaterThanOrEqualTo(5.0);
+
+  }
+
+  @Test
+  void countsTimeStillBlocked() throws InterruptedException {
+
+    streamTimings.headersSent(1);
+    streamTimings.outputBlocked();
+    Thread.sleep(5L);
+
+    streamTimings.applyTo(span);
+
+    verify(span).setData(eq(StreamTimings.FLOW_CONTROL_BLOCKED_DATA_KEY), blockedCaptor.capture());
+    assertThat((Double) blockedCaptor.getValue()).isGreaterThanOrEqualTo(5.0);
+
+  }
+
+}
@@ -0,0 +1,41 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.sentry.ISpan;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class TokenBucketSamplingPolicyTest {
+
+  private static final RequestDescriptor REQUEST = new RequestDescriptor("GET", "https://www.daniel-heid.de/");
+
+  @Mock
+  private ISpan parentSpan;
+
+  @Test
+  void allowsBurstOnly() {
+
+    TokenBucketSamplingPolicy policy = new TokenBucketSamplingPolicy(0.001, 3);
+
+    assertThat(policy.isSampled(REQUEST, parentSpan, null)).isTrue();
+    assertThat(policy.isSampled(REQUEST, parentSpan, null)).isTrue();
+    assertThat(policy.isSampled(REQUEST, parentSpan, null)).isTrue();
+    assertThat(policy.isSampled(REQUEST, parentSpan, null)).isFalse();
+
+  }
+
+  @Test
+  void combinesPolicies() {
+
+    SpanSamplingPolicy policy = SpanSamplingPolicy.ALWAYS.and((request, parent, transaction) -> false);
+
+    assertThat(policy.isSampled(REQUEST, parentSpan, null)).isFalse();
+
+  }
+
+}
@@ -0,0 +1,121 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import io.sentry.SentryTraceHeader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceHeaderDecoderTest {
+
+  private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+  private static final String SPAN_ID = "00f067aa0ba902b7";
+
+  private final TraceHeaderDecoder traceHeaderDecoder = new TraceHeaderDecoder();
+
+  @Test
+  void decodesSampledSentryTrace() {
+
+    SentryTraceHeader header = decodeSentryTrace(TRACE_ID + '-' + SPAN_ID + "-1");
+
+    assertThat(header.getTraceId().toString()).isEqualTo(TRACE_ID);
+    assertThat(header.getSpanId().toString()).isEqualTo(SPAN_ID);
+    assertThat(header.isSampled()).isTrue();
+
+  }
+
+  @Test
+  void decodesSentryTraceWithoutSamplingDecision() {
+
+    SentryTraceHeader header = decodeSentryTrace(TRACE_ID + '-' + SPAN_ID);
+
+    assertThat(header.getTraceId().toString()).isEqualTo(TRACE_ID);
+    assertThat(header.isSampled()).isNull();
+
+  }
+
+  @Test
+  void decodesValueWithinBuffer() {
+
+    String line = "sentry-trace: " + TRACE_ID + '-' + SPAN_ID + "-0 ";
+
+    SentryTraceHeader header = traceHeaderDecoder.decodeSentryTrace(line, 13, line.length());
+
+    assertThat(header.getSpanId().toString()).isEqualTo(SPAN_ID);
+    assertThat(header.isSampled()).isFalse();
+
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+    "",
+    "4bf92f3577b34da6a3ce929d0e0e4736",
+    "4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-2",
+    "4bf92f3577b34da6a3ce929d0e0e4736_00f067aa0ba902b7",
+    "4BF92F3577B34DA6A3CE929D0E0E4736-00F067AA0BA902B7",
+    "4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-1-1"
+  })
+  void rejectsMalformedSentryTrace(String value) {
+
+    assertThat(decodeSentryTrace(value)).isNull();
+
+  }
+
+  @Test
+  void decodesSampledTraceparent() {
+
+    SentryTraceHeader header = decodeTraceparent("00-" + TRACE_ID + '-' + SPAN_ID + "-01");
+
+    assertThat(header.getTraceId().toString()).isEqualTo(TRACE_ID);
+    assertThat(header.getSpanId().toString()).isEqualTo(SPAN_ID);
+    assertThat(header.isSampled()).isTrue();
+
+  }
+
+  @Test
+  void leavesSamplingDecisionOfUnsampledTraceparentOpen() {
+
+    SentryTraceHeader header = decodeTraceparent("00-" + TRACE_ID + '-' + SPAN_ID + "-00");
+
+    assertThat(header.isSampled()).isNull();
+
+  }
+
+  @Test
+  void ignoresFieldsOfFutureVersions() {
+
+    SentryTraceHeader header = decodeTraceparent("01-" + TRACE_ID + '-' + SPAN_ID + "-03-future");
+
+    assertThat(header.getTraceId().toString()).isEqualTo(TRACE_ID);
+    assertThat(header.isSampled()).isTrue();
+
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+    "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-future",
+    "ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01",
+    "00-00000000000000000000000000000000-00f067aa0ba902b7-01",
+    "00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01",
+    "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-0x",
+    "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7",
+    "01-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01future"
+  })
+  void rejectsMalformedTraceparent(String value) {
+
+    assertThat(decodeTraceparent(value)).isNull();
+
+  }
+
+  private SentryTraceHeader decodeSentryTrace(String value) {
+    return traceHeaderDecoder.decodeSentryTrace(value, 0, value.length());
+  }
+
+  private SentryTraceHeader decodeTraceparent(String value) {
+    return traceHeaderDecoder.decodeTraceparent(value, 0, value.length());
+  }
+
+}
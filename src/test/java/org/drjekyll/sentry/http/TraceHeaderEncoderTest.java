@@ -0,0 +1,120 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.sentry.ISpan;
+import io.sentry.SentryTraceHeader;
+import io.sentry.SpanContext;
+import io.sentry.SpanId;
+import io.sentry.TracesSamplingDecision;
+import io.sentry.protocol.SentryId;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+class TraceHeaderEncoderTest {
+
+  private static final SentryId TRACE_ID = new SentryId("984e8992456b4cb6b63c4bbb6be31d2b");
+
+  private static final SpanId SPAN_ID = new SpanId("8b3c4f0e2a1d5c6b");
+
+  private final TraceHeaderEncoder traceHeaderEncoder = new TraceHeaderEncoder();
+
+  @Mock
+  private ISpan span;
+
+  @Test
+  void encodesSentryTraceOnly() {
+
+    givenSpanContext(true);
+
+    TraceHeaderEncoder.EncodedTraceHeaders traceHeaders = traceHeaderEncoder.encode(span, TracePropagationFormat.SENTRY);
+
+    assertThat(traceHeaders.getSentryTrace()).isEqualTo("984e8992456b4cb6b63c4bbb6be31d2b-8b3c4f0e2a1d5c6b-1");
+    assertThat(traceHeaders.getTraceparent()).isNull();
+
+  }
+
+  @Test
+  void encodesTraceparentOnly() {
+
+    givenSpanContext(true);
+
+    TraceHeaderEncoder.EncodedTraceHeaders traceHeaders = traceHeaderEncoder.encode(span, TracePropagationFormat.W3C);
+
+    assertThat(traceHeaders.getSentryTrace()).isNull();
+    assertThat(traceHeaders.getTraceparent()).isEqualTo("00-984e8992456b4cb6b63c4bbb6be31d2b-8b3c4f0e2a1d5c6b-01");
+
+  }
+
+  @Test
+  void encodesBothFormatsOfSampledOutSpan() {
+
+    givenSpanContext(false);
+
+    TraceHeaderEncoder.EncodedTraceHeaders traceHeaders = traceHeaderEncoder.encode(
+      span,
+      TracePropagationFormat.SENTRY_AND_W3C
+    );
+
+    assertThat(traceHeaders.getSentryTrace()).isEqualTo("984e8992456b4cb6b63c4bbb6be31d2b-8b3c4f0e2a1d5c6b-0");
+    assertThat(traceHeaders.getTraceparent()).isEqualTo("00-984e8992456b4cb6b63c4bbb6be31d2b-8b3c4f0e2a1d5c6b-00");
+
+  }
+
+  @Test
+  void leavesOutSampledFlagOfDeferredSentryTrace() {
+
+    given(span.getSpanContext()).willReturn(new SpanContext(TRACE_ID, SPAN_ID, "http.client", null, null));
+
+    TraceHeaderEncoder.EncodedTraceHeaders traceHeaders = traceHeaderEncoder.encode(
+      span,
+      TracePropagationFormat.SENTRY_AND_W3C
+    );
+
+    assertThat(traceHeaders.getSentryTrace()).isEqualTo("984e8992456b4cb6b63c4bbb6be31d2b-8b3c4f0e2a1d5c6b");
+    assertThat(traceHeaders.getTraceparent()).isEqualTo("00-984e8992456b4cb6b63c4bbb6be31d2b-8b3c4f0e2a1d5c6b-00");
+
+  }
+
+  @Test
+  void encodesSpanOfOtherTrace() {
+
+    SpanContext spanContext = new SpanContext(
+      new SentryId(),
+      new SpanId(),
+      "http.client",
+      null,
+      new TracesSamplingDecision(true)
+    );
+    given(span.getSpanContext()).willReturn(spanContext);
+    ISpan otherSpan = mock(ISpan.class);
+    given(otherSpan.getSpanContext()).willReturn(new SpanContext(TRACE_ID, SPAN_ID, "http.client", null, null));
+
+    traceHeaderEncoder.encode(otherSpan, TracePropagationFormat.SENTRY);
+    TraceHeaderEncoder.EncodedTraceHeaders traceHeaders = traceHeaderEncoder.encode(span, TracePropagationFormat.SENTRY);
+
+    assertThat(traceHeaders.getSentryTrace()).isEqualTo(new SentryTraceHeader(
+      spanContext.getTraceId(),
+      spanContext.getSpanId(),
+      true
+    ).getValue());
+
+  }
+
+  private void givenSpanContext(boolean sampled) {
+    given(span.getSpanContext()).willReturn(new SpanContext(
+      TRACE_ID,
+      SPAN_ID,
+      "http.client",
+      null,
+      new TracesSamplingDecision(sampled)
+    ));
+  }
+
+}
@@ -0,0 +1,108 @@
+package org.drjekyll.sentry.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import io.sentry.SentryOptions;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TracePropagationTargetMatcherTest {
+
+  private static final String URL = "https://www.daniel-heid.de/page?query=string";
+
+  private final TracePropagationTargetMatcher matcher = new TracePropagationTargetMatcher();
+
+  private final SentryOptions options = new SentryOptions();
+
+  @Test
+  void matchesEverythingByDefault() {
+
+    assertThat(matcher.matches(options, URL)).isTrue();
+
+  }
+
+  @Test
+  void matchesContainedTarget() {
+
+    options.setTracePropagationTargets(singletonList("daniel-heid.de"));
+
+    assertThat(matcher.matches(options, URL)).isTrue();
+    assertThat(matcher.matches(options, "https://example.org/")).isFalse();
+
+  }
+
+  @Test
+  void matchesRegularExpression() {
+
+    options.setTracePropagationTargets(singletonList("^https://www\\.daniel-heid\\.de/.*$"));
+
+    assertThat(matcher.matches(options, URL)).isTrue();
+    assertThat(matcher.matches(options, "http://www.daniel-heid.de/page")).isFalse();
+
+  }
+
+  @Test
+  void ignoresInvalidRegularExpression() {
+
+    options.setTracePropagationTargets(Arrays.asList("[invalid", "example.org"));
+
+    assertThat(matcher.matches(options, URL)).isFalse();
+    assertThat(matcher.matches(options, "https://example.org/[invalid")).isTrue();
+
+  }
+
+  @Test
+  void matchesNothingWithoutTargets() {
+
+    options.setTracePropagationTargets(emptyList());
+
+    assertThat(matcher.matches(options, URL)).isFalse();
+
+  }
+
+  @Test
+  void doesNotMatchMissingUrl() {
+
+    assertThat(matcher.matches(options, null)).isFalse();
+
+  }
+
+  @Test
+  void recompilesChangedTargets() {
+
+    options.setTracePropagationTargets(singletonList("example.org"));
+    assertThat(matcher.matches(options, URL)).isFalse();
+
+    options.setTracePropagationTargets(singletonList("daniel-heid.de"));
+
+    assertThat(matcher.matches(options, URL)).isTrue();
+
+  }
+
+  @Test
+  void keepsDecidingCorrectlyBeyondCacheSize() {
+
+    TracePropagationTargetMatcher smallMatcher = new TracePropagationTargetMatcher(2);
+    options.setTracePropagationTargets(singletonList(".*/api/.*"));
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(smallMatcher.matches(options, "https://example.org/api/" + i)).isTrue();
+      assertThat(smallMatcher.matches(options, "https://example.org/web/" + i)).isFalse();
+      assertThat(smallMatcher.matches(options, "https://example.org/api/" + i + "?page=" + i)).isTrue();
+    }
+
+  }
+
+  @Test
+  void rejectsInvalidCacheSize() {
+
+    assertThatThrownBy(() -> new TracePropagationTargetMatcher(0)).isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
@@ -0,0 +1,232 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.HttpProcessors;
+import org.apache.hc.core5.http.impl.bootstrap.AsyncServerBootstrap;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.impl.bootstrap.HttpServer;
+import org.apache.hc.core5.http.impl.bootstrap.ServerBootstrap;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+import org.drjekyll.sentry.apachehttpclient5.SentryHttpClients;
+import org.drjekyll.sentry.http.SentryHttpOptions;
+import org.drjekyll.sentry.http.TracePropagationFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import io.sentry.HubAdapter;
+import io.sentry.ISpan;
+import io.sentry.Sentry;
+import io.sentry.SentryOptions;
+import io.sentry.SentryTracer;
+import io.sentry.SpanContext;
+import io.sentry.SpanStatus;
+import io.sentry.TransactionOptions;
+import io.sentry.protocol.SentrySpan;
+import io.sentry.protocol.SentryTransaction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentryHttpServerIT {
+
+  private final List<SentryTransaction> transactions = new CopyOnWriteArrayList<>();
+
+  private HttpServer server;
+
+  private String baseUrl;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    SentryOptions options = new SentryOptions();
+    options.setDsn("http://7caad69b389e41d98a74b1504b3c388f@localhost:1/42");
+    options.setTracesSampleRate(1.0);
+    options.setBeforeSendTransaction((transaction, hint) -> {
+      transactions.add(transaction);
+      return null;
+    });
+    Sentry.init(options);
+    CloseableHttpClient backendClient = SentryHttpClients.instrument(HttpClientBuilder.create()).build();
+    server = ServerBootstrap.bootstrap()
+      .setListenerPort(0)
+      .setHttpProcessor(SentryHttpServers.instrument(HttpProcessors.customServer(null)).build())
+      .register("/backend/*", (request, response, context) -> response.setCode(HttpStatus.SC_NO_CONTENT))
+      .register("/frontend", (request, response, context) -> {
+        int statusCode = backendClient.execute(
+          new HttpGet(baseUrl + "/backend/42"),
+          SentryHttpServerContexts.fork(context, HubAdapter.getInstance()),
+          backendResponse -> {
+            EntityUtils.consume(backendResponse.getEntity());
+            return backendResponse.getCode();
+          }
+        );
+        response.setCode(statusCode == HttpStatus.SC_NO_CONTENT ? HttpStatus.SC_OK : HttpStatus.SC_BAD_GATEWAY);
+      })
+      .create();
+    server.start();
+    baseUrl = "http://localhost:" + server.getLocalPort();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.close(CloseMode.IMMEDIATE);
+    Sentry.close();
+  }
+
+  @Test
+  void continuesTraceAcrossHttpHops() throws Exception {
+
+    SentryTracer transaction = startTransaction();
+    try (CloseableHttpClient client = SentryHttpClients.instrument(HttpClientBuilder.create()).build()) {
+      int statusCode = client.execute(new HttpGet(baseUrl + "/frontend"), response -> response.getCode());
+      assertThat(statusCode).isEqualTo(HttpStatus.SC_OK);
+    }
+    transaction.finish();
+
+    ISpan clientSpan = transaction.getChildren().get(0);
+    SentryTransaction frontend = getServerTransaction("GET /frontend");
+    SpanContext frontendContext = frontend.getContexts().getTrace();
+    assertThat(frontendContext.getTraceId()).isEqualTo(transaction.getSpanContext().getTraceId());
+    assertThat(frontendContext.getParentSpanId()).isEqualTo(clientSpan.getSpanContext().getSpanId());
+    assertThat(frontendContext.getOperation()).isEqualTo(SentryHttpServerRequestInterceptor.OPERATION);
+    assertThat(frontendContext.getStatus()).isEqualTo(SpanStatus.OK);
+    SentrySpan backendCall = frontend.getSpans().get(0);
+    assertThat(backendCall.getOp()).isEqualTo("http.client");
+    SpanContext backendContext = getServerTransaction("GET /backend/{id}").getContexts().getTrace();
+    assertThat(backendContext.getTraceId()).isEqualTo(frontendContext.getTraceId());
+    assertThat(backendContext.getParentSpanId()).isEqualTo(backendCall.getSpanId());
+
+  }
+
+  @Test
+  void startsTraceWithoutIncomingTraceHeaders() throws Exception {
+
+    try (CloseableHttpClient client = HttpClients.createDefault()) {
+      int statusCode = client.execute(new HttpGet(baseUrl + "/backend/7?page=2"), response -> response.getCode());
+      assertThat(statusCode).isEqualTo(HttpStatus.SC_NO_CONTENT);
+    }
+
+    SpanContext backendContext = getServerTransaction("GET /backend/{id}").getContexts().getTrace();
+    assertThat(backendContext.getParentSpanId()).isNull();
+    assertThat(backendContext.getStatus()).isEqualTo(SpanStatus.OK);
+
+  }
+
+  @Test
+  void continuesTraceparentOnAsyncServer() throws Exception {
+
+    HttpAsyncServer asyncServer = AsyncServerBootstrap.bootstrap()
+      .setHttpProcessor(SentryHttpServers.instrument(HttpProcessors.customServer(null)).build())
+      .register("*", new NoContentRequestHandler())
+      .create();
+    try {
+      asyncServer.start();
+      ListenerEndpoint endpoint = asyncServer.listen(new InetSocketAddress("localhost", 0), URIScheme.HTTP).get();
+      String asyncBaseUrl = "http://localhost:" + ((InetSocketAddress) endpoint.getAddress()).getPort();
+      SentryHttpOptions httpOptions = new SentryHttpOptions();
+      httpOptions.setTracePropagationFormat(TracePropagationFormat.W3C);
+      SentryTracer transaction = startTransaction();
+      try (CloseableHttpClient client = SentryHttpClients.instrument(
+        HttpClientBuilder.create(),
+        HubAdapter.getInstance(),
+        httpOptions
+      ).build()) {
+        int statusCode = client.execute(new HttpGet(asyncBaseUrl + "/async"), response -> response.getCode());
+        assertThat(statusCode).isEqualTo(HttpStatus.SC_NO_CONTENT);
+      }
+      transaction.finish();
+
+      ISpan clientSpan = transaction.getChildren().get(0);
+      SpanContext asyncContext = getServerTransaction("GET /async").getContexts().getTrace();
+      assertThat(asyncContext.getTraceId()).isEqualTo(transaction.getSpanContext().getTraceId());
+      assertThat(asyncContext.getParentSpanId()).isEqualTo(clientSpan.getSpanContext().getSpanId());
+    } finally {
+      asyncServer.close(CloseMode.IMMEDIATE);
+    }
+
+  }
+
+  @Test
+  void dropsTransactionsRejectedBySamplingPolicy() throws Exception {
+
+    SentryHttpServerOptions serverOptions = new SentryHttpServerOptions();
+    serverOptions.setTransactionSamplingPolicy(request -> request.getPath().startsWith("/health") ? 0.0 : null);
+    HttpServer healthServer = ServerBootstrap.bootstrap()
+      .setListenerPort(0)
+      .setHttpProcessor(SentryHttpServers.instrument(
+        HttpProcessors.customServer(null),
+        HubAdapter.getInstance(),
+        serverOptions
+      ).build())
+      .register("*", (request, response, context) -> response.setCode(HttpStatus.SC_NO_CONTENT))
+      .create();
+    try (CloseableHttpClient client = HttpClients.createDefault()) {
+      healthServer.start();
+      String healthBaseUrl = "http://localhost:" + healthServer.getLocalPort();
+      client.execute(new HttpGet(healthBaseUrl + "/health"), response -> response.getCode());
+      client.execute(new HttpGet(healthBaseUrl + "/orders"), response -> response.getCode());
+    } finally {
+      healthServer.close(CloseMode.IMMEDIATE);
+    }
+
+    assertThat(transactions.stream().map(SentryTransaction::getTransaction).collect(Collectors.toList()))
+      .containsExactly("GET /orders");
+
+  }
+
+  private SentryTransaction getServerTransaction(String name) {
+    return transactions.stream()
+      .filter(transaction -> name.equals(transaction.getTransaction()))
+      .findFirst()
+      .orElseThrow(() -> new AssertionError("No transaction " + name + " in " + transactions));
+  }
+
+  private static SentryTracer startTransaction() {
+    TransactionOptions transactionOptions = new TransactionOptions();
+    transactionOptions.setBindToScope(true);
+    return (SentryTracer) Sentry.startTransaction("TRANSACTION_NAME", "TRANSACTION_OPERATION", transactionOptions);
+  }
+
+  private static final class NoContentRequestHandler implements AsyncServerRequestHandler<Message<HttpRequest, Void>> {
+
+    @Override
+    public AsyncRequestConsumer<Message<HttpRequest, Void>> prepare(
+      HttpRequest request,
+      EntityDetails entityDetails,
+      HttpContext context
+    ) {
+      return new BasicRequestConsumer<>(entityDetails != null ? new DiscardingEntityConsumer<>() : null);
+    }
+
+    @Override
+    public void handle(Message<HttpRequest, Void> message, ResponseTrigger responseTrigger, HttpContext context)
+      throws HttpException, IOException {
+      responseTrigger.submitResponse(new BasicResponseProducer(new BasicHttpResponse(HttpStatus.SC_NO_CONTENT)), context);
+    }
+
+  }
+
+}
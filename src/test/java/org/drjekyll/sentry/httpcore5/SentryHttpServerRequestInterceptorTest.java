@@ -0,0 +1,172 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import io.sentry.IHub;
+import io.sentry.ITransaction;
+import io.sentry.NoOpLogger;
+import io.sentry.SentryOptions;
+import io.sentry.TransactionContext;
+import io.sentry.TransactionOptions;
+import io.sentry.protocol.TransactionNameSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SentryHttpServerRequestInterceptorTest {
+
+  private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+  private static final String SPAN_ID = "00f067aa0ba902b7";
+
+  @Mock
+  private IHub hub;
+
+  @Mock
+  private ITransaction transaction;
+
+  @Captor
+  private ArgumentCaptor<TransactionContext> transactionContextCaptor;
+
+  @Captor
+  private ArgumentCaptor<TransactionOptions> transactionOptionsCaptor;
+
+  private final SentryHttpServerOptions serverOptions = new SentryHttpServerOptions();
+
+  private final HttpContext context = new BasicHttpContext();
+
+  private final BasicHttpRequest request = new BasicHttpRequest("GET", "/users/42?details=true");
+
+  private SentryHttpServerRequestInterceptor interceptor;
+
+  @BeforeEach
+  void setUp() {
+    interceptor = new SentryHttpServerRequestInterceptor(hub, serverOptions);
+  }
+
+  @Test
+  void doesNothingIfTracingIsDisabled() throws IOException {
+
+    given(hub.isEnabled()).willReturn(true);
+    given(hub.getOptions()).willReturn(new SentryOptions());
+
+    interceptor.process(request, null, context);
+
+    verify(hub, never()).startTransaction(any(TransactionContext.class), any(TransactionOptions.class));
+    assertThat(SentryHttpServerContexts.getTransaction(context)).isNull();
+
+  }
+
+  @Test
+  void startsTransactionNamedAfterNormalizedPath() throws IOException {
+
+    givenTracingEnabled();
+
+    interceptor.process(request, null, context);
+
+    TransactionContext transactionContext = transactionContextCaptor.getValue();
+    assertThat(transactionContext.getName()).isEqualTo("GET /users/{id}");
+    assertThat(transactionContext.getTransactionNameSource()).isEqualTo(TransactionNameSource.URL);
+    assertThat(transactionContext.getOperation()).isEqualTo(SentryHttpServerRequestInterceptor.OPERATION);
+    assertThat(transactionContext.getParentSpanId()).isNull();
+    TransactionOptions transactionOptions = transactionOptionsCaptor.getValue();
+    assertThat(transactionOptions.isBindToScope()).isFalse();
+    assertThat(transactionOptions.getStartTimestamp()).isNotNull();
+    assertThat(transactionOptions.getCustomSamplingContext()
+      .get(SentryHttpServerRequestInterceptor.SAMPLING_CONTEXT_REQUEST_KEY)).isSameAs(request);
+    assertThat(SentryHttpServerContexts.getTransaction(context)).isSameAs(transaction);
+
+  }
+
+  @Test
+  void continuesTraceOfSentryTraceHeader() throws IOException {
+
+    givenTracingEnabled();
+    request.addHeader("sentry-trace", TRACE_ID + '-' + SPAN_ID + "-1");
+    request.addHeader("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-00");
+    request.addHeader("baggage", "sentry-trace_id=" + TRACE_ID + ",sentry-sample_rate=0.5");
+
+    interceptor.process(request, null, context);
+
+    TransactionContext transactionContext = transactionContextCaptor.getValue();
+    assertThat(transactionContext.getTraceId().toString()).isEqualTo(TRACE_ID);
+    assertThat(transactionContext.getParentSpanId().toString()).isEqualTo(SPAN_ID);
+    assertThat(transactionContext.getParentSampled()).isTrue();
+    assertThat(transactionContext.getBaggage().getSampleRate()).isEqualTo("0.5");
+    assertThat(transactionContext.getName()).isEqualTo("GET /users/{id}");
+
+  }
+
+  @Test
+  void continuesTraceOfTraceparentHeader() throws IOException {
+
+    givenTracingEnabled();
+    request.addHeader("traceparent", "00-" + TRACE_ID + '-' + SPAN_ID + "-01");
+
+    interceptor.process(request, null, context);
+
+    TransactionContext transactionContext = transactionContextCaptor.getValue();
+    assertThat(transactionContext.getTraceId().toString()).isEqualTo(TRACE_ID);
+    assertThat(transactionContext.getParentSpanId().toString()).isEqualTo(SPAN_ID);
+    assertThat(transactionContext.getParentSampled()).isTrue();
+
+  }
+
+  @Test
+  void appliesSampleRateOfPolicyWithoutDecisionOfCaller() throws IOException {
+
+    givenTracingEnabled();
+    serverOptions.setTransactionSamplingPolicy(request -> 0.0);
+    serverOptions.setDeadlineTimeout(Duration.ofSeconds(30L));
+
+    interceptor.process(request, null, context);
+
+    TransactionContext transactionContext = transactionContextCaptor.getValue();
+    assertThat(transactionContext.getSamplingDecision().getSampled()).isFalse();
+    assertThat(transactionContext.getSamplingDecision().getSampleRate()).isZero();
+    assertThat(transactionOptionsCaptor.getValue().getDeadlineTimeout()).isEqualTo(30_000L);
+
+  }
+
+  @Test
+  void keepsDecisionOfCaller() throws IOException {
+
+    givenTracingEnabled();
+    serverOptions.setTransactionSamplingPolicy(request -> 0.0);
+    request.addHeader("sentry-trace", TRACE_ID + '-' + SPAN_ID + "-1");
+
+    interceptor.process(request, null, context);
+
+    TransactionContext transactionContext = transactionContextCaptor.getValue();
+    assertThat(transactionContext.getSamplingDecision()).isNull();
+    assertThat(transactionContext.getParentSampled()).isTrue();
+
+  }
+
+  private void givenTracingEnabled() {
+    SentryOptions options = new SentryOptions();
+    options.setTracesSampleRate(1.0);
+    options.setLogger(NoOpLogger.getInstance());
+    given(hub.isEnabled()).willReturn(true);
+    given(hub.getOptions()).willReturn(options);
+    given(hub.startTransaction(transactionContextCaptor.capture(), transactionOptionsCaptor.capture()))
+      .willReturn(transaction);
+  }
+
+}
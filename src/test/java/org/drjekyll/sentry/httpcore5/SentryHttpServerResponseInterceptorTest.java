@@ -0,0 +1,64 @@
+package org.drjekyll.sentry.httpcore5;
+
+import org.apache.hc.core5.http.message.BasicHttpResponse;
+import org.apache.hc.core5.http.protocol.BasicHttpContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+
+import io.sentry.IHub;
+import io.sentry.ITransaction;
+import io.sentry.SentryDate;
+import io.sentry.SpanDataConvention;
+import io.sentry.SpanStatus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class SentryHttpServerResponseInterceptorTest {
+
+  @InjectMocks
+  private SentryHttpServerResponseInterceptor interceptor;
+
+  @Mock
+  private IHub hub;
+
+  @Mock
+  private ITransaction transaction;
+
+  private final HttpContext context = new BasicHttpContext();
+
+  @Test
+  void doesNothingWithoutTransaction() throws IOException {
+
+    interceptor.process(new BasicHttpResponse(200), null, context);
+
+    verifyNoInteractions(hub);
+
+  }
+
+  @Test
+  void finishesTransactionWithStatusOfResponse() throws IOException {
+
+    given(hub.isEnabled()).willReturn(true);
+    context.setAttribute(ContextAttributes.TRANSACTION, transaction);
+
+    interceptor.process(new BasicHttpResponse(404), null, context);
+
+    verify(transaction).setData(SpanDataConvention.HTTP_STATUS_CODE_KEY, 404);
+    verify(transaction).finish(eq(SpanStatus.NOT_FOUND), any(SentryDate.class));
+    assertThat(SentryHttpServerContexts.getTransaction(context)).isNull();
+
+  }
+
+}